@@ -0,0 +1,209 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// The ParseListener that lowers a parse straight into an AstNode tree, so the ParseTree is never
+// built. Terminals that carry meaning (names, types, literals and operators) are pushed onto a
+// list of pending items, and when a non terminal exits, the items pushed since it was entered are
+// reduced into its AstNode. Non terminals with nothing of their own to add (stat, factor, the
+// prime and operator helpers, epsilon, ...) leave their items where they are for the parent.
+// The right recursive rules then come out flat: every level of a los, and every link of an
+// operator chain, leaves its items side by side, to be reduced once by the outermost level.
+public class AstBuilder implements ParseListener {
+
+	private final List<Object> items = new ArrayList<Object>();
+	// The open non terminals, each with the number of items there were when it was entered
+	private TreeNode.Label[] labels = new TreeNode.Label[64];
+	private int[] starts = new int[64];
+	private int depth;
+	private AstNode.Program program;
+
+	@Override
+	public void enterNonTerminal(TreeNode.Label label) {
+		if (depth == labels.length) {
+			labels = Arrays.copyOf(labels, depth * 2);
+			starts = Arrays.copyOf(starts, depth * 2);
+		}
+		labels[depth] = label;
+		starts[depth] = items.size();
+		depth++;
+	}
+
+	@Override
+	public void exitNonTerminal(TreeNode.Label label) {
+		depth--;
+		int start = starts[depth];
+		TreeNode.Label parent = depth == 0 ? null : labels[depth - 1];
+		switch (label) {
+		case prog:
+			program = new AstNode.Program((String) items.get(start), (AstNode.Block) items.get(start + 1));
+			items.clear();
+			break;
+		case los:
+			if (parent != TreeNode.Label.los) {
+				List<Object> statements = items.subList(start, items.size());
+				reduce(start, new AstNode.Block(statements.toArray(new AstNode[statements.size()])));
+			}
+			break;
+		case decl:
+			AstNode value = items.size() > start + 2 ? node(start + 2) : null;
+			reduce(start, new AstNode.Decl((String) items.get(start), (String) items.get(start + 1), value));
+			break;
+		case assign:
+			reduce(start, new AstNode.Assign((String) items.get(start), node(start + 1)));
+			break;
+		case print:
+			reduce(start, new AstNode.Print(node(start)));
+			break;
+		case whilestat:
+			reduce(start, new AstNode.While(node(start), (AstNode.Block) items.get(start + 1)));
+			break;
+		case forstat:
+			reduce(start, forStatement(start));
+			break;
+		case ifstat:
+			reduce(start, ifStatement(start));
+			break;
+		case relexpr:
+		case arithexpr:
+		case term:
+			fold(start);
+			break;
+		case boolexpr:
+			// The first operand is the relexpr before the outermost boolexpr
+			if (parent != TreeNode.Label.boolexpr) {
+				fold(start - 1);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	@Override
+	public void terminal(Token.TokenType type, String value, int symbol, int tokenIndex) {
+		switch (type) {
+		case ID:
+		case TYPE:
+			// Only turned into a Name if it turns out to be an operand, see node
+			items.add(value);
+			break;
+		case NUM:
+		case TRUE:
+		case FALSE:
+		case CHARLIT:
+		case STRINGLIT:
+			items.add(new AstNode.Literal(type, value));
+			break;
+		case PLUS:
+		case MINUS:
+		case TIMES:
+		case DIVIDE:
+		case MOD:
+		case EQUAL:
+		case NEQUAL:
+		case LT:
+		case LE:
+		case GT:
+		case GE:
+		case AND:
+		case OR:
+			items.add(type);
+			break;
+		default:
+			break;
+		}
+	}
+
+	// The program, once a whole one has been parsed
+	public AstNode.Program getProgram() {
+		return this.program;
+	}
+
+	// Lowers a tree that has already been parsed, by walking it and replaying the parse
+	public static AstNode.Program lower(ParseTree tree) {
+		TreeNode root = tree.getRoot();
+		if (root == null || root.getLabel() != TreeNode.Label.prog) {
+			throw new IllegalArgumentException("Only a whole program can be lowered");
+		}
+		AstBuilder builder = new AstBuilder();
+		TreeWalker.walk(root, new TreeVisitor() {
+			@Override
+			public Action enter(TreeNode node, int depth) {
+				if (node.getLabel() != TreeNode.Label.terminal) {
+					builder.enterNonTerminal(node.getLabel());
+					return Action.CONTINUE;
+				}
+				Token token = node.getToken().get();
+				builder.terminal(token.getType(), token.getValue().orElse(null), token.getSymbol(), -1);
+				return Action.CONTINUE;
+			}
+
+			@Override
+			public Action exit(TreeNode node, int depth) {
+				if (node.getLabel() != TreeNode.Label.terminal) {
+					builder.exitNonTerminal(node.getLabel());
+				}
+				return Action.CONTINUE;
+			}
+		});
+		return builder.getProgram();
+	}
+
+	// Folds the operands and operators from start on, e.g. a - b + c, into one left associative
+	// BinaryOp, ((a - b) + c)
+	private void fold(int start) {
+		AstNode result = node(start);
+		for (int i = start + 1; i < items.size(); i += 2) {
+			result = new AstNode.BinaryOp((Token.TokenType) items.get(i), result, node(i + 1));
+		}
+		reduce(start, result);
+	}
+
+	// for (init; condition; update) { ... }, where the init and update may be missing
+	private AstNode.For forStatement(int start) {
+		int end = items.size() - 1;
+		AstNode.Block body = (AstNode.Block) items.get(end);
+		AstNode init = null;
+		int i = start;
+		if (items.get(i) instanceof AstNode.Decl || items.get(i) instanceof AstNode.Assign) {
+			init = node(i++);
+		}
+		AstNode condition = node(i++);
+		AstNode update = i < end ? node(i) : null;
+		return new AstNode.For(init, condition, update, body);
+	}
+
+	// The items are a condition and block for the if, then for each else if another condition and
+	// block, and for an else just a block
+	private AstNode.If ifStatement(int start) {
+		List<AstNode> conditions = new ArrayList<AstNode>();
+		List<AstNode.Block> blocks = new ArrayList<AstNode.Block>();
+		for (int i = start; i < items.size(); i++) {
+			Object item = items.get(i);
+			if (item instanceof AstNode.Block) {
+				conditions.add(null);
+			}
+			else {
+				conditions.add(node(i++));
+			}
+			blocks.add((AstNode.Block) items.get(i));
+		}
+		return new AstNode.If(conditions.toArray(new AstNode[conditions.size()]), blocks.toArray(new AstNode.Block[blocks.size()]));
+	}
+
+	// The item at index as an operand: a name still pending as its String becomes a Name
+	private AstNode node(int index) {
+		Object item = items.get(index);
+		if (item instanceof String) {
+			return new AstNode.Name((String) item);
+		}
+		return (AstNode) item;
+	}
+
+	// Replaces the items from start on with node
+	private void reduce(int start, AstNode node) {
+		items.subList(start, items.size()).clear();
+		items.add(node);
+	}
+}
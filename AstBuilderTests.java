@@ -0,0 +1,118 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AstBuilderTests {
+
+	private static final String HEADER = "public class Test { public static void main(String[] args){ ";
+
+	private static AstNode.Program parse(String body) throws LexicalException, SyntaxException {
+		return SyntacticAnalyser.parseAst(LexicalAnalyser.buffer(HEADER + body + " }}"));
+	}
+
+	@Test
+	public void testStatements() throws LexicalException, SyntaxException {
+		AstNode.Program program = parse("int x = 1; char c = 'a'; boolean b; x = 2; ; System.out.println(\"hi\"); System.out.println(x);");
+		assertEquals("Test", program.getName());
+		assertEquals("(program Test (block (decl int x 1) (decl char c 'a') (decl boolean b) (assign x 2) (print \"hi\") (print x)))", program.toString());
+
+		AstNode.Decl decl = (AstNode.Decl) program.getBody().getStatements().get(2);
+		assertEquals("boolean", decl.getType());
+		assertEquals("b", decl.getName());
+		assertTrue(decl.getValue().isEmpty());
+	}
+
+	@Test
+	public void testOperatorsAreLeftAssociative() throws LexicalException, SyntaxException {
+		AstNode.Program program = parse("x = a - b - c * d / e % (f + g); y = x == 1 == true;");
+		assertEquals("(program Test (block (assign x (- (- a b) (% (/ (* c d) e) (+ f g)))) (assign y (== (== x 1) true))))", program.toString());
+
+		AstNode.BinaryOp op = (AstNode.BinaryOp) ((AstNode.Assign) program.getBody().getStatements().get(0)).getValue();
+		assertEquals(Token.TokenType.MINUS, op.getOperator());
+		assertEquals(AstNode.Kind.BINARY_OP, op.getLeft().getKind());
+		assertEquals(AstNode.Kind.BINARY_OP, op.getRight().getKind());
+	}
+
+	// The lexer has no rules for the relational operators, so their tokens are made by hand
+	@Test
+	public void testRelationalOperators() throws LexicalException, SyntaxException {
+		List<Token> tokens = new ArrayList<Token>(LexicalAnalyser.analyse(HEADER + "x = a + 1 ; }}"));
+		int plus = 0;
+		while (tokens.get(plus).getType() != Token.TokenType.PLUS) {
+			plus++;
+		}
+		tokens.set(plus, new Token(Token.TokenType.LE, "<="));
+		assertEquals("(program Test (block (assign x (<= a 1))))", SyntacticAnalyser.parseAst(tokens).toString());
+	}
+
+	@Test
+	public void testControlFlow() throws LexicalException, SyntaxException {
+		AstNode.Program program = parse("if (x == 1) { x = 2; } else if (x) { } else { ; } "
+			+ "while (true) { int y; } for (int i = 0; i == 10; i + 1) { } for (; x;) { }");
+		assertEquals("(program Test (block (if (== x 1) (block (assign x 2)) x (block) (block)) (while true (block (decl int y))) "
+			+ "(for (decl int i 0) (== i 10) (+ i 1) (block)) (for x (block))))", program.toString());
+
+		AstNode.If chain = (AstNode.If) program.getBody().getStatements().get(0);
+		assertEquals(3, chain.getBranchCount());
+		assertTrue(chain.getCondition(1).isPresent());
+		assertTrue(chain.getCondition(2).isEmpty());
+
+		AstNode.For loop = (AstNode.For) program.getBody().getStatements().get(3);
+		assertTrue(loop.getInit().isEmpty());
+		assertTrue(loop.getUpdate().isEmpty());
+	}
+
+	// A long statement list nests a los per statement in the parse tree, but is one flat block here
+	@Test
+	public void testStatementListsAreFlat() throws LexicalException, SyntaxException {
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			body.append("x = x + ").append(i).append("; ");
+		}
+		body.append("while (x == 1) { x = 1; x = 2; }");
+		AstNode.Program program = parse(body.toString());
+		List<AstNode> statements = program.getBody().getStatements();
+		assertEquals(100001, statements.size());
+		assertEquals("(assign x (+ x 99999))", statements.get(99999).toString());
+		assertEquals(2, ((AstNode.While) statements.get(100000)).getBody().getStatements().size());
+	}
+
+	@Test
+	public void testLoweringATreeMatchesParsingDirectly() throws LexicalException, SyntaxException {
+		ProgramGenerator generator = new ProgramGenerator(21);
+		generator.setTargetTokens(20000);
+		for (int i = 0; i < 5; i++) {
+			String source = generator.generate();
+			ParseTree tree = SyntacticAnalyser.parse(LexicalAnalyser.analyse(source));
+			AstNode.Program direct = SyntacticAnalyser.parseAst(LexicalAnalyser.buffer(source));
+			assertEquals(direct.toString(), tree.toAst().toString());
+
+			// The AST is a fraction of the size of the tree it comes from
+			int treeNodes = 0;
+			for (TreeIterator nodes = tree.preOrder(); nodes.hasNext(); nodes.next()) {
+				treeNodes++;
+			}
+			assertTrue(count(direct) * 4 < treeNodes);
+		}
+	}
+
+	@Test
+	public void testOnlyWholeProgramsAreLowered() {
+		TreeNode stat = new TreeNode(TreeNode.Label.stat, null);
+		assertThrows(IllegalArgumentException.class, () -> AstBuilder.lower(new ParseTree(stat)));
+		assertThrows(IllegalArgumentException.class, () -> new ParseTree().toAst());
+	}
+
+	private static int count(AstNode root) {
+		int count = 0;
+		List<AstNode> stack = new ArrayList<AstNode>();
+		stack.add(root);
+		while (!stack.isEmpty()) {
+			AstNode node = stack.remove(stack.size() - 1);
+			count++;
+			stack.addAll(node.getChildren());
+		}
+		return count;
+	}
+}
@@ -0,0 +1,475 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+// A node of the abstract syntax tree AstBuilder lowers a parse into. Where a ParseTree keeps a
+// node for every symbol of every production, the AST keeps only what the program means: no
+// epsilon, prime or single child chain nodes, statement lists as one flat Block, and each
+// operator chain folded into left associative BinaryOps. Children are held in fields or plain
+// arrays rather than lists, and names and values are the token lexemes, shared rather than copied.
+public abstract class AstNode {
+
+	public enum Kind {
+		PROGRAM, BLOCK, DECL, ASSIGN, IF, WHILE, FOR, PRINT, BINARY_OP, LITERAL, NAME
+	}
+
+	public abstract Kind getKind();
+
+	// The node's children in source order
+	public abstract List<AstNode> getChildren();
+
+	// The node's own part of toString, without its children
+	abstract String head();
+
+	// The tree as an s-expression, e.g. (assign x (+ x 1)). Built without recursion, since an
+	// operator chain folds into a tree as deep as the chain is long
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		ArrayDeque<Object> stack = new ArrayDeque<Object>();
+		stack.push(this);
+		while (!stack.isEmpty()) {
+			Object top = stack.pop();
+			if (top instanceof String) {
+				sb.append(top);
+				continue;
+			}
+			if (sb.length() > 0 && sb.charAt(sb.length() - 1) != '(') {
+				sb.append(' ');
+			}
+			AstNode node = (AstNode) top;
+			if (node.getKind() == Kind.NAME || node.getKind() == Kind.LITERAL) {
+				sb.append(node.head());
+				continue;
+			}
+			List<AstNode> children = node.getChildren();
+			sb.append('(').append(node.head());
+			stack.push(")");
+			for (int i = children.size() - 1; i >= 0; i--) {
+				stack.push(children.get(i));
+			}
+		}
+		return sb.toString();
+	}
+
+	// public class name { public static void main(String[] args) { body } }
+	public static final class Program extends AstNode {
+
+		private final String name;
+		private final Block body;
+
+		Program(String name, Block body) {
+			this.name = name;
+			this.body = body;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public Block getBody() {
+			return this.body;
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.PROGRAM;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return List.of(this.body);
+		}
+
+		@Override
+		String head() {
+			return "program " + this.name;
+		}
+	}
+
+	// The statements between a pair of braces. Empty statements are left out
+	public static final class Block extends AstNode {
+
+		private final AstNode[] statements;
+
+		Block(AstNode[] statements) {
+			this.statements = statements;
+		}
+
+		public List<AstNode> getStatements() {
+			return Collections.unmodifiableList(Arrays.asList(this.statements));
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.BLOCK;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return getStatements();
+		}
+
+		@Override
+		String head() {
+			return "block";
+		}
+	}
+
+	// type name, or type name = value
+	public static final class Decl extends AstNode {
+
+		private final String type;
+		private final String name;
+		private final AstNode value;
+
+		Decl(String type, String name, AstNode value) {
+			this.type = type;
+			this.name = name;
+			this.value = value;
+		}
+
+		public String getType() {
+			return this.type;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public Optional<AstNode> getValue() {
+			return Optional.ofNullable(this.value);
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.DECL;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return this.value == null ? List.of() : List.of(this.value);
+		}
+
+		@Override
+		String head() {
+			return "decl " + this.type + " " + this.name;
+		}
+	}
+
+	// name = value
+	public static final class Assign extends AstNode {
+
+		private final String name;
+		private final AstNode value;
+
+		Assign(String name, AstNode value) {
+			this.name = name;
+			this.value = value;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public AstNode getValue() {
+			return this.value;
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.ASSIGN;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return List.of(this.value);
+		}
+
+		@Override
+		String head() {
+			return "assign " + this.name;
+		}
+	}
+
+	// A whole if / else if / else chain, one branch per block. A branch without a condition is an
+	// else. The grammar lets an else be followed by further branches, so it need not be the last
+	public static final class If extends AstNode {
+
+		private final AstNode[] conditions;
+		private final Block[] blocks;
+
+		If(AstNode[] conditions, Block[] blocks) {
+			this.conditions = conditions;
+			this.blocks = blocks;
+		}
+
+		public int getBranchCount() {
+			return this.blocks.length;
+		}
+
+		public Optional<AstNode> getCondition(int branch) {
+			return Optional.ofNullable(this.conditions[branch]);
+		}
+
+		public Block getBlock(int branch) {
+			return this.blocks[branch];
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.IF;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			AstNode[] children = new AstNode[this.blocks.length * 2];
+			int count = 0;
+			for (int i = 0; i < this.blocks.length; i++) {
+				if (this.conditions[i] != null) {
+					children[count++] = this.conditions[i];
+				}
+				children[count++] = this.blocks[i];
+			}
+			return List.of(Arrays.copyOf(children, count));
+		}
+
+		@Override
+		String head() {
+			return "if";
+		}
+	}
+
+	public static final class While extends AstNode {
+
+		private final AstNode condition;
+		private final Block body;
+
+		While(AstNode condition, Block body) {
+			this.condition = condition;
+			this.body = body;
+		}
+
+		public AstNode getCondition() {
+			return this.condition;
+		}
+
+		public Block getBody() {
+			return this.body;
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.WHILE;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return List.of(this.condition, this.body);
+		}
+
+		@Override
+		String head() {
+			return "while";
+		}
+	}
+
+	// for (init; condition; update) body, where init is a Decl or Assign and update an expression
+	public static final class For extends AstNode {
+
+		private final AstNode init;
+		private final AstNode condition;
+		private final AstNode update;
+		private final Block body;
+
+		For(AstNode init, AstNode condition, AstNode update, Block body) {
+			this.init = init;
+			this.condition = condition;
+			this.update = update;
+			this.body = body;
+		}
+
+		public Optional<AstNode> getInit() {
+			return Optional.ofNullable(this.init);
+		}
+
+		public AstNode getCondition() {
+			return this.condition;
+		}
+
+		public Optional<AstNode> getUpdate() {
+			return Optional.ofNullable(this.update);
+		}
+
+		public Block getBody() {
+			return this.body;
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.FOR;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			AstNode[] children = new AstNode[4];
+			int count = 0;
+			if (this.init != null) {
+				children[count++] = this.init;
+			}
+			children[count++] = this.condition;
+			if (this.update != null) {
+				children[count++] = this.update;
+			}
+			children[count++] = this.body;
+			return List.of(Arrays.copyOf(children, count));
+		}
+
+		@Override
+		String head() {
+			return "for";
+		}
+	}
+
+	// System.out.println(value)
+	public static final class Print extends AstNode {
+
+		private final AstNode value;
+
+		Print(AstNode value) {
+			this.value = value;
+		}
+
+		public AstNode getValue() {
+			return this.value;
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.PRINT;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return List.of(this.value);
+		}
+
+		@Override
+		String head() {
+			return "print";
+		}
+	}
+
+	// left operator right, for the arithmetic, relational, equality and logical operators
+	public static final class BinaryOp extends AstNode {
+
+		private final Token.TokenType operator;
+		private final AstNode left;
+		private final AstNode right;
+
+		BinaryOp(Token.TokenType operator, AstNode left, AstNode right) {
+			this.operator = operator;
+			this.left = left;
+			this.right = right;
+		}
+
+		public Token.TokenType getOperator() {
+			return this.operator;
+		}
+
+		public AstNode getLeft() {
+			return this.left;
+		}
+
+		public AstNode getRight() {
+			return this.right;
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.BINARY_OP;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return List.of(this.left, this.right);
+		}
+
+		@Override
+		String head() {
+			return TokenBuffer.fixedText(this.operator);
+		}
+	}
+
+	// A NUM, TRUE, FALSE, CHARLIT or STRINGLIT, with its lexeme
+	public static final class Literal extends AstNode {
+
+		private final Token.TokenType type;
+		private final String value;
+
+		Literal(Token.TokenType type, String value) {
+			this.type = type;
+			this.value = value;
+		}
+
+		public Token.TokenType getType() {
+			return this.type;
+		}
+
+		public String getValue() {
+			return this.value;
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.LITERAL;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return List.of();
+		}
+
+		@Override
+		String head() {
+			if (this.type == Token.TokenType.CHARLIT) {
+				return "'" + this.value + "'";
+			}
+			if (this.type == Token.TokenType.STRINGLIT) {
+				return "\"" + this.value + "\"";
+			}
+			return this.value;
+		}
+	}
+
+	// A variable used in an expression
+	public static final class Name extends AstNode {
+
+		private final String name;
+
+		Name(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.NAME;
+		}
+
+		@Override
+		public List<AstNode> getChildren() {
+			return List.of();
+		}
+
+		@Override
+		String head() {
+			return this.name;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Lexes and parses many programs in parallel on a ForkJoinPool. Every input gets its own
+// ParseResult, so one bad program does not abort the rest of the batch.
+public class BatchParser {
+
+	// Below this many programs a task parses its range directly instead of splitting further
+	private static final int SEQUENTIAL_THRESHOLD = 16;
+
+	public static BatchResult parseAll(Collection<String> sources) {
+		return parseAll(sources, ForkJoinPool.commonPool());
+	}
+
+	public static BatchResult parseAll(Collection<String> sources, ForkJoinPool pool) {
+		return parseAll(sources, pool, null);
+	}
+
+	// As above, but looking every program up in the cache first
+	public static BatchResult parseAll(Collection<String> sources, ForkJoinPool pool, ParseCache cache) {
+		String[] inputs = sources.toArray(new String[0]);
+		ParseResult[] results = new ParseResult[inputs.length];
+
+		long start = System.nanoTime();
+		pool.invoke(new ParseRange(inputs, results, cache, 0, inputs.length));
+		long elapsed = System.nanoTime() - start;
+
+		return new BatchResult(new ArrayList<ParseResult>(Arrays.asList(results)), elapsed);
+	}
+
+	private static class ParseRange extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String[] inputs;
+		private final ParseResult[] results;
+		private final ParseCache cache;
+		private final int from;
+		private final int to;
+
+		ParseRange(String[] inputs, ParseResult[] results, ParseCache cache, int from, int to) {
+			this.inputs = inputs;
+			this.results = results;
+			this.cache = cache;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= SEQUENTIAL_THRESHOLD) {
+				for (int i = from; i < to; i++) {
+					results[i] = cache == null ? ParseResult.of(inputs[i]) : cache.parse(inputs[i]);
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new ParseRange(inputs, results, cache, from, mid), new ParseRange(inputs, results, cache, mid, to));
+		}
+	}
+}
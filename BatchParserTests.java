@@ -0,0 +1,48 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class BatchParserTests {
+
+	private static final String GOOD = "public class Test { public static void main(String[] args){ int i = 3 + 2 * 5; }}";
+	private static final String BAD_SYNTAX = "public class Test { public static void main(String[] args){ int i }}";
+	private static final String BAD_LEXEME = "public class Test { public static void main(String[] args){ int _453; }}";
+
+	@Test
+	public void testResultsAreInInputOrder() {
+		BatchResult batch = BatchParser.parseAll(Arrays.asList(GOOD, BAD_SYNTAX, BAD_LEXEME, GOOD));
+		List<ParseResult> results = batch.getResults();
+		assertEquals(4, results.size());
+		assertTrue(results.get(0).isSuccess());
+		assertTrue(results.get(1).getError().get() instanceof SyntaxException);
+		assertTrue(results.get(2).getError().get() instanceof LexicalException);
+		assertTrue(results.get(3).isSuccess());
+		assertEquals(2, batch.getFailureCount());
+	}
+
+	@Test
+	public void testBatchMatchesSequentialParse() throws LexicalException, SyntaxException {
+		List<String> sources = new ArrayList<String>();
+		for (int i = 0; i < 500; i++) {
+			sources.add(i % 7 == 0 ? BAD_SYNTAX : GOOD);
+		}
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			BatchResult batch = BatchParser.parseAll(sources, pool);
+			String expected = SyntacticAnalyser.parse(LexicalAnalyser.analyse(GOOD)).toString();
+			for (int i = 0; i < sources.size(); i++) {
+				ParseResult result = batch.getResults().get(i);
+				assertEquals(i % 7 != 0, result.isSuccess());
+				if (result.isSuccess()) {
+					assertEquals(expected, result.getTree().get().toString());
+				}
+			}
+			assertTrue(batch.getTokensPerSecond() > 0);
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
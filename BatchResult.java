@@ -0,0 +1,65 @@
+import java.util.List;
+
+// The per input results of a batch, in input order, plus aggregate throughput figures.
+public class BatchResult {
+
+	private final List<ParseResult> results;
+	private final long elapsedNanos;
+	private final long tokenCount;
+	private final int failureCount;
+
+	public BatchResult(List<ParseResult> results, long elapsedNanos) {
+		this.results = results;
+		this.elapsedNanos = elapsedNanos;
+		long tokens = 0;
+		int failures = 0;
+		for (ParseResult result : results) {
+			tokens += result.getTokenCount();
+			if (!result.isSuccess())
+				failures++;
+		}
+		this.tokenCount = tokens;
+		this.failureCount = failures;
+	}
+
+	public List<ParseResult> getResults() {
+		return this.results;
+	}
+
+	public int size() {
+		return this.results.size();
+	}
+
+	public int getFailureCount() {
+		return this.failureCount;
+	}
+
+	public long getTokenCount() {
+		return this.tokenCount;
+	}
+
+	public long getElapsedNanos() {
+		return this.elapsedNanos;
+	}
+
+	public double getProgramsPerSecond() {
+		return perSecond(this.results.size());
+	}
+
+	public double getTokensPerSecond() {
+		return perSecond(this.tokenCount);
+	}
+
+	private double perSecond(long count) {
+		if (this.elapsedNanos <= 0)
+			return 0;
+		return count * 1_000_000_000.0 / this.elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d programs (%d failed), %d tokens in %.3f ms: %.1f programs/s, %.1f tokens/s",
+				this.results.size(), this.failureCount, this.tokenCount, this.elapsedNanos / 1_000_000.0,
+				getProgramsPerSecond(), getTokensPerSecond());
+	}
+}
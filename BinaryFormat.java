@@ -0,0 +1,425 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// A compact binary format for parse trees and token lists, written and read as a stream.
+//
+// A file starts with the magic bytes "SABF", a version byte and a kind byte, then the names of
+// every label and token type in ordinal order, so files stay readable after the enums change.
+// After that:
+//   a tree is its nodes in pre-order, each a varint label index followed, for a terminal, by a
+//   varint token type index and a value, or otherwise by a varint child count;
+//   a token list is each token as a varint token type index plus one and a value, then a 0.
+// Values go through a pool that is built up as the stream is written: a value is 0 for none, 1
+// for a lexeme seen for the first time, which follows as a varint byte length and its UTF-8
+// bytes and takes the next pool id, or 2 plus the pool id of a lexeme seen before.
+//
+// Symbol ids are not written, as they only mean something to the SymbolTable that made them.
+//
+// Reading checks every index and reference against the tables and pool read so far, and never
+// allocates more than the input actually holds, so a truncated or corrupt file is rejected with
+// an IOException naming the offset of the bad data.
+public class BinaryFormat {
+
+	public enum Kind {
+		TREE, TOKENS
+	}
+
+	static final byte[] MAGIC = {'S', 'A', 'B', 'F'};
+	static final int VERSION = 1;
+
+	static final int NO_VALUE = 0;
+	static final int NEW_VALUE = 1;
+	static final int POOLED_VALUE = 2;
+
+	private static final TreeNode.Label[] LABELS = TreeNode.Label.values();
+	private static final Token.TokenType[] TYPES = Token.TokenType.values();
+
+	public static void writeTree(ParseTree tree, OutputStream out) throws IOException {
+		Encoder encoder = new Encoder(out, Kind.TREE);
+		TreeNode root = tree.getRoot();
+		if (root == null) {
+			throw new IllegalArgumentException("An empty tree can not be written");
+		}
+
+		for (TreeIterator nodes = TreeWalker.preOrder(root); nodes.hasNext();) {
+			encoder.node(nodes.next());
+		}
+		encoder.flush();
+	}
+
+	public static ParseTree readTree(InputStream in) throws IOException {
+		Decoder decoder = new Decoder(in, Kind.TREE);
+
+		// The nodes still waiting for children, and how many each is waiting for
+		TreeNode[] parents = new TreeNode[64];
+		int[] remaining = new int[64];
+		int top = 0;
+		TreeNode root = null;
+		do {
+			TreeNode parent = top == 0 ? null : parents[top - 1];
+			TreeNode.Label label = decoder.label();
+			TreeNode node;
+			int children = 0;
+			if (label == TreeNode.Label.terminal) {
+				Token.TokenType type = decoder.type();
+				String value = decoder.value();
+				node = new TreeNode(label, value == null ? new Token(type) : new Token(type, value), parent);
+			}
+			else {
+				node = new TreeNode(label, parent);
+				children = decoder.varint();
+			}
+
+			if (parent == null) {
+				root = node;
+			}
+			else {
+				parent.addChild(node);
+				if (--remaining[top - 1] == 0) {
+					parents[--top] = null;
+				}
+			}
+			if (children > 0) {
+				if (top == parents.length) {
+					parents = Arrays.copyOf(parents, top * 2);
+					remaining = Arrays.copyOf(remaining, top * 2);
+				}
+				parents[top] = node;
+				remaining[top++] = children;
+			}
+		} while (top > 0);
+		return new ParseTree(root);
+	}
+
+	public static void writeTokens(List<Token> tokens, OutputStream out) throws IOException {
+		TokenWriter writer = tokenWriter(out);
+		for (Token token : tokens) {
+			writer.write(token);
+		}
+		writer.finish();
+	}
+
+	public static List<Token> readTokens(InputStream in) throws IOException {
+		List<Token> result = new ArrayList<Token>();
+		Decoder decoder = new Decoder(in, Kind.TOKENS);
+		for (Token token = decoder.token(); token != null; token = decoder.token()) {
+			result.add(token);
+		}
+		return result;
+	}
+
+	// Writes tokens one at a time; finish() ends the list and flushes, but leaves out open
+	public static TokenWriter tokenWriter(OutputStream out) throws IOException {
+		return new TokenWriter(new Encoder(out, Kind.TOKENS));
+	}
+
+	// Reads tokens one at a time, so a parse can run straight off the stream. An I/O error while
+	// reading is thrown as an UncheckedIOException
+	public static TokenStream tokenReader(InputStream in) throws IOException {
+		Decoder decoder = new Decoder(in, Kind.TOKENS);
+		return new TokenStream() {
+			@Override
+			public Token next() {
+				try {
+					return decoder.token();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		};
+	}
+
+	// Maps a tree file without building its TreeNodes, see MappedParseTree
+	public static MappedParseTree mapTree(Path file) throws IOException {
+		return new MappedParseTree(file);
+	}
+
+	public static class TokenWriter {
+
+		private final Encoder encoder;
+
+		private TokenWriter(Encoder encoder) {
+			this.encoder = encoder;
+		}
+
+		public void write(Token token) throws IOException {
+			encoder.varint(token.getType().ordinal() + 1);
+			encoder.value(token.getValue().orElse(null));
+		}
+
+		public void finish() throws IOException {
+			encoder.varint(0);
+			encoder.flush();
+		}
+	}
+
+	// Buffers output itself, so each byte is an array store rather than a call on the stream
+	private static class Encoder {
+
+		private final OutputStream out;
+		private final byte[] buffer = new byte[8192];
+		private int position = 0;
+		private final Map<String, Integer> pool = new HashMap<String, Integer>();
+
+		Encoder(OutputStream out, Kind kind) throws IOException {
+			this.out = out;
+			bytes(MAGIC);
+			varint(VERSION);
+			varint(kind.ordinal());
+			varint(LABELS.length);
+			for (TreeNode.Label label : LABELS) {
+				string(label.name());
+			}
+			varint(TYPES.length);
+			for (Token.TokenType type : TYPES) {
+				string(type.name());
+			}
+		}
+
+		void node(TreeNode node) throws IOException {
+			varint(node.getLabel().ordinal());
+			if (node.getLabel() == TreeNode.Label.terminal) {
+				Token token = node.getToken().get();
+				varint(token.getType().ordinal());
+				value(token.getValue().orElse(null));
+			}
+			else {
+				varint(node.getChildren().size());
+			}
+		}
+
+		void value(String value) throws IOException {
+			if (value == null) {
+				varint(NO_VALUE);
+				return;
+			}
+			Integer id = pool.get(value);
+			if (id != null) {
+				varint(POOLED_VALUE + id);
+				return;
+			}
+			pool.put(value, pool.size());
+			varint(NEW_VALUE);
+			string(value);
+		}
+
+		void string(String s) throws IOException {
+			byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+			varint(utf8.length);
+			bytes(utf8);
+		}
+
+		// 7 bits at a time, low bits first, with the top bit set on every byte but the last
+		void varint(int value) throws IOException {
+			if (position + 5 > buffer.length) {
+				drain();
+			}
+			while ((value & ~0x7f) != 0) {
+				buffer[position++] = (byte) ((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			buffer[position++] = (byte) value;
+		}
+
+		void bytes(byte[] bytes) throws IOException {
+			if (position + bytes.length > buffer.length) {
+				drain();
+				if (bytes.length > buffer.length) {
+					out.write(bytes);
+					return;
+				}
+			}
+			System.arraycopy(bytes, 0, buffer, position, bytes.length);
+			position += bytes.length;
+		}
+
+		void drain() throws IOException {
+			out.write(buffer, 0, position);
+			position = 0;
+		}
+
+		void flush() throws IOException {
+			drain();
+			out.flush();
+		}
+	}
+
+	static class Decoder {
+
+		private final InputStream in;
+		private final byte[] buffer = new byte[8192];
+		private int position = 0;
+		private int limit = 0;
+		// The number of bytes of the stream read before the buffer
+		private long bufferOffset = 0;
+		private final List<String> pool = new ArrayList<String>();
+		private final TreeNode.Label[] labels;
+		private final Token.TokenType[] types;
+
+		Decoder(InputStream in, Kind kind) throws IOException {
+			this.in = in;
+			byte[] magic = new byte[MAGIC.length];
+			for (int i = 0; i < magic.length; i++) {
+				magic[i] = (byte) read();
+			}
+			if (!Arrays.equals(MAGIC, magic)) {
+				throw new IOException("Not a binary parse file");
+			}
+			int version = varint();
+			if (version != VERSION) {
+				throw new IOException("Unsupported binary parse file version " + version);
+			}
+			long at = offset();
+			int fileKind = varint();
+			if (fileKind >= Kind.values().length) {
+				throw corrupt("Unknown file kind " + fileKind, at);
+			}
+			if (fileKind != kind.ordinal()) {
+				throw new IOException("Expected " + kind + " but the file holds " + Kind.values()[fileKind]);
+			}
+			labels = names(TreeNode.Label.class).toArray(new TreeNode.Label[0]);
+			types = names(Token.TokenType.class).toArray(new Token.TokenType[0]);
+		}
+
+		// A table of enum names. It is filled in as the names are read, so a corrupt count runs
+		// into the end of the input instead of allocating a table that size
+		private <E extends Enum<E>> List<E> names(Class<E> type) throws IOException {
+			int count = varint();
+			List<E> result = new ArrayList<E>();
+			for (int i = 0; i < count; i++) {
+				long at = offset();
+				String name = string();
+				try {
+					result.add(Enum.valueOf(type, name));
+				} catch (IllegalArgumentException e) {
+					throw corrupt("Unknown " + type.getSimpleName() + " " + name, at);
+				}
+			}
+			return result;
+		}
+
+		TreeNode.Label label() throws IOException {
+			long at = offset();
+			int index = varint();
+			if (index >= labels.length) {
+				throw corrupt("Label index " + index + " out of " + labels.length, at);
+			}
+			return labels[index];
+		}
+
+		Token.TokenType type() throws IOException {
+			long at = offset();
+			int index = varint();
+			if (index >= types.length) {
+				throw corrupt("Token type index " + index + " out of " + types.length, at);
+			}
+			return types[index];
+		}
+
+		// The next token of a token list, or null at its end
+		Token token() throws IOException {
+			long at = offset();
+			int type = varint();
+			if (type == 0) {
+				return null;
+			}
+			if (type > types.length) {
+				throw corrupt("Token type index " + (type - 1) + " out of " + types.length, at);
+			}
+			String value = value();
+			return value == null ? new Token(types[type - 1]) : new Token(types[type - 1], value);
+		}
+
+		String value() throws IOException {
+			long at = offset();
+			int reference = varint();
+			if (reference == NO_VALUE) {
+				return null;
+			}
+			if (reference == NEW_VALUE) {
+				String value = string();
+				pool.add(value);
+				return value;
+			}
+			checkPooled(reference, pool.size(), at);
+			return pool.get(reference - POOLED_VALUE);
+		}
+
+		// The bytes are collected as they arrive, so a corrupt length runs into the end of the
+		// input instead of allocating an array that long
+		String string() throws IOException {
+			int length = varint();
+			byte[] utf8 = new byte[Math.min(length, buffer.length)];
+			for (int i = 0; i < length; i++) {
+				if (i == utf8.length) {
+					utf8 = Arrays.copyOf(utf8, (int) Math.min(length, 2L * utf8.length));
+				}
+				utf8[i] = (byte) read();
+			}
+			return new String(utf8, 0, length, StandardCharsets.UTF_8);
+		}
+
+		// Checks that a reference to a pooled value is to one already read
+		void checkPooled(int reference, int poolSize, long at) throws IOException {
+			if (reference - POOLED_VALUE >= poolSize) {
+				throw corrupt("Value reference " + reference + " to a pool of " + poolSize, at);
+			}
+		}
+
+		// A non negative int, in at most 5 bytes
+		int varint() throws IOException {
+			long at = offset();
+			int value = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				int b = read();
+				if (shift == 28 && (b & 0xf8) != 0) {
+					// More than 31 bits
+					break;
+				}
+				value |= (b & 0x7f) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw corrupt("Bad varint", at);
+		}
+
+		IOException corrupt(String message, long at) {
+			return new IOException(message + " at offset " + at);
+		}
+
+		// The offset in the stream of the next byte to be read
+		long offset() {
+			return bufferOffset + position;
+		}
+
+		void skip(int count) throws IOException {
+			for (int i = 0; i < count; i++) {
+				read();
+			}
+		}
+
+		int read() throws IOException {
+			if (position == limit) {
+				bufferOffset += limit;
+				limit = in.read(buffer, 0, buffer.length);
+				position = 0;
+				if (limit <= 0) {
+					limit = 0;
+					throw new EOFException("Binary parse file ends early, at offset " + bufferOffset);
+				}
+			}
+			return buffer[position++] & 0xff;
+		}
+	}
+}
@@ -0,0 +1,254 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BinaryFormatTests {
+
+	private static final String PROGRAM = "public class Test { public static void main(String[] args){ int x = 1; while (x == 1) { if (x == 2) { System.out.println(\"hi\"); } } char c = 'a'; }}";
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void testTreeRoundTrip() throws LexicalException, SyntaxException, IOException {
+		for (String source : sources()) {
+			ParseTree tree = SyntacticAnalyser.parse(LexicalAnalyser.analyse(source));
+			ParseTree read = BinaryFormat.readTree(new ByteArrayInputStream(write(tree)));
+			assertEquals(tree.toString(), read.toString());
+			assertSame(read.getRoot(), read.getRoot().getChildren().get(0).getParent());
+		}
+	}
+
+	@Test
+	public void testTokensRoundTrip() throws LexicalException, SyntaxException, IOException {
+		for (String source : sources()) {
+			List<Token> tokens = LexicalAnalyser.analyse(source);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			BinaryFormat.writeTokens(tokens, out);
+			assertEquals(tokens, BinaryFormat.readTokens(new ByteArrayInputStream(out.toByteArray())));
+
+			// A parse can run straight off the stream
+			ParseTree parsed = SyntacticAnalyser.parse(BinaryFormat.tokenReader(new ByteArrayInputStream(out.toByteArray())));
+			assertEquals(SyntacticAnalyser.parse(tokens).toString(), parsed.toString());
+		}
+
+		List<Token> unvalued = Arrays.asList(new Token(Token.TokenType.LBRACE), new Token(Token.TokenType.ID, "x"));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryFormat.writeTokens(unvalued, out);
+		List<Token> read = BinaryFormat.readTokens(new ByteArrayInputStream(out.toByteArray()));
+		assertFalse(read.get(0).getValue().isPresent());
+		assertEquals("x", read.get(1).getValue().get());
+	}
+
+	@Test
+	public void testLexemesArePooled() throws IOException {
+		List<Token> tokens = new ArrayList<Token>();
+		for (int i = 0; i < 10_000; i++) {
+			tokens.add(new Token(Token.TokenType.ID, "identifier" + (i % 100)));
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryFormat.writeTokens(tokens, out);
+		// Each token is a type byte and a one or two byte reference, and each lexeme is written once
+		assertTrue(out.size() < 30_000 + 100 * 13 + 1000, "" + out.size());
+
+		List<Token> read = BinaryFormat.readTokens(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(tokens, read);
+		assertSame(read.get(0).getValue().get(), read.get(100).getValue().get());
+	}
+
+	@Test
+	public void testMappedTree() throws LexicalException, SyntaxException, IOException {
+		for (String source : sources()) {
+			ParseTree tree = SyntacticAnalyser.parse(LexicalAnalyser.analyse(source));
+			Path file = directory.resolve("tree.bin");
+			try (OutputStream out = Files.newOutputStream(file)) {
+				BinaryFormat.writeTree(tree, out);
+			}
+
+			MappedParseTree mapped = BinaryFormat.mapTree(file);
+			assertEquals(TreeNode.Label.prog, mapped.getRoot().getLabel());
+			assertNull(mapped.getRoot().getParent());
+
+			// Walk both trees side by side
+			ArrayDeque<TreeNode> expected = new ArrayDeque<TreeNode>();
+			ArrayDeque<MappedParseTree.Node> actual = new ArrayDeque<MappedParseTree.Node>();
+			expected.push(tree.getRoot());
+			actual.push(mapped.getRoot());
+			int count = 0;
+			while (!expected.isEmpty()) {
+				TreeNode node = expected.pop();
+				MappedParseTree.Node view = actual.pop();
+				assertEquals(node.toString(), view.toString());
+				assertEquals(node.getChildren().size(), view.getChildren().size());
+				for (int i = 0; i < node.getChildren().size(); i++) {
+					expected.push(node.getChildren().get(i));
+					actual.push(view.getChildren().get(i));
+					assertEquals(view, view.getChildren().get(i).getParent());
+				}
+				count++;
+			}
+			assertEquals(count, mapped.size());
+			assertEquals(tree.toString(), mapped.toParseTree().toString());
+		}
+	}
+
+	@Test
+	public void testBadInput() throws LexicalException, SyntaxException, IOException {
+		byte[] tree = write(SyntacticAnalyser.parse(LexicalAnalyser.analyse(PROGRAM)));
+
+		IOException e = assertThrows(IOException.class, () -> BinaryFormat.readTokens(new ByteArrayInputStream(tree)));
+		assertEquals("Expected TOKENS but the file holds TREE", e.getMessage());
+		assertThrows(EOFException.class, () -> BinaryFormat.readTree(new ByteArrayInputStream(Arrays.copyOf(tree, tree.length - 1))));
+		byte[] text = PROGRAM.getBytes();
+		e = assertThrows(IOException.class, () -> BinaryFormat.readTree(new ByteArrayInputStream(text)));
+		assertEquals("Not a binary parse file", e.getMessage());
+
+		Path file = directory.resolve("empty.bin");
+		Files.createFile(file);
+		assertThrows(EOFException.class, () -> BinaryFormat.mapTree(file));
+	}
+
+	// Every prefix of a file is rejected with an IOException, by all three readers
+	@Test
+	public void testTruncatedFiles() throws LexicalException, SyntaxException, IOException {
+		byte[] tree = write(SyntacticAnalyser.parse(LexicalAnalyser.analyse(PROGRAM)));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryFormat.writeTokens(LexicalAnalyser.analyse(PROGRAM), out);
+		byte[] tokens = out.toByteArray();
+		Path file = directory.resolve("truncated.bin");
+		for (int length = 0; length < tree.length; length++) {
+			byte[] prefix = Arrays.copyOf(tree, length);
+			assertThrows(EOFException.class, () -> BinaryFormat.readTree(new ByteArrayInputStream(prefix)));
+			Files.write(file, prefix);
+			assertThrows(EOFException.class, () -> BinaryFormat.mapTree(file));
+		}
+		for (int length = 0; length < tokens.length; length++) {
+			byte[] prefix = Arrays.copyOf(tokens, length);
+			assertThrows(EOFException.class, () -> BinaryFormat.readTokens(new ByteArrayInputStream(prefix)));
+		}
+	}
+
+	@Test
+	public void testCorruptedFiles() throws LexicalException, SyntaxException, IOException {
+		byte[] tree = write(SyntacticAnalyser.parse(LexicalAnalyser.analyse(PROGRAM)));
+		// The magic bytes and version take 5 bytes, then come the kind and the label table
+		assertCorrupt("Unknown file kind 9 at offset 5", tree, 5, 9);
+		assertCorrupt("Unknown Label proX at offset 7", tree, 11, 'X');
+		byte[] longName = new byte[tree.length + 4];
+		System.arraycopy(tree, 0, longName, 0, 7);
+		System.arraycopy(new byte[] {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07}, 0, longName, 7, 5);
+		System.arraycopy(tree, 8, longName, 12, tree.length - 8);
+		assertThrows(EOFException.class, () -> BinaryFormat.readTree(new ByteArrayInputStream(longName)));
+		byte[] badVarint = Arrays.copyOf(tree, tree.length);
+		Arrays.fill(badVarint, 7, 12, (byte) 0xff);
+		IOException e = assertThrows(IOException.class, () -> BinaryFormat.readTree(new ByteArrayInputStream(badVarint)));
+		assertEquals("Bad varint at offset 7", e.getMessage());
+
+		// An empty token list is the header and a 0, so the first node or token follows that
+		ByteArrayOutputStream empty = new ByteArrayOutputStream();
+		BinaryFormat.writeTokens(new ArrayList<Token>(), empty);
+		int header = empty.size() - 1;
+		int labels = TreeNode.Label.values().length;
+		int types = Token.TokenType.values().length;
+		assertCorrupt("Label index 127 out of " + labels + " at offset " + header, tree, header, 0x7f);
+		ByteArrayOutputStream tokens = new ByteArrayOutputStream();
+		BinaryFormat.writeTokens(LexicalAnalyser.analyse(PROGRAM), tokens);
+		byte[] badType = tokens.toByteArray();
+		badType[header] = 0x7f;
+		e = assertThrows(IOException.class, () -> BinaryFormat.readTokens(new ByteArrayInputStream(badType)));
+		assertEquals("Token type index 126 out of " + types + " at offset " + header, e.getMessage());
+		// The second token, "class", refers back to no pooled value yet
+		byte[] badReference = tokens.toByteArray();
+		int second = header + 2 + 1 + "public".length();
+		badReference[second + 1] = 9;
+		e = assertThrows(IOException.class, () -> BinaryFormat.readTokens(new ByteArrayInputStream(badReference)));
+		assertEquals("Value reference 9 to a pool of 1 at offset " + (second + 1), e.getMessage());
+
+		// No single corrupted byte gets anything but an IOException out of the readers
+		Path file = directory.resolve("corrupt.bin");
+		for (int i = 0; i < tree.length; i++) {
+			for (int value : new int[] {0x00, 0x01, 0x7f, 0x80, 0xff}) {
+				byte[] corrupt = Arrays.copyOf(tree, tree.length);
+				corrupt[i] = (byte) value;
+				try {
+					BinaryFormat.readTree(new ByteArrayInputStream(corrupt));
+				} catch (IOException expected) {
+					// Rejected
+				}
+			}
+			byte[] corrupt = Arrays.copyOf(tree, tree.length);
+			corrupt[i] = (byte) 0xff;
+			Files.write(file, corrupt);
+			try {
+				BinaryFormat.mapTree(file);
+			} catch (IOException expected) {
+				// Rejected
+			}
+		}
+	}
+
+	private static void assertCorrupt(String message, byte[] file, int at, int value) {
+		byte[] corrupt = Arrays.copyOf(file, file.length);
+		corrupt[at] = (byte) value;
+		IOException e = assertThrows(IOException.class, () -> BinaryFormat.readTree(new ByteArrayInputStream(corrupt)));
+		assertEquals(message, e.getMessage());
+	}
+
+	// A chain far deeper than the call stack could recurse through
+	@Test
+	public void testDeepTree() throws IOException {
+		int depth = 1_000_000;
+		TreeNode root = new TreeNode(TreeNode.Label.los, null);
+		TreeNode node = root;
+		for (int i = 1; i < depth; i++) {
+			TreeNode child = new TreeNode(TreeNode.Label.los, node);
+			node.addChild(child);
+			node = child;
+		}
+		node.addChild(new TreeNode(TreeNode.Label.terminal, new Token(Token.TokenType.ID, "deep"), node));
+
+		byte[] bytes = write(new ParseTree(root));
+		ParseTree read = BinaryFormat.readTree(new ByteArrayInputStream(bytes));
+		int levels = 0;
+		for (TreeNode at = read.getRoot(); !at.getChildren().isEmpty(); at = at.getChildren().get(0)) {
+			levels++;
+		}
+		assertEquals(depth, levels);
+
+		Path file = directory.resolve("deep.bin");
+		Files.write(file, bytes);
+		MappedParseTree mapped = BinaryFormat.mapTree(file);
+		assertEquals(depth + 1, mapped.size());
+		assertEquals("deep", mapped.getToken(depth).get().getValue().get());
+		MappedParseTree.Node at = mapped.getRoot();
+		for (int i = 0; i < depth; i++) {
+			at = at.getChildren().get(0);
+		}
+		assertEquals(depth, at.getIndex());
+		assertEquals(TreeNode.Label.terminal, at.getLabel());
+		assertEquals(depth - 1, at.getParent().getIndex());
+	}
+
+	private static byte[] write(ParseTree tree) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryFormat.writeTree(tree, out);
+		return out.toByteArray();
+	}
+
+	private static List<String> sources() {
+		ProgramGenerator generator = new ProgramGenerator(11);
+		generator.setTargetTokens(20_000);
+		return Arrays.asList(PROGRAM, generator.generate());
+	}
+}
@@ -0,0 +1,58 @@
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+// One error found by a diagnostics run: where it is, what was found there and what would have
+// been accepted instead. The message is the one the matching exception would have had.
+public class Diagnostic {
+
+	public enum Kind {
+		LEXICAL, SYNTAX
+	}
+
+	private final Kind kind;
+	private final int tokenIndex;
+	private final Token.TokenType found;
+	private final Set<Token.TokenType> expected;
+	private final String message;
+
+	Diagnostic(Kind kind, int tokenIndex, Token.TokenType found, EnumSet<Token.TokenType> expected, String message) {
+		this.kind = kind;
+		this.tokenIndex = tokenIndex;
+		this.found = found;
+		this.expected = Collections.unmodifiableSet(expected);
+		this.message = message;
+	}
+
+	public Kind getKind() {
+		return this.kind;
+	}
+
+	// The index of the offending token. For lexical errors this is the index the bad word would
+	// have had; it is dropped from the token sequence. At the end of the input it is the number
+	// of tokens
+	public int getTokenIndex() {
+		return this.tokenIndex;
+	}
+
+	// The type of the offending token, empty at the end of the input or for a lexical error
+	public Optional<Token.TokenType> getFound() {
+		return Optional.ofNullable(this.found);
+	}
+
+	// The token types the parser could have accepted at this point, empty if it could accept
+	// nothing more
+	public Set<Token.TokenType> getExpected() {
+		return this.expected;
+	}
+
+	public String getMessage() {
+		return this.message;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + kind + " at token " + tokenIndex + ": " + message + "]";
+	}
+}
@@ -0,0 +1,81 @@
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+// The result of checking a program in diagnostics mode: every error found in a single pass,
+// in input order, without a single exception being thrown for a syntax error.
+//
+// After an error the parser recovers in panic mode: it skips tokens up to the next SEMICOLON or
+// RBRACE, then drops the stack symbols above the nearest one that can accept that token, and
+// carries on from there. The first diagnostic is always the error a normal parse would throw;
+// those after it can include errors that only follow from the first.
+public class Diagnostics {
+
+	private final List<Diagnostic> errors;
+	private final int tokenCount;
+
+	Diagnostics(List<Diagnostic> errors, int tokenCount) {
+		this.errors = errors;
+		this.tokenCount = tokenCount;
+	}
+
+	// Lexes and checks the source. A word the lexer rejects is reported as a LEXICAL diagnostic
+	// and left out, and lexing carries on after it
+	public static Diagnostics of(CharSequence sourceCode) {
+		List<Diagnostic> errors = new ArrayList<Diagnostic>();
+		TokenStream stream = LexicalAnalyser.stream(sourceCode);
+		TokenCursor tokens = new TokenCursor() {
+			private Token current;
+			private int index = -1;
+
+			@Override
+			public Token.TokenType next() {
+				index++;
+				while (true) {
+					try {
+						current = stream.next();
+						return current == null ? null : current.getType();
+					} catch (LexicalException e) {
+						errors.add(new Diagnostic(Diagnostic.Kind.LEXICAL, index, null, EnumSet.noneOf(Token.TokenType.class), e.getMessage()));
+					}
+				}
+			}
+
+			@Override
+			public Token.TokenType current() {
+				return current == null ? null : current.getType();
+			}
+
+			@Override
+			public String value() {
+				return current.getValue().get();
+			}
+		};
+		try {
+			return new Diagnostics(errors, SyntacticAnalyser.diagnose(tokens, errors));
+		} catch (LexicalException e) {
+			// The cursor records lexical errors instead of throwing them
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public boolean isSuccess() {
+		return this.errors.isEmpty();
+	}
+
+	public List<Diagnostic> getErrors() {
+		return this.errors;
+	}
+
+	// The number of tokens the parser read, skipped ones included
+	public int getTokenCount() {
+		return this.tokenCount;
+	}
+
+	@Override
+	public String toString() {
+		if (isSuccess())
+			return "[OK, " + this.tokenCount + " tokens]";
+		return this.errors.toString();
+	}
+}
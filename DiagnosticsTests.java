@@ -0,0 +1,115 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class DiagnosticsTests {
+
+	private static final String HEADER = "public class Test { public static void main(String[] args){ ";
+	private static final String FOOTER = "}}";
+	private static final String BODY = "int x = 1; x = x + 2; if (x == 3) { x = 4; } else { x = 5; } while (true) { char c = 'a'; } System.out.println(x); ";
+
+	@Test
+	public void testValidProgramHasNoErrors() throws LexicalException {
+		Diagnostics result = Diagnostics.of(HEADER + BODY + FOOTER);
+		assertTrue(result.isSuccess());
+		assertEquals(LexicalAnalyser.analyse(HEADER + BODY + FOOTER).size(), result.getTokenCount());
+	}
+
+	@Test
+	public void testOneErrorPerBrokenStatement() {
+		String source = HEADER + "int x = ; x = 1; int y y; y = 2; x = * 3; " + FOOTER;
+		Diagnostics result = Diagnostics.of(source);
+		assertEquals(3, result.getErrors().size(), result.toString());
+		for (Diagnostic error : result.getErrors()) {
+			assertEquals(Diagnostic.Kind.SYNTAX, error.getKind());
+		}
+
+		Diagnostic first = result.getErrors().get(0);
+		assertEquals(Token.TokenType.SEMICOLON, first.getFound().get());
+		assertTrue(first.getExpected().contains(Token.TokenType.NUM));
+		assertTrue(first.getExpected().contains(Token.TokenType.ID));
+		assertFalse(first.getExpected().contains(Token.TokenType.SEMICOLON));
+
+		Diagnostic second = result.getErrors().get(1);
+		assertEquals(Token.TokenType.ID, second.getFound().get());
+		assertTrue(second.getExpected().contains(Token.TokenType.SEMICOLON));
+		assertTrue(second.getExpected().contains(Token.TokenType.ASSIGN));
+	}
+
+	@Test
+	public void testRecoversInsideBlocks() {
+		String source = HEADER + "if (x == 1) { x = ; } while (true) { y = = 2; } x = 3 " + FOOTER;
+		Diagnostics result = Diagnostics.of(source);
+		assertEquals(3, result.getErrors().size(), result.toString());
+		assertEquals(Token.TokenType.RBRACE, result.getErrors().get(2).getFound().get());
+		assertTrue(result.getErrors().get(2).getExpected().contains(Token.TokenType.SEMICOLON));
+	}
+
+	@Test
+	public void testLexicalErrorsAreReportedAndSkipped() {
+		String source = HEADER + "int _x = 1; x = 2 " + FOOTER;
+		Diagnostics result = Diagnostics.of(source);
+		assertEquals(3, result.getErrors().size(), result.toString());
+		assertEquals(Diagnostic.Kind.LEXICAL, result.getErrors().get(0).getKind());
+		assertEquals("Bad string: _x", result.getErrors().get(0).getMessage());
+		assertEquals(Diagnostic.Kind.SYNTAX, result.getErrors().get(1).getKind());
+	}
+
+	@Test
+	public void testEndOfInput() {
+		Diagnostics result = Diagnostics.of(HEADER + "x = 1;");
+		assertEquals(1, result.getErrors().size());
+		Diagnostic error = result.getErrors().get(0);
+		assertFalse(error.getFound().isPresent());
+		assertEquals(result.getTokenCount(), error.getTokenIndex());
+		assertTrue(error.getExpected().contains(Token.TokenType.RBRACE));
+	}
+
+	@Test
+	public void testLeftoverTokens() throws LexicalException {
+		String source = HEADER + FOOTER + " x = 1;";
+		List<Token> tokens = LexicalAnalyser.analyse(source);
+		Diagnostics result = SyntacticAnalyser.diagnose(tokens);
+		assertEquals(1, result.getErrors().size());
+		SyntaxException e = assertThrows(SyntaxException.class, () -> SyntacticAnalyser.parse(tokens));
+		assertEquals(e.getMessage(), result.getErrors().get(0).getMessage());
+		assertEquals(tokens.size(), result.getTokenCount());
+	}
+
+	// Whatever the damage, the first diagnostic is the error a normal parse throws
+	@Test
+	public void testFirstErrorMatchesParse() throws LexicalException {
+		List<Token> valid = LexicalAnalyser.analyse(HEADER + BODY + BODY + FOOTER);
+		Token.TokenType[] types = Token.TokenType.values();
+		Random random = new Random(12);
+		for (int run = 0; run < 2000; run++) {
+			List<Token> tokens = new ArrayList<Token>(valid);
+			for (int edits = 1 + random.nextInt(4); edits > 0; edits--) {
+				int at = random.nextInt(tokens.size());
+				if (random.nextBoolean()) {
+					tokens.remove(at);
+				}
+				else {
+					tokens.add(at, new Token(types[random.nextInt(types.length)], "x"));
+				}
+			}
+
+			Diagnostics result = SyntacticAnalyser.diagnose(tokens);
+			String expected = null;
+			try {
+				SyntacticAnalyser.parse(tokens);
+			} catch (SyntaxException e) {
+				expected = e.getMessage();
+			}
+			if (expected == null) {
+				assertTrue(result.isSuccess(), result.toString());
+			}
+			else {
+				assertFalse(result.isSuccess());
+				assertEquals(expected, result.getErrors().get(0).getMessage());
+			}
+		}
+	}
+}
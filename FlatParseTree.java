@@ -0,0 +1,214 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+// A parse tree stored as parallel primitive arrays instead of one TreeNode object per node.
+// Nodes are numbered in depth first (pre-order) order, the root is node 0, and each node
+// records its label ordinal, the index of its token (-1 for non terminals), its parent, its
+// first child and its next sibling (-1 where there is none).
+//
+// getRoot() returns a lightweight Node view with the same getLabel()/getToken()/getChildren()
+// methods as TreeNode, so existing tree walks carry over. Views are created on demand.
+public class FlatParseTree {
+
+	private final TokenBuffer buffer;
+	private final List<Token> tokens;
+
+	private byte[] labels;
+	private int[] tokenIndexes;
+	private int[] parents;
+	private int[] firstChildren;
+	private int[] nextSiblings;
+	private int[] lastChildren;
+	private int size = 0;
+
+	FlatParseTree(TokenBuffer buffer, int expectedNodes) {
+		this(buffer, null, expectedNodes);
+	}
+
+	FlatParseTree(List<Token> tokens, int expectedNodes) {
+		this(null, tokens, expectedNodes);
+	}
+
+	private FlatParseTree(TokenBuffer buffer, List<Token> tokens, int expectedNodes) {
+		this.buffer = buffer;
+		this.tokens = tokens;
+		int capacity = Math.max(expectedNodes, 16);
+		this.labels = new byte[capacity];
+		this.tokenIndexes = new int[capacity];
+		this.parents = new int[capacity];
+		this.firstChildren = new int[capacity];
+		this.nextSiblings = new int[capacity];
+		this.lastChildren = new int[capacity];
+	}
+
+	// Adds a node as the last child of parent (or as the root if parent is -1) and returns it
+	int addNode(TreeNode.Label label, int parent, int tokenIndex) {
+		if (size == labels.length) {
+			int capacity = size + (size >> 1);
+			labels = Arrays.copyOf(labels, capacity);
+			tokenIndexes = Arrays.copyOf(tokenIndexes, capacity);
+			parents = Arrays.copyOf(parents, capacity);
+			firstChildren = Arrays.copyOf(firstChildren, capacity);
+			nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+			lastChildren = Arrays.copyOf(lastChildren, capacity);
+		}
+		int node = size++;
+		labels[node] = (byte) label.ordinal();
+		tokenIndexes[node] = tokenIndex;
+		parents[node] = parent;
+		firstChildren[node] = -1;
+		nextSiblings[node] = -1;
+		lastChildren[node] = -1;
+		if (parent != -1) {
+			if (lastChildren[parent] == -1) {
+				firstChildren[parent] = node;
+			}
+			else {
+				nextSiblings[lastChildren[parent]] = node;
+			}
+			lastChildren[parent] = node;
+		}
+		return node;
+	}
+
+	// Drops the spare capacity and the bookkeeping only needed while building
+	void trim() {
+		labels = Arrays.copyOf(labels, size);
+		tokenIndexes = Arrays.copyOf(tokenIndexes, size);
+		parents = Arrays.copyOf(parents, size);
+		firstChildren = Arrays.copyOf(firstChildren, size);
+		nextSiblings = Arrays.copyOf(nextSiblings, size);
+		lastChildren = null;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public TreeNode.Label getLabel(int node) {
+		return ParseTable.LABELS[labels[node]];
+	}
+
+	public int getTokenIndex(int node) {
+		return tokenIndexes[node];
+	}
+
+	public Optional<Token> getToken(int node) {
+		int index = tokenIndexes[node];
+		if (index == -1)
+			return Optional.empty();
+		if (buffer != null)
+			return Optional.of(buffer.getToken(index));
+		Token token = tokens.get(index);
+		return Optional.of(new Token(token.getType(), token.getValue().get(), token.getSymbol()));
+	}
+
+	public int getParent(int node) {
+		return parents[node];
+	}
+
+	public int getFirstChild(int node) {
+		return firstChildren[node];
+	}
+
+	public int getNextSibling(int node) {
+		return nextSiblings[node];
+	}
+
+	public Node getRoot() {
+		return size == 0 ? null : new Node(0);
+	}
+
+	// Builds the equivalent pointer based tree
+	public ParseTree toParseTree() {
+		if (size == 0)
+			return new ParseTree();
+		TreeNode[] nodes = new TreeNode[size];
+		for (int i = 0; i < size; i++) {
+			TreeNode parent = parents[i] == -1 ? null : nodes[parents[i]];
+			Optional<Token> token = getToken(i);
+			nodes[i] = token.isPresent() ? new TreeNode(getLabel(i), token.get(), parent) : new TreeNode(getLabel(i), parent);
+			if (parent != null)
+				parent.addChild(nodes[i]);
+		}
+		return new ParseTree(nodes[0]);
+	}
+
+	// Same format as ParseTree.toString(). As the nodes are already in pre-order this is a
+	// single pass over the arrays
+	@Override
+	public String toString() {
+		if (size == 0)
+			return "EMPTY TREE";
+		StringBuilder sb = new StringBuilder();
+		int[] depths = new int[size];
+		for (int i = 0; i < size; i++) {
+			if (parents[i] != -1) {
+				depths[i] = depths[parents[i]] + 1;
+				for (int d = 0; d < depths[i] - 1; d++)
+					sb.append("| ");
+				sb.append("|-");
+			}
+			sb.append('[').append(getLabel(i)).append(", ").append(getToken(i)).append("]\n");
+		}
+		return sb.toString();
+	}
+
+	// A view of one node of the tree
+	public class Node {
+
+		private final int index;
+
+		private Node(int index) {
+			this.index = index;
+		}
+
+		public int getIndex() {
+			return this.index;
+		}
+
+		public TreeNode.Label getLabel() {
+			return FlatParseTree.this.getLabel(index);
+		}
+
+		public Optional<Token> getToken() {
+			return FlatParseTree.this.getToken(index);
+		}
+
+		public Node getParent() {
+			return parents[index] == -1 ? null : new Node(parents[index]);
+		}
+
+		public List<Node> getChildren() {
+			List<Node> children = new ArrayList<Node>();
+			for (int child = firstChildren[index]; child != -1; child = nextSiblings[child]) {
+				children.add(new Node(child));
+			}
+			return children;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Node))
+				return false;
+			Node node = (Node) other;
+			return node.index == this.index && node.tree() == FlatParseTree.this;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.index;
+		}
+
+		private FlatParseTree tree() {
+			return FlatParseTree.this;
+		}
+
+		@Override
+		public String toString() {
+			return "[" + getLabel() + ", " + getToken() + "]";
+		}
+	}
+}
@@ -0,0 +1,934 @@
+// Generated by ParserGenerator from the productions in ParseTable. Do not edit by hand,
+// rerun the generator instead.
+class GeneratedParser {
+
+	private final TokenCursor tokens;
+	private Token.TokenType lookahead;
+	private int index = 0;
+
+	private GeneratedParser(TokenCursor tokens) {
+		this.tokens = tokens;
+	}
+
+	static ParseTree parse(TokenCursor tokens) throws SyntaxException, LexicalException {
+		GeneratedParser parser = new GeneratedParser(tokens);
+		parser.lookahead = tokens.next();
+		TreeNode root = new TreeNode(TreeNode.Label.prog, null);
+		parser.prog(root);
+		if (parser.lookahead != null) {
+			throw SyntacticAnalyser.leftoverTokens(parser.index, tokens);
+		}
+		return new ParseTree(root);
+	}
+
+	private void prog(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case PUBLIC:
+			{
+				TreeNode c0 = child(node, Token.TokenType.PUBLIC);
+				TreeNode c1 = child(node, Token.TokenType.CLASS);
+				TreeNode c2 = child(node, Token.TokenType.ID);
+				TreeNode c3 = child(node, Token.TokenType.LBRACE);
+				TreeNode c4 = child(node, Token.TokenType.PUBLIC);
+				TreeNode c5 = child(node, Token.TokenType.STATIC);
+				TreeNode c6 = child(node, Token.TokenType.VOID);
+				TreeNode c7 = child(node, Token.TokenType.MAIN);
+				TreeNode c8 = child(node, Token.TokenType.LPAREN);
+				TreeNode c9 = child(node, Token.TokenType.STRINGARR);
+				TreeNode c10 = child(node, Token.TokenType.ARGS);
+				TreeNode c11 = child(node, Token.TokenType.RPAREN);
+				TreeNode c12 = child(node, Token.TokenType.LBRACE);
+				TreeNode c13 = child(node, TreeNode.Label.los);
+				TreeNode c14 = child(node, Token.TokenType.RBRACE);
+				TreeNode c15 = child(node, Token.TokenType.RBRACE);
+				match(c0);
+				match(c1);
+				match(c2);
+				match(c3);
+				match(c4);
+				match(c5);
+				match(c6);
+				match(c7);
+				match(c8);
+				match(c9);
+				match(c10);
+				match(c11);
+				match(c12);
+				los(c13);
+				match(c14);
+				match(c15);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.prog, lookahead);
+		}
+	}
+
+	private void los(TreeNode node) throws SyntaxException, LexicalException {
+		while (true) {
+			checkLookahead();
+			switch (lookahead) {
+			case RBRACE:
+				{
+					TreeNode c0 = child(node, TreeNode.Label.epsilon);
+					epsilon(c0);
+					return;
+				}
+			case SEMICOLON:
+			case TYPE:
+			case PRINT:
+			case WHILE:
+			case FOR:
+			case IF:
+			case ID:
+				{
+					TreeNode c0 = child(node, TreeNode.Label.stat);
+					TreeNode c1 = child(node, TreeNode.Label.los);
+					stat(c0);
+					node = c1;
+					continue;
+				}
+			default:
+				throw noEntry(TreeNode.Label.los, lookahead);
+			}
+		}
+	}
+
+	private void stat(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case SEMICOLON:
+			{
+				TreeNode c0 = child(node, Token.TokenType.SEMICOLON);
+				match(c0);
+				return;
+			}
+		case TYPE:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.decl);
+				TreeNode c1 = child(node, Token.TokenType.SEMICOLON);
+				decl(c0);
+				match(c1);
+				return;
+			}
+		case PRINT:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.print);
+				TreeNode c1 = child(node, Token.TokenType.SEMICOLON);
+				print(c0);
+				match(c1);
+				return;
+			}
+		case WHILE:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.whilestat);
+				whilestat(c0);
+				return;
+			}
+		case FOR:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.forstat);
+				forstat(c0);
+				return;
+			}
+		case IF:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.ifstat);
+				ifstat(c0);
+				return;
+			}
+		case ID:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.assign);
+				TreeNode c1 = child(node, Token.TokenType.SEMICOLON);
+				assign(c0);
+				match(c1);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.stat, lookahead);
+		}
+	}
+
+	private void whilestat(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case WHILE:
+			{
+				TreeNode c0 = child(node, Token.TokenType.WHILE);
+				TreeNode c1 = child(node, Token.TokenType.LPAREN);
+				TreeNode c2 = child(node, TreeNode.Label.relexpr);
+				TreeNode c3 = child(node, TreeNode.Label.boolexpr);
+				TreeNode c4 = child(node, Token.TokenType.RPAREN);
+				TreeNode c5 = child(node, Token.TokenType.LBRACE);
+				TreeNode c6 = child(node, TreeNode.Label.los);
+				TreeNode c7 = child(node, Token.TokenType.RBRACE);
+				match(c0);
+				match(c1);
+				relexpr(c2);
+				boolexpr(c3);
+				match(c4);
+				match(c5);
+				los(c6);
+				match(c7);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.whilestat, lookahead);
+		}
+	}
+
+	private void forstat(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case FOR:
+			{
+				TreeNode c0 = child(node, Token.TokenType.FOR);
+				TreeNode c1 = child(node, Token.TokenType.LPAREN);
+				TreeNode c2 = child(node, TreeNode.Label.forstart);
+				TreeNode c3 = child(node, Token.TokenType.SEMICOLON);
+				TreeNode c4 = child(node, TreeNode.Label.relexpr);
+				TreeNode c5 = child(node, TreeNode.Label.boolexpr);
+				TreeNode c6 = child(node, Token.TokenType.SEMICOLON);
+				TreeNode c7 = child(node, TreeNode.Label.forarith);
+				TreeNode c8 = child(node, Token.TokenType.RPAREN);
+				TreeNode c9 = child(node, Token.TokenType.LBRACE);
+				TreeNode c10 = child(node, TreeNode.Label.los);
+				TreeNode c11 = child(node, Token.TokenType.RBRACE);
+				match(c0);
+				match(c1);
+				forstart(c2);
+				match(c3);
+				relexpr(c4);
+				boolexpr(c5);
+				match(c6);
+				forarith(c7);
+				match(c8);
+				match(c9);
+				los(c10);
+				match(c11);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.forstat, lookahead);
+		}
+	}
+
+	private void forstart(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case SEMICOLON:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.epsilon);
+				epsilon(c0);
+				return;
+			}
+		case TYPE:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.decl);
+				decl(c0);
+				return;
+			}
+		case ID:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.assign);
+				assign(c0);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.forstart, lookahead);
+		}
+	}
+
+	private void forarith(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case RPAREN:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.epsilon);
+				epsilon(c0);
+				return;
+			}
+		case LBRACE:
+		case ID:
+		case NUM:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.arithexpr);
+				arithexpr(c0);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.forarith, lookahead);
+		}
+	}
+
+	private void ifstat(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case IF:
+			{
+				TreeNode c0 = child(node, Token.TokenType.IF);
+				TreeNode c1 = child(node, Token.TokenType.LPAREN);
+				TreeNode c2 = child(node, TreeNode.Label.relexpr);
+				TreeNode c3 = child(node, TreeNode.Label.boolexpr);
+				TreeNode c4 = child(node, Token.TokenType.RPAREN);
+				TreeNode c5 = child(node, Token.TokenType.LBRACE);
+				TreeNode c6 = child(node, TreeNode.Label.los);
+				TreeNode c7 = child(node, Token.TokenType.RBRACE);
+				TreeNode c8 = child(node, TreeNode.Label.elseifstat);
+				match(c0);
+				match(c1);
+				relexpr(c2);
+				boolexpr(c3);
+				match(c4);
+				match(c5);
+				los(c6);
+				match(c7);
+				elseifstat(c8);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.ifstat, lookahead);
+		}
+	}
+
+	private void elseifstat(TreeNode node) throws SyntaxException, LexicalException {
+		while (true) {
+			checkLookahead();
+			switch (lookahead) {
+			case RBRACE:
+			case SEMICOLON:
+			case TYPE:
+			case PRINT:
+			case WHILE:
+			case FOR:
+			case ID:
+				{
+					TreeNode c0 = child(node, TreeNode.Label.epsilon);
+					epsilon(c0);
+					return;
+				}
+			case ELSE:
+				{
+					TreeNode c0 = child(node, TreeNode.Label.elseorelseif);
+					TreeNode c1 = child(node, Token.TokenType.LBRACE);
+					TreeNode c2 = child(node, TreeNode.Label.los);
+					TreeNode c3 = child(node, Token.TokenType.RBRACE);
+					TreeNode c4 = child(node, TreeNode.Label.elseifstat);
+					elseorelseif(c0);
+					match(c1);
+					los(c2);
+					match(c3);
+					node = c4;
+					continue;
+				}
+			default:
+				throw noEntry(TreeNode.Label.elseifstat, lookahead);
+			}
+		}
+	}
+
+	private void elseorelseif(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case ELSE:
+			{
+				TreeNode c0 = child(node, Token.TokenType.ELSE);
+				TreeNode c1 = child(node, TreeNode.Label.possif);
+				match(c0);
+				possif(c1);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.elseorelseif, lookahead);
+		}
+	}
+
+	private void possif(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case LBRACE:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.epsilon);
+				epsilon(c0);
+				return;
+			}
+		case IF:
+			{
+				TreeNode c0 = child(node, Token.TokenType.IF);
+				TreeNode c1 = child(node, Token.TokenType.LPAREN);
+				TreeNode c2 = child(node, TreeNode.Label.relexpr);
+				TreeNode c3 = child(node, TreeNode.Label.boolexpr);
+				TreeNode c4 = child(node, Token.TokenType.RPAREN);
+				match(c0);
+				match(c1);
+				relexpr(c2);
+				boolexpr(c3);
+				match(c4);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.possif, lookahead);
+		}
+	}
+
+	private void assign(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case ID:
+			{
+				TreeNode c0 = child(node, Token.TokenType.ID);
+				TreeNode c1 = child(node, Token.TokenType.ASSIGN);
+				TreeNode c2 = child(node, TreeNode.Label.expr);
+				match(c0);
+				match(c1);
+				expr(c2);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.assign, lookahead);
+		}
+	}
+
+	private void decl(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case TYPE:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.type);
+				TreeNode c1 = child(node, Token.TokenType.ID);
+				TreeNode c2 = child(node, TreeNode.Label.possassign);
+				type(c0);
+				match(c1);
+				possassign(c2);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.decl, lookahead);
+		}
+	}
+
+	private void possassign(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case ASSIGN:
+			{
+				TreeNode c0 = child(node, Token.TokenType.ASSIGN);
+				TreeNode c1 = child(node, TreeNode.Label.expr);
+				match(c0);
+				expr(c1);
+				return;
+			}
+		case SEMICOLON:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.epsilon);
+				epsilon(c0);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.possassign, lookahead);
+		}
+	}
+
+	private void print(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case PRINT:
+			{
+				TreeNode c0 = child(node, Token.TokenType.PRINT);
+				TreeNode c1 = child(node, Token.TokenType.LPAREN);
+				TreeNode c2 = child(node, TreeNode.Label.printexpr);
+				TreeNode c3 = child(node, Token.TokenType.RPAREN);
+				match(c0);
+				match(c1);
+				printexpr(c2);
+				match(c3);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.print, lookahead);
+		}
+	}
+
+	private void type(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case TYPE:
+			{
+				TreeNode c0 = child(node, Token.TokenType.TYPE);
+				match(c0);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.type, lookahead);
+		}
+	}
+
+	private void expr(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case LBRACE:
+		case ID:
+		case NUM:
+		case TRUE:
+		case FALSE:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.relexpr);
+				TreeNode c1 = child(node, TreeNode.Label.boolexpr);
+				relexpr(c0);
+				boolexpr(c1);
+				return;
+			}
+		case SQUOTE:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.charexpr);
+				charexpr(c0);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.expr, lookahead);
+		}
+	}
+
+	private void boolexpr(TreeNode node) throws SyntaxException, LexicalException {
+		while (true) {
+			checkLookahead();
+			switch (lookahead) {
+			case EQUAL:
+			case NEQUAL:
+			case AND:
+			case OR:
+				{
+					TreeNode c0 = child(node, TreeNode.Label.boolop);
+					TreeNode c1 = child(node, TreeNode.Label.relexpr);
+					TreeNode c2 = child(node, TreeNode.Label.boolexpr);
+					boolop(c0);
+					relexpr(c1);
+					node = c2;
+					continue;
+				}
+			case RPAREN:
+			case SEMICOLON:
+				{
+					TreeNode c0 = child(node, TreeNode.Label.epsilon);
+					epsilon(c0);
+					return;
+				}
+			default:
+				throw noEntry(TreeNode.Label.boolexpr, lookahead);
+			}
+		}
+	}
+
+	private void boolop(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case EQUAL:
+		case NEQUAL:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.booleq);
+				booleq(c0);
+				return;
+			}
+		case AND:
+		case OR:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.boollog);
+				boollog(c0);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.boolop, lookahead);
+		}
+	}
+
+	private void booleq(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case EQUAL:
+			{
+				TreeNode c0 = child(node, Token.TokenType.EQUAL);
+				match(c0);
+				return;
+			}
+		case NEQUAL:
+			{
+				TreeNode c0 = child(node, Token.TokenType.NEQUAL);
+				match(c0);
+				return;
+			}
+		case AND:
+			{
+				TreeNode c0 = child(node, Token.TokenType.AND);
+				match(c0);
+				return;
+			}
+		case OR:
+			{
+				TreeNode c0 = child(node, Token.TokenType.OR);
+				match(c0);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.booleq, lookahead);
+		}
+	}
+
+	private void boollog(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		default:
+			throw noEntry(TreeNode.Label.boollog, lookahead);
+		}
+	}
+
+	private void relexpr(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case LPAREN:
+		case ID:
+		case NUM:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.arithexpr);
+				TreeNode c1 = child(node, TreeNode.Label.relexprprime);
+				arithexpr(c0);
+				relexprprime(c1);
+				return;
+			}
+		case TRUE:
+			{
+				TreeNode c0 = child(node, Token.TokenType.TRUE);
+				match(c0);
+				return;
+			}
+		case FALSE:
+			{
+				TreeNode c0 = child(node, Token.TokenType.FALSE);
+				match(c0);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.relexpr, lookahead);
+		}
+	}
+
+	private void relexprprime(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case EQUAL:
+		case NEQUAL:
+		case RPAREN:
+		case AND:
+		case OR:
+		case SEMICOLON:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.epsilon);
+				epsilon(c0);
+				return;
+			}
+		case LT:
+		case LE:
+		case GT:
+		case GE:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.relop);
+				TreeNode c1 = child(node, TreeNode.Label.arithexpr);
+				relop(c0);
+				arithexpr(c1);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.relexprprime, lookahead);
+		}
+	}
+
+	private void relop(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case LT:
+			{
+				TreeNode c0 = child(node, Token.TokenType.LT);
+				match(c0);
+				return;
+			}
+		case LE:
+			{
+				TreeNode c0 = child(node, Token.TokenType.LE);
+				match(c0);
+				return;
+			}
+		case GT:
+			{
+				TreeNode c0 = child(node, Token.TokenType.GT);
+				match(c0);
+				return;
+			}
+		case GE:
+			{
+				TreeNode c0 = child(node, Token.TokenType.GE);
+				match(c0);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.relop, lookahead);
+		}
+	}
+
+	private void arithexpr(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case LPAREN:
+		case ID:
+		case NUM:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.term);
+				TreeNode c1 = child(node, TreeNode.Label.arithexprprime);
+				term(c0);
+				arithexprprime(c1);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.arithexpr, lookahead);
+		}
+	}
+
+	private void arithexprprime(TreeNode node) throws SyntaxException, LexicalException {
+		while (true) {
+			checkLookahead();
+			switch (lookahead) {
+			case PLUS:
+				{
+					TreeNode c0 = child(node, Token.TokenType.PLUS);
+					TreeNode c1 = child(node, TreeNode.Label.term);
+					TreeNode c2 = child(node, TreeNode.Label.arithexprprime);
+					match(c0);
+					term(c1);
+					node = c2;
+					continue;
+				}
+			case MINUS:
+				{
+					TreeNode c0 = child(node, Token.TokenType.MINUS);
+					TreeNode c1 = child(node, TreeNode.Label.term);
+					TreeNode c2 = child(node, TreeNode.Label.arithexprprime);
+					match(c0);
+					term(c1);
+					node = c2;
+					continue;
+				}
+			case EQUAL:
+			case NEQUAL:
+			case LT:
+			case LE:
+			case GT:
+			case GE:
+			case LPAREN:
+			case RPAREN:
+			case AND:
+			case OR:
+			case SEMICOLON:
+			case ID:
+				{
+					TreeNode c0 = child(node, TreeNode.Label.epsilon);
+					epsilon(c0);
+					return;
+				}
+			default:
+				throw noEntry(TreeNode.Label.arithexprprime, lookahead);
+			}
+		}
+	}
+
+	private void term(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case LPAREN:
+		case ID:
+		case NUM:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.factor);
+				TreeNode c1 = child(node, TreeNode.Label.termprime);
+				factor(c0);
+				termprime(c1);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.term, lookahead);
+		}
+	}
+
+	private void termprime(TreeNode node) throws SyntaxException, LexicalException {
+		while (true) {
+			checkLookahead();
+			switch (lookahead) {
+			case PLUS:
+			case MINUS:
+			case EQUAL:
+			case NEQUAL:
+			case LT:
+			case LE:
+			case GT:
+			case GE:
+			case LPAREN:
+			case RPAREN:
+			case AND:
+			case OR:
+			case SEMICOLON:
+			case ID:
+			case NUM:
+				{
+					TreeNode c0 = child(node, TreeNode.Label.epsilon);
+					epsilon(c0);
+					return;
+				}
+			case TIMES:
+				{
+					TreeNode c0 = child(node, Token.TokenType.TIMES);
+					TreeNode c1 = child(node, TreeNode.Label.factor);
+					TreeNode c2 = child(node, TreeNode.Label.termprime);
+					match(c0);
+					factor(c1);
+					node = c2;
+					continue;
+				}
+			case DIVIDE:
+				{
+					TreeNode c0 = child(node, Token.TokenType.DIVIDE);
+					TreeNode c1 = child(node, TreeNode.Label.factor);
+					TreeNode c2 = child(node, TreeNode.Label.termprime);
+					match(c0);
+					factor(c1);
+					node = c2;
+					continue;
+				}
+			case MOD:
+				{
+					TreeNode c0 = child(node, Token.TokenType.MOD);
+					TreeNode c1 = child(node, TreeNode.Label.factor);
+					TreeNode c2 = child(node, TreeNode.Label.termprime);
+					match(c0);
+					factor(c1);
+					node = c2;
+					continue;
+				}
+			default:
+				throw noEntry(TreeNode.Label.termprime, lookahead);
+			}
+		}
+	}
+
+	private void factor(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case LPAREN:
+			{
+				TreeNode c0 = child(node, Token.TokenType.LPAREN);
+				TreeNode c1 = child(node, TreeNode.Label.arithexpr);
+				TreeNode c2 = child(node, Token.TokenType.RPAREN);
+				match(c0);
+				arithexpr(c1);
+				match(c2);
+				return;
+			}
+		case ID:
+			{
+				TreeNode c0 = child(node, Token.TokenType.ID);
+				match(c0);
+				return;
+			}
+		case NUM:
+			{
+				TreeNode c0 = child(node, Token.TokenType.NUM);
+				match(c0);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.factor, lookahead);
+		}
+	}
+
+	private void printexpr(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case LPAREN:
+		case ID:
+		case NUM:
+			{
+				TreeNode c0 = child(node, TreeNode.Label.relexpr);
+				TreeNode c1 = child(node, TreeNode.Label.boolexpr);
+				relexpr(c0);
+				boolexpr(c1);
+				return;
+			}
+		case DQUOTE:
+			{
+				TreeNode c0 = child(node, Token.TokenType.DQUOTE);
+				TreeNode c1 = child(node, Token.TokenType.STRINGLIT);
+				TreeNode c2 = child(node, Token.TokenType.DQUOTE);
+				match(c0);
+				match(c1);
+				match(c2);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.printexpr, lookahead);
+		}
+	}
+
+	private void charexpr(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		switch (lookahead) {
+		case SQUOTE:
+			{
+				TreeNode c0 = child(node, Token.TokenType.SQUOTE);
+				TreeNode c1 = child(node, Token.TokenType.CHARLIT);
+				TreeNode c2 = child(node, Token.TokenType.SQUOTE);
+				match(c0);
+				match(c1);
+				match(c2);
+				return;
+			}
+		default:
+			throw noEntry(TreeNode.Label.charexpr, lookahead);
+		}
+	}
+
+	private void epsilon(TreeNode node) throws SyntaxException {
+		checkLookahead();
+	}
+
+	private void match(TreeNode node) throws SyntaxException, LexicalException {
+		checkLookahead();
+		Token token = node.getToken().get();
+		if (token.getType() != lookahead) {
+			throw new SyntaxException(SyntaxException.Reason.MISMATCH, "Mismatch between expected terminal " + token.getType() + " and actual: " + lookahead);
+		}
+		token.setValue(tokens.value());
+		token.setSymbol(tokens.symbol());
+		index++;
+		lookahead = tokens.next();
+	}
+
+	private void checkLookahead() throws SyntaxException {
+		if (lookahead == null) {
+			throw new SyntaxException(SyntaxException.Reason.OUT_OF_TOKENS, "Run out of tokens but there's still symbols in the stack, substitution to be done!");
+		}
+	}
+
+	private static TreeNode child(TreeNode parent, TreeNode.Label label) {
+		TreeNode child = new TreeNode(label, parent);
+		parent.addChild(child);
+		return child;
+	}
+
+	private static TreeNode child(TreeNode parent, Token.TokenType type) {
+		TreeNode child = new TreeNode(TreeNode.Label.terminal, new Token(type), parent);
+		parent.addChild(child);
+		return child;
+	}
+
+	private static SyntaxException noEntry(TreeNode.Label label, Token.TokenType lookahead) {
+		return new SyntaxException(SyntaxException.Reason.NO_PRODUCTION, "Entry not in table, cant have this production rule " + label + " with this terminal " + lookahead + " ");
+	}
+}
@@ -0,0 +1,248 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Reparses a source file after a small text edit without starting from scratch.
+//
+// Only the tokens around the edit are relexed: lexing restarts at the first token the edit
+// touches, in the quote state recovered from the tokens before it, and stops as soon as a new
+// token lines up with an old one at the same (shifted) offset, in the same quote state, since
+// from there on the old tokens are still right.
+//
+// If the relexed tokens have the same types as the ones they replace, the tree keeps its
+// shape and only the values of the affected terminals change. Otherwise the smallest run of
+// statements of a single los chain that covers the damaged tokens is reparsed, one stat at a
+// time, and spliced into the chain; the statements around it, and the rest of the chain, are
+// reused as they are. Whenever that is not possible (the edit reaches outside every statement,
+// or the statements do not parse back into exactly the damaged range) the whole file is
+// parsed again, which also means errors are reported exactly as a full parse reports them.
+public class IncrementalParser {
+
+	public static ParsedSource parse(String sourceCode) throws LexicalException, SyntaxException {
+		TokenBuffer tokens = LexicalAnalyser.buffer(sourceCode);
+		return parseFully(sourceCode, tokens, tokens.size());
+	}
+
+	// Applies the edit (replace removedLength characters at offset with insertedText) to the
+	// previous snapshot's source and returns the snapshot for the result
+	public static ParsedSource reparse(ParsedSource previous, int offset, int removedLength, String insertedText) throws LexicalException, SyntaxException {
+		String oldSource = previous.getSource();
+		if (offset < 0 || removedLength < 0 || offset + removedLength > oldSource.length()) {
+			throw new IndexOutOfBoundsException("Edit of " + removedLength + " at " + offset + " in a source of length " + oldSource.length());
+		}
+		String source = oldSource.substring(0, offset) + insertedText + oldSource.substring(offset + removedLength);
+		int delta = insertedText.length() - removedLength;
+		int editEnd = offset + insertedText.length();
+		TokenBuffer oldTokens = previous.getTokens();
+
+		// Relex from the first token touching the edit until the new tokens resynchronise
+		int from = oldTokens.firstEndingAtOrAfter(offset);
+		int start = from < oldTokens.size() ? Math.min(oldTokens.getStart(from), offset) : offset;
+		LexingTokenStream scanner = new LexingTokenStream(source, start, oldTokens.quoteStateBefore(from));
+		TokenBuffer window = new TokenBuffer(source, 16);
+		int to = from;
+		while (true) {
+			int state = scanner.quoteState();
+			Token.TokenType type = scanner.scan();
+			if (type == null) {
+				to = oldTokens.size();
+				break;
+			}
+			if (scanner.tokenStart >= editEnd) {
+				int oldStart = scanner.tokenStart - delta;
+				while (to < oldTokens.size() && oldTokens.getStart(to) < oldStart) {
+					to++;
+				}
+				if (to < oldTokens.size() && oldTokens.getStart(to) == oldStart && oldTokens.getEnd(to) == scanner.tokenEnd - delta
+						&& oldTokens.getType(to) == type && oldTokens.quoteStateBefore(to) == state) {
+					break;
+				}
+			}
+			window.add(type, scanner.tokenStart, scanner.tokenEnd);
+		}
+		TokenBuffer tokens = oldTokens.splice(source, from, to, window, delta);
+
+		// Same token types: the tree is still right, only some values changed
+		if (sameTypes(oldTokens, from, to, window)) {
+			for (int i = 0; i < window.size(); i++) {
+				previous.getTerminal(from + i).getToken().get().setValue(window.getLexeme(i));
+			}
+			return new ParsedSource(source, tokens, previous.getTree(), previous.getTerminals(), window.size(), 0);
+		}
+
+		// Make sure the damaged range holds at least one old token to anchor it in the tree
+		int low = from;
+		int high = to;
+		if (low == high) {
+			if (high < oldTokens.size()) {
+				high++;
+			}
+			else if (low > 0) {
+				low--;
+			}
+			else {
+				return parseFully(source, tokens, window.size());
+			}
+		}
+		int shift = window.size() - (to - from);
+
+		// Find the smallest run of statements in one los chain that covers [low, high)
+		TreeNode[] terminals = previous.getTerminals();
+		TreeNode first = enclosingStatement(terminals[low]);
+		TreeNode last = null;
+		int regionStart = 0;
+		int regionEnd = 0;
+		while (first != null) {
+			List<TreeNode> firstTerminals = terminalsOf(first);
+			regionStart = low - indexOf(firstTerminals, terminals[low]);
+			regionEnd = regionStart + firstTerminals.size();
+			last = first;
+			while (regionEnd < high && nextStatement(last) != null) {
+				last = nextStatement(last);
+				regionEnd += terminalsOf(last).size();
+			}
+			if (regionEnd >= high) {
+				break;
+			}
+			first = enclosingStatement(first.getParent());
+		}
+		if (first == null) {
+			return parseFully(source, tokens, window.size());
+		}
+
+		// If the first token of the region changed type, the statement before it may have made
+		// a different choice on it (e.g. whether an if has an else), so reparse that one too
+		Token.TokenType oldFirst = oldTokens.getType(regionStart);
+		Token.TokenType newFirst = regionStart < tokens.size() ? tokens.getType(regionStart) : null;
+		if (oldFirst != newFirst && previousStatement(first) != null) {
+			first = previousStatement(first);
+			regionStart -= terminalsOf(first).size();
+		}
+
+		// Reparse the region one statement at a time; it has to come out at exactly the end of
+		// the damaged range for the rest of the chain to still fit
+		int newRegionEnd = regionEnd + shift;
+		List<TreeNode> statements = new ArrayList<TreeNode>();
+		TokenCursor cursor = tokens.cursor(regionStart);
+		cursor.next();
+		int position = regionStart;
+		try {
+			while (position < newRegionEnd) {
+				TreeNode statement = new TreeNode(TreeNode.Label.stat, null);
+				position += SyntacticAnalyser.expand(statement, cursor);
+				statements.add(statement);
+			}
+		} catch (SyntaxException e) {
+			return parseFully(source, tokens, window.size());
+		}
+		if (position != newRegionEnd) {
+			return parseFully(source, tokens, window.size());
+		}
+
+		graft(first, last, statements);
+
+		// Splice the terminals of the new statements into the token to terminal mapping
+		TreeNode[] newTerminals = new TreeNode[tokens.size()];
+		System.arraycopy(terminals, 0, newTerminals, 0, regionStart);
+		int next = regionStart;
+		for (TreeNode statement : statements) {
+			for (TreeNode terminal : terminalsOf(statement)) {
+				newTerminals[next++] = terminal;
+			}
+		}
+		System.arraycopy(terminals, regionEnd, newTerminals, next, terminals.length - regionEnd);
+
+		return new ParsedSource(source, tokens, previous.getTree(), newTerminals, window.size(), newRegionEnd - regionStart);
+	}
+
+	private static ParsedSource parseFully(String source, TokenBuffer tokens, int relexedTokens) throws SyntaxException {
+		ParseTree tree = SyntacticAnalyser.parse(tokens);
+		List<TreeNode> terminals = terminalsOf(tree.getRoot());
+		return new ParsedSource(source, tokens, tree, terminals.toArray(new TreeNode[0]), relexedTokens, tokens.size());
+	}
+
+	private static boolean sameTypes(TokenBuffer oldTokens, int from, int to, TokenBuffer window) {
+		if (to - from != window.size()) {
+			return false;
+		}
+		for (int i = 0; i < window.size(); i++) {
+			if (oldTokens.getType(from + i) != window.getType(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Replaces the statements first..last of a los chain with the given ones, linking the last
+	// of them to the rest of the old chain
+	private static void graft(TreeNode first, TreeNode last, List<TreeNode> statements) {
+		TreeNode firstLos = first.getParent();
+		TreeNode rest = last.getParent().getChildren().get(1);
+
+		if (statements.isEmpty()) {
+			TreeNode owner = firstLos.getParent();
+			List<TreeNode> siblings = owner.getChildren();
+			for (int i = 0; i < siblings.size(); i++) {
+				if (siblings.get(i) == firstLos) {
+					siblings.set(i, rest);
+				}
+			}
+			rest.setParent(owner);
+			return;
+		}
+
+		TreeNode los = firstLos;
+		for (int i = 0; i < statements.size(); i++) {
+			TreeNode statement = statements.get(i);
+			TreeNode next = i == statements.size() - 1 ? rest : new TreeNode(TreeNode.Label.los, los);
+			los.getChildren().clear();
+			statement.setParent(los);
+			next.setParent(los);
+			los.addChild(statement);
+			los.addChild(next);
+			los = next;
+		}
+	}
+
+	// The nearest stat node above node, or null if there is none
+	private static TreeNode enclosingStatement(TreeNode node) {
+		for (TreeNode current = node.getParent(); current != null; current = current.getParent()) {
+			if (current.getLabel() == TreeNode.Label.stat) {
+				return current;
+			}
+		}
+		return null;
+	}
+
+	// The statement after this one in its los chain, or null if it is the last
+	private static TreeNode nextStatement(TreeNode statement) {
+		TreeNode rest = statement.getParent().getChildren().get(1);
+		return rest.getChildren().size() == 2 ? rest.getChildren().get(0) : null;
+	}
+
+	// The statement before this one in its los chain, or null if it is the first
+	private static TreeNode previousStatement(TreeNode statement) {
+		TreeNode owner = statement.getParent().getParent();
+		return owner.getLabel() == TreeNode.Label.los ? owner.getChildren().get(0) : null;
+	}
+
+	private static int indexOf(List<TreeNode> nodes, TreeNode node) {
+		for (int i = 0; i < nodes.size(); i++) {
+			if (nodes.get(i) == node) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("Terminal is not in its enclosing statement");
+	}
+
+	// The terminal nodes under root in order, i.e. one per token it spans
+	static List<TreeNode> terminalsOf(TreeNode root) {
+		List<TreeNode> terminals = new ArrayList<TreeNode>();
+		for (TreeIterator nodes = TreeWalker.preOrder(root); nodes.hasNext();) {
+			TreeNode node = nodes.next();
+			if (node.getLabel() == TreeNode.Label.terminal) {
+				terminals.add(node);
+			}
+		}
+		return terminals;
+	}
+}
@@ -0,0 +1,122 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Random;
+
+public class IncrementalParserTests {
+
+	private static final String HEADER = "public class Test { public static void main(String[] args){ ";
+
+	private static String program(int statements) {
+		StringBuilder body = new StringBuilder(HEADER);
+		for (int i = 0; i < statements; i++) {
+			body.append("x = 1; if (a) { y = 2; while (b) { int q = 'c'; } } ");
+		}
+		return body.append("}}").toString();
+	}
+
+	// ParseTree.toString is too slow for big trees, so compare a flat pre-order description
+	private static String describe(ParseTree tree) {
+		StringBuilder sb = new StringBuilder();
+		ArrayDeque<TreeNode> stack = new ArrayDeque<TreeNode>();
+		stack.push(tree.getRoot());
+		while (!stack.isEmpty()) {
+			TreeNode node = stack.pop();
+			sb.append(node).append(node.getChildren().size()).append('\n');
+			List<TreeNode> children = node.getChildren();
+			for (int i = children.size() - 1; i >= 0; i--) {
+				assertSame(node, children.get(i).getParent());
+				stack.push(children.get(i));
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String fullParse(String source) {
+		try {
+			return describe(SyntacticAnalyser.parse(LexicalAnalyser.analyse(source)));
+		} catch (LexicalException e) {
+			return "LexicalException: " + e.getMessage();
+		} catch (SyntaxException e) {
+			return "SyntaxException: " + e.getMessage();
+		}
+	}
+
+	@Test
+	public void testRenameOnlyUpdatesValues() throws LexicalException, SyntaxException {
+		String source = program(1000);
+		ParsedSource parsed = IncrementalParser.parse(source);
+		int offset = source.indexOf("y = 2", source.length() / 2);
+		ParsedSource edited = IncrementalParser.reparse(parsed, offset, 1, "yy");
+		assertEquals(0, edited.getReparsedTokens());
+		assertEquals(1, edited.getRelexedTokens());
+		assertEquals(fullParse(edited.getSource()), describe(edited.getTree()));
+	}
+
+	@Test
+	public void testInsertedStatementOnlyReparsesItsNeighbourhood() throws LexicalException, SyntaxException {
+		String source = program(1000);
+		ParsedSource parsed = IncrementalParser.parse(source);
+		TreeNode untouched = parsed.getTerminal(20);
+		int offset = source.indexOf("int q", source.length() / 2);
+		ParsedSource edited = IncrementalParser.reparse(parsed, offset, 0, "z = z + 1; ");
+		assertTrue(edited.getReparsedTokens() < 30, "reparsed " + edited.getReparsedTokens());
+		assertSame(untouched, edited.getTerminal(20));
+		assertEquals(fullParse(edited.getSource()), describe(edited.getTree()));
+	}
+
+	@Test
+	public void testDeletedStatement() throws LexicalException, SyntaxException {
+		String source = program(10);
+		ParsedSource parsed = IncrementalParser.parse(source);
+		String statement = "if (a) { y = 2; while (b) { int q = 'c'; } } ";
+		int offset = source.indexOf(statement, source.length() / 2);
+		ParsedSource edited = IncrementalParser.reparse(parsed, offset, statement.length(), "");
+		assertTrue(edited.getReparsedTokens() < edited.getTokens().size());
+		assertEquals(fullParse(edited.getSource()), describe(edited.getTree()));
+	}
+
+	@Test
+	public void testQuoteStateIsResynchronised() throws LexicalException, SyntaxException {
+		String source = HEADER + "System.out.println(\"ab\"); char c = 'd'; }}";
+		ParsedSource parsed = IncrementalParser.parse(source);
+		ParsedSource edited = IncrementalParser.reparse(parsed, source.indexOf("ab") + 1, 0, "xyz");
+		assertEquals(fullParse(edited.getSource()), describe(edited.getTree()));
+		assertEquals(1, edited.getRelexedTokens());
+	}
+
+	@Test
+	public void testErrorsMatchFullParse() throws LexicalException, SyntaxException {
+		String source = program(5);
+		ParsedSource parsed = IncrementalParser.parse(source);
+		int offset = source.indexOf("while");
+		SyntaxException e = assertThrows(SyntaxException.class, () -> IncrementalParser.reparse(parsed, offset, 5, "else"));
+		assertEquals(fullParse(source.substring(0, offset) + "else" + source.substring(offset + 5)), "SyntaxException: " + e.getMessage());
+	}
+
+	@Test
+	public void testRandomEditsMatchFullParse() throws LexicalException, SyntaxException {
+		String[] snippets = { "x", " ", "1", ";", "x = 1;", " while (y) { ; } ", "\"", "'", "{", "}", " int z; ", "else",
+				" else if (b) { x = 2; } ", "System.out.println(\"hi\");", " for (; x == 1 ;) { } ", "+ 2", "==", "'c'", "" };
+		Random random = new Random(7);
+		for (int run = 0; run < 50; run++) {
+			ParsedSource parsed = IncrementalParser.parse(program(1 + random.nextInt(5)));
+			for (int step = 0; step < 40; step++) {
+				String source = parsed.getSource();
+				int offset = random.nextInt(source.length() + 1);
+				int removed = Math.min(random.nextInt(6), source.length() - offset);
+				String inserted = snippets[random.nextInt(snippets.length)];
+				String expected = fullParse(source.substring(0, offset) + inserted + source.substring(offset + removed));
+				try {
+					parsed = IncrementalParser.reparse(parsed, offset, removed, inserted);
+					assertEquals(expected, describe(parsed.getTree()));
+				} catch (LexicalException e) {
+					assertEquals(expected, "LexicalException: " + e.getMessage());
+				} catch (SyntaxException e) {
+					assertEquals(expected, "SyntaxException: " + e.getMessage());
+				}
+			}
+		}
+	}
+}
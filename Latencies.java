@@ -0,0 +1,32 @@
+import java.util.Arrays;
+
+// Latencies in nanoseconds, recorded from any number of threads, kept whole so that percentiles
+// are exact rather than estimated from buckets
+final class Latencies {
+
+	private long[] values = new long[1024];
+	private int count;
+
+	synchronized void record(long nanos) {
+		if (count == values.length) {
+			values = Arrays.copyOf(values, count * 2);
+		}
+		values[count++] = nanos;
+	}
+
+	synchronized int count() {
+		return count;
+	}
+
+	// The latency the given fraction of the recorded ones are at or under, e.g. 0.99 for the
+	// 99th percentile, by nearest rank. 0 if nothing was recorded
+	synchronized long percentile(double fraction) {
+		if (count == 0) {
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(values, count);
+		Arrays.sort(sorted);
+		int rank = (int) Math.ceil(fraction * count);
+		return sorted[Math.max(rank, 1) - 1];
+	}
+}
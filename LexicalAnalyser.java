@@ -1,174 +1,163 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 public class LexicalAnalyser {
 
 	public static List<Token> analyse(String sourceCode) throws LexicalException {
-		
+		return analyse(sourceCode, null);
+	}
+
+	// As above, but every ID, NUM and CHARLIT value is interned in symbols, and its Token carries
+	// the symbol id. Repeated lexemes then share one String
+	public static List<Token> analyse(String sourceCode, SymbolTable symbols) throws LexicalException {
+		ParseMetrics metrics = ParseMetrics.active();
+		long start = metrics == null ? 0 : System.nanoTime();
+
 		//Turn the input String into a list of Tokens!
-		String endToken = "{}();\"' ";
 		List<Token> result = new ArrayList<Token>();
+		TokenStream tokens = stream(sourceCode, symbols);
+		try {
+			for (Token token = tokens.next(); token != null; token = tokens.next()) {
+				result.add(token);
+			}
+		} catch (LexicalException e) {
+			if (metrics != null)
+				metrics.failed(e);
+			throw e;
+		}
 
-		// 0 means a word is an ID
-		// 1 means a word is a STRLIT
-		// 2 means a word is a CHARLIT
+		if (metrics != null)
+			metrics.lexed(System.nanoTime() - start, result.size());
+		return result;
+	}
 
-		int expectWord = 0;
+	// Lexes the source lazily: each call to next() on the returned stream scans just one
+	// more token, so a consumer can stop at the first error without lexing the rest
+	public static TokenStream stream(CharSequence sourceCode) {
+		return new LexingTokenStream(sourceCode);
+	}
 
-		int index = 0;
-		while (index < sourceCode.length()) {
-			StringBuilder sb = new StringBuilder();
+	public static TokenStream stream(CharSequence sourceCode, SymbolTable symbols) {
+		LexingTokenStream stream = new LexingTokenStream(sourceCode);
+		stream.setSymbols(symbols);
+		return stream;
+	}
 
-			if (sourceCode.charAt(index) == ' ') {
-				while (index < sourceCode.length() && sourceCode.charAt(index) == ' ') {
-					sb.append(sourceCode.charAt(index));
-					index++;
-				}
-			}
-			else if (sourceCode.charAt(index) == '}') {
-				result.add(tokenFromString("}", expectWord).get());
-				index++;
-			}
-			else if (sourceCode.charAt(index) == '{') {
-				result.add(tokenFromString("{", expectWord).get());
-				index++;
-			}
-			else if (sourceCode.charAt(index) == ')') {
-				result.add(tokenFromString(")", expectWord).get());
-				index++;
-			}
-			else if (sourceCode.charAt(index) == '(') {
-				result.add(tokenFromString("(", expectWord).get());
-				index++;
-			}
-			else if (sourceCode.charAt(index) == ';') {
-				result.add(tokenFromString(";", expectWord).get());
-				index++;
-			}
-			else if (sourceCode.charAt(index) == '"') {
-				if (expectWord == 1) {
-					expectWord = 0;
-				}
-				else {
-					expectWord = 1;
-				}
-				result.add(new Token(Token.TokenType.DQUOTE, "\""));
-				index++;
-			}
-			else if (sourceCode.charAt(index) == '\'') {
-				if (expectWord == 2) {
-					expectWord = 0;
-				}
-				else {
-					expectWord = 2;
-				}
-				result.add(new Token(Token.TokenType.SQUOTE, "'"));
-				index++;
-			}
-			else {
+	public static TokenStream stream(Reader sourceCode) {
+		return new LexingTokenStream(sourceCode);
+	}
 
-				while (index < sourceCode.length() && endToken.indexOf(sourceCode.charAt(index)) == -1) {
-					sb.append(sourceCode.charAt(index));
-					index++;
-				}
+	// Lexes the source into a compact TokenBuffer, which only records the type and bounds of
+	// each token instead of allocating a Token for it
+	public static TokenBuffer buffer(CharSequence sourceCode) throws LexicalException {
+		return buffer(sourceCode, null);
+	}
 
-				Optional<Token> tokenfromString = tokenFromString(sb.toString(), expectWord);
-				if (!tokenfromString.isPresent()) {
-					throw new LexicalException("Bad string: " + sb.toString());
-				}
+	// As above, but also recording the symbol id of every ID, NUM and CHARLIT, whose lexemes then
+	// come from symbols rather than being cut out of the source again
+	public static TokenBuffer buffer(CharSequence sourceCode, SymbolTable symbols) throws LexicalException {
+		ParseMetrics metrics = ParseMetrics.active();
+		long start = metrics == null ? 0 : System.nanoTime();
 
-				result.add(tokenfromString.get());
+		LexingTokenStream scanner = new LexingTokenStream(sourceCode);
+		scanner.setSymbols(symbols);
+		TokenBuffer result = new TokenBuffer(sourceCode, sourceCode.length() / 4, symbols);
+		try {
+			for (Token.TokenType type = scanner.scan(); type != null; type = scanner.scan()) {
+				result.add(type, scanner.tokenStart, scanner.tokenEnd, scanner.tokenSymbol);
 			}
+		} catch (LexicalException e) {
+			if (metrics != null)
+				metrics.failed(e);
+			throw e;
 		}
-		
+
+		if (metrics != null)
+			metrics.lexed(System.nanoTime() - start, result.size());
 		return result;
 	}
 
-	private static Optional<Token> tokenFromString(String t, int wordState) {
-		Optional<Token.TokenType> type = tokenTypeOf(t, wordState);
-		if (type.isPresent())
-			return Optional.of(new Token(type.get(), t));
-		return Optional.empty();
+	// As analyse and buffer, but lexing chunks of a large source concurrently on the common
+	// ForkJoinPool (see ParallelLexer). The tokens are exactly those the sequential lexer gives,
+	// and so is the error if there is one. The list is a read only view over the chunks' lists
+	public static List<Token> analyseParallel(CharSequence sourceCode) throws LexicalException {
+		return analyseParallel(sourceCode, null);
 	}
 
-	private static Optional<Token.TokenType> tokenTypeOf(String t, int wordState) {
-		if (wordState == 1) {
-			return Optional.of(Token.TokenType.STRINGLIT);
+	public static List<Token> analyseParallel(CharSequence sourceCode, SymbolTable symbols) throws LexicalException {
+		if (sourceCode.length() < 2 * ParallelLexer.MIN_CHUNK) {
+			return analyse(sourceCode.toString(), symbols);
 		}
-		else if (wordState == 2) {
-			return Optional.of(Token.TokenType.CHARLIT);
+		ParseMetrics metrics = ParseMetrics.active();
+		long start = metrics == null ? 0 : System.nanoTime();
+		try {
+			List<Token> result = ParallelLexer.analyse(sourceCode, symbols, ForkJoinPool.commonPool(), ParallelLexer.MIN_CHUNK);
+			if (metrics != null)
+				metrics.lexed(System.nanoTime() - start, result.size());
+			return result;
+		} catch (LexicalException e) {
+			if (metrics != null)
+				metrics.failed(e);
+			throw e;
 		}
-		switch (t) {
-		case "public":
-			return Optional.of(Token.TokenType.PUBLIC);
-		case "class":
-			return Optional.of(Token.TokenType.CLASS);
-		case "static":
-			return Optional.of(Token.TokenType.STATIC);
-		case "main":
-			return Optional.of(Token.TokenType.MAIN);
-		case "{":
-			return Optional.of(Token.TokenType.LBRACE);
-		case "void":
-			return Optional.of(Token.TokenType.VOID);
-		case "(":
-			return Optional.of(Token.TokenType.LPAREN);
-		case "String[]":
-			return Optional.of(Token.TokenType.STRINGARR);
-		case "args":
-			return Optional.of(Token.TokenType.ARGS);
-		case ")":
-			return Optional.of(Token.TokenType.RPAREN);
-		case "int":
-		case "char":
-		case "boolean":
-			return Optional.of(Token.TokenType.TYPE);
-		case "=":
-			return Optional.of(Token.TokenType.ASSIGN);
-		case ";":
-			return Optional.of(Token.TokenType.SEMICOLON);
-		case "if":
-			return Optional.of(Token.TokenType.IF);
-		case "for":
-			return Optional.of(Token.TokenType.FOR);
-		case "while":
-			return Optional.of(Token.TokenType.WHILE);
-		case "==":
-			return Optional.of(Token.TokenType.EQUAL);
-		case "+":
-			return Optional.of(Token.TokenType.PLUS);
-		case "-":
-			return Optional.of(Token.TokenType.MINUS);
-		case "*":
-			return Optional.of(Token.TokenType.TIMES);
-		case "/":
-			return Optional.of(Token.TokenType.DIVIDE);
-		case "%":
-			return Optional.of(Token.TokenType.MOD);
-		case "}":
-			return Optional.of(Token.TokenType.RBRACE);
-		case "else":
-			return Optional.of(Token.TokenType.ELSE);
-		case "System.out.println":
-			return Optional.of(Token.TokenType.PRINT);
-		case "||":
-			return Optional.of(Token.TokenType.OR);
-		case "&&":
-			return Optional.of(Token.TokenType.AND);
-		case "true":
-			return Optional.of(Token.TokenType.TRUE);
-		case "false":
-			return Optional.of(Token.TokenType.FALSE);
+	}
+
+	public static TokenBuffer bufferParallel(CharSequence sourceCode) throws LexicalException {
+		return bufferParallel(sourceCode, null);
+	}
+
+	public static TokenBuffer bufferParallel(CharSequence sourceCode, SymbolTable symbols) throws LexicalException {
+		if (sourceCode.length() < 2 * ParallelLexer.MIN_CHUNK) {
+			return buffer(sourceCode, symbols);
+		}
+		ParseMetrics metrics = ParseMetrics.active();
+		long start = metrics == null ? 0 : System.nanoTime();
+		try {
+			TokenBuffer result = ParallelLexer.buffer(sourceCode, symbols, ForkJoinPool.commonPool(), ParallelLexer.MIN_CHUNK);
+			if (metrics != null)
+				metrics.lexed(System.nanoTime() - start, result.size());
+			return result;
+		} catch (LexicalException e) {
+			if (metrics != null)
+				metrics.failed(e);
+			throw e;
 		}
+	}
+
+	// Lexes a file straight out of a memory mapping of its bytes, so the source never has to be
+	// decoded onto the heap. The file must be ASCII or UTF-8
+	public static List<Token> analyse(Path sourceFile) throws LexicalException, IOException {
+		return analyse(sourceFile, null);
+	}
+
+	public static List<Token> analyse(Path sourceFile, SymbolTable symbols) throws LexicalException, IOException {
+		ParseMetrics metrics = ParseMetrics.active();
+		long start = metrics == null ? 0 : System.nanoTime();
 
-		if (t.matches("\\d+"))
-			return Optional.of(Token.TokenType.NUM);
-		if (Character.isAlphabetic(t.charAt(0)) && t.matches("[\\d|\\w]+")) {
-			return Optional.of(Token.TokenType.ID);
+		List<Token> result = new ArrayList<Token>();
+		MappedTokenStream tokens = new MappedTokenStream(sourceFile);
+		tokens.setSymbols(symbols);
+		try {
+			for (Token token = tokens.next(); token != null; token = tokens.next()) {
+				result.add(token);
+			}
+		} catch (LexicalException e) {
+			if (metrics != null)
+				metrics.failed(e);
+			throw e;
 		}
-		return Optional.empty();
+
+		if (metrics != null)
+			metrics.lexed(System.nanoTime() - start, result.size());
+		return result;
 	}
 
-}
+	public static TokenStream stream(Path sourceFile) throws IOException {
+		return new MappedTokenStream(sourceFile);
+	}
 
+}
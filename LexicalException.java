@@ -1,7 +1,12 @@
 
 public class LexicalException extends Exception {
 
+	// Stackless when SyntaxException is, see SyntaxException.WRITABLE_STACK_TRACE
 	public LexicalException(String message) {
-		super(message);
+		super(message, null, true, SyntaxException.WRITABLE_STACK_TRACE);
+	}
+
+	public LexicalException(String message, Throwable cause) {
+		super(message, cause, true, SyntaxException.WRITABLE_STACK_TRACE);
 	}
 }
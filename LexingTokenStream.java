@@ -0,0 +1,357 @@
+import java.io.IOException;
+import java.io.Reader;
+
+// Lexes its input on demand, one token per call to next(). Produces exactly the same tokens
+// as LexicalAnalyser.analyse, but only ever holds the word currently being scanned.
+//
+// Words are recognised by a table driven DFA in a single pass: every character is looked up
+// in a character class table, which narrows down whether the word can still be a NUM or an
+// ID, while a keyword trie is stepped in parallel. Nothing is allocated per character.
+class LexingTokenStream implements TokenStream {
+
+	// Character classes. A word can only be a NUM if every character is a DIGIT and only an ID
+	// if it starts with a LETTER and every character is an ID_PART ([\d|\w] in regex terms)
+	private static final int DIGIT = 1;
+	private static final int ID_PART = 2;
+	private static final int LETTER = 4;
+	private static final int END = 8;
+
+	private static final byte[] CHAR_CLASS = new byte[128];
+
+	// The keyword trie, flattened: KEYWORD_NEXT[state * 128 + c] is the next state, 0 is the
+	// dead state and 1 the start state. KEYWORD_TYPE[state] is the keyword ending there, if any
+	private static final int KEYWORD_START = 1;
+	private static final int MAX_KEYWORD_STATES = 128;
+	private static final int[] KEYWORD_NEXT = new int[MAX_KEYWORD_STATES * 128];
+	private static final Token.TokenType[] KEYWORD_TYPE = new Token.TokenType[MAX_KEYWORD_STATES];
+	private static int keywordStates = KEYWORD_START + 1;
+
+	static {
+		for (char c = '0'; c <= '9'; c++) {
+			CHAR_CLASS[c] = DIGIT | ID_PART;
+		}
+		for (char c = 'a'; c <= 'z'; c++) {
+			CHAR_CLASS[c] = LETTER | ID_PART;
+			CHAR_CLASS[Character.toUpperCase(c)] = LETTER | ID_PART;
+		}
+		CHAR_CLASS['_'] = ID_PART;
+		CHAR_CLASS['|'] = ID_PART;
+		for (char c : "{}();\"' ".toCharArray()) {
+			CHAR_CLASS[c] = END;
+		}
+
+		keyword("public", Token.TokenType.PUBLIC);
+		keyword("class", Token.TokenType.CLASS);
+		keyword("static", Token.TokenType.STATIC);
+		keyword("main", Token.TokenType.MAIN);
+		keyword("void", Token.TokenType.VOID);
+		keyword("String[]", Token.TokenType.STRINGARR);
+		keyword("args", Token.TokenType.ARGS);
+		keyword("int", Token.TokenType.TYPE);
+		keyword("char", Token.TokenType.TYPE);
+		keyword("boolean", Token.TokenType.TYPE);
+		keyword("=", Token.TokenType.ASSIGN);
+		keyword("if", Token.TokenType.IF);
+		keyword("for", Token.TokenType.FOR);
+		keyword("while", Token.TokenType.WHILE);
+		keyword("==", Token.TokenType.EQUAL);
+		keyword("+", Token.TokenType.PLUS);
+		keyword("-", Token.TokenType.MINUS);
+		keyword("*", Token.TokenType.TIMES);
+		keyword("/", Token.TokenType.DIVIDE);
+		keyword("%", Token.TokenType.MOD);
+		keyword("else", Token.TokenType.ELSE);
+		keyword("System.out.println", Token.TokenType.PRINT);
+		keyword("||", Token.TokenType.OR);
+		keyword("&&", Token.TokenType.AND);
+		keyword("true", Token.TokenType.TRUE);
+		keyword("false", Token.TokenType.FALSE);
+	}
+
+	private static void keyword(String word, Token.TokenType type) {
+		int state = KEYWORD_START;
+		for (int i = 0; i < word.length(); i++) {
+			int slot = state * 128 + word.charAt(i);
+			if (KEYWORD_NEXT[slot] == 0) {
+				KEYWORD_NEXT[slot] = keywordStates++;
+			}
+			state = KEYWORD_NEXT[slot];
+		}
+		KEYWORD_TYPE[state] = type;
+	}
+
+	// Value of current before the first character has been read
+	private static final int NOT_STARTED = -2;
+
+	private final CharSequence chars;
+	private final Reader reader;
+	// Where the input ends when it comes from chars
+	private final int end;
+
+	// The next unread character, or -1 at the end of the input, and its offset in the input
+	protected int current = NOT_STARTED;
+	protected int offset = -1;
+
+	// The bounds of the token last scanned, and its text if it does not depend on the input
+	int tokenStart;
+	int tokenEnd;
+	String tokenText;
+
+	// 0 means a word is an ID
+	// 1 means a word is a STRLIT
+	// 2 means a word is a CHARLIT
+	private int expectWord = 0;
+
+	private final StringBuilder sb = new StringBuilder();
+
+	// Interns ID, NUM and CHARLIT lexemes when set
+	private SymbolTable symbols;
+	int tokenSymbol = Token.NO_SYMBOL;
+
+	// For subclasses that supply their own characters by overriding advance()
+	protected LexingTokenStream() {
+		this.chars = null;
+		this.reader = null;
+		this.end = 0;
+	}
+
+	LexingTokenStream(CharSequence chars) {
+		this.chars = chars;
+		this.reader = null;
+		this.end = chars.length();
+	}
+
+	// Starts lexing part way through chars, in the given quote state (see expectWord)
+	LexingTokenStream(CharSequence chars, int start, int expectWord) {
+		this(chars, start, chars.length(), expectWord);
+	}
+
+	// As above, but treating end as the end of the input
+	LexingTokenStream(CharSequence chars, int start, int end, int expectWord) {
+		this.chars = chars;
+		this.reader = null;
+		this.end = end;
+		this.offset = start - 1;
+		this.expectWord = expectWord;
+	}
+
+	LexingTokenStream(Reader reader) {
+		this.chars = null;
+		this.reader = reader;
+		this.end = 0;
+	}
+
+	// Interns the lexemes of the ID, NUM and CHARLIT tokens scanned from now on in symbols
+	void setSymbols(SymbolTable symbols) {
+		this.symbols = symbols;
+	}
+
+	@Override
+	public Token next() throws LexicalException {
+		Token.TokenType type = scan();
+		if (type == null) {
+			return null;
+		}
+		if (tokenSymbol != Token.NO_SYMBOL) {
+			return new Token(type, symbols.getName(tokenSymbol), tokenSymbol);
+		}
+		return new Token(type, tokenText != null ? tokenText : endWord());
+	}
+
+	// The tokens as a cursor that scans one token per call, with no Token allocated for it
+	TokenCursor cursor() {
+		return new TokenCursor() {
+			private Token.TokenType current;
+
+			@Override
+			public Token.TokenType next() throws LexicalException {
+				current = scan();
+				return current;
+			}
+
+			@Override
+			public Token.TokenType current() {
+				return current;
+			}
+
+			@Override
+			public String value() {
+				if (tokenSymbol != Token.NO_SYMBOL) {
+					return symbols.getName(tokenSymbol);
+				}
+				return tokenText != null ? tokenText : endWord();
+			}
+
+			@Override
+			public int symbol() {
+				return tokenSymbol;
+			}
+		};
+	}
+
+	// The quote state the next token will be lexed in
+	int quoteState() {
+		return expectWord;
+	}
+
+	// Scans the next token without building a Token for it: its bounds are left in tokenStart
+	// and tokenEnd, and tokenText holds its text if it is fixed (null for words). Returns null
+	// at the end of the input
+	Token.TokenType scan() throws LexicalException {
+		if (current == NOT_STARTED) {
+			advance();
+		}
+		while (current == ' ') {
+			advance();
+		}
+
+		tokenStart = offset;
+		tokenSymbol = Token.NO_SYMBOL;
+		switch (current) {
+		case -1:
+			return null;
+		case '}':
+			return delimiter(Token.TokenType.RBRACE, "}");
+		case '{':
+			return delimiter(Token.TokenType.LBRACE, "{");
+		case ')':
+			return delimiter(Token.TokenType.RPAREN, ")");
+		case '(':
+			return delimiter(Token.TokenType.LPAREN, "(");
+		case ';':
+			return delimiter(Token.TokenType.SEMICOLON, ";");
+		case '"':
+			if (expectWord == 1) {
+				expectWord = 0;
+			}
+			else {
+				expectWord = 1;
+			}
+			return fixed(Token.TokenType.DQUOTE, "\"");
+		case '\'':
+			if (expectWord == 2) {
+				expectWord = 0;
+			}
+			else {
+				expectWord = 2;
+			}
+			return fixed(Token.TokenType.SQUOTE, "'");
+		}
+
+		// Anything else starts a word, which runs until the next delimiter
+		boolean idStart = (classOf(current) & LETTER) != 0;
+		int possible = DIGIT | ID_PART;
+		int keyword = KEYWORD_START;
+		startWord();
+		do {
+			int charClass = classOf(current);
+			if ((charClass & END) != 0) {
+				break;
+			}
+			possible &= charClass;
+			keyword = current < 128 ? KEYWORD_NEXT[keyword * 128 + current] : 0;
+			appendCurrent();
+			advance();
+		} while (current != -1);
+		tokenEnd = offset;
+		tokenText = null;
+
+		if (expectWord == 1) {
+			return Token.TokenType.STRINGLIT;
+		}
+		else if (expectWord == 2) {
+			return interned(Token.TokenType.CHARLIT);
+		}
+		else if (KEYWORD_TYPE[keyword] != null) {
+			return KEYWORD_TYPE[keyword];
+		}
+		else if ((possible & DIGIT) != 0) {
+			return interned(Token.TokenType.NUM);
+		}
+		else if (idStart && (possible & ID_PART) != 0) {
+			return interned(Token.TokenType.ID);
+		}
+		throw new LexicalException("Bad string: " + endWord());
+	}
+
+	private Token.TokenType interned(Token.TokenType type) {
+		if (symbols != null) {
+			tokenSymbol = internWord(symbols);
+		}
+		return type;
+	}
+
+	// Inside a string or char literal the delimiters are just part of the literal
+	private Token.TokenType delimiter(Token.TokenType type, String text) throws LexicalException {
+		if (expectWord == 1) {
+			return fixed(Token.TokenType.STRINGLIT, text);
+		}
+		else if (expectWord == 2) {
+			return interned(fixed(Token.TokenType.CHARLIT, text), text);
+		}
+		return fixed(type, text);
+	}
+
+	// As interned, for a literal made of a single delimiter, whose text is already known
+	private Token.TokenType interned(Token.TokenType type, String text) {
+		if (symbols != null) {
+			tokenSymbol = symbols.intern(text);
+		}
+		return type;
+	}
+
+	private Token.TokenType fixed(Token.TokenType type, String text) throws LexicalException {
+		advance();
+		tokenEnd = offset;
+		tokenText = text;
+		return type;
+	}
+
+	private static int classOf(int c) {
+		return c < 128 ? CHAR_CLASS[c] : 0;
+	}
+
+	// Words read from a CharSequence are cut straight out of it, the others are collected as
+	// they are scanned
+	protected void startWord() {
+		sb.setLength(0);
+	}
+
+	protected void appendCurrent() {
+		if (chars == null) {
+			sb.append((char) current);
+		}
+	}
+
+	protected String endWord() {
+		if (chars != null) {
+			return chars.subSequence(tokenStart, tokenEnd).toString();
+		}
+		return sb.toString();
+	}
+
+	// Interns the word just scanned without turning it into a String first
+	protected int internWord(SymbolTable symbols) {
+		if (chars != null) {
+			return symbols.intern(chars, tokenStart, tokenEnd);
+		}
+		return symbols.intern(sb, 0, sb.length());
+	}
+
+	private void advance() throws LexicalException {
+		offset++;
+		current = read();
+	}
+
+	// Returns the next character of the input, or -1 at the end
+	protected int read() throws LexicalException {
+		if (chars != null) {
+			return offset < end ? chars.charAt(offset) : -1;
+		}
+		try {
+			return reader.read();
+		} catch (IOException e) {
+			throw new LexicalException("Could not read source: " + e.getMessage(), e);
+		}
+	}
+}
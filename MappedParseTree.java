@@ -0,0 +1,277 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+// A tree file written by BinaryFormat.writeTree, memory mapped and read lazily. Opening it makes
+// one pass over the nodes to index their structure into primitive arrays, like FlatParseTree's,
+// but no TreeNode, Token or String is created until it is asked for: lexemes stay in the file
+// until a token is read, and are then decoded once and kept.
+//
+// getRoot() returns a Node view with the same getLabel()/getToken()/getChildren() methods as
+// TreeNode, and toParseTree() rehydrates the whole tree.
+public class MappedParseTree {
+
+	// A single mapping can be at most Integer.MAX_VALUE bytes, so big files are mapped in windows
+	private static final int WINDOW_BITS = 30;
+	private static final long WINDOW_SIZE = 1L << WINDOW_BITS;
+
+	// values() clones the array on every call
+	private static final TreeNode.Label[] LABELS = TreeNode.Label.values();
+	private static final Token.TokenType[] TYPES = Token.TokenType.values();
+
+	private final MappedByteBuffer[] windows;
+
+	// Grown as the nodes are indexed, since the file does not say how many there are
+	private byte[] labels = new byte[1024];
+	private byte[] types = new byte[1024];
+	private int[] values = new int[1024];
+	private int[] parents = new int[1024];
+	private int[] firstChildren = new int[1024];
+	private int[] nextSiblings = new int[1024];
+	private int size = 0;
+
+	// Where each pooled lexeme's UTF-8 bytes are in the file, and the lexemes decoded so far
+	private long[] valueOffsets = new long[64];
+	private int[] valueLengths = new int[64];
+	private String[] decoded = new String[64];
+	private int poolSize = 0;
+
+	MappedParseTree(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			windows = new MappedByteBuffer[(int) ((size + WINDOW_SIZE - 1) / WINDOW_SIZE)];
+			for (int i = 0; i < windows.length; i++) {
+				long start = i * WINDOW_SIZE;
+				windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+			}
+		}
+		index(new BinaryFormat.Decoder(new WindowStream(), BinaryFormat.Kind.TREE));
+	}
+
+	private void index(BinaryFormat.Decoder decoder) throws IOException {
+		// The nodes still waiting for children, how many each is waiting for, and its last child
+		int[] open = new int[64];
+		int[] remaining = new int[64];
+		int[] lastChildren = new int[64];
+		int top = 0;
+		do {
+			int parent = top == 0 ? -1 : open[top - 1];
+			TreeNode.Label label = decoder.label();
+			int node = add(label, parent);
+			int children = 0;
+			if (label == TreeNode.Label.terminal) {
+				types[node] = (byte) decoder.type().ordinal();
+				values[node] = value(decoder);
+			}
+			else {
+				children = decoder.varint();
+			}
+
+			if (parent != -1) {
+				if (lastChildren[top - 1] == -1) {
+					firstChildren[parent] = node;
+				}
+				else {
+					nextSiblings[lastChildren[top - 1]] = node;
+				}
+				lastChildren[top - 1] = node;
+				if (--remaining[top - 1] == 0) {
+					top--;
+				}
+			}
+			if (children > 0) {
+				if (top == open.length) {
+					open = Arrays.copyOf(open, top * 2);
+					remaining = Arrays.copyOf(remaining, top * 2);
+					lastChildren = Arrays.copyOf(lastChildren, top * 2);
+				}
+				open[top] = node;
+				remaining[top] = children;
+				lastChildren[top++] = -1;
+			}
+		} while (top > 0);
+	}
+
+	private int add(TreeNode.Label label, int parent) {
+		if (size == labels.length) {
+			int capacity = size + (size >> 1);
+			labels = Arrays.copyOf(labels, capacity);
+			types = Arrays.copyOf(types, capacity);
+			values = Arrays.copyOf(values, capacity);
+			parents = Arrays.copyOf(parents, capacity);
+			firstChildren = Arrays.copyOf(firstChildren, capacity);
+			nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+		}
+		int node = size++;
+		labels[node] = (byte) label.ordinal();
+		types[node] = -1;
+		values[node] = -1;
+		parents[node] = parent;
+		firstChildren[node] = -1;
+		nextSiblings[node] = -1;
+		return node;
+	}
+
+	// Reads a value reference, recording where a new lexeme is instead of decoding it. Returns
+	// its pool id, or -1 for no value
+	private int value(BinaryFormat.Decoder decoder) throws IOException {
+		long at = decoder.offset();
+		int reference = decoder.varint();
+		if (reference == BinaryFormat.NO_VALUE) {
+			return -1;
+		}
+		if (reference != BinaryFormat.NEW_VALUE) {
+			decoder.checkPooled(reference, poolSize, at);
+			return reference - BinaryFormat.POOLED_VALUE;
+		}
+		int length = decoder.varint();
+		if (poolSize == valueOffsets.length) {
+			valueOffsets = Arrays.copyOf(valueOffsets, poolSize * 2);
+			valueLengths = Arrays.copyOf(valueLengths, poolSize * 2);
+			decoded = Arrays.copyOf(decoded, poolSize * 2);
+		}
+		valueOffsets[poolSize] = decoder.offset();
+		valueLengths[poolSize] = length;
+		decoder.skip(length);
+		return poolSize++;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public Node getRoot() {
+		return new Node(0);
+	}
+
+	public TreeNode.Label getLabel(int node) {
+		return LABELS[labels[node]];
+	}
+
+	// The token of a terminal node, made on demand
+	public Optional<Token> getToken(int node) {
+		if (types[node] == -1) {
+			return Optional.empty();
+		}
+		Token.TokenType type = TYPES[types[node]];
+		return Optional.of(values[node] == -1 ? new Token(type) : new Token(type, lexeme(values[node])));
+	}
+
+	private synchronized String lexeme(int id) {
+		String result = decoded[id];
+		if (result == null) {
+			byte[] utf8 = new byte[valueLengths[id]];
+			long offset = valueOffsets[id];
+			for (int i = 0; i < utf8.length; i++) {
+				long at = offset + i;
+				utf8[i] = windows[(int) (at >>> WINDOW_BITS)].get((int) (at & (WINDOW_SIZE - 1)));
+			}
+			result = new String(utf8, StandardCharsets.UTF_8);
+			decoded[id] = result;
+		}
+		return result;
+	}
+
+	// Builds the whole tree of TreeNodes. The nodes are in pre-order, so every parent is built
+	// before its children
+	public ParseTree toParseTree() {
+		TreeNode[] nodes = new TreeNode[size];
+		for (int i = 0; i < size; i++) {
+			TreeNode parent = parents[i] == -1 ? null : nodes[parents[i]];
+			Optional<Token> token = getToken(i);
+			nodes[i] = token.isPresent() ? new TreeNode(getLabel(i), token.get(), parent) : new TreeNode(getLabel(i), parent);
+			if (parent != null)
+				parent.addChild(nodes[i]);
+		}
+		return new ParseTree(nodes[0]);
+	}
+
+	// Reads the windows in order, for indexing
+	private class WindowStream extends InputStream {
+
+		private int window = 0;
+
+		@Override
+		public int read() {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			while (window < windows.length && !windows[window].hasRemaining()) {
+				window++;
+			}
+			if (window == windows.length) {
+				return -1;
+			}
+			int count = Math.min(len, windows[window].remaining());
+			windows[window].get(b, off, count);
+			return count;
+		}
+	}
+
+	// A view of one node of the tree
+	public class Node {
+
+		private final int index;
+
+		private Node(int index) {
+			this.index = index;
+		}
+
+		public int getIndex() {
+			return this.index;
+		}
+
+		public TreeNode.Label getLabel() {
+			return MappedParseTree.this.getLabel(index);
+		}
+
+		public Optional<Token> getToken() {
+			return MappedParseTree.this.getToken(index);
+		}
+
+		public Node getParent() {
+			return parents[index] == -1 ? null : new Node(parents[index]);
+		}
+
+		public List<Node> getChildren() {
+			List<Node> children = new ArrayList<Node>();
+			for (int child = firstChildren[index]; child != -1; child = nextSiblings[child]) {
+				children.add(new Node(child));
+			}
+			return children;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Node))
+				return false;
+			Node node = (Node) other;
+			return node.index == this.index && node.tree() == MappedParseTree.this;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.index;
+		}
+
+		private MappedParseTree tree() {
+			return MappedParseTree.this;
+		}
+
+		@Override
+		public String toString() {
+			return "[" + getLabel() + ", " + getToken() + "]";
+		}
+	}
+}
@@ -0,0 +1,69 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// A LexingTokenStream that reads the bytes of a file through memory mappings instead of a
+// String, leaving the I/O to the OS page cache. The heap only ever holds the word currently
+// being scanned, however big the file is.
+//
+// All the characters the lexer splits on are ASCII, and in UTF-8 no byte of a multi byte
+// character is ever ASCII, so the bytes can be scanned directly; only words are decoded.
+class MappedTokenStream extends LexingTokenStream {
+
+	// A single mapping can be at most Integer.MAX_VALUE bytes, so big files are mapped in windows
+	private static final long WINDOW_SIZE = 1L << 30;
+
+	private final MappedByteBuffer[] windows;
+	private int window = 0;
+
+	private byte[] word = new byte[64];
+	private int wordLength = 0;
+
+	MappedTokenStream(Path sourceFile) throws IOException {
+		try (FileChannel channel = FileChannel.open(sourceFile, StandardOpenOption.READ)) {
+			long size = channel.size();
+			windows = new MappedByteBuffer[(int) ((size + WINDOW_SIZE - 1) / WINDOW_SIZE)];
+			for (int i = 0; i < windows.length; i++) {
+				long start = i * WINDOW_SIZE;
+				windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+			}
+		}
+		// The mappings stay valid after the channel is closed
+	}
+
+	@Override
+	protected int read() {
+		while (window < windows.length && !windows[window].hasRemaining()) {
+			window++;
+		}
+		return window < windows.length ? windows[window].get() & 0xff : -1;
+	}
+
+	@Override
+	protected void startWord() {
+		wordLength = 0;
+	}
+
+	@Override
+	protected void appendCurrent() {
+		if (wordLength == word.length) {
+			word = Arrays.copyOf(word, word.length * 2);
+		}
+		word[wordLength++] = (byte) current;
+	}
+
+	@Override
+	protected String endWord() {
+		return new String(word, 0, wordLength, StandardCharsets.UTF_8);
+	}
+
+	// Words are bytes here, so they are decoded before they are looked up
+	@Override
+	protected int internWord(SymbolTable symbols) {
+		return symbols.intern(endWord());
+	}
+}
@@ -0,0 +1,274 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Lexes one large source on a ForkJoinPool, giving exactly the tokens the sequential lexer does.
+//
+// The source is cut into chunks at spaces. Spaces only ever separate tokens, so no token spans
+// two chunks. What does carry across is the quote state (see LexingTokenStream.expectWord), but
+// that only changes at quote characters and depends on nothing else, so it is settled up front:
+// every chunk is scanned for its quotes in parallel, giving the state it ends in for each state
+// it could start in, and chaining those from the first chunk gives the state each one starts in.
+// The chunks are then lexed concurrently, each in its own state, and no chunk is lexed twice.
+//
+// Each chunk interns its lexemes in a SymbolTable of its own. Merging those into the caller's
+// table chunk by chunk, in their order of first appearance, numbers the symbols just as the
+// sequential lexer would.
+final class ParallelLexer {
+
+	// Chunks are no smaller than this many characters, so a source under twice this is lexed
+	// sequentially
+	static final int MIN_CHUNK = 1 << 16;
+
+	// Chunks per worker thread, so that a slow chunk does not hold up the rest
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private final CharSequence source;
+	private final SymbolTable symbols;
+	private final ForkJoinPool pool;
+	// Chunk i is [bounds[i], bounds[i + 1])
+	private final int[] bounds;
+	private final int chunks;
+	private final int[] quoteStates;
+	private final LexicalException[] errors;
+	private final SymbolTable[] localSymbols;
+	private int[][] symbolMaps;
+
+	private ParallelLexer(CharSequence source, SymbolTable symbols, ForkJoinPool pool, int minChunk) {
+		this.source = source;
+		this.symbols = symbols;
+		this.pool = pool;
+		this.bounds = split(source, Math.max(minChunk, source.length() / (pool.getParallelism() * CHUNKS_PER_THREAD)));
+		this.chunks = bounds.length - 1;
+		this.quoteStates = new int[chunks];
+		this.errors = new LexicalException[chunks];
+		this.localSymbols = new SymbolTable[chunks];
+	}
+
+	static TokenBuffer buffer(CharSequence source, SymbolTable symbols, ForkJoinPool pool, int minChunk) throws LexicalException {
+		ParallelLexer lexer = new ParallelLexer(source, symbols, pool, minChunk);
+		TokenBuffer[] parts = new TokenBuffer[lexer.chunks];
+		lexer.lex(chunk -> parts[chunk] = lexer.bufferChunk(chunk));
+
+		int[] offsets = new int[lexer.chunks + 1];
+		for (int i = 0; i < lexer.chunks; i++) {
+			offsets[i + 1] = offsets[i] + parts[i].size();
+		}
+		TokenBuffer result = new TokenBuffer(source, offsets[lexer.chunks], symbols);
+		lexer.run(chunk -> parts[chunk].copyTo(result, offsets[chunk], lexer.symbolMap(chunk)));
+		result.setSize(offsets[lexer.chunks]);
+		return result;
+	}
+
+	// The chunks' token lists are not copied into one: the result is a read only view over them
+	static List<Token> analyse(CharSequence source, SymbolTable symbols, ForkJoinPool pool, int minChunk) throws LexicalException {
+		ParallelLexer lexer = new ParallelLexer(source, symbols, pool, minChunk);
+		List<Token>[] parts = newLists(lexer.chunks);
+		lexer.lex(chunk -> parts[chunk] = lexer.listChunk(chunk));
+		if (symbols != null) {
+			lexer.run(chunk -> lexer.renumber(parts[chunk], lexer.symbolMap(chunk)));
+		}
+		return new Chunked(parts);
+	}
+
+	// Settles the quote state each chunk starts in, lexes the chunks with lexChunk, throws the
+	// error nearest the start of the source if any chunk failed, and merges the symbols
+	private void lex(ChunkLexer lexChunk) throws LexicalException {
+		int[] transfers = new int[chunks];
+		run(chunk -> transfers[chunk] = quoteTransfer(chunk));
+		for (int i = 1; i < chunks; i++) {
+			quoteStates[i] = (transfers[i - 1] >> (quoteStates[i - 1] * 2)) & 3;
+		}
+
+		run(chunk -> {
+			try {
+				lexChunk.lex(chunk);
+			} catch (LexicalException e) {
+				errors[chunk] = e;
+			}
+		});
+		for (LexicalException error : errors) {
+			if (error != null) {
+				throw error;
+			}
+		}
+
+		if (symbols != null) {
+			symbolMaps = new int[chunks][];
+			for (int i = 0; i < chunks; i++) {
+				symbolMaps[i] = new int[localSymbols[i].size()];
+				for (int id = 0; id < symbolMaps[i].length; id++) {
+					symbolMaps[i][id] = symbols.intern(localSymbols[i].getName(id));
+				}
+			}
+		}
+	}
+
+	private TokenBuffer bufferChunk(int chunk) throws LexicalException {
+		LexingTokenStream scanner = scanner(chunk);
+		TokenBuffer result = new TokenBuffer(source, (bounds[chunk + 1] - bounds[chunk]) / 4, localSymbols[chunk]);
+		for (Token.TokenType type = scanner.scan(); type != null; type = scanner.scan()) {
+			result.add(type, scanner.tokenStart, scanner.tokenEnd, scanner.tokenSymbol);
+		}
+		return result;
+	}
+
+	private List<Token> listChunk(int chunk) throws LexicalException {
+		LexingTokenStream scanner = scanner(chunk);
+		List<Token> result = new ArrayList<Token>((bounds[chunk + 1] - bounds[chunk]) / 4);
+		for (Token token = scanner.next(); token != null; token = scanner.next()) {
+			result.add(token);
+		}
+		return result;
+	}
+
+	private LexingTokenStream scanner(int chunk) {
+		LexingTokenStream scanner = new LexingTokenStream(source, bounds[chunk], bounds[chunk + 1], quoteStates[chunk]);
+		if (symbols != null) {
+			localSymbols[chunk] = new SymbolTable();
+			scanner.setSymbols(localSymbols[chunk]);
+		}
+		return scanner;
+	}
+
+	private int[] symbolMap(int chunk) {
+		return symbolMaps == null ? null : symbolMaps[chunk];
+	}
+
+	// Moves the chunk's tokens over to the caller's symbols, sharing their Strings
+	private void renumber(List<Token> tokens, int[] symbolMap) {
+		for (Token token : tokens) {
+			if (token.getSymbol() != Token.NO_SYMBOL) {
+				int symbol = symbolMap[token.getSymbol()];
+				token.setSymbol(symbol);
+				token.setValue(symbols.getName(symbol));
+			}
+		}
+	}
+
+	// The quote state the chunk ends in for each state it could start in, two bits per state
+	private int quoteTransfer(int chunk) {
+		int inNone = 0;
+		int inString = 1;
+		int inChar = 2;
+		for (int i = bounds[chunk]; i < bounds[chunk + 1]; i++) {
+			char c = source.charAt(i);
+			if (c == '"') {
+				inNone = inNone == 1 ? 0 : 1;
+				inString = inString == 1 ? 0 : 1;
+				inChar = inChar == 1 ? 0 : 1;
+			}
+			else if (c == '\'') {
+				inNone = inNone == 2 ? 0 : 2;
+				inString = inString == 2 ? 0 : 2;
+				inChar = inChar == 2 ? 0 : 2;
+			}
+		}
+		return inNone | inString << 2 | inChar << 4;
+	}
+
+	// Chunk boundaries about chunkSize apart, each moved on to the next space
+	private static int[] split(CharSequence source, int chunkSize) {
+		int length = source.length();
+		int[] bounds = new int[length / chunkSize + 2];
+		int count = 1;
+		int next = chunkSize;
+		while (next < length) {
+			while (next < length && source.charAt(next) != ' ') {
+				next++;
+			}
+			if (next >= length) {
+				break;
+			}
+			bounds[count++] = next;
+			next += chunkSize;
+		}
+		bounds[count++] = length;
+		return Arrays.copyOf(bounds, count);
+	}
+
+	private void run(ChunkTask task) {
+		pool.invoke(new Chunks(task, 0, chunks));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Token>[] newLists(int size) {
+		return (List<Token>[]) new List<?>[size];
+	}
+
+	private interface ChunkTask {
+		void run(int chunk);
+	}
+
+	private interface ChunkLexer {
+		void lex(int chunk) throws LexicalException;
+	}
+
+	// Runs the task on the chunks in [from, to), halving the range until each task has one
+	private static class Chunks extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ChunkTask task;
+		private final int from;
+		private final int to;
+
+		Chunks(ChunkTask task, int from, int to) {
+			this.task = task;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				task.run(from);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new Chunks(task, from, mid), new Chunks(task, mid, to));
+		}
+	}
+
+	// The chunks' token lists end to end
+	private static class Chunked extends AbstractList<Token> implements RandomAccess {
+
+		private final List<Token>[] parts;
+		// offsets[i] is the index of the first token of parts[i]
+		private final int[] offsets;
+
+		Chunked(List<Token>[] parts) {
+			this.parts = parts;
+			this.offsets = new int[parts.length + 1];
+			for (int i = 0; i < parts.length; i++) {
+				offsets[i + 1] = offsets[i] + parts[i].size();
+			}
+		}
+
+		@Override
+		public Token get(int index) {
+			if (index < 0 || index >= size())
+				throw new IndexOutOfBoundsException("Token " + index + " of " + size());
+			int part = Arrays.binarySearch(offsets, index);
+			if (part < 0) {
+				part = -part - 2;
+			}
+			else {
+				// Skip over chunks with no tokens, which share their offset with the next
+				while (offsets[part + 1] == index) {
+					part++;
+				}
+			}
+			return parts[part].get(index - offsets[part]);
+		}
+
+		@Override
+		public int size() {
+			return offsets[parts.length];
+		}
+	}
+}
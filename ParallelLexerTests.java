@@ -0,0 +1,105 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelLexerTests {
+
+	private static final String HEADER = "public class Test { public static void main(String[] args){ ";
+
+	// Literals full of spaces and delimiters, so that chunks start inside strings and chars
+	private static final String LITERALS = "System.out.println(\"a { b ; \"); char c = '('; System.out.println(\" ' x ' \"); c = ' '; ";
+
+	private static ForkJoinPool pool;
+
+	@BeforeAll
+	public static void startPool() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterAll
+	public static void stopPool() {
+		pool.shutdown();
+	}
+
+	private static String program(String statements, int count) {
+		StringBuilder sb = new StringBuilder(HEADER);
+		for (int i = 0; i < count; i++) {
+			sb.append(statements.replace("x", "x" + i % 7));
+		}
+		return sb.append("}}").toString();
+	}
+
+	private static void assertSameBuffers(TokenBuffer expected, TokenBuffer actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.getType(i), actual.getType(i));
+			assertEquals(expected.getStart(i), actual.getStart(i));
+			assertEquals(expected.getEnd(i), actual.getEnd(i));
+			assertEquals(expected.getLexeme(i), actual.getLexeme(i));
+			assertEquals(expected.getSymbol(i), actual.getSymbol(i));
+		}
+	}
+
+	@Test
+	public void testChunksAcrossLiterals() throws LexicalException {
+		String source = program(LITERALS + "int x = 1 + 2; ", 500);
+		for (int minChunk = 1; minChunk < 200; minChunk += 13) {
+			assertSameBuffers(LexicalAnalyser.buffer(source), ParallelLexer.buffer(source, null, pool, minChunk));
+			assertEquals(LexicalAnalyser.analyse(source), ParallelLexer.analyse(source, null, pool, minChunk));
+		}
+	}
+
+	@Test
+	public void testGeneratedPrograms() throws LexicalException {
+		ProgramGenerator generator = new ProgramGenerator(22);
+		generator.setTargetTokens(50000);
+		for (int i = 0; i < 3; i++) {
+			String source = generator.generate();
+			assertSameBuffers(LexicalAnalyser.buffer(source), ParallelLexer.buffer(source, null, pool, 1000));
+			assertEquals(LexicalAnalyser.analyse(source), ParallelLexer.analyse(source, null, pool, 1000));
+		}
+	}
+
+	// Symbols are numbered in order of first appearance, as if the source had been lexed in one go
+	@Test
+	public void testSymbolsAreNumberedInOrder() throws LexicalException {
+		String source = program(LITERALS + "int x = y + 3; ", 300);
+		SymbolTable sequential = new SymbolTable();
+		TokenBuffer expected = LexicalAnalyser.buffer(source, sequential);
+		SymbolTable parallel = new SymbolTable();
+		assertSameBuffers(expected, ParallelLexer.buffer(source, parallel, pool, 50));
+		assertEquals(sequential.size(), parallel.size());
+
+		SymbolTable listSymbols = new SymbolTable();
+		List<Token> tokens = ParallelLexer.analyse(source, listSymbols, pool, 50);
+		List<Token> expectedTokens = LexicalAnalyser.analyse(source, new SymbolTable());
+		assertEquals(expectedTokens, tokens);
+		for (int i = 0; i < tokens.size(); i++) {
+			assertEquals(expectedTokens.get(i).getSymbol(), tokens.get(i).getSymbol());
+			if (tokens.get(i).getSymbol() != Token.NO_SYMBOL) {
+				assertSame(listSymbols.getName(tokens.get(i).getSymbol()), tokens.get(i).getValue().get());
+			}
+		}
+	}
+
+	@Test
+	public void testFirstErrorIsThrown() {
+		String source = program("int x = 1; ", 200).replace("x3", "a#b") + " c@d";
+		LexicalException expected = assertThrows(LexicalException.class, () -> LexicalAnalyser.buffer(source));
+		LexicalException actual = assertThrows(LexicalException.class, () -> ParallelLexer.buffer(source, null, pool, 64));
+		assertEquals(expected.getMessage(), actual.getMessage());
+		actual = assertThrows(LexicalException.class, () -> ParallelLexer.analyse(source, null, pool, 64));
+		assertEquals(expected.getMessage(), actual.getMessage());
+	}
+
+	@Test
+	public void testLargeSourcesParseTheSame() throws LexicalException, SyntaxException {
+		String source = program("System.out.println(\"hi\"); char c = '('; while (x == 1) { x = x * 2; } ", 20000);
+		assertTrue(source.length() > 2 * ParallelLexer.MIN_CHUNK);
+		TokenBuffer tokens = LexicalAnalyser.bufferParallel(source);
+		assertSameBuffers(LexicalAnalyser.buffer(source), tokens);
+		assertEquals(SyntacticAnalyser.parseFlat(LexicalAnalyser.buffer(source)).size(), SyntacticAnalyser.parseFlat(tokens).size());
+		assertEquals(LexicalAnalyser.analyse(source), LexicalAnalyser.analyseParallel(source));
+	}
+}
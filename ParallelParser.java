@@ -0,0 +1,252 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Parses one large program on a ForkJoinPool, giving exactly the tree the sequential parser does.
+//
+// Almost all of a program is the statement list of main, and each statement in it is parsed the
+// same way wherever the list is cut: los only ever expands to stat los, and a stat depends on
+// nothing but its own tokens and the one after them. So a prescan of the braces finds main's body
+// and the statements at its top level, runs of whole statements are parsed concurrently as
+// stats, and the rest of the program is parsed around an empty body. The stats are then grafted
+// into that tree, each under a los of its own, just as the PDA would have nested them.
+//
+// The prescan only guesses where statements start. If it guessed wrong, or the program has an
+// error, some part fails to parse, and the program is parsed again sequentially, which throws the
+// error the sequential parser throws.
+//
+// The ranges and the parse around them are speculative, so they record no ParseMetrics. The
+// nodes and peak stack depth are worked out from the grafted tree instead, as the sequential
+// PDA would have reached them.
+final class ParallelParser {
+
+	// Ranges hold no fewer than this many tokens, so a program under twice this is parsed
+	// sequentially
+	static final int MIN_RANGE = 1 << 14;
+
+	// Ranges per worker thread, so that a slow range does not hold up the rest
+	private static final int RANGES_PER_THREAD = 4;
+
+	private ParallelParser() {
+	}
+
+	static ParseTree parse(TokenBuffer tokens, ForkJoinPool pool, int minRange) throws SyntaxException {
+		ParseMetrics metrics = ParseMetrics.active();
+		long start = metrics == null ? 0 : System.nanoTime();
+
+		int bodyStart = bodyStart(tokens);
+		int bodyEnd = bodyStart < 0 ? -1 : bodyEnd(tokens, bodyStart);
+		if (bodyEnd < 0) {
+			return SyntacticAnalyser.parse(tokens);
+		}
+		int[] bounds = split(tokens, bodyStart, bodyEnd, Math.max(minRange, (bodyEnd - bodyStart) / (pool.getParallelism() * RANGES_PER_THREAD)));
+		if (bounds.length < 3) {
+			return SyntacticAnalyser.parse(tokens);
+		}
+
+		List<List<TreeNode>> statements = new ArrayList<List<TreeNode>>();
+		for (int i = 0; i < bounds.length - 1; i++) {
+			statements.add(null);
+		}
+		pool.invoke(new Ranges(tokens, bounds, statements, 0, bounds.length - 1));
+		ParseTree tree = parseAround(tokens, bodyStart, bodyEnd);
+		if (tree == null || statements.contains(null)) {
+			return SyntacticAnalyser.parse(tokens);
+		}
+		graft(tree, statements);
+
+		if (metrics != null) {
+			Expansion expansion = new Expansion();
+			TreeWalker.walk(tree.getRoot(), expansion);
+			metrics.expanded(expansion.peak, expansion.nodes);
+			metrics.parsed(System.nanoTime() - start, tokens.size());
+		}
+		return tree;
+	}
+
+	// The index of the first token of main's body, after the second {, or -1
+	private static int bodyStart(TokenBuffer tokens) {
+		int braces = 0;
+		for (int i = 0; i < tokens.size(); i++) {
+			if (tokens.getType(i) == Token.TokenType.LBRACE && ++braces == 2) {
+				return i + 1;
+			}
+		}
+		return -1;
+	}
+
+	// The index of the } closing main's body, or -1 if it is never closed
+	private static int bodyEnd(TokenBuffer tokens, int bodyStart) {
+		int depth = 0;
+		for (int i = bodyStart; i < tokens.size(); i++) {
+			Token.TokenType type = tokens.getType(i);
+			if (type == Token.TokenType.LBRACE) {
+				depth++;
+			}
+			else if (type == Token.TokenType.RBRACE && depth-- == 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// Cuts [bodyStart, bodyEnd) into ranges of about rangeSize tokens, each starting where a
+	// statement at the top level of the body does: after a ; or a block's } outside any brackets,
+	// unless an else carries the statement on
+	private static int[] split(TokenBuffer tokens, int bodyStart, int bodyEnd, int rangeSize) {
+		int[] bounds = new int[(bodyEnd - bodyStart) / rangeSize + 2];
+		int count = 0;
+		bounds[count++] = bodyStart;
+		int depth = 0;
+		int parens = 0;
+		boolean statementEnded = false;
+		for (int i = bodyStart; i < bodyEnd; i++) {
+			Token.TokenType type = tokens.getType(i);
+			if (statementEnded && type != Token.TokenType.ELSE && i - bounds[count - 1] >= rangeSize) {
+				bounds[count++] = i;
+			}
+			statementEnded = false;
+			switch (type) {
+			case LBRACE:
+				depth++;
+				break;
+			case RBRACE:
+				depth--;
+				statementEnded = depth == 0 && parens == 0;
+				break;
+			case LPAREN:
+				parens++;
+				break;
+			case RPAREN:
+				parens--;
+				break;
+			case SEMICOLON:
+				statementEnded = depth == 0 && parens == 0;
+				break;
+			default:
+				break;
+			}
+		}
+		bounds[count++] = bodyEnd;
+		return Arrays.copyOf(bounds, count);
+	}
+
+	// Parses the stats in [from, to), with the token at to as the lookahead after the last of
+	// them. Returns null if they do not parse, or do not end exactly at to
+	private static List<TreeNode> parseRange(TokenBuffer tokens, int from, int to) {
+		TokenCursor cursor = tokens.cursor(from, Math.min(to + 1, tokens.size()), -1, -1);
+		List<TreeNode> result = new ArrayList<TreeNode>();
+		try {
+			cursor.next();
+			int consumed = 0;
+			while (consumed < to - from) {
+				TreeNode stat = new TreeNode(TreeNode.Label.stat, null);
+				consumed += SyntacticAnalyser.expand(TreeNode.Label.stat, cursor, new ParseTreeBuilder(stat), null);
+				result.add(stat);
+			}
+			return consumed == to - from ? result : null;
+		} catch (SyntaxException e) {
+			return null;
+		} catch (LexicalException e) {
+			// A buffer has already been fully lexed
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Parses the program as if main's body were empty. Returns null if it does not parse
+	private static ParseTree parseAround(TokenBuffer tokens, int bodyStart, int bodyEnd) {
+		TokenCursor cursor = tokens.cursor(0, tokens.size(), bodyStart, bodyEnd);
+		ParseTreeBuilder builder = new ParseTreeBuilder();
+		try {
+			cursor.next();
+			SyntacticAnalyser.expand(TreeNode.Label.prog, cursor, builder, null);
+			return cursor.current() == null ? builder.getTree() : null;
+		} catch (SyntaxException e) {
+			return null;
+		} catch (LexicalException e) {
+			// A buffer has already been fully lexed
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Replaces the empty los of main's body with one los per statement, each holding its stat
+	// and the next los, and the last holding epsilon
+	private static void graft(ParseTree tree, List<List<TreeNode>> statements) {
+		TreeNode los = null;
+		for (TreeNode child : tree.getRoot().getChildren()) {
+			if (child.getLabel() == TreeNode.Label.los) {
+				los = child;
+			}
+		}
+		los.getChildren().clear();
+		for (List<TreeNode> range : statements) {
+			for (TreeNode stat : range) {
+				stat.setParent(los);
+				los.addChild(stat);
+				TreeNode next = new TreeNode(TreeNode.Label.los, los);
+				los.addChild(next);
+				los = next;
+			}
+		}
+		los.addChild(new TreeNode(TreeNode.Label.epsilon, los));
+	}
+
+	// Parses the ranges in [from, to), halving until each task has one
+	private static class Ranges extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final TokenBuffer tokens;
+		private final int[] bounds;
+		private final List<List<TreeNode>> statements;
+		private final int from;
+		private final int to;
+
+		Ranges(TokenBuffer tokens, int[] bounds, List<List<TreeNode>> statements, int from, int to) {
+			this.tokens = tokens;
+			this.bounds = bounds;
+			this.statements = statements;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				statements.set(from, parseRange(tokens, bounds[from], bounds[to]));
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new Ranges(tokens, bounds, statements, from, mid), new Ranges(tokens, bounds, statements, mid, to));
+		}
+	}
+
+	// Counts the nodes of a tree and the peak stack depth the sequential PDA reaches building it. A
+	// node with children was expanded onto the stack as an exit marker and its children, above the
+	// markers of its ancestors and of their children still to come
+	private static class Expansion implements TreeVisitor {
+
+		// By depth, the stack below each node being walked, and its children not yet entered
+		private int[] below = new int[64];
+		private int[] pending = new int[64];
+		private int peak = 1;
+		private long nodes;
+
+		@Override
+		public Action enter(TreeNode node, int depth) {
+			nodes++;
+			if (depth == below.length) {
+				below = Arrays.copyOf(below, depth * 2);
+				pending = Arrays.copyOf(pending, depth * 2);
+			}
+			below[depth] = depth == 0 ? 0 : below[depth - 1] + 1 + --pending[depth - 1];
+			pending[depth] = node.getChildren().size();
+			if (pending[depth] > 0) {
+				peak = Math.max(peak, below[depth] + 1 + pending[depth]);
+			}
+			return Action.CONTINUE;
+		}
+	}
+}
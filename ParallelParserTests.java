@@ -0,0 +1,136 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelParserTests {
+
+	private static final String HEADER = "public class Test { public static void main(String[] args){ ";
+
+	private static ForkJoinPool pool;
+
+	@BeforeAll
+	public static void startPool() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterAll
+	public static void stopPool() {
+		pool.shutdown();
+	}
+
+	// Same shape, labels, tokens and parents, node for node
+	private static void assertSameTrees(ParseTree expected, ParseTree actual) {
+		TreeIterator left = expected.preOrder();
+		TreeIterator right = actual.preOrder();
+		while (left.hasNext()) {
+			assertTrue(right.hasNext());
+			TreeNode a = left.next();
+			TreeNode b = right.next();
+			assertEquals(left.depth(), right.depth());
+			assertEquals(a.getLabel(), b.getLabel());
+			assertEquals(a.getToken(), b.getToken());
+			assertEquals(a.getChildren().size(), b.getChildren().size());
+			for (TreeNode child : b.getChildren()) {
+				assertSame(b, child.getParent());
+			}
+		}
+		assertFalse(right.hasNext());
+	}
+
+	private static void assertSameError(String source) throws LexicalException {
+		TokenBuffer tokens = LexicalAnalyser.buffer(source);
+		SyntaxException expected = assertThrows(SyntaxException.class, () -> SyntacticAnalyser.parse(tokens));
+		SyntaxException actual = assertThrows(SyntaxException.class, () -> ParallelParser.parse(tokens, pool, 8));
+		assertEquals(expected.getMessage(), actual.getMessage());
+		assertEquals(expected.getReason(), actual.getReason());
+	}
+
+	@Test
+	public void testGeneratedPrograms() throws LexicalException, SyntaxException {
+		ProgramGenerator generator = new ProgramGenerator(23);
+		generator.setTargetTokens(20000);
+		for (int i = 0; i < 5; i++) {
+			TokenBuffer tokens = LexicalAnalyser.buffer(generator.generate());
+			ParseTree expected = SyntacticAnalyser.parse(tokens);
+			for (int minRange = 1; minRange <= 4096; minRange *= 8) {
+				assertSameTrees(expected, ParallelParser.parse(tokens, pool, minRange));
+			}
+		}
+	}
+
+	@Test
+	public void testElseChainsAreNotSplit() throws LexicalException, SyntaxException {
+		StringBuilder sb = new StringBuilder(HEADER);
+		for (int i = 0; i < 200; i++) {
+			sb.append("if (x == 1) { x = 1; } else if (x) { ; } else { for (;x;) { } } x = 2; ");
+		}
+		TokenBuffer tokens = LexicalAnalyser.buffer(sb.append("}}").toString());
+		assertSameTrees(SyntacticAnalyser.parse(tokens), ParallelParser.parse(tokens, pool, 1));
+	}
+
+	@Test
+	public void testErrorsMatchTheSequentialParser() throws LexicalException {
+		String body = "int x = 1; while (x == 1) { x = x + 1; } ";
+		String statements = body.repeat(50);
+		// An if straight after an if has no production in the table
+		assertSameError(HEADER + statements + "if (x) { } if (x) { } " + statements + "}}");
+		assertSameError(HEADER + statements + "x = ; " + statements + "}}");
+		assertSameError(HEADER + statements + "} " + statements + "}}");
+		assertSameError(HEADER + statements + "{ " + statements + "}}");
+		assertSameError(HEADER + statements + "}");
+		assertSameError(HEADER + statements + "}} x");
+		assertSameError("public class Test { public static void main(String[] args) " + statements + "}}");
+
+		ProgramGenerator generator = new ProgramGenerator(230);
+		generator.setTargetTokens(2000);
+		for (int i = 0; i < 50; i++) {
+			String source = generator.generateInvalid();
+			try {
+				LexicalAnalyser.buffer(source);
+			} catch (LexicalException e) {
+				continue;
+			}
+			assertSameError(source);
+		}
+	}
+
+	@Test
+	public void testLargePrograms() throws LexicalException, SyntaxException {
+		String body = "int x = 1; while (x == 1) { if (x == 2) { x = x * 3; } else { System.out.println(\"hi\"); } } ";
+		TokenBuffer tokens = LexicalAnalyser.buffer(HEADER + body.repeat(5000) + "}}");
+		assertTrue(tokens.size() > 2 * ParallelParser.MIN_RANGE);
+		assertSameTrees(SyntacticAnalyser.parse(tokens), SyntacticAnalyser.parseParallel(tokens));
+	}
+
+	// Only the returned tree is counted, with the stack depth the sequential PDA reaches for it
+	@Test
+	public void testMetricsMatchTheSequentialParser() throws LexicalException {
+		ProgramGenerator generator = new ProgramGenerator(31);
+		generator.setTargetTokens(3000);
+		TokenBuffer tokens = LexicalAnalyser.buffer(generator.generate());
+		String statements = "int x = 1; while (x == 1) { x = x + 1; } ".repeat(50);
+		TokenBuffer invalid = LexicalAnalyser.buffer(HEADER + statements + "x = ; " + statements + "}}");
+		try {
+			for (TokenBuffer program : new TokenBuffer[] { tokens, invalid }) {
+				ParseMetrics sequential = new ParseMetrics();
+				ParseMetrics.enable(sequential);
+				try {
+					SyntacticAnalyser.parse(program);
+				} catch (SyntaxException e) {
+				}
+				ParseMetrics parallel = new ParseMetrics();
+				ParseMetrics.enable(parallel);
+				try {
+					ParallelParser.parse(program, pool, 8);
+				} catch (SyntaxException e) {
+				}
+				assertEquals(sequential.getNodesCreated(), parallel.getNodesCreated());
+				assertEquals(sequential.getPeakStackDepth(), parallel.getPeakStackDepth());
+				assertEquals(sequential.getParseCalls(), parallel.getParseCalls());
+				assertEquals(sequential.getSyntaxErrors(), parallel.getSyntaxErrors());
+			}
+		} finally {
+			ParseMetrics.disable();
+		}
+	}
+}
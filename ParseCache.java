@@ -0,0 +1,262 @@
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// A bounded cache of ParseResults, keyed by the source and hashed by its SHA-256, for workloads
+// that parse the same programs over and over. Failed parses are cached too, so a bad program is not reparsed
+// just to fail again.
+//
+// The cache is split into segments, each an LRU map under its own lock, so threads only contend
+// when their sources hash to the same segment. Both bounds are split evenly between the segments,
+// which makes them approximate: a segment can evict while another still has room.
+//
+// Cached trees are shared between every caller that gets a hit, so they must not be modified.
+public class ParseCache {
+
+	private static final int MAX_SEGMENTS = 16;
+
+	// A rough heap cost of a cached result, measured on the TreeNode tree: about three nodes per
+	// token, each with its Token, list and label
+	static final int BYTES_PER_ENTRY = 128;
+	static final int BYTES_PER_TOKEN = 300;
+
+	private final Segment[] segments;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	public ParseCache(int maxEntries, long maxBytes) {
+		if (maxEntries < 1 || maxBytes < 1) {
+			throw new IllegalArgumentException("A cache must hold at least one entry and one byte");
+		}
+		int count = Math.min(MAX_SEGMENTS, Integer.highestOneBit(maxEntries));
+		this.segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			this.segments[i] = new Segment((maxEntries + count - 1) / count, (maxBytes + count - 1) / count);
+		}
+	}
+
+	// Returns the cached result for this source, lexing and parsing it on a miss. Two threads that
+	// miss on the same source at once both parse it, and the later result replaces the earlier one
+	public ParseResult parse(String sourceCode) {
+		Key key = new Key(sourceCode);
+		Segment segment = this.segments[key.hash & (this.segments.length - 1)];
+
+		ParseResult result = segment.get(key);
+		if (result != null) {
+			this.hits.increment();
+			return result;
+		}
+		this.misses.increment();
+
+		result = ParseResult.of(sourceCode);
+		this.evictions.add(segment.put(key, result, weigh(sourceCode, result)));
+		return result;
+	}
+
+	// Like SyntacticAnalyser.parse(LexicalAnalyser.analyse(sourceCode)), but through the cache
+	public ParseTree parseTree(String sourceCode) throws LexicalException, SyntaxException {
+		ParseResult result = parse(sourceCode);
+		if (result.isSuccess()) {
+			return result.getTree().get();
+		}
+		Exception error = result.getError().get();
+		if (error instanceof LexicalException) {
+			throw new LexicalException(error.getMessage());
+		}
+		throw new SyntaxException(((SyntaxException) error).getReason().orElse(null), error.getMessage());
+	}
+
+	// The source is counted too, as its key holds on to it
+	static long weigh(String sourceCode, ParseResult result) {
+		long weight = BYTES_PER_ENTRY + 2L * sourceCode.length();
+		if (result.isSuccess()) {
+			weight += (long) result.getTokenCount() * BYTES_PER_TOKEN;
+		}
+		else {
+			String message = result.getError().get().getMessage();
+			weight += message == null ? 0 : 2L * message.length();
+		}
+		return weight;
+	}
+
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	public long getEvictions() {
+		return this.evictions.sum();
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment segment : this.segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	// The estimated heap held by the cached results, in bytes
+	public long weight() {
+		long weight = 0;
+		for (Segment segment : this.segments) {
+			weight += segment.weight();
+		}
+		return weight;
+	}
+
+	public void clear() {
+		for (Segment segment : this.segments) {
+			segment.clear();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "[" + size() + " entries, " + weight() + " bytes, " + getHits() + " hits, " + getMisses() + " misses, " + getEvictions() + " evictions]";
+	}
+
+	private static class Segment {
+
+		private final int maxEntries;
+		private final long maxBytes;
+		private final ReentrantLock lock = new ReentrantLock();
+		// Access ordered, so iteration starts at the least recently used entry
+		private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+		private long weight;
+
+		Segment(int maxEntries, long maxBytes) {
+			this.maxEntries = maxEntries;
+			this.maxBytes = maxBytes;
+		}
+
+		ParseResult get(Key key) {
+			this.lock.lock();
+			try {
+				Entry entry = this.entries.get(key);
+				return entry == null ? null : entry.result;
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		// Inserts the result and returns how many entries were evicted to make room for it. A result
+		// heavier than the whole segment is not cached at all
+		int put(Key key, ParseResult result, long weight) {
+			if (weight > this.maxBytes) {
+				return 0;
+			}
+			this.lock.lock();
+			try {
+				Entry previous = this.entries.put(key, new Entry(result, weight));
+				if (previous != null) {
+					this.weight -= previous.weight;
+				}
+				this.weight += weight;
+
+				int evicted = 0;
+				Iterator<Map.Entry<Key, Entry>> eldest = this.entries.entrySet().iterator();
+				while (this.entries.size() > this.maxEntries || this.weight > this.maxBytes) {
+					Entry entry = eldest.next().getValue();
+					eldest.remove();
+					this.weight -= entry.weight;
+					evicted++;
+				}
+				return evicted;
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		int size() {
+			this.lock.lock();
+			try {
+				return this.entries.size();
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		long weight() {
+			this.lock.lock();
+			try {
+				return this.weight;
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		void clear() {
+			this.lock.lock();
+			try {
+				this.entries.clear();
+				this.weight = 0;
+			} finally {
+				this.lock.unlock();
+			}
+		}
+	}
+
+	private static class Entry {
+
+		final ParseResult result;
+		final long weight;
+
+		Entry(ParseResult result, long weight) {
+			this.result = result;
+			this.weight = weight;
+		}
+	}
+
+	// A source and its digest. The digest is taken over the UTF-16 chars rather than an encoding,
+	// which would turn every unpaired surrogate into the same replacement character, and equal
+	// digests are still checked against the source, so a hit is always for exactly this source
+	private static class Key {
+
+		private final String sourceCode;
+		private final byte[] digest;
+		private final int hash;
+
+		Key(String sourceCode) {
+			MessageDigest sha;
+			try {
+				sha = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				// Every Java platform is required to support SHA-256
+				throw new IllegalStateException(e);
+			}
+			byte[] block = new byte[2 * Math.min(sourceCode.length(), 4096)];
+			for (int from = 0; from < sourceCode.length(); from += block.length / 2) {
+				int to = Math.min(sourceCode.length(), from + block.length / 2);
+				for (int i = from; i < to; i++) {
+					char c = sourceCode.charAt(i);
+					block[2 * (i - from)] = (byte) (c >> 8);
+					block[2 * (i - from) + 1] = (byte) c;
+				}
+				sha.update(block, 0, 2 * (to - from));
+			}
+			this.sourceCode = sourceCode;
+			this.digest = sha.digest();
+			this.hash = (digest[0] & 0xff) | (digest[1] & 0xff) << 8 | (digest[2] & 0xff) << 16 | digest[3] << 24;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Key && Arrays.equals(this.digest, ((Key) other).digest) && this.sourceCode.equals(((Key) other).sourceCode);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ParseCacheTests {
+
+	private static final String GOOD = "public class Test { public static void main(String[] args){ int i = 3 + 2 * 5; }}";
+	private static final String BAD_SYNTAX = "public class Test { public static void main(String[] args){ int i }}";
+	private static final String BAD_LEXEME = "public class Test { public static void main(String[] args){ int _453; }}";
+
+	private static String program(int n) {
+		return "public class Test { public static void main(String[] args){ int i = " + n + "; }}";
+	}
+
+	@Test
+	public void testRepeatedSourceIsAHit() throws LexicalException, SyntaxException {
+		ParseCache cache = new ParseCache(100, 1 << 20);
+		ParseResult first = cache.parse(GOOD);
+		ParseResult second = cache.parse(GOOD);
+		assertSame(first, second);
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+		assertEquals(SyntacticAnalyser.parse(LexicalAnalyser.analyse(GOOD)).toString(), second.getTree().get().toString());
+	}
+
+	@Test
+	public void testFailuresAreCached() {
+		ParseCache cache = new ParseCache(100, 1 << 20);
+		String message = ParseResult.of(BAD_SYNTAX).getError().get().getMessage();
+		for (int i = 0; i < 3; i++) {
+			SyntaxException e = assertThrows(SyntaxException.class, () -> cache.parseTree(BAD_SYNTAX));
+			assertEquals(message, e.getMessage());
+			assertThrows(LexicalException.class, () -> cache.parseTree(BAD_LEXEME));
+		}
+		assertEquals(2, cache.getMisses());
+		assertEquals(4, cache.getHits());
+	}
+
+	@Test
+	public void testEntryBoundEvictsLeastRecentlyUsed() {
+		ParseCache cache = new ParseCache(1, 1 << 20);
+		cache.parse(program(1));
+		cache.parse(program(2));
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getEvictions());
+		cache.parse(program(2));
+		assertEquals(1, cache.getHits());
+		cache.parse(program(1));
+		assertEquals(3, cache.getMisses());
+	}
+
+	// Encoded as UTF-8, both lone surrogates would become the same '?'
+	@Test
+	public void testLoneSurrogatesAreDifferentSources() {
+		ParseCache cache = new ParseCache(100, 1 << 20);
+		String first = "public class Test { public static void main(String[] args){ char c = '\ud800'; }}";
+		String second = "public class Test { public static void main(String[] args){ char c = '\udc00'; }}";
+		ParseResult result = cache.parse(first);
+		assertNotSame(result, cache.parse(second));
+		assertEquals(2, cache.getMisses());
+		assertEquals(0, cache.getHits());
+		assertSame(result, cache.parse(first));
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void testByteBoundIsRespected() {
+		long oneEntry = ParseCache.weigh(GOOD, ParseResult.of(GOOD));
+		ParseCache cache = new ParseCache(1, oneEntry);
+		cache.parse(GOOD);
+		assertEquals(oneEntry, cache.weight());
+
+		// Too heavy for the whole cache, so it is never stored
+		cache.parse("public class Test { public static void main(String[] args){ int i = 3 + 2 * 5 + 1 + 1 + 1; }}");
+		assertEquals(1, cache.size());
+		assertTrue(cache.weight() <= oneEntry);
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		ParseCache cache = new ParseCache(64, 64L << 20);
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 200; i++) {
+			expected.add(ParseResult.of(program(i)).toString());
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int t = 0; t < 8; t++) {
+				int seed = t;
+				futures.add(pool.submit(() -> {
+					for (int i = 0; i < 2000; i++) {
+						int n = (i * 31 + seed * 7) % 200;
+						assertEquals(expected.get(n), cache.parse(program(n)).toString());
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			pool.shutdown();
+			pool.awaitTermination(10, TimeUnit.SECONDS);
+		}
+		assertEquals(16000, cache.getHits() + cache.getMisses());
+		assertTrue(cache.size() <= 64);
+		assertTrue(cache.getEvictions() > 0);
+	}
+}
@@ -0,0 +1,198 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One connection to a ParseServer, sending a request at a time and waiting for its response.
+// Run as a program, it is a load test: a number of clients, each on its own connection and
+// thread, send generated programs as fast as they are answered, and the latency of every
+// request is reported as percentiles at the end.
+public class ParseClient implements Closeable {
+
+	private static final String USAGE = "Usage: java ParseClient [--connect port|host:port|unix:path] [--clients n] [--requests n] [--tokens n] [--format binary|text|json|dot]";
+
+	private final SocketChannel channel;
+	private final DataInputStream in;
+	private final DataOutputStream out;
+
+	public ParseClient(SocketAddress address) throws IOException {
+		this.channel = SocketChannel.open(address);
+		this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+		this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		String connect = String.valueOf(ParseServer.DEFAULT_PORT);
+		int clients = 4;
+		int requests = 1000;
+		int tokens = 2000;
+		ParseServer.Format format = ParseServer.Format.BINARY;
+		try {
+			if (args.length % 2 != 0) {
+				throw new IllegalArgumentException("No value for " + args[args.length - 1]);
+			}
+			for (int i = 0; i < args.length; i += 2) {
+				String value = args[i + 1];
+				switch (args[i]) {
+				case "--connect":
+					connect = value;
+					break;
+				case "--clients":
+					clients = Integer.parseInt(value);
+					break;
+				case "--requests":
+					requests = Integer.parseInt(value);
+					break;
+				case "--tokens":
+					tokens = Integer.parseInt(value);
+					break;
+				case "--format":
+					format = ParseServer.Format.valueOf(value.toUpperCase(Locale.ROOT));
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option " + args[i]);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+		System.out.print(loadTest(ParseServer.address(connect), clients, requests, tokens, format));
+	}
+
+	// Sends requests programs of about tokens tokens each, spread over clients connections, and
+	// reports how long they took
+	static String loadTest(SocketAddress address, int clients, int requests, int tokens, ParseServer.Format format) throws IOException, InterruptedException {
+		// Generated up front, so that generating them is not timed
+		List<String> programs = new ArrayList<String>();
+		ProgramGenerator generator = new ProgramGenerator(clients);
+		generator.setTargetTokens(tokens);
+		for (int i = 0; i < Math.min(requests, 64); i++) {
+			programs.add(generator.generate());
+		}
+
+		Latencies latencies = new Latencies();
+		AtomicLong[] statuses = new AtomicLong[ParseServer.Status.values().length];
+		for (int i = 0; i < statuses.length; i++) {
+			statuses[i] = new AtomicLong();
+		}
+		List<IOException> failures = new ArrayList<IOException>();
+		Thread[] threads = new Thread[clients];
+		long start = System.nanoTime();
+		for (int c = 0; c < clients; c++) {
+			int client = c;
+			threads[c] = new Thread(() -> {
+				try (ParseClient connection = new ParseClient(address)) {
+					for (int i = client; i < requests; i += clients) {
+						long sent = System.nanoTime();
+						Response response = connection.parse(programs.get(i % programs.size()), format);
+						latencies.record(System.nanoTime() - sent);
+						statuses[response.getStatus().ordinal()].incrementAndGet();
+					}
+				} catch (IOException e) {
+					synchronized (failures) {
+						failures.add(e);
+					}
+				}
+			}, "load-client-" + c);
+			threads[c].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long elapsed = System.nanoTime() - start;
+		if (!failures.isEmpty()) {
+			throw failures.get(0);
+		}
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.ROOT, "%d requests over %d connections in %.3f s, %.1f requests/s%n",
+			latencies.count(), clients, elapsed / 1e9, latencies.count() * 1e9 / elapsed));
+		sb.append(String.format(Locale.ROOT, "latency: p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms%n",
+			latencies.percentile(0.5) / 1e6, latencies.percentile(0.9) / 1e6, latencies.percentile(0.99) / 1e6,
+			latencies.percentile(0.999) / 1e6, latencies.percentile(1) / 1e6));
+		sb.append("responses:");
+		for (ParseServer.Status status : ParseServer.Status.values()) {
+			sb.append(' ').append(status).append(' ').append(statuses[status.ordinal()].get());
+		}
+		return sb.append(System.lineSeparator()).toString();
+	}
+
+	// Sends the source and waits for the server's answer. A BAD_REQUEST response leaves the
+	// connection closed by the server
+	public Response parse(String source, ParseServer.Format format) throws IOException {
+		byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+		out.writeByte(format.ordinal());
+		out.writeInt(bytes.length);
+		out.write(bytes);
+		out.flush();
+
+		int status = in.readUnsignedByte();
+		byte[] payload = new byte[in.readInt()];
+		in.readFully(payload);
+		if (status >= ParseServer.Status.values().length) {
+			throw new IOException("Unknown status " + status);
+		}
+		return new Response(ParseServer.Status.values()[status], format, payload);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	// A server's answer to one request
+	public static class Response {
+
+		private final ParseServer.Status status;
+		private final ParseServer.Format format;
+		private final byte[] payload;
+
+		Response(ParseServer.Status status, ParseServer.Format format, byte[] payload) {
+			this.status = status;
+			this.format = format;
+			this.payload = payload;
+		}
+
+		public ParseServer.Status getStatus() {
+			return this.status;
+		}
+
+		public byte[] getPayload() {
+			return this.payload;
+		}
+
+		// The payload as text: a tree in a text format, the diagnostics or an error message
+		public String getText() {
+			if (status == ParseServer.Status.OK && format == ParseServer.Format.BINARY) {
+				throw new IllegalStateException("The tree was sent in BinaryFormat");
+			}
+			return new String(payload, StandardCharsets.UTF_8);
+		}
+
+		// The tree sent in BinaryFormat
+		public ParseTree getTree() throws IOException {
+			if (status != ParseServer.Status.OK || format != ParseServer.Format.BINARY) {
+				throw new IllegalStateException("No tree was sent in BinaryFormat, the response is " + status);
+			}
+			return BinaryFormat.readTree(new ByteArrayInputStream(payload));
+		}
+
+		@Override
+		public String toString() {
+			return "[" + status + ", " + payload.length + " bytes]";
+		}
+	}
+}
@@ -0,0 +1,22 @@
+
+// Receives the structure of a parse as the PDA discovers it, instead of as a finished tree.
+// Calls arrive in depth first order: enterNonTerminal when a non terminal is expanded, then the
+// calls for its children, then exitNonTerminal. Empty productions show up as an enter/exit pair
+// for TreeNode.Label.epsilon, just as they appear as epsilon nodes in a ParseTree.
+//
+// A listener that only needs counts or a projection of the tree can skip building it entirely;
+// ParseTreeBuilder is the listener that does build it. If the parse fails, the calls stop at the
+// error and the SyntaxException is thrown as usual.
+public interface ParseListener {
+
+	default void enterNonTerminal(TreeNode.Label label) {
+	}
+
+	default void exitNonTerminal(TreeNode.Label label) {
+	}
+
+	// A matched token. symbol is its SymbolTable id or Token.NO_SYMBOL, and tokenIndex its
+	// position in the input, which a TokenBuffer can turn into character offsets
+	default void terminal(Token.TokenType type, String value, int symbol, int tokenIndex) {
+	}
+}
@@ -0,0 +1,112 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+public class ParseListenerTests {
+
+	private static final String SOURCE = "public class Test { public static void main(String[] args){ int x = 1; if (x == 1) { x = x + 2; } else if (x) { ; } while (true) { char c = 'a'; } System.out.println(\"hi\"); }}";
+
+	@Test
+	public void testBuilderMatchesParse() throws LexicalException, SyntaxException {
+		List<Token> tokens = LexicalAnalyser.analyse(SOURCE);
+		ParseTreeBuilder builder = new ParseTreeBuilder();
+		SyntacticAnalyser.parse(tokens, builder);
+		assertEquals(SyntacticAnalyser.parse(tokens, SyntacticAnalyser.Engine.GENERATED).toString(), builder.getTree().toString());
+	}
+
+	@Test
+	public void testEventsNestAndCountTheTree() throws LexicalException, SyntaxException {
+		TokenBuffer tokens = LexicalAnalyser.buffer(SOURCE);
+		Map<TreeNode.Label, Integer> entered = new EnumMap<TreeNode.Label, Integer>(TreeNode.Label.class);
+		List<Integer> indexes = new ArrayList<Integer>();
+		ArrayDeque<TreeNode.Label> open = new ArrayDeque<TreeNode.Label>();
+		SyntacticAnalyser.parse(tokens, new ParseListener() {
+			@Override
+			public void enterNonTerminal(TreeNode.Label label) {
+				entered.merge(label, 1, Integer::sum);
+				open.push(label);
+			}
+
+			@Override
+			public void exitNonTerminal(TreeNode.Label label) {
+				assertEquals(open.pop(), label);
+			}
+
+			@Override
+			public void terminal(Token.TokenType type, String value, int symbol, int tokenIndex) {
+				assertFalse(open.isEmpty());
+				assertEquals(tokens.getType(tokenIndex), type);
+				assertEquals(tokens.getLexeme(tokenIndex), value);
+				indexes.add(tokenIndex);
+			}
+		});
+		assertTrue(open.isEmpty());
+		assertEquals(tokens.size(), indexes.size());
+		for (int i = 0; i < indexes.size(); i++) {
+			assertEquals(i, indexes.get(i));
+		}
+
+		Map<TreeNode.Label, Integer> counted = new EnumMap<TreeNode.Label, Integer>(TreeNode.Label.class);
+		ArrayDeque<TreeNode> stack = new ArrayDeque<TreeNode>();
+		stack.push(SyntacticAnalyser.parse(tokens).getRoot());
+		while (!stack.isEmpty()) {
+			TreeNode node = stack.pop();
+			stack.addAll(node.getChildren());
+			if (node.getLabel() != TreeNode.Label.terminal) {
+				counted.merge(node.getLabel(), 1, Integer::sum);
+			}
+		}
+		assertEquals(counted, entered);
+	}
+
+	@Test
+	public void testErrorsAreStillThrown() throws LexicalException {
+		List<Token> tokens = LexicalAnalyser.analyse("public class Test { public static void main(String[] args){ int i }}");
+		SyntaxException e = assertThrows(SyntaxException.class, () -> SyntacticAnalyser.parse(tokens, new ParseListener() {}));
+		assertTrue(e.getMessage().startsWith("Entry not in table"));
+	}
+
+	// A file lexed from its mapping as it is parsed gives the same events as its buffer
+	@Test
+	public void testParseFromFile(@TempDir Path directory) throws IOException, LexicalException, SyntaxException {
+		Path file = Files.writeString(directory.resolve("Test.java"), SOURCE);
+		List<String> expected = new ArrayList<String>();
+		SyntacticAnalyser.parse(LexicalAnalyser.buffer(SOURCE), recorder(expected));
+		List<String> actual = new ArrayList<String>();
+		SyntacticAnalyser.parse(file, recorder(actual));
+		assertEquals(expected, actual);
+		assertEquals(SyntacticAnalyser.VALID, SyntacticAnalyser.validate(file));
+
+		String invalid = "public class Test { public static void main(String[] args){ int i }}";
+		Files.writeString(file, invalid);
+		assertEquals(SyntacticAnalyser.validate(invalid), SyntacticAnalyser.validate(file));
+		assertThrows(SyntaxException.class, () -> SyntacticAnalyser.parse(file, new ParseListener() {}));
+	}
+
+	private static ParseListener recorder(List<String> events) {
+		return new ParseListener() {
+			@Override
+			public void enterNonTerminal(TreeNode.Label label) {
+				events.add("enter " + label);
+			}
+
+			@Override
+			public void exitNonTerminal(TreeNode.Label label) {
+				events.add("exit " + label);
+			}
+
+			@Override
+			public void terminal(Token.TokenType type, String value, int symbol, int tokenIndex) {
+				events.add(type + " " + value + " " + tokenIndex);
+			}
+		};
+	}
+}
@@ -0,0 +1,349 @@
+import java.lang.management.ManagementFactory;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Opt-in counters and histograms for the lexer and parser. While enabled, every call to
+// LexicalAnalyser's analyse and buffer, and every parse, parseFlat and listener parse in
+// SyntacticAnalyser, from any thread, adds its duration, token count and errors. Parses on the
+// table engine also add the nodes they created and the peak depth of the PDA stack. That counts
+// the exit markers under each expanded non terminal, so it grows with the length of a statement
+// list as well as with nesting.
+//
+// Everything is a LongAdder or LongAccumulator, so recording never takes a lock. While disabled
+// the analysers only read one volatile field per call, and nothing per token.
+//
+// Lazily lexed streams are not timed on their own: their lexing happens inside the parse that
+// pulls from them, and counts as parse time.
+public class ParseMetrics implements ParseMetricsMBean {
+
+	public static final String OBJECT_NAME = "syntaxanalyzer:type=ParseMetrics";
+
+	private static volatile ParseMetrics active;
+
+	private final LongAdder lexCalls = new LongAdder();
+	private final LongAdder lexTokens = new LongAdder();
+	private final Histogram lexDurations = new Histogram();
+
+	private final LongAdder parseCalls = new LongAdder();
+	private final LongAdder parseTokens = new LongAdder();
+	private final Histogram parseDurations = new Histogram();
+	private final LongAccumulator peakStackDepth = new LongAccumulator(Math::max, 0);
+	private final LongAdder nodesCreated = new LongAdder();
+
+	private final LongAdder lexicalErrors = new LongAdder();
+	// One per Reason, and one more for SyntaxExceptions without one
+	private final LongAdder[] syntaxErrors = new LongAdder[SyntaxException.Reason.values().length + 1];
+
+	public ParseMetrics() {
+		for (int i = 0; i < syntaxErrors.length; i++) {
+			syntaxErrors[i] = new LongAdder();
+		}
+	}
+
+	// Starts recording into the metrics already enabled, or into new ones
+	public static synchronized ParseMetrics enable() {
+		if (active == null) {
+			active = new ParseMetrics();
+		}
+		return active;
+	}
+
+	// Starts recording into metrics, in place of any enabled before
+	public static synchronized void enable(ParseMetrics metrics) {
+		active = metrics;
+	}
+
+	public static synchronized void disable() {
+		active = null;
+	}
+
+	public static Optional<ParseMetrics> get() {
+		return Optional.ofNullable(active);
+	}
+
+	// The metrics to record into, or null while disabled
+	static ParseMetrics active() {
+		return active;
+	}
+
+	void lexed(long nanos, int tokens) {
+		lexCalls.increment();
+		lexTokens.add(tokens);
+		lexDurations.record(nanos);
+	}
+
+	void parsed(long nanos, int tokens) {
+		parseCalls.increment();
+		parseTokens.add(tokens);
+		parseDurations.record(nanos);
+	}
+
+	void expanded(int stackDepth, long nodes) {
+		peakStackDepth.accumulate(stackDepth);
+		nodesCreated.add(nodes);
+	}
+
+	void failed(LexicalException e) {
+		lexicalErrors.increment();
+	}
+
+	void failed(SyntaxException e) {
+		syntaxErrors[e.getReason().map(Enum::ordinal).orElse(syntaxErrors.length - 1)].increment();
+	}
+
+	// Registers these metrics with the platform MBean server under OBJECT_NAME
+	public ObjectName register() throws JMException {
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+		return name;
+	}
+
+	public void unregister() throws JMException {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+	}
+
+	public Histogram getLexDurations() {
+		return this.lexDurations;
+	}
+
+	public Histogram getParseDurations() {
+		return this.parseDurations;
+	}
+
+	@Override
+	public long getLexCalls() {
+		return this.lexCalls.sum();
+	}
+
+	@Override
+	public long getLexTokens() {
+		return this.lexTokens.sum();
+	}
+
+	@Override
+	public long getLexNanos() {
+		return this.lexDurations.getSum();
+	}
+
+	@Override
+	public double getLexTokensPerSecond() {
+		return perSecond(getLexTokens(), getLexNanos());
+	}
+
+	@Override
+	public long getLexP50Nanos() {
+		return this.lexDurations.getPercentile(50);
+	}
+
+	@Override
+	public long getLexP99Nanos() {
+		return this.lexDurations.getPercentile(99);
+	}
+
+	@Override
+	public long getLexMaxNanos() {
+		return this.lexDurations.getMax();
+	}
+
+	@Override
+	public long getParseCalls() {
+		return this.parseCalls.sum();
+	}
+
+	@Override
+	public long getParseTokens() {
+		return this.parseTokens.sum();
+	}
+
+	@Override
+	public long getParseNanos() {
+		return this.parseDurations.getSum();
+	}
+
+	@Override
+	public double getParseTokensPerSecond() {
+		return perSecond(getParseTokens(), getParseNanos());
+	}
+
+	@Override
+	public long getParseP50Nanos() {
+		return this.parseDurations.getPercentile(50);
+	}
+
+	@Override
+	public long getParseP99Nanos() {
+		return this.parseDurations.getPercentile(99);
+	}
+
+	@Override
+	public long getParseMaxNanos() {
+		return this.parseDurations.getMax();
+	}
+
+	@Override
+	public long getPeakStackDepth() {
+		return this.peakStackDepth.get();
+	}
+
+	@Override
+	public long getNodesCreated() {
+		return this.nodesCreated.sum();
+	}
+
+	@Override
+	public long getLexicalErrors() {
+		return this.lexicalErrors.sum();
+	}
+
+	// Every failed parse, whatever the reason
+	@Override
+	public long getSyntaxErrors() {
+		long total = 0;
+		for (LongAdder errors : syntaxErrors) {
+			total += errors.sum();
+		}
+		return total;
+	}
+
+	public long getSyntaxErrors(SyntaxException.Reason reason) {
+		return this.syntaxErrors[reason.ordinal()].sum();
+	}
+
+	@Override
+	public long getMismatchErrors() {
+		return getSyntaxErrors(SyntaxException.Reason.MISMATCH);
+	}
+
+	@Override
+	public long getNoProductionErrors() {
+		return getSyntaxErrors(SyntaxException.Reason.NO_PRODUCTION);
+	}
+
+	@Override
+	public long getOutOfTokensErrors() {
+		return getSyntaxErrors(SyntaxException.Reason.OUT_OF_TOKENS);
+	}
+
+	@Override
+	public long getLeftoverTokensErrors() {
+		return getSyntaxErrors(SyntaxException.Reason.LEFTOVER_TOKENS);
+	}
+
+	// Zeroes everything. Calls recorded while this runs may be partly kept
+	@Override
+	public void reset() {
+		lexCalls.reset();
+		lexTokens.reset();
+		lexDurations.reset();
+		parseCalls.reset();
+		parseTokens.reset();
+		parseDurations.reset();
+		peakStackDepth.reset();
+		nodesCreated.reset();
+		lexicalErrors.reset();
+		for (LongAdder errors : syntaxErrors) {
+			errors.reset();
+		}
+	}
+
+	private static double perSecond(long count, long nanos) {
+		if (nanos <= 0)
+			return 0;
+		return count * 1_000_000_000.0 / nanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("[lex: %d calls, %d tokens, %.0f tokens/s, parse: %d calls, %d tokens, %.0f tokens/s, peak stack %d, %d nodes, %d lexical errors, %d syntax errors]",
+				getLexCalls(), getLexTokens(), getLexTokensPerSecond(), getParseCalls(), getParseTokens(), getParseTokensPerSecond(),
+				getPeakStackDepth(), getNodesCreated(), getLexicalErrors(), getSyntaxErrors());
+	}
+
+	// A histogram of non negative values over power of two buckets: bucket 0 holds 0, and bucket
+	// b holds 2^(b-1) up to 2^b - 1. Recording is two LongAdder increments and a max
+	public static class Histogram {
+
+		private static final int BUCKETS = 65;
+
+		private final LongAdder[] counts = new LongAdder[BUCKETS];
+		private final LongAdder sum = new LongAdder();
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+		Histogram() {
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[i] = new LongAdder();
+			}
+		}
+
+		void record(long value) {
+			value = Math.max(0, value);
+			counts[Long.SIZE - Long.numberOfLeadingZeros(value)].increment();
+			sum.add(value);
+			max.accumulate(value);
+		}
+
+		public long getCount() {
+			long count = 0;
+			for (LongAdder bucket : counts) {
+				count += bucket.sum();
+			}
+			return count;
+		}
+
+		public long getSum() {
+			return this.sum.sum();
+		}
+
+		public long getMax() {
+			return this.max.get();
+		}
+
+		public double getMean() {
+			long count = getCount();
+			return count == 0 ? 0 : (double) getSum() / count;
+		}
+
+		// An upper bound on the given percentile (0 to 100): the top of the bucket it falls in,
+		// or the maximum if that is lower
+		public long getPercentile(double percentile) {
+			long[] snapshot = new long[BUCKETS];
+			long count = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				snapshot[i] = counts[i].sum();
+				count += snapshot[i];
+			}
+			if (count == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+			for (int i = 0; i < BUCKETS; i++) {
+				rank -= snapshot[i];
+				if (rank <= 0) {
+					long top = i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+					return Math.min(top, getMax());
+				}
+			}
+			return getMax();
+		}
+
+		// The number of values in each bucket
+		public long[] getBuckets() {
+			long[] result = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++) {
+				result[i] = counts[i].sum();
+			}
+			return result;
+		}
+
+		void reset() {
+			for (LongAdder bucket : counts) {
+				bucket.reset();
+			}
+			sum.reset();
+			max.reset();
+		}
+	}
+}
@@ -0,0 +1,51 @@
+
+// The JMX view of ParseMetrics. Durations are in nanoseconds; percentiles are the upper bound
+// of the power of two bucket they fall in
+public interface ParseMetricsMBean {
+
+	long getLexCalls();
+
+	long getLexTokens();
+
+	long getLexNanos();
+
+	double getLexTokensPerSecond();
+
+	long getLexP50Nanos();
+
+	long getLexP99Nanos();
+
+	long getLexMaxNanos();
+
+	long getParseCalls();
+
+	long getParseTokens();
+
+	long getParseNanos();
+
+	double getParseTokensPerSecond();
+
+	long getParseP50Nanos();
+
+	long getParseP99Nanos();
+
+	long getParseMaxNanos();
+
+	long getPeakStackDepth();
+
+	long getNodesCreated();
+
+	long getLexicalErrors();
+
+	long getSyntaxErrors();
+
+	long getMismatchErrors();
+
+	long getNoProductionErrors();
+
+	long getOutOfTokensErrors();
+
+	long getLeftoverTokensErrors();
+
+	void reset();
+}
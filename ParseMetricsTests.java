@@ -0,0 +1,174 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class ParseMetricsTests {
+
+	private static final String PROGRAM = "public class Test { public static void main(String[] args){ int x = 1; while (x == 1) { if (x == 2) { x = 3; } } System.out.println(x); }}";
+
+	private ParseMetrics metrics;
+
+	@BeforeEach
+	public void enable() {
+		metrics = new ParseMetrics();
+		ParseMetrics.enable(metrics);
+	}
+
+	@AfterEach
+	public void disable() {
+		ParseMetrics.disable();
+	}
+
+	@Test
+	public void testDisabledRecordsNothing() throws LexicalException, SyntaxException {
+		ParseMetrics.disable();
+		assertFalse(ParseMetrics.get().isPresent());
+		SyntacticAnalyser.parse(LexicalAnalyser.analyse(PROGRAM));
+		assertEquals(0, metrics.getLexCalls());
+		assertEquals(0, metrics.getParseCalls());
+
+		ParseMetrics enabled = ParseMetrics.enable();
+		assertSame(enabled, ParseMetrics.enable());
+		assertSame(enabled, ParseMetrics.get().get());
+	}
+
+	@Test
+	public void testLexAndParse() throws LexicalException, SyntaxException {
+		List<Token> tokens = LexicalAnalyser.analyse(PROGRAM);
+		ParseTree tree = SyntacticAnalyser.parse(tokens);
+
+		assertEquals(1, metrics.getLexCalls());
+		assertEquals(tokens.size(), metrics.getLexTokens());
+		assertTrue(metrics.getLexNanos() > 0);
+		assertTrue(metrics.getLexTokensPerSecond() > 0);
+		assertEquals(1, metrics.getLexDurations().getCount());
+
+		assertEquals(1, metrics.getParseCalls());
+		assertEquals(tokens.size(), metrics.getParseTokens());
+		assertTrue(metrics.getParseNanos() > 0);
+		assertTrue(metrics.getParseP99Nanos() >= metrics.getParseP50Nanos());
+		assertEquals(countNodes(tree.getRoot()), metrics.getNodesCreated());
+		assertTrue(metrics.getPeakStackDepth() > 10, metrics.toString());
+		assertEquals(0, metrics.getSyntaxErrors());
+	}
+
+	@Test
+	public void testBufferAndFlatParse() throws LexicalException, SyntaxException {
+		TokenBuffer tokens = LexicalAnalyser.buffer(PROGRAM);
+		FlatParseTree tree = SyntacticAnalyser.parseFlat(tokens);
+		assertEquals(tokens.size(), metrics.getLexTokens());
+		assertEquals(tokens.size(), metrics.getParseTokens());
+		assertEquals(tree.size(), metrics.getNodesCreated());
+		assertTrue(metrics.getPeakStackDepth() > 0);
+	}
+
+	@Test
+	public void testGeneratedEngine() throws LexicalException, SyntaxException {
+		List<Token> tokens = LexicalAnalyser.analyse(PROGRAM);
+		SyntacticAnalyser.parse(tokens, SyntacticAnalyser.Engine.GENERATED);
+		assertEquals(1, metrics.getParseCalls());
+		assertEquals(tokens.size(), metrics.getParseTokens());
+
+		tokens.remove(tokens.size() - 1);
+		assertThrows(SyntaxException.class, () -> SyntacticAnalyser.parse(tokens, SyntacticAnalyser.Engine.GENERATED));
+		assertEquals(1, metrics.getOutOfTokensErrors());
+	}
+
+	@Test
+	public void testErrorsByKind() throws LexicalException {
+		String header = "public class Test { public static void main(String[] args){ ";
+		assertThrows(LexicalException.class, () -> LexicalAnalyser.analyse(header + "int _x = 1; }}"));
+		assertThrows(LexicalException.class, () -> SyntacticAnalyser.parse(LexicalAnalyser.stream(header + "int _x = 1; }}")));
+		assertEquals(2, metrics.getLexicalErrors());
+
+		assertReason(SyntaxException.Reason.NO_PRODUCTION, header + "int x = ; }}");
+		assertReason(SyntaxException.Reason.MISMATCH, header + "System.out.println x; }}");
+		assertReason(SyntaxException.Reason.OUT_OF_TOKENS, header + "x = 1;");
+		assertReason(SyntaxException.Reason.LEFTOVER_TOKENS, PROGRAM + " x = 1;");
+
+		assertEquals(1, metrics.getNoProductionErrors());
+		assertEquals(1, metrics.getMismatchErrors());
+		assertEquals(1, metrics.getOutOfTokensErrors());
+		assertEquals(1, metrics.getLeftoverTokensErrors());
+		assertEquals(4, metrics.getSyntaxErrors());
+		assertEquals(0, metrics.getParseCalls());
+	}
+
+	private void assertReason(SyntaxException.Reason reason, String source) throws LexicalException {
+		List<Token> tokens = LexicalAnalyser.analyse(source);
+		SyntaxException e = assertThrows(SyntaxException.class, () -> SyntacticAnalyser.parse(tokens));
+		assertEquals(reason, e.getReason().get());
+	}
+
+	@Test
+	public void testConcurrentBatch() {
+		List<String> sources = new ArrayList<String>();
+		for (int i = 0; i < 500; i++) {
+			sources.add(i % 5 == 0 ? PROGRAM + " x" : PROGRAM);
+		}
+		BatchResult result = BatchParser.parseAll(sources, new ForkJoinPool(4));
+		assertEquals(500, metrics.getLexCalls());
+		assertEquals(400, metrics.getParseCalls());
+		assertEquals(100, metrics.getLeftoverTokensErrors());
+		assertEquals(result.getTokenCount(), metrics.getLexTokens());
+
+		metrics.reset();
+		assertEquals(0, metrics.getLexCalls());
+		assertEquals(0, metrics.getPeakStackDepth());
+		assertEquals(0, metrics.getParseDurations().getCount());
+	}
+
+	@Test
+	public void testJmx() throws JMException, LexicalException, SyntaxException {
+		ObjectName name = metrics.register();
+		try {
+			SyntacticAnalyser.parse(LexicalAnalyser.analyse(PROGRAM));
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			assertEquals(1L, server.getAttribute(name, "ParseCalls"));
+			assertEquals(metrics.getNodesCreated(), server.getAttribute(name, "NodesCreated"));
+			server.invoke(name, "reset", null, null);
+			assertEquals(0L, server.getAttribute(name, "LexCalls"));
+		} finally {
+			metrics.unregister();
+		}
+	}
+
+	@Test
+	public void testHistogram() {
+		ParseMetrics.Histogram histogram = new ParseMetrics.Histogram();
+		assertEquals(0, histogram.getPercentile(50));
+		for (long value = 1; value <= 100; value++) {
+			histogram.record(value);
+		}
+		assertEquals(100, histogram.getCount());
+		assertEquals(5050, histogram.getSum());
+		assertEquals(100, histogram.getMax());
+		// 50 falls in the bucket for 32 to 63, 99 in the one for 64 to 127, capped at the maximum
+		assertEquals(63, histogram.getPercentile(50));
+		assertEquals(100, histogram.getPercentile(99));
+		assertEquals(1, histogram.getPercentile(0));
+		assertEquals(1, histogram.getBuckets()[1]);
+		assertEquals(37, histogram.getBuckets()[7]);
+	}
+
+	private static long countNodes(TreeNode root) {
+		long count = 0;
+		ArrayDeque<TreeNode> pending = new ArrayDeque<TreeNode>();
+		pending.push(root);
+		while (!pending.isEmpty()) {
+			TreeNode node = pending.pop();
+			count++;
+			for (TreeNode child : node.getChildren()) {
+				pending.push(child);
+			}
+		}
+		return count;
+	}
+}
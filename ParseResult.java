@@ -0,0 +1,68 @@
+import java.util.List;
+import java.util.Optional;
+
+// The outcome of lexing and parsing a single program: either a ParseTree, or the
+// LexicalException/SyntaxException that stopped it.
+public class ParseResult {
+
+	private final ParseTree tree;
+	private final Exception error;
+	private final int tokenCount;
+
+	private ParseResult(ParseTree tree, Exception error, int tokenCount) {
+		this.tree = tree;
+		this.error = error;
+		this.tokenCount = tokenCount;
+	}
+
+	public static ParseResult success(ParseTree tree, int tokenCount) {
+		return new ParseResult(tree, null, tokenCount);
+	}
+
+	public static ParseResult failure(LexicalException error) {
+		return new ParseResult(null, error, 0);
+	}
+
+	public static ParseResult failure(SyntaxException error, int tokenCount) {
+		return new ParseResult(null, error, tokenCount);
+	}
+
+	// Lexes and parses the source, capturing any failure instead of throwing it
+	public static ParseResult of(String sourceCode) {
+		List<Token> tokens;
+		try {
+			tokens = LexicalAnalyser.analyse(sourceCode);
+		} catch (LexicalException e) {
+			return failure(e);
+		}
+		try {
+			return success(SyntacticAnalyser.parse(tokens), tokens.size());
+		} catch (SyntaxException e) {
+			return failure(e, tokens.size());
+		}
+	}
+
+	public boolean isSuccess() {
+		return this.error == null;
+	}
+
+	public Optional<ParseTree> getTree() {
+		return Optional.ofNullable(this.tree);
+	}
+
+	public Optional<Exception> getError() {
+		return Optional.ofNullable(this.error);
+	}
+
+	// The number of tokens the lexer produced, or 0 if lexing failed
+	public int getTokenCount() {
+		return this.tokenCount;
+	}
+
+	@Override
+	public String toString() {
+		if (isSuccess())
+			return "[OK, " + this.tokenCount + " tokens]";
+		return "[" + this.error.getClass().getSimpleName() + ": " + this.error.getMessage() + "]";
+	}
+}
@@ -0,0 +1,495 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Keeps a warmed up lexer and parser running behind a local socket, so that tools calling it
+// pay for JVM startup and JIT warm up once instead of on every file. It listens on a loopback
+// TCP port or a Unix domain socket.
+//
+// A connection carries any number of requests, one after the other. A request is a format byte
+// (a Format ordinal), a 4 byte big endian length and that many bytes of UTF-8 source. The
+// response is a status byte (a Status ordinal), a 4 byte length and a payload:
+//   OK           the parse tree, in BinaryFormat or as UTF-8 in the requested ParseTreeWriter format
+//   ERRORS       the program's Diagnostics, one per line in UTF-8
+//   TIMEOUT      a UTF-8 message, when the request could not be answered within the timeout
+//   BAD_REQUEST  a UTF-8 message; the connection is closed after it
+//
+// Each connection is served by a thread of its own, which parses its requests itself. At most
+// maxConcurrency requests are lexed and parsed at a time, whatever the number of connections;
+// the rest wait for a turn. The timeout covers that wait as well as the work: lexing, parsing
+// and the diagnostics of a failed parse all check the deadline as they go, and are abandoned
+// once it has passed.
+//
+// A request's bytes are only read once they fit in maxBytesInFlight, counted over every request
+// being read or answered, so memory is bounded however many connections are open; a request
+// that does not fit within the timeout is skipped and answered TIMEOUT. A client that takes
+// longer than the read timeout to send a request, or to start the next one, is disconnected.
+public class ParseServer implements Closeable {
+
+	public enum Format {
+		BINARY, TEXT, JSON, DOT
+	}
+
+	public enum Status {
+		OK, ERRORS, TIMEOUT, BAD_REQUEST
+	}
+
+	// The loopback port main listens on when given no address
+	static final int DEFAULT_PORT = 7483;
+
+	private static final String USAGE = "Usage: java ParseServer [--listen port|host:port|unix:path] [--concurrency n] [--connections n] [--timeout ms] [--read-timeout ms] [--in-flight bytes] [--warmup programs]";
+
+	// Chars read, or parse tree callbacks, between checks of the deadline
+	private static final int CHECK_INTERVAL = 4096;
+
+	private final SocketAddress address;
+	private int maxConcurrency = Runtime.getRuntime().availableProcessors();
+	private int maxConnections = 256;
+	private long timeoutNanos = TimeUnit.SECONDS.toNanos(10);
+	private int maxRequestBytes = 64 << 20;
+	private int maxBytesInFlight = 256 << 20;
+	private long readTimeoutNanos = TimeUnit.SECONDS.toNanos(30);
+
+	private ServerSocketChannel server;
+	private Semaphore workers;
+	private Semaphore bytesInFlight;
+	private ScheduledThreadPoolExecutor readTimeouts;
+	private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger connectionIds = new AtomicInteger();
+
+	public ParseServer(SocketAddress address) {
+		this.address = address;
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		String listen = String.valueOf(DEFAULT_PORT);
+		ParseServer server = null;
+		int warmup = 200;
+		try {
+			if (args.length % 2 != 0) {
+				throw new IllegalArgumentException("No value for " + args[args.length - 1]);
+			}
+			for (int i = 0; i < args.length; i += 2) {
+				if (args[i].equals("--listen")) {
+					listen = args[i + 1];
+				}
+			}
+			server = new ParseServer(address(listen));
+			for (int i = 0; i < args.length; i += 2) {
+				String value = args[i + 1];
+				switch (args[i]) {
+				case "--listen":
+					break;
+				case "--concurrency":
+					server.setMaxConcurrency(Integer.parseInt(value));
+					break;
+				case "--connections":
+					server.setMaxConnections(Integer.parseInt(value));
+					break;
+				case "--timeout":
+					server.setTimeout(Long.parseLong(value));
+					break;
+				case "--read-timeout":
+					server.setReadTimeout(Long.parseLong(value));
+					break;
+				case "--in-flight":
+					server.setMaxBytesInFlight(Integer.parseInt(value));
+					break;
+				case "--warmup":
+					warmup = Integer.parseInt(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option " + args[i]);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+
+		server.warmUp(warmup);
+		server.start();
+		System.err.println("Listening on " + server.getAddress());
+		ParseServer running = server;
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				running.close();
+			} catch (IOException e) {
+				System.err.println("Could not close: " + e.getMessage());
+			}
+		}));
+		Thread.currentThread().join();
+	}
+
+	// A port or host:port on which to listen over TCP, or unix: and the path of a socket file
+	static SocketAddress address(String address) {
+		if (address.startsWith("unix:")) {
+			return UnixDomainSocketAddress.of(address.substring("unix:".length()));
+		}
+		int colon = address.lastIndexOf(':');
+		if (colon < 0) {
+			return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+		}
+		return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+	}
+
+	// How many requests may be lexed and parsed at the same time
+	public void setMaxConcurrency(int maxConcurrency) {
+		if (maxConcurrency < 1)
+			throw new IllegalArgumentException("Concurrency must be positive: " + maxConcurrency);
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	// How many connections may be open at once. Further clients wait to be accepted
+	public void setMaxConnections(int maxConnections) {
+		if (maxConnections < 1)
+			throw new IllegalArgumentException("Connections must be positive: " + maxConnections);
+		this.maxConnections = maxConnections;
+	}
+
+	// How long a request may take, in milliseconds, from the moment it has been read
+	public void setTimeout(long millis) {
+		if (millis < 0)
+			throw new IllegalArgumentException("Timeout must not be negative: " + millis);
+		this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	// The largest source accepted, in bytes
+	public void setMaxRequestBytes(int maxRequestBytes) {
+		if (maxRequestBytes < 1)
+			throw new IllegalArgumentException("Request size must be positive: " + maxRequestBytes);
+		this.maxRequestBytes = maxRequestBytes;
+	}
+
+	// The most bytes of requests held at once, over all connections. No less than the largest
+	// source accepted
+	public void setMaxBytesInFlight(int maxBytesInFlight) {
+		if (maxBytesInFlight < 1)
+			throw new IllegalArgumentException("Bytes in flight must be positive: " + maxBytesInFlight);
+		this.maxBytesInFlight = maxBytesInFlight;
+	}
+
+	// How long, in milliseconds, a client may take to send a whole request, and to start the next
+	// one once it has been answered
+	public void setReadTimeout(long millis) {
+		if (millis < 1)
+			throw new IllegalArgumentException("Read timeout must be positive: " + millis);
+		this.readTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	// Lexes and parses generated programs until the JIT has compiled the hot paths, so that the
+	// first requests are not the slow ones
+	public void warmUp(int programs) {
+		ProgramGenerator generator = new ProgramGenerator(programs);
+		generator.setTargetTokens(2000);
+		for (int i = 0; i < programs; i++) {
+			respond(Format.BINARY, generator.generate(), System.nanoTime() + timeoutNanos);
+		}
+	}
+
+	// Binds the socket and starts accepting connections in the background
+	public void start() throws IOException {
+		if (server != null) {
+			throw new IllegalStateException("Already started");
+		}
+		if (maxRequestBytes > maxBytesInFlight) {
+			throw new IllegalStateException("Requests of up to " + maxRequestBytes + " bytes do not fit in " + maxBytesInFlight + " bytes in flight");
+		}
+		workers = new Semaphore(maxConcurrency, true);
+		// Fair, so that a large request is not passed over by a stream of small ones
+		bytesInFlight = new Semaphore(maxBytesInFlight, true);
+		readTimeouts = new ScheduledThreadPoolExecutor(1, task -> {
+			Thread thread = new Thread(task, "parse-read-timeouts");
+			thread.setDaemon(true);
+			return thread;
+		});
+		readTimeouts.setRemoveOnCancelPolicy(true);
+		if (address instanceof UnixDomainSocketAddress) {
+			server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		}
+		else {
+			server = ServerSocketChannel.open();
+		}
+		server.bind(address);
+
+		Semaphore slots = new Semaphore(maxConnections);
+		Thread acceptor = new Thread(() -> {
+			try {
+				while (true) {
+					slots.acquire();
+					SocketChannel channel = server.accept();
+					connections.add(channel);
+					Thread connection = new Thread(() -> {
+						try {
+							serve(channel);
+						} finally {
+							connections.remove(channel);
+							slots.release();
+						}
+					}, "parse-connection-" + connectionIds.incrementAndGet());
+					connection.setDaemon(true);
+					connection.start();
+				}
+			} catch (ClosedChannelException | InterruptedException e) {
+				// Closed
+			} catch (IOException e) {
+				System.err.println("Stopped accepting connections: " + e.getMessage());
+			}
+		}, "parse-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	// The address the server is listening on, with the port filled in if it was 0
+	public SocketAddress getAddress() throws IOException {
+		if (server == null) {
+			throw new IllegalStateException("Not started");
+		}
+		return server.getLocalAddress();
+	}
+
+	// Stops accepting connections and closes the open ones. A Unix domain socket file is deleted
+	@Override
+	public void close() throws IOException {
+		if (server == null) {
+			return;
+		}
+		server.close();
+		for (SocketChannel channel : connections) {
+			channel.close();
+		}
+		readTimeouts.shutdownNow();
+		if (address instanceof UnixDomainSocketAddress) {
+			Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+		}
+	}
+
+	// Answers the requests on one connection until the client closes it
+	private void serve(SocketChannel channel) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+			while (true) {
+				// Closing the channel fails the blocked read, ending the connection
+				ScheduledFuture<?> readTimeout = readTimeouts.schedule(() -> {
+					try {
+						channel.close();
+					} catch (IOException e) {
+						// Closed anyway
+					}
+				}, readTimeoutNanos, TimeUnit.NANOSECONDS);
+				try {
+					int format = in.read();
+					if (format < 0) {
+						return;
+					}
+					int length = in.readInt();
+					if (format >= Format.values().length) {
+						send(out, new Response(Status.BAD_REQUEST, "Unknown format " + format));
+						return;
+					}
+					if (length < 0 || length > maxRequestBytes) {
+						send(out, new Response(Status.BAD_REQUEST, "Requests are limited to " + maxRequestBytes + " bytes, not " + length));
+						return;
+					}
+					if (!bytesInFlight.tryAcquire(length, timeoutNanos, TimeUnit.NANOSECONDS)) {
+						in.skipNBytes(length);
+						readTimeout.cancel(false);
+						send(out, new Response(Status.TIMEOUT, "Timed out waiting for room for " + length + " bytes"));
+						continue;
+					}
+					try {
+						byte[] source = new byte[length];
+						in.readFully(source);
+						readTimeout.cancel(false);
+						answer(out, Format.values()[format], source);
+					} finally {
+						bytesInFlight.release(length);
+					}
+				} finally {
+					readTimeout.cancel(false);
+				}
+			}
+		} catch (EOFException | ClosedChannelException | RejectedExecutionException e) {
+			// The client went away mid request, or the server was closed
+		} catch (IOException e) {
+			System.err.println(Thread.currentThread().getName() + ": " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Waits for a worker and answers the request, within the timeout from now
+	private void answer(DataOutputStream out, Format format, byte[] source) throws IOException, InterruptedException {
+		long deadline = System.nanoTime() + timeoutNanos;
+		if (!workers.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+			send(out, new Response(Status.TIMEOUT, "Timed out waiting for a free worker"));
+			return;
+		}
+		try {
+			send(out, respond(format, new String(source, StandardCharsets.UTF_8), deadline));
+		} finally {
+			workers.release();
+		}
+	}
+
+	private static void send(DataOutputStream out, Response response) throws IOException {
+		out.writeByte(response.status.ordinal());
+		out.writeInt(response.payload.length);
+		out.write(response.payload);
+		out.flush();
+	}
+
+	// Lexes and parses one source. A failure is answered with every error in it, not just the first
+	private static Response respond(Format format, String source, long deadline) {
+		DeadlineSource chars = new DeadlineSource(source, deadline);
+		TokenBuffer tokens;
+		DeadlineBuilder builder = new DeadlineBuilder(deadline);
+		try {
+			try {
+				tokens = LexicalAnalyser.buffer(chars);
+				if (System.nanoTime() - deadline > 0) {
+					return timedOut();
+				}
+				SyntacticAnalyser.parse(tokens, builder);
+			} catch (LexicalException | SyntaxException e) {
+				if (System.nanoTime() - deadline > 0) {
+					return timedOut();
+				}
+				return diagnose(chars);
+			}
+		} catch (DeadlinePassed e) {
+			return timedOut();
+		}
+
+		try {
+			if (format == Format.BINARY) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream(tokens.size() * 4);
+				BinaryFormat.writeTree(builder.getTree(), out);
+				return new Response(Status.OK, out.toByteArray());
+			}
+			StringBuilder out = new StringBuilder(tokens.size() * 16);
+			ParseTreeWriter.write(builder.getTree(), out, ParseTreeWriter.Format.valueOf(format.name()));
+			return new Response(Status.OK, out.toString());
+		} catch (IOException e) {
+			// Neither a ByteArrayOutputStream nor a StringBuilder throws
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Response diagnose(CharSequence source) {
+		StringBuilder sb = new StringBuilder();
+		for (Diagnostic error : Diagnostics.of(source).getErrors()) {
+			sb.append(error).append('\n');
+		}
+		return new Response(Status.ERRORS, sb.toString());
+	}
+
+	private static Response timedOut() {
+		return new Response(Status.TIMEOUT, "Timed out while parsing");
+	}
+
+	private static class Response {
+
+		private final Status status;
+		private final byte[] payload;
+
+		Response(Status status, byte[] payload) {
+			this.status = status;
+			this.payload = payload;
+		}
+
+		Response(Status status, String payload) {
+			this(status, payload.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	// Builds the tree, giving up once the deadline has passed
+	private static class DeadlineBuilder extends ParseTreeBuilder {
+
+		private final long deadline;
+		private int calls;
+
+		DeadlineBuilder(long deadline) {
+			this.deadline = deadline;
+		}
+
+		@Override
+		public void enterNonTerminal(TreeNode.Label label) {
+			if (++calls % CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+				throw new DeadlinePassed();
+			}
+			super.enterNonTerminal(label);
+		}
+	}
+
+	// The source of a request, giving up once the deadline has passed. The lexer reads every char
+	// through charAt, so this bounds lexing and Diagnostics the way DeadlineBuilder bounds parsing
+	static class DeadlineSource implements CharSequence {
+
+		private final CharSequence source;
+		private final long deadline;
+		private int reads;
+
+		DeadlineSource(CharSequence source, long deadline) {
+			this.source = source;
+			this.deadline = deadline;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (++reads % CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+				throw new DeadlinePassed();
+			}
+			return source.charAt(index);
+		}
+
+		@Override
+		public int length() {
+			return source.length();
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return source.subSequence(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return source.toString();
+		}
+	}
+
+	static class DeadlinePassed extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		DeadlinePassed() {
+			super(null, null, false, false);
+		}
+	}
+}
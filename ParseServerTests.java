@@ -0,0 +1,214 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ParseServerTests {
+
+	private static final String PROGRAM = "public class Test { public static void main(String[] args){ int x = 1; while (x == 1) { x = x + 1; } }}";
+
+	private static final String INVALID = "public class Test { public static void main(String[] args){ int x = ; x = #; }}";
+
+	@TempDir
+	Path directory;
+
+	private ParseServer server;
+
+	@AfterEach
+	public void stopServer() throws IOException {
+		if (server != null) {
+			server.close();
+		}
+	}
+
+	private ParseServer start(String address) throws IOException {
+		server = new ParseServer(ParseServer.address(address));
+		server.start();
+		return server;
+	}
+
+	@Test
+	public void testTreesOverTcp() throws IOException, LexicalException, SyntaxException {
+		start("0");
+		assertTrue(((InetSocketAddress) server.getAddress()).getAddress().isLoopbackAddress());
+		ParseTree expected = SyntacticAnalyser.parse(LexicalAnalyser.buffer(PROGRAM));
+		try (ParseClient client = new ParseClient(server.getAddress())) {
+			ParseClient.Response response = client.parse(PROGRAM, ParseServer.Format.BINARY);
+			assertEquals(ParseServer.Status.OK, response.getStatus());
+			assertEquals(expected.toString(), response.getTree().toString());
+
+			// The connection carries one request after another
+			for (ParseTreeWriter.Format format : ParseTreeWriter.Format.values()) {
+				StringWriter text = new StringWriter();
+				ParseTreeWriter.write(expected, text, format);
+				response = client.parse(PROGRAM, ParseServer.Format.valueOf(format.name()));
+				assertEquals(ParseServer.Status.OK, response.getStatus());
+				assertEquals(text.toString(), response.getText());
+			}
+		}
+	}
+
+	@Test
+	public void testTreesOverUnixSocket() throws IOException, LexicalException, SyntaxException {
+		Path socket = directory.resolve("parse.sock");
+		start("unix:" + socket);
+		assertEquals(UnixDomainSocketAddress.of(socket), server.getAddress());
+		try (ParseClient client = new ParseClient(server.getAddress())) {
+			ParseClient.Response response = client.parse(PROGRAM, ParseServer.Format.BINARY);
+			assertEquals(SyntacticAnalyser.parse(LexicalAnalyser.buffer(PROGRAM)).toString(), response.getTree().toString());
+		}
+		server.close();
+		assertFalse(Files.exists(socket));
+	}
+
+	// Every error is sent back, lexical and syntactic, in the order Diagnostics finds them
+	@Test
+	public void testDiagnostics() throws IOException {
+		start("0");
+		try (ParseClient client = new ParseClient(server.getAddress())) {
+			ParseClient.Response response = client.parse(INVALID, ParseServer.Format.BINARY);
+			assertEquals(ParseServer.Status.ERRORS, response.getStatus());
+			StringBuilder expected = new StringBuilder();
+			for (Diagnostic error : Diagnostics.of(INVALID).getErrors()) {
+				expected.append(error).append('\n');
+			}
+			assertEquals(expected.toString(), response.getText());
+			assertThrows(IllegalStateException.class, () -> response.getTree());
+
+			// The connection is still usable afterwards
+			assertEquals(ParseServer.Status.OK, client.parse(PROGRAM, ParseServer.Format.TEXT).getStatus());
+		}
+	}
+
+	@Test
+	public void testTimeout() throws IOException {
+		server = new ParseServer(ParseServer.address("0"));
+		server.setTimeout(0);
+		server.start();
+		try (ParseClient client = new ParseClient(server.getAddress())) {
+			assertEquals(ParseServer.Status.TIMEOUT, client.parse(PROGRAM, ParseServer.Format.BINARY).getStatus());
+			// A failed parse is not diagnosed once the deadline has passed either
+			assertEquals(ParseServer.Status.TIMEOUT, client.parse(INVALID, ParseServer.Format.BINARY).getStatus());
+		}
+	}
+
+	// Lexing and Diagnostics read the source through a DeadlineSource, which stops them part way
+	@Test
+	public void testDeadlineBoundsLexingAndDiagnostics() {
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < 10 * 4096) {
+			sb.append("int x = 1; ");
+		}
+		String source = sb.append('#').toString();
+		long passed = System.nanoTime() - 1;
+		assertThrows(ParseServer.DeadlinePassed.class, () -> LexicalAnalyser.buffer(new ParseServer.DeadlineSource(source, passed)));
+		assertThrows(ParseServer.DeadlinePassed.class, () -> Diagnostics.of(new ParseServer.DeadlineSource(source, passed)));
+
+		// With time to spare it reads like the source itself
+		ParseServer.DeadlineSource chars = new ParseServer.DeadlineSource(source, System.nanoTime() + 60_000_000_000L);
+		assertEquals(Diagnostics.of(source).getErrors().toString(), Diagnostics.of(chars).getErrors().toString());
+	}
+
+	@Test
+	public void testBadRequests() throws IOException {
+		server = new ParseServer(ParseServer.address("0"));
+		server.setMaxRequestBytes(PROGRAM.length());
+		server.start();
+		try (ParseClient client = new ParseClient(server.getAddress())) {
+			assertEquals(ParseServer.Status.OK, client.parse(PROGRAM, ParseServer.Format.BINARY).getStatus());
+			ParseClient.Response response = client.parse(PROGRAM + " ", ParseServer.Format.BINARY);
+			assertEquals(ParseServer.Status.BAD_REQUEST, response.getStatus());
+			assertTrue(response.getText().contains("limited to " + PROGRAM.length() + " bytes"));
+		}
+		assertThrows(IllegalArgumentException.class, () -> new ParseServer(null).setMaxConcurrency(0));
+		assertThrows(IllegalArgumentException.class, () -> new ParseServer(null).setTimeout(-1));
+		assertThrows(IllegalArgumentException.class, () -> new ParseServer(null).setMaxRequestBytes(0));
+		assertThrows(IllegalArgumentException.class, () -> new ParseServer(null).setMaxRequestBytes(-1));
+		assertThrows(IllegalArgumentException.class, () -> new ParseServer(null).setMaxBytesInFlight(0));
+		assertThrows(IllegalArgumentException.class, () -> new ParseServer(null).setReadTimeout(0));
+
+		ParseServer tooSmall = new ParseServer(ParseServer.address("0"));
+		tooSmall.setMaxBytesInFlight(1000);
+		assertThrows(IllegalStateException.class, () -> tooSmall.start());
+	}
+
+	// More connections than workers and than connection slots: every request is still answered
+	@Test
+	public void testConcurrentClients() throws IOException, InterruptedException {
+		server = new ParseServer(ParseServer.address("0"));
+		server.setMaxConcurrency(2);
+		server.setMaxConnections(3);
+		server.start();
+		String report = ParseClient.loadTest(server.getAddress(), 6, 120, 500, ParseServer.Format.BINARY);
+		assertTrue(report.startsWith("120 requests over 6 connections"), report);
+		assertTrue(report.contains("responses: OK 120 ERRORS 0 TIMEOUT 0 BAD_REQUEST 0"), report);
+		assertTrue(report.contains("latency: p50 "), report);
+	}
+
+	// Clients that stall before or in the middle of a request are disconnected
+	@Test
+	public void testReadTimeout() throws IOException {
+		server = new ParseServer(ParseServer.address("0"));
+		server.setReadTimeout(100);
+		server.start();
+		try (SocketChannel idle = SocketChannel.open(server.getAddress())) {
+			assertEquals(-1, new DataInputStream(Channels.newInputStream(idle)).read());
+		}
+		try (SocketChannel stalled = SocketChannel.open(server.getAddress())) {
+			DataOutputStream out = new DataOutputStream(Channels.newOutputStream(stalled));
+			out.writeByte(ParseServer.Format.BINARY.ordinal());
+			out.writeInt(PROGRAM.length());
+			out.write(PROGRAM.substring(0, 10).getBytes(StandardCharsets.UTF_8));
+			assertEquals(-1, new DataInputStream(Channels.newInputStream(stalled)).read());
+		}
+
+		// A connection that keeps sending is not cut off
+		try (ParseClient client = new ParseClient(server.getAddress())) {
+			for (int i = 0; i < 5; i++) {
+				assertEquals(ParseServer.Status.OK, client.parse(PROGRAM, ParseServer.Format.BINARY).getStatus());
+			}
+		}
+	}
+
+	// A request being read holds its bytes, and one that does not fit beside it waits, then is
+	// skipped. Both connections go on working
+	@Test
+	public void testBytesInFlight() throws IOException {
+		server = new ParseServer(ParseServer.address("0"));
+		server.setMaxRequestBytes(PROGRAM.length());
+		server.setMaxBytesInFlight(PROGRAM.length() + 10);
+		server.setTimeout(100);
+		server.start();
+		byte[] program = PROGRAM.getBytes(StandardCharsets.UTF_8);
+		try (SocketChannel first = SocketChannel.open(server.getAddress()); ParseClient second = new ParseClient(server.getAddress())) {
+			DataOutputStream out = new DataOutputStream(Channels.newOutputStream(first));
+			out.writeByte(ParseServer.Format.BINARY.ordinal());
+			out.writeInt(program.length);
+			out.write(program, 0, 10);
+
+			// Until the first request's header has been read, the second may still fit
+			ParseClient.Response response = second.parse(PROGRAM, ParseServer.Format.BINARY);
+			for (int i = 0; i < 100 && response.getStatus() == ParseServer.Status.OK; i++) {
+				response = second.parse(PROGRAM, ParseServer.Format.BINARY);
+			}
+			assertEquals(ParseServer.Status.TIMEOUT, response.getStatus());
+			assertTrue(response.getText().contains("waiting for room"), response.getText());
+
+			out.write(program, 10, program.length - 10);
+			DataInputStream in = new DataInputStream(Channels.newInputStream(first));
+			assertEquals(ParseServer.Status.OK.ordinal(), in.readUnsignedByte());
+			in.readFully(new byte[in.readInt()]);
+			assertEquals(ParseServer.Status.OK, second.parse(PROGRAM, ParseServer.Format.BINARY).getStatus());
+		}
+	}
+}
@@ -0,0 +1,289 @@
+import java.util.EnumSet;
+
+// The LL(1) parse table for the grammar, built once when the class is loaded and never
+// modified afterwards, so it can be shared freely between threads.
+//
+// The table is dense: it is indexed by TreeNode.Label.ordinal() and Token.TokenType.ordinal(),
+// and each entry is the right hand side of a production as a primitive array of encoded
+// symbols (see encode), or null if there is no rule for that pair. As with the original
+// table, the right hand side is stored in the order the symbols are pushed onto the stack,
+// i.e. reversed.
+final class ParseTable {
+
+	static final TreeNode.Label[] LABELS = TreeNode.Label.values();
+	static final Token.TokenType[] TYPES = Token.TokenType.values();
+
+	private static final int[][][] TABLE = new int[LABELS.length][TYPES.length][];
+
+	static {
+		populate();
+	}
+
+	private ParseTable() {
+	}
+
+	// Returns the production for the given non terminal and lookahead, or null if there is none.
+	// The returned array is shared and must not be modified.
+	static int[] production(TreeNode.Label label, Token.TokenType lookahead) {
+		return TABLE[label.ordinal()][lookahead.ordinal()];
+	}
+
+	static int[] production(int label, int lookahead) {
+		return TABLE[label][lookahead];
+	}
+
+	// Non terminals are encoded as their label ordinal, terminals as the complement of their
+	// token type ordinal, so the sign bit tells them apart.
+	static int encode(Symbol symbol) {
+		if (symbol.isVariable()) {
+			return ((TreeNode.Label) symbol).ordinal();
+		}
+		return ~((Token.TokenType) symbol).ordinal();
+	}
+
+	static boolean isTerminal(int symbol) {
+		return symbol < 0;
+	}
+
+	static TreeNode.Label labelOf(int symbol) {
+		return LABELS[symbol];
+	}
+
+	static Token.TokenType typeOf(int symbol) {
+		return TYPES[~symbol];
+	}
+
+	// The lookaheads an encoded symbol can start with: a terminal's own type, or every type a non
+	// terminal has a production for
+	static EnumSet<Token.TokenType> lookaheads(int symbol) {
+		EnumSet<Token.TokenType> result = EnumSet.noneOf(Token.TokenType.class);
+		if (isTerminal(symbol)) {
+			result.add(typeOf(symbol));
+			return result;
+		}
+		for (Token.TokenType type : TYPES) {
+			if (TABLE[symbol][type.ordinal()] != null) {
+				result.add(type);
+			}
+		}
+		return result;
+	}
+
+	private static void rule(TreeNode.Label label, Token.TokenType lookahead, Symbol... symbols) {
+		int[] encoded = new int[symbols.length];
+		for (int i = 0; i < symbols.length; i++) {
+			encoded[i] = encode(symbols[i]);
+		}
+		TABLE[label.ordinal()][lookahead.ordinal()] = encoded;
+	}
+
+	private static void populate() {
+
+		// prog
+		rule(TreeNode.Label.prog, Token.TokenType.PUBLIC,
+			Token.TokenType.RBRACE,
+			Token.TokenType.RBRACE,
+			TreeNode.Label.los,
+			Token.TokenType.LBRACE,
+			Token.TokenType.RPAREN,
+			Token.TokenType.ARGS,
+			Token.TokenType.STRINGARR,
+			Token.TokenType.LPAREN,
+			Token.TokenType.MAIN,
+			Token.TokenType.VOID,
+			Token.TokenType.STATIC,
+			Token.TokenType.PUBLIC,
+			Token.TokenType.LBRACE,
+			Token.TokenType.ID,
+			Token.TokenType.CLASS,
+			Token.TokenType.PUBLIC
+		);
+
+		// los
+		rule(TreeNode.Label.los, Token.TokenType.WHILE, TreeNode.Label.los, TreeNode.Label.stat);
+		rule(TreeNode.Label.los, Token.TokenType.FOR, TreeNode.Label.los, TreeNode.Label.stat);
+		rule(TreeNode.Label.los, Token.TokenType.IF, TreeNode.Label.los, TreeNode.Label.stat);
+		rule(TreeNode.Label.los, Token.TokenType.ID, TreeNode.Label.los, TreeNode.Label.stat);
+		rule(TreeNode.Label.los, Token.TokenType.TYPE, TreeNode.Label.los, TreeNode.Label.stat);
+		rule(TreeNode.Label.los, Token.TokenType.PRINT, TreeNode.Label.los, TreeNode.Label.stat);
+		rule(TreeNode.Label.los, Token.TokenType.SEMICOLON, TreeNode.Label.los, TreeNode.Label.stat);
+		rule(TreeNode.Label.los, Token.TokenType.RBRACE, TreeNode.Label.epsilon);
+
+		// stat
+		rule(TreeNode.Label.stat, Token.TokenType.ID, Token.TokenType.SEMICOLON, TreeNode.Label.assign);
+		rule(TreeNode.Label.stat, Token.TokenType.PRINT, Token.TokenType.SEMICOLON, TreeNode.Label.print);
+		rule(TreeNode.Label.stat, Token.TokenType.TYPE, Token.TokenType.SEMICOLON, TreeNode.Label.decl);
+		rule(TreeNode.Label.stat, Token.TokenType.IF, TreeNode.Label.ifstat);
+		rule(TreeNode.Label.stat, Token.TokenType.FOR, TreeNode.Label.forstat);
+		rule(TreeNode.Label.stat, Token.TokenType.WHILE, TreeNode.Label.whilestat);
+		rule(TreeNode.Label.stat, Token.TokenType.SEMICOLON, Token.TokenType.SEMICOLON);
+
+		// while
+		rule(TreeNode.Label.whilestat, Token.TokenType.WHILE, Token.TokenType.RBRACE, TreeNode.Label.los, Token.TokenType.LBRACE, Token.TokenType.RPAREN, TreeNode.Label.boolexpr, TreeNode.Label.relexpr, Token.TokenType.LPAREN, Token.TokenType.WHILE);
+
+		// for
+		rule(TreeNode.Label.forstat, Token.TokenType.FOR, Token.TokenType.RBRACE, TreeNode.Label.los, Token.TokenType.LBRACE, Token.TokenType.RPAREN, TreeNode.Label.forarith, Token.TokenType.SEMICOLON, TreeNode.Label.boolexpr, TreeNode.Label.relexpr, Token.TokenType.SEMICOLON, TreeNode.Label.forstart, Token.TokenType.LPAREN, Token.TokenType.FOR);
+
+		// for start
+		rule(TreeNode.Label.forstart, Token.TokenType.ID, TreeNode.Label.assign);
+		rule(TreeNode.Label.forstart, Token.TokenType.TYPE, TreeNode.Label.decl);
+		rule(TreeNode.Label.forstart, Token.TokenType.SEMICOLON, TreeNode.Label.epsilon);
+
+		// for arith
+		rule(TreeNode.Label.forarith, Token.TokenType.LBRACE, TreeNode.Label.arithexpr);
+		rule(TreeNode.Label.forarith, Token.TokenType.ID, TreeNode.Label.arithexpr);
+		rule(TreeNode.Label.forarith, Token.TokenType.NUM, TreeNode.Label.arithexpr);
+		rule(TreeNode.Label.forarith, Token.TokenType.RPAREN, TreeNode.Label.epsilon);
+
+		// if
+		rule(TreeNode.Label.ifstat, Token.TokenType.IF, TreeNode.Label.elseifstat, Token.TokenType.RBRACE, TreeNode.Label.los, Token.TokenType.LBRACE, Token.TokenType.RPAREN, TreeNode.Label.boolexpr, TreeNode.Label.relexpr, Token.TokenType.LPAREN, Token.TokenType.IF);
+
+		// else if
+		rule(TreeNode.Label.elseifstat, Token.TokenType.ID, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.elseifstat, Token.TokenType.TYPE, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.elseifstat, Token.TokenType.PRINT, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.elseifstat, Token.TokenType.FOR, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.elseifstat, Token.TokenType.WHILE, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.elseifstat, Token.TokenType.SEMICOLON, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.elseifstat, Token.TokenType.RBRACE, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.elseifstat, Token.TokenType.ELSE, TreeNode.Label.elseifstat, Token.TokenType.RBRACE, TreeNode.Label.los, Token.TokenType.LBRACE, TreeNode.Label.elseorelseif);
+
+		// else or else if
+		rule(TreeNode.Label.elseorelseif, Token.TokenType.ELSE, TreeNode.Label.possif, Token.TokenType.ELSE);
+
+		// poss if
+		rule(TreeNode.Label.possif, Token.TokenType.IF, Token.TokenType.RPAREN, TreeNode.Label.boolexpr, TreeNode.Label.relexpr, Token.TokenType.LPAREN, Token.TokenType.IF);
+		rule(TreeNode.Label.possif, Token.TokenType.LBRACE, TreeNode.Label.epsilon);
+
+		// assign
+		rule(TreeNode.Label.assign, Token.TokenType.ID, TreeNode.Label.expr, Token.TokenType.ASSIGN, Token.TokenType.ID);
+
+		// decl
+		rule(TreeNode.Label.decl, Token.TokenType.TYPE, TreeNode.Label.possassign, Token.TokenType.ID, TreeNode.Label.type);
+
+		// pos assign
+		rule(TreeNode.Label.possassign, Token.TokenType.ASSIGN, TreeNode.Label.expr, Token.TokenType.ASSIGN);
+		rule(TreeNode.Label.possassign, Token.TokenType.SEMICOLON, TreeNode.Label.epsilon);
+
+		// print
+		rule(TreeNode.Label.print, Token.TokenType.PRINT, Token.TokenType.RPAREN, TreeNode.Label.printexpr, Token.TokenType.LPAREN, Token.TokenType.PRINT);
+
+		// type
+		rule(TreeNode.Label.type, Token.TokenType.TYPE, Token.TokenType.TYPE);
+
+		// expr
+		rule(TreeNode.Label.expr, Token.TokenType.TRUE, TreeNode.Label.boolexpr, TreeNode.Label.relexpr);
+		rule(TreeNode.Label.expr, Token.TokenType.FALSE, TreeNode.Label.boolexpr, TreeNode.Label.relexpr);
+		rule(TreeNode.Label.expr, Token.TokenType.LBRACE, TreeNode.Label.boolexpr, TreeNode.Label.relexpr);
+		rule(TreeNode.Label.expr, Token.TokenType.ID, TreeNode.Label.boolexpr, TreeNode.Label.relexpr);
+		rule(TreeNode.Label.expr, Token.TokenType.NUM, TreeNode.Label.boolexpr, TreeNode.Label.relexpr);
+		rule(TreeNode.Label.expr, Token.TokenType.SQUOTE, TreeNode.Label.charexpr);
+
+		// char expr
+		rule(TreeNode.Label.charexpr, Token.TokenType.SQUOTE, Token.TokenType.SQUOTE, Token.TokenType.CHARLIT, Token.TokenType.SQUOTE);
+
+		// bool expr
+		rule(TreeNode.Label.boolexpr, Token.TokenType.AND, TreeNode.Label.boolexpr, TreeNode.Label.relexpr, TreeNode.Label.boolop);
+		rule(TreeNode.Label.boolexpr, Token.TokenType.OR, TreeNode.Label.boolexpr, TreeNode.Label.relexpr, TreeNode.Label.boolop);
+		rule(TreeNode.Label.boolexpr, Token.TokenType.EQUAL, TreeNode.Label.boolexpr, TreeNode.Label.relexpr, TreeNode.Label.boolop);
+		rule(TreeNode.Label.boolexpr, Token.TokenType.NEQUAL, TreeNode.Label.boolexpr, TreeNode.Label.relexpr, TreeNode.Label.boolop);
+		rule(TreeNode.Label.boolexpr, Token.TokenType.SEMICOLON, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.boolexpr, Token.TokenType.RPAREN, TreeNode.Label.epsilon);
+
+		// bool op
+		rule(TreeNode.Label.boolop, Token.TokenType.EQUAL, TreeNode.Label.booleq);
+		rule(TreeNode.Label.boolop, Token.TokenType.NEQUAL, TreeNode.Label.booleq);
+		rule(TreeNode.Label.boolop, Token.TokenType.AND, TreeNode.Label.boollog);
+		rule(TreeNode.Label.boolop, Token.TokenType.OR, TreeNode.Label.boollog);
+
+		// bool eq
+		rule(TreeNode.Label.booleq, Token.TokenType.EQUAL, Token.TokenType.EQUAL);
+		rule(TreeNode.Label.booleq, Token.TokenType.NEQUAL, Token.TokenType.NEQUAL);
+
+		// bool log
+		rule(TreeNode.Label.booleq, Token.TokenType.AND, Token.TokenType.AND);
+		rule(TreeNode.Label.booleq, Token.TokenType.OR, Token.TokenType.OR);
+
+		// rel expr
+		rule(TreeNode.Label.relexpr, Token.TokenType.TRUE, Token.TokenType.TRUE);
+		rule(TreeNode.Label.relexpr, Token.TokenType.FALSE, Token.TokenType.FALSE);
+		rule(TreeNode.Label.relexpr, Token.TokenType.ID, TreeNode.Label.relexprprime, TreeNode.Label.arithexpr);
+		rule(TreeNode.Label.relexpr, Token.TokenType.LPAREN, TreeNode.Label.relexprprime, TreeNode.Label.arithexpr);
+		rule(TreeNode.Label.relexpr, Token.TokenType.NUM, TreeNode.Label.relexprprime, TreeNode.Label.arithexpr);
+
+		// rel expr'
+		rule(TreeNode.Label.relexprprime, Token.TokenType.GE, TreeNode.Label.arithexpr, TreeNode.Label.relop);
+		rule(TreeNode.Label.relexprprime, Token.TokenType.GT, TreeNode.Label.arithexpr, TreeNode.Label.relop);
+		rule(TreeNode.Label.relexprprime, Token.TokenType.LE, TreeNode.Label.arithexpr, TreeNode.Label.relop);
+		rule(TreeNode.Label.relexprprime, Token.TokenType.LT, TreeNode.Label.arithexpr, TreeNode.Label.relop);
+		rule(TreeNode.Label.relexprprime, Token.TokenType.AND, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.relexprprime, Token.TokenType.OR, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.relexprprime, Token.TokenType.EQUAL, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.relexprprime, Token.TokenType.NEQUAL, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.relexprprime, Token.TokenType.SEMICOLON, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.relexprprime, Token.TokenType.RPAREN, TreeNode.Label.epsilon);
+
+		// rel op
+		rule(TreeNode.Label.relop, Token.TokenType.GE, Token.TokenType.GE);
+		rule(TreeNode.Label.relop, Token.TokenType.GT, Token.TokenType.GT);
+		rule(TreeNode.Label.relop, Token.TokenType.LE, Token.TokenType.LE);
+		rule(TreeNode.Label.relop, Token.TokenType.LT, Token.TokenType.LT);
+
+		// arith expr
+		rule(TreeNode.Label.arithexpr, Token.TokenType.LPAREN, TreeNode.Label.arithexprprime, TreeNode.Label.term);
+		rule(TreeNode.Label.arithexpr, Token.TokenType.ID, TreeNode.Label.arithexprprime, TreeNode.Label.term);
+		rule(TreeNode.Label.arithexpr, Token.TokenType.NUM, TreeNode.Label.arithexprprime, TreeNode.Label.term);
+
+		// arith expr'
+		rule(TreeNode.Label.arithexprprime, Token.TokenType.PLUS, TreeNode.Label.arithexprprime, TreeNode.Label.term, Token.TokenType.PLUS);
+		rule(TreeNode.Label.arithexprprime, Token.TokenType.MINUS, TreeNode.Label.arithexprprime, TreeNode.Label.term, Token.TokenType.MINUS);
+		rule(TreeNode.Label.arithexprprime, Token.TokenType.LPAREN, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.arithexprprime, Token.TokenType.ID, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.arithexprprime, Token.TokenType.GE, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.arithexprprime, Token.TokenType.GT, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.arithexprprime, Token.TokenType.LE, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.arithexprprime, Token.TokenType.LT, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.arithexprprime, Token.TokenType.AND, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.arithexprprime, Token.TokenType.OR, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.arithexprprime, Token.TokenType.EQUAL, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.arithexprprime, Token.TokenType.NEQUAL, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.arithexprprime, Token.TokenType.SEMICOLON, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.arithexprprime, Token.TokenType.RPAREN, TreeNode.Label.epsilon);
+
+		// term
+		rule(TreeNode.Label.term, Token.TokenType.ID, TreeNode.Label.termprime, TreeNode.Label.factor);
+		rule(TreeNode.Label.term, Token.TokenType.LPAREN, TreeNode.Label.termprime, TreeNode.Label.factor);
+		rule(TreeNode.Label.term, Token.TokenType.NUM, TreeNode.Label.termprime, TreeNode.Label.factor);
+
+		// term'
+		rule(TreeNode.Label.termprime, Token.TokenType.TIMES, TreeNode.Label.termprime, TreeNode.Label.factor, Token.TokenType.TIMES);
+		rule(TreeNode.Label.termprime, Token.TokenType.DIVIDE, TreeNode.Label.termprime, TreeNode.Label.factor, Token.TokenType.DIVIDE);
+		rule(TreeNode.Label.termprime, Token.TokenType.MOD, TreeNode.Label.termprime, TreeNode.Label.factor, Token.TokenType.MOD);
+		rule(TreeNode.Label.termprime, Token.TokenType.LPAREN, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.termprime, Token.TokenType.ID, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.termprime, Token.TokenType.NUM, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.termprime, Token.TokenType.PLUS, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.termprime, Token.TokenType.MINUS, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.termprime, Token.TokenType.GE, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.termprime, Token.TokenType.GT, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.termprime, Token.TokenType.LE, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.termprime, Token.TokenType.LT, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.termprime, Token.TokenType.OR, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.termprime, Token.TokenType.AND, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.termprime, Token.TokenType.EQUAL, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.termprime, Token.TokenType.NEQUAL, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.termprime, Token.TokenType.RPAREN, TreeNode.Label.epsilon);
+		rule(TreeNode.Label.termprime, Token.TokenType.SEMICOLON, TreeNode.Label.epsilon);
+
+		// factor
+		rule(TreeNode.Label.factor, Token.TokenType.LPAREN, Token.TokenType.RPAREN, TreeNode.Label.arithexpr, Token.TokenType.LPAREN);
+		rule(TreeNode.Label.factor, Token.TokenType.ID, Token.TokenType.ID);
+		rule(TreeNode.Label.factor, Token.TokenType.NUM, Token.TokenType.NUM);
+
+		// print expr
+		rule(TreeNode.Label.printexpr, Token.TokenType.LPAREN, TreeNode.Label.boolexpr, TreeNode.Label.relexpr);
+		rule(TreeNode.Label.printexpr, Token.TokenType.ID, TreeNode.Label.boolexpr, TreeNode.Label.relexpr);
+		rule(TreeNode.Label.printexpr, Token.TokenType.NUM, TreeNode.Label.boolexpr, TreeNode.Label.relexpr);
+		rule(TreeNode.Label.printexpr, Token.TokenType.DQUOTE, Token.TokenType.DQUOTE, Token.TokenType.STRINGLIT, Token.TokenType.DQUOTE);
+	}
+}
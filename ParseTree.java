@@ -1,3 +1,5 @@
+import java.io.IOException;
+
 public class ParseTree {
 
 	private TreeNode root;
@@ -18,35 +20,52 @@ public class ParseTree {
 		this.root = root;
 	}
 
-	private String spaces(int num) {
-		String s = "";
+	// See TreeWalker. An empty tree has no nodes to visit
+	public boolean walk(TreeVisitor visitor) {
+		return TreeWalker.walk(this.root, visitor);
+	}
 
-		for (int i = 0; i < num - 1; i++)
-			s += "| ";
+	public TreeIterator preOrder() {
+		return TreeWalker.preOrder(this.root);
+	}
 
-		s += "|-";
+	public TreeIterator postOrder() {
+		return TreeWalker.postOrder(this.root);
+	}
 
-		return s;
+	public TreeIterator levelOrder() {
+		return TreeWalker.levelOrder(this.root);
 	}
 
-	private String stringify(TreeNode current, int depth) {
+	// The tree lowered to the compact AST, see AstBuilder. Parsing with
+	// SyntacticAnalyser.parseAst gives the same AST without building this tree first
+	public AstNode.Program toAst() {
+		return AstBuilder.lower(this);
+	}
 
-		String s = current.toString() + "\n";
-		if (current.getChildren().size() > 0) {
-			for (int i = 0; i < current.getChildren().size() - 1; i++) {
-				s += spaces(depth + 1) + stringify(current.getChildren().get(i), depth + 1);
-			}
-			s += spaces(depth + 1) + stringify(current.getChildren().get(current.getChildren().size() - 1), depth + 1);
-		}
+	// Writes the same text as toString() to out as the tree is walked, without building it up in
+	// memory first
+	public void print(Appendable out) throws IOException {
+		ParseTreeWriter.write(this, out, ParseTreeWriter.Format.TEXT);
+	}
 
-		return s;
+	public void toJson(Appendable out) throws IOException {
+		ParseTreeWriter.write(this, out, ParseTreeWriter.Format.JSON);
+	}
 
+	public void toDot(Appendable out) throws IOException {
+		ParseTreeWriter.write(this, out, ParseTreeWriter.Format.DOT);
 	}
 
 	@Override
 	public String toString() {
-		if (null == root)
-			return "EMPTY TREE";
-		return stringify(root, 0);
+		StringBuilder sb = new StringBuilder();
+		try {
+			print(sb);
+		} catch (IOException e) {
+			// A StringBuilder never throws
+			throw new IllegalStateException(e);
+		}
+		return sb.toString();
 	}
 }
@@ -0,0 +1,48 @@
+import java.util.ArrayDeque;
+
+// The ParseListener that builds a ParseTree out of TreeNodes
+public class ParseTreeBuilder implements ParseListener {
+
+	private final ParseTree tree = new ParseTree();
+	private final ArrayDeque<TreeNode> open = new ArrayDeque<TreeNode>();
+	private TreeNode root;
+
+	public ParseTreeBuilder() {
+	}
+
+	// Builds the tree under an existing node, which stands for the first non terminal entered
+	ParseTreeBuilder(TreeNode root) {
+		this.root = root;
+	}
+
+	@Override
+	public void enterNonTerminal(TreeNode.Label label) {
+		if (open.isEmpty()) {
+			if (root == null) {
+				root = new TreeNode(label, null);
+				tree.setRoot(root);
+			}
+			open.push(root);
+			return;
+		}
+		TreeNode parent = open.peek();
+		TreeNode node = new TreeNode(label, parent);
+		parent.addChild(node);
+		open.push(node);
+	}
+
+	@Override
+	public void exitNonTerminal(TreeNode.Label label) {
+		open.pop();
+	}
+
+	@Override
+	public void terminal(Token.TokenType type, String value, int symbol, int tokenIndex) {
+		TreeNode parent = open.peek();
+		parent.addChild(new TreeNode(TreeNode.Label.terminal, new Token(type, value, symbol), parent));
+	}
+
+	public ParseTree getTree() {
+		return this.tree;
+	}
+}
@@ -0,0 +1,262 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+// Writes parse trees out as they are walked, straight to an Appendable, so even a tree too big
+// to print into a String can be written to a file. The walk runs on TreeWalker, so deep trees
+// do not overflow the call stack, and its stack is all the memory it holds on to.
+//
+// TEXT is the format of ParseTree.toString(). JSON nests each node's children in a "children"
+// array and gives terminals a "token" object. DOT is a Graphviz digraph with a node per tree node,
+// numbered in pre-order.
+public class ParseTreeWriter {
+
+	public enum Format {
+		TEXT, JSON, DOT
+	}
+
+	public static void write(ParseTree tree, Appendable out, Format format) throws IOException {
+		write(tree.getRoot(), out, format);
+	}
+
+	// Writes the subtree under root, which may be null for an empty tree
+	public static void write(TreeNode root, Appendable out, Format format) throws IOException {
+		Visitor visitor;
+		switch (format) {
+		case JSON:
+			visitor = new Json(out);
+			break;
+		case DOT:
+			visitor = new Dot(out);
+			break;
+		default:
+			visitor = new Text(out);
+			break;
+		}
+		visitor.begin(root == null);
+		if (root != null) {
+			walk(root, visitor);
+		}
+		visitor.end(root == null);
+	}
+
+	// Called by walk on the way into and out of every node, in pre-order. id numbers the nodes
+	// in the order they are entered
+	private interface Visitor {
+
+		void begin(boolean empty) throws IOException;
+
+		void enter(TreeNode node, int depth, long id, long parentId, boolean firstChild) throws IOException;
+
+		void exit(TreeNode node) throws IOException;
+
+		void end(boolean empty) throws IOException;
+	}
+
+	// Runs the visitor over the tree on TreeWalker, numbering the nodes as they are entered. An
+	// IOException stops the walk and is thrown once it has returned
+	private static void walk(TreeNode root, Visitor visitor) throws IOException {
+		Walk walk = new Walk(visitor);
+		TreeWalker.walk(root, walk);
+		if (walk.error != null) {
+			throw walk.error;
+		}
+	}
+
+	private static class Walk implements TreeVisitor {
+
+		private final Visitor visitor;
+		// The id of the node entered at each depth we are inside
+		private long[] ids = new long[64];
+		private long count = 0;
+		// Whether the last call was an enter, so the node entered next is its first child
+		private boolean entered = true;
+		private IOException error;
+
+		Walk(Visitor visitor) {
+			this.visitor = visitor;
+		}
+
+		@Override
+		public Action enter(TreeNode node, int depth) {
+			if (depth == ids.length) {
+				ids = Arrays.copyOf(ids, depth * 2);
+			}
+			ids[depth] = count++;
+			try {
+				visitor.enter(node, depth, ids[depth], depth == 0 ? -1 : ids[depth - 1], entered);
+			} catch (IOException e) {
+				error = e;
+				return Action.STOP;
+			}
+			entered = true;
+			return Action.CONTINUE;
+		}
+
+		@Override
+		public Action exit(TreeNode node, int depth) {
+			try {
+				visitor.exit(node);
+			} catch (IOException e) {
+				error = e;
+				return Action.STOP;
+			}
+			entered = false;
+			return Action.CONTINUE;
+		}
+	}
+
+	private static class Text implements Visitor {
+
+		private final Appendable out;
+
+		Text(Appendable out) {
+			this.out = out;
+		}
+
+		@Override
+		public void begin(boolean empty) throws IOException {
+			if (empty)
+				out.append("EMPTY TREE");
+		}
+
+		@Override
+		public void enter(TreeNode node, int depth, long id, long parentId, boolean firstChild) throws IOException {
+			if (depth > 0) {
+				for (int i = 0; i < depth - 1; i++)
+					out.append("| ");
+				out.append("|-");
+			}
+			out.append(node.toString()).append('\n');
+		}
+
+		@Override
+		public void exit(TreeNode node) {
+		}
+
+		@Override
+		public void end(boolean empty) {
+		}
+	}
+
+	private static class Json implements Visitor {
+
+		private final Appendable out;
+
+		Json(Appendable out) {
+			this.out = out;
+		}
+
+		@Override
+		public void begin(boolean empty) throws IOException {
+			if (empty)
+				out.append("null");
+		}
+
+		@Override
+		public void enter(TreeNode node, int depth, long id, long parentId, boolean firstChild) throws IOException {
+			if (!firstChild)
+				out.append(',');
+			out.append("{\"label\":\"").append(node.getLabel().name()).append('"');
+			if (node.getToken().isPresent()) {
+				Token token = node.getToken().get();
+				out.append(",\"token\":{\"type\":\"").append(token.getType().name()).append('"');
+				if (token.getValue().isPresent()) {
+					out.append(",\"value\":");
+					string(token.getValue().get());
+				}
+				out.append('}');
+			}
+			if (node.getChildren().isEmpty())
+				out.append('}');
+			else
+				out.append(",\"children\":[");
+		}
+
+		@Override
+		public void exit(TreeNode node) throws IOException {
+			if (!node.getChildren().isEmpty())
+				out.append("]}");
+		}
+
+		@Override
+		public void end(boolean empty) {
+		}
+
+		private void string(String s) throws IOException {
+			out.append('"');
+			for (int i = 0; i < s.length(); i++) {
+				char c = s.charAt(i);
+				if (c == '"' || c == '\\') {
+					out.append('\\').append(c);
+				}
+				else if (c < 0x20) {
+					out.append(String.format("\\u%04x", (int) c));
+				}
+				else {
+					out.append(c);
+				}
+			}
+			out.append('"');
+		}
+	}
+
+	private static class Dot implements Visitor {
+
+		private final Appendable out;
+
+		Dot(Appendable out) {
+			this.out = out;
+		}
+
+		@Override
+		public void begin(boolean empty) throws IOException {
+			out.append("digraph ParseTree {\n");
+		}
+
+		// Non terminals are labelled with their label, terminals are boxes labelled with their
+		// token type and value
+		@Override
+		public void enter(TreeNode node, int depth, long id, long parentId, boolean firstChild) throws IOException {
+			out.append("\tn").append(Long.toString(id)).append(" [label=\"");
+			if (node.getToken().isPresent()) {
+				Token token = node.getToken().get();
+				out.append(token.getType().name());
+				if (token.getValue().isPresent()) {
+					out.append(' ');
+					string(token.getValue().get());
+				}
+				out.append("\", shape=box];\n");
+			}
+			else {
+				out.append(node.getLabel().name()).append("\"];\n");
+			}
+			if (parentId != -1) {
+				out.append("\tn").append(Long.toString(parentId)).append(" -> n").append(Long.toString(id)).append(";\n");
+			}
+		}
+
+		@Override
+		public void exit(TreeNode node) {
+		}
+
+		@Override
+		public void end(boolean empty) throws IOException {
+			out.append("}\n");
+		}
+
+		private void string(String s) throws IOException {
+			for (int i = 0; i < s.length(); i++) {
+				char c = s.charAt(i);
+				if (c == '"' || c == '\\') {
+					out.append('\\').append(c);
+				}
+				else if (c == '\n') {
+					out.append("\\n");
+				}
+				else {
+					out.append(c);
+				}
+			}
+		}
+	}
+}
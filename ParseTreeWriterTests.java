@@ -0,0 +1,187 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class ParseTreeWriterTests {
+
+	private static final String PROGRAM = "public class Test { public static void main(String[] args){ int x = 1; while (x == 1) { if (x == 2) { System.out.println(\"hi\"); } } char c = 'a'; }}";
+
+	// Counts what is written instead of keeping it
+	private static class Counter implements Appendable {
+
+		long chars;
+		long lines;
+
+		@Override
+		public Appendable append(CharSequence csq) {
+			return append(csq, 0, csq.length());
+		}
+
+		@Override
+		public Appendable append(CharSequence csq, int start, int end) {
+			for (int i = start; i < end; i++) {
+				append(csq.charAt(i));
+			}
+			return this;
+		}
+
+		@Override
+		public Appendable append(char c) {
+			chars++;
+			if (c == '\n')
+				lines++;
+			return this;
+		}
+	}
+
+	@Test
+	public void testTextMatchesRecursivePrinter() throws LexicalException, SyntaxException, IOException {
+		ParseTree tree = SyntacticAnalyser.parse(LexicalAnalyser.analyse(PROGRAM));
+		String expected = stringify(tree.getRoot(), 0);
+		assertEquals(expected, tree.toString());
+
+		StringWriter out = new StringWriter();
+		tree.print(out);
+		assertEquals(expected, out.toString());
+
+		ProgramGenerator generator = new ProgramGenerator(4);
+		generator.setTargetTokens(2000);
+		TokenBuffer tokens = LexicalAnalyser.buffer(generator.generate());
+		ParseTree generated = SyntacticAnalyser.parse(tokens);
+		assertEquals(stringify(generated.getRoot(), 0), generated.toString());
+		assertEquals(SyntacticAnalyser.parseFlat(tokens).toString(), generated.toString());
+	}
+
+	@Test
+	public void testEmptyTree() throws IOException {
+		ParseTree tree = new ParseTree();
+		assertEquals("EMPTY TREE", tree.toString());
+		StringBuilder json = new StringBuilder();
+		tree.toJson(json);
+		assertEquals("null", json.toString());
+		StringBuilder dot = new StringBuilder();
+		tree.toDot(dot);
+		assertEquals("digraph ParseTree {\n}\n", dot.toString());
+	}
+
+	@Test
+	public void testJson() throws IOException {
+		TreeNode root = new TreeNode(TreeNode.Label.printexpr, null);
+		TreeNode quote = new TreeNode(TreeNode.Label.terminal, new Token(Token.TokenType.DQUOTE), root);
+		TreeNode literal = new TreeNode(TreeNode.Label.terminal, new Token(Token.TokenType.STRINGLIT, "a\"b\\\n"), root);
+		TreeNode empty = new TreeNode(TreeNode.Label.epsilon, root);
+		root.addChild(quote);
+		root.addChild(literal);
+		root.addChild(empty);
+
+		StringBuilder json = new StringBuilder();
+		new ParseTree(root).toJson(json);
+		assertEquals("{\"label\":\"printexpr\",\"children\":["
+				+ "{\"label\":\"terminal\",\"token\":{\"type\":\"DQUOTE\"}},"
+				+ "{\"label\":\"terminal\",\"token\":{\"type\":\"STRINGLIT\",\"value\":\"a\\\"b\\\\\\u000a\"}},"
+				+ "{\"label\":\"epsilon\"}]}", json.toString());
+	}
+
+	@Test
+	public void testDot() throws LexicalException, SyntaxException, IOException {
+		ParseTree tree = SyntacticAnalyser.parse(LexicalAnalyser.analyse(PROGRAM));
+		StringBuilder dot = new StringBuilder();
+		tree.toDot(dot);
+		String[] lines = dot.toString().split("\n");
+		int nodes = tree.toString().split("\n").length;
+		int edges = 0;
+		for (String line : lines) {
+			if (line.contains("->"))
+				edges++;
+		}
+		assertEquals("digraph ParseTree {", lines[0]);
+		assertEquals("}", lines[lines.length - 1]);
+		assertEquals(nodes - 1, edges);
+		assertEquals(2 + nodes + edges, lines.length);
+		assertEquals("\tn0 [label=\"prog\"];", lines[1]);
+		assertTrue(dot.toString().contains(" [label=\"STRINGLIT hi\", shape=box];\n"), dot.toString());
+	}
+
+	// A chain far deeper than the call stack could recurse through
+	// A failing Appendable stops the walk, and its exception comes out of write
+	@Test
+	public void testWriteErrorsStopTheWalk() throws LexicalException, SyntaxException {
+		ParseTree tree = SyntacticAnalyser.parse(LexicalAnalyser.analyse(PROGRAM));
+		for (ParseTreeWriter.Format format : ParseTreeWriter.Format.values()) {
+			StringBuilder written = new StringBuilder();
+			Appendable full = new Appendable() {
+				@Override
+				public Appendable append(CharSequence csq) throws IOException {
+					return append(csq, 0, csq.length());
+				}
+
+				@Override
+				public Appendable append(CharSequence csq, int start, int end) throws IOException {
+					for (int i = start; i < end; i++) {
+						append(csq.charAt(i));
+					}
+					return this;
+				}
+
+				@Override
+				public Appendable append(char c) throws IOException {
+					if (written.length() == 100) {
+						throw new IOException("Disk full");
+					}
+					written.append(c);
+					return this;
+				}
+			};
+			IOException e = assertThrows(IOException.class, () -> ParseTreeWriter.write(tree, full, format));
+			assertEquals("Disk full", e.getMessage());
+			assertEquals(100, written.length());
+		}
+	}
+
+	@Test
+	public void testDeepTree() throws IOException {
+		int depth = 1_000_000;
+		TreeNode root = new TreeNode(TreeNode.Label.los, null);
+		TreeNode node = root;
+		for (int i = 1; i < depth; i++) {
+			TreeNode child = new TreeNode(TreeNode.Label.los, node);
+			node.addChild(child);
+			node = child;
+		}
+		ParseTree tree = new ParseTree(root);
+
+		Counter json = new Counter();
+		tree.toJson(json);
+		assertEquals((long) depth * "{\"label\":\"los\",\"children\":[".length() - ",\"children\":[".length() + 1 + (depth - 1) * 2L, json.chars);
+
+		Counter dot = new Counter();
+		tree.toDot(dot);
+		assertEquals(2L + depth + (depth - 1), dot.lines);
+
+		// The text format itself grows with the square of the depth, so stay shallower here
+		int textDepth = 5000;
+		TreeNode shallow = new TreeNode(TreeNode.Label.los, null);
+		node = shallow;
+		for (int i = 1; i < textDepth; i++) {
+			TreeNode child = new TreeNode(TreeNode.Label.los, node);
+			node.addChild(child);
+			node = child;
+		}
+		Counter text = new Counter();
+		new ParseTree(shallow).print(text);
+		assertEquals(textDepth, text.lines);
+		assertEquals((long) textDepth * "[los, Optional.empty]\n".length() + (long) textDepth * (textDepth - 1), text.chars);
+	}
+
+	// The recursive printer ParseTree.toString used to be
+	private static String stringify(TreeNode current, int depth) {
+		StringBuilder sb = new StringBuilder(current.toString()).append('\n');
+		for (TreeNode child : current.getChildren()) {
+			for (int i = 0; i < depth; i++)
+				sb.append("| ");
+			sb.append("|-").append(stringify(child, depth + 1));
+		}
+		return sb.toString();
+	}
+}
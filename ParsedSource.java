@@ -0,0 +1,56 @@
+
+// A snapshot of a source file together with its tokens and parse tree, as produced by
+// IncrementalParser. Besides the tree it keeps what an incremental reparse needs: the token
+// offsets, and the terminal node each token was matched by.
+//
+// A successful reparse updates the tree in place and reuses its untouched subtrees, so once a
+// snapshot has been passed to IncrementalParser.reparse only the returned one should be used.
+public class ParsedSource {
+
+	private final String source;
+	private final TokenBuffer tokens;
+	private final ParseTree tree;
+	private final TreeNode[] terminals;
+	private final int relexedTokens;
+	private final int reparsedTokens;
+
+	ParsedSource(String source, TokenBuffer tokens, ParseTree tree, TreeNode[] terminals, int relexedTokens, int reparsedTokens) {
+		this.source = source;
+		this.tokens = tokens;
+		this.tree = tree;
+		this.terminals = terminals;
+		this.relexedTokens = relexedTokens;
+		this.reparsedTokens = reparsedTokens;
+	}
+
+	public String getSource() {
+		return this.source;
+	}
+
+	public TokenBuffer getTokens() {
+		return this.tokens;
+	}
+
+	public ParseTree getTree() {
+		return this.tree;
+	}
+
+	// The terminal node that matched the token at index
+	TreeNode getTerminal(int index) {
+		return this.terminals[index];
+	}
+
+	TreeNode[] getTerminals() {
+		return this.terminals;
+	}
+
+	// How many tokens the last (re)parse had to lex
+	public int getRelexedTokens() {
+		return this.relexedTokens;
+	}
+
+	// How many tokens the last (re)parse had to run through the parser
+	public int getReparsedTokens() {
+		return this.reparsedTokens;
+	}
+}
@@ -0,0 +1,116 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Differential tests: the generated recursive descent parser must build the same trees and
+// fail with the same errors as the table driven PDA
+public class ParserEngineTests {
+
+	private static final String[] PROGRAMS = {
+		"public class Test { public static void main(String[] args){ }}",
+		"public class Test { public static void main(String[] args){ ; }}",
+		"public class Test { public static void main(String[] args){ int i; }}",
+		"public class Test { public static void main(String[] args){ int i = 'c'; }}",
+		"public class Test { public static void main(String[] args){ boolean b = true; }}",
+		"public class Test { public static void main(String[] args){ int i = 3 + 2 * 5; }}",
+		"public class Test { public static void main(String[] args){ if (5) {;} else { ; }}}",
+		"public class Test { public static void main(String[] args){ while (true) { ; } }}",
+		"public class Test { public static void main(String[] args){ for ( ; 5 ;) {; } }}",
+		"public class Test { public static void main(String[] args){ for (int i = 0; i == 10; i + 1) { x = x % 3 - y / 2; } }}",
+		"public class Test { public static void main(String[] args){ if (a == b) { System.out.println(\"hi\"); } else if (c) { ; } else { char c = 'z'; } }}",
+		"public class Test { public static void main(String[] args){ while (x == 1 == y) { while (z) { i = 1; while ((((1))) == y) { ; } } } }}",
+		"public class Test { public static void main(String[] args){ System.out.println(a * b + c); int q = a == b; }}",
+	};
+
+	@Test
+	public void testSameTreesForValidPrograms() throws LexicalException, SyntaxException {
+		for (String program : PROGRAMS) {
+			List<Token> tokens = LexicalAnalyser.analyse(program);
+			String expected = SyntacticAnalyser.parse(tokens, SyntacticAnalyser.Engine.TABLE).toString();
+			assertEquals(expected, SyntacticAnalyser.parse(tokens, SyntacticAnalyser.Engine.GENERATED).toString(), program);
+		}
+	}
+
+	@Test
+	public void testSameOutcomeForMutatedPrograms() throws LexicalException {
+		Random random = new Random(42);
+		Token.TokenType[] types = Token.TokenType.values();
+		for (String program : PROGRAMS) {
+			List<Token> original = LexicalAnalyser.analyse(program);
+			for (int run = 0; run < 500; run++) {
+				List<Token> tokens = new ArrayList<Token>(original);
+				int edits = 1 + random.nextInt(3);
+				for (int e = 0; e < edits && !tokens.isEmpty(); e++) {
+					int at = random.nextInt(tokens.size());
+					switch (random.nextInt(4)) {
+					case 0:
+						tokens.remove(at);
+						break;
+					case 1:
+						tokens.add(at, tokens.get(random.nextInt(tokens.size())));
+						break;
+					case 2:
+						tokens.set(at, new Token(types[random.nextInt(types.length)], "x"));
+						break;
+					default:
+						tokens.add(at, tokens.remove(random.nextInt(tokens.size())));
+					}
+				}
+				String outcome = outcome(tokens, SyntacticAnalyser.Engine.TABLE);
+				assertEquals(outcome, outcome(tokens, SyntacticAnalyser.Engine.GENERATED), tokens.toString());
+
+				// The recognizer agrees on validity, and finds the error where diagnostics do
+				int error = SyntacticAnalyser.validate(tokens);
+				Diagnostics diagnostics = SyntacticAnalyser.diagnose(tokens);
+				assertEquals(outcome.startsWith("SyntaxException"), error != SyntacticAnalyser.VALID, tokens.toString());
+				if (error != SyntacticAnalyser.VALID) {
+					assertEquals(diagnostics.getErrors().get(0).getTokenIndex(), error, tokens.toString());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testRecognizerAcceptsValidPrograms() throws LexicalException {
+		for (String program : PROGRAMS) {
+			assertTrue(SyntacticAnalyser.recognize(program), program);
+			assertTrue(SyntacticAnalyser.recognize(LexicalAnalyser.buffer(program)), program);
+		}
+		assertEquals(15, SyntacticAnalyser.validate("public class Test { public static void main(String[] args){ int i }}"));
+		assertEquals(15, SyntacticAnalyser.validate("public class Test { public static void main(String[] args){ }} }"));
+	}
+
+	@Test
+	public void testLongStatementListDoesNotRecurse() throws LexicalException, SyntaxException {
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			body.append("x = y + 1 + 2 * 3; ");
+		}
+		TokenBuffer tokens = LexicalAnalyser.buffer("public class Test { public static void main(String[] args){ " + body + "}}");
+		ParseTree tree = SyntacticAnalyser.parse(tokens, SyntacticAnalyser.Engine.GENERATED);
+		assertEquals(TreeNode.Label.prog, tree.getRoot().getLabel());
+	}
+
+	@Test
+	public void testGeneratedParserIsUpToDate() throws IOException {
+		Path generated = Paths.get("GeneratedParser.java");
+		assumeTrue(Files.exists(generated), "run from the source directory");
+		assertEquals(new String(Files.readAllBytes(generated), StandardCharsets.UTF_8), ParserGenerator.generate());
+	}
+
+	private static String outcome(List<Token> tokens, SyntacticAnalyser.Engine engine) {
+		try {
+			return SyntacticAnalyser.parse(tokens, engine).toString();
+		} catch (SyntaxException e) {
+			return "SyntaxException: " + e.getMessage();
+		}
+	}
+}
@@ -0,0 +1,185 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Generates GeneratedParser.java, a recursive descent parser with one method per
+// TreeNode.Label, from the productions in ParseTable.
+//
+// The generated parser builds exactly the same ParseTree as the table driven PDA in
+// SyntacticAnalyser and fails with the same SyntaxException messages, in the same places:
+// every symbol is only processed while there is lookahead left, just as the PDA only pops
+// while there is. A production whose last symbol is the non terminal being parsed (los,
+// arithexprprime, termprime, elseifstat, boolexpr) loops instead of recursing, so the Java
+// stack only grows with the nesting of blocks and brackets.
+//
+// Run with the output file as the only argument, or with no arguments to print to stdout.
+public class ParserGenerator {
+
+	public static void main(String[] args) throws IOException {
+		String source = generate();
+		if (args.length == 0) {
+			System.out.print(source);
+			return;
+		}
+		Path out = Paths.get(args[0]);
+		Files.write(out, source.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static String generate() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("// Generated by ParserGenerator from the productions in ParseTable. Do not edit by hand,\n");
+		sb.append("// rerun the generator instead.\n");
+		sb.append("class GeneratedParser {\n");
+		sb.append("\n");
+		sb.append("\tprivate final TokenCursor tokens;\n");
+		sb.append("\tprivate Token.TokenType lookahead;\n");
+		sb.append("\tprivate int index = 0;\n");
+		sb.append("\n");
+		sb.append("\tprivate GeneratedParser(TokenCursor tokens) {\n");
+		sb.append("\t\tthis.tokens = tokens;\n");
+		sb.append("\t}\n");
+		sb.append("\n");
+		sb.append("\tstatic ParseTree parse(TokenCursor tokens) throws SyntaxException, LexicalException {\n");
+		sb.append("\t\tGeneratedParser parser = new GeneratedParser(tokens);\n");
+		sb.append("\t\tparser.lookahead = tokens.next();\n");
+		sb.append("\t\tTreeNode root = new TreeNode(TreeNode.Label.prog, null);\n");
+		sb.append("\t\tparser.prog(root);\n");
+		sb.append("\t\tif (parser.lookahead != null) {\n");
+		sb.append("\t\t\tthrow SyntacticAnalyser.leftoverTokens(parser.index, tokens);\n");
+		sb.append("\t\t}\n");
+		sb.append("\t\treturn new ParseTree(root);\n");
+		sb.append("\t}\n");
+
+		for (TreeNode.Label label : ParseTable.LABELS) {
+			if (label == TreeNode.Label.epsilon || label == TreeNode.Label.terminal) {
+				continue;
+			}
+			sb.append("\n");
+			generateMethod(sb, label);
+		}
+
+		sb.append("\n");
+		sb.append("\tprivate void epsilon(TreeNode node) throws SyntaxException {\n");
+		sb.append("\t\tcheckLookahead();\n");
+		sb.append("\t}\n");
+		sb.append("\n");
+		sb.append("\tprivate void match(TreeNode node) throws SyntaxException, LexicalException {\n");
+		sb.append("\t\tcheckLookahead();\n");
+		sb.append("\t\tToken token = node.getToken().get();\n");
+		sb.append("\t\tif (token.getType() != lookahead) {\n");
+		sb.append("\t\t\tthrow new SyntaxException(SyntaxException.Reason.MISMATCH, \"Mismatch between expected terminal \" + token.getType() + \" and actual: \" + lookahead);\n");
+		sb.append("\t\t}\n");
+		sb.append("\t\ttoken.setValue(tokens.value());\n");
+		sb.append("\t\ttoken.setSymbol(tokens.symbol());\n");
+		sb.append("\t\tindex++;\n");
+		sb.append("\t\tlookahead = tokens.next();\n");
+		sb.append("\t}\n");
+		sb.append("\n");
+		sb.append("\tprivate void checkLookahead() throws SyntaxException {\n");
+		sb.append("\t\tif (lookahead == null) {\n");
+		sb.append("\t\t\tthrow new SyntaxException(SyntaxException.Reason.OUT_OF_TOKENS, \"Run out of tokens but there's still symbols in the stack, substitution to be done!\");\n");
+		sb.append("\t\t}\n");
+		sb.append("\t}\n");
+		sb.append("\n");
+		sb.append("\tprivate static TreeNode child(TreeNode parent, TreeNode.Label label) {\n");
+		sb.append("\t\tTreeNode child = new TreeNode(label, parent);\n");
+		sb.append("\t\tparent.addChild(child);\n");
+		sb.append("\t\treturn child;\n");
+		sb.append("\t}\n");
+		sb.append("\n");
+		sb.append("\tprivate static TreeNode child(TreeNode parent, Token.TokenType type) {\n");
+		sb.append("\t\tTreeNode child = new TreeNode(TreeNode.Label.terminal, new Token(type), parent);\n");
+		sb.append("\t\tparent.addChild(child);\n");
+		sb.append("\t\treturn child;\n");
+		sb.append("\t}\n");
+		sb.append("\n");
+		sb.append("\tprivate static SyntaxException noEntry(TreeNode.Label label, Token.TokenType lookahead) {\n");
+		sb.append("\t\treturn new SyntaxException(SyntaxException.Reason.NO_PRODUCTION, \"Entry not in table, cant have this production rule \" + label + \" with this terminal \" + lookahead + \" \");\n");
+		sb.append("\t}\n");
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	private static void generateMethod(StringBuilder sb, TreeNode.Label label) {
+		// Group the lookaheads that share a right hand side into one case
+		List<int[]> productions = new ArrayList<int[]>();
+		List<List<Token.TokenType>> lookaheads = new ArrayList<List<Token.TokenType>>();
+		boolean loops = false;
+		for (Token.TokenType type : ParseTable.TYPES) {
+			int[] production = ParseTable.production(label, type);
+			if (production == null) {
+				continue;
+			}
+			int group = 0;
+			while (group < productions.size() && !Arrays.equals(productions.get(group), production)) {
+				group++;
+			}
+			if (group == productions.size()) {
+				productions.add(production);
+				lookaheads.add(new ArrayList<Token.TokenType>());
+				loops |= production[0] == ParseTable.encode(label);
+			}
+			lookaheads.get(group).add(type);
+		}
+
+		String indent = loops ? "\t\t\t" : "\t\t";
+		sb.append("\tprivate void ").append(label).append("(TreeNode node) throws SyntaxException, LexicalException {\n");
+		if (loops) {
+			sb.append("\t\twhile (true) {\n");
+		}
+		sb.append(indent).append("checkLookahead();\n");
+		sb.append(indent).append("switch (lookahead) {\n");
+		for (int group = 0; group < productions.size(); group++) {
+			for (Token.TokenType type : lookaheads.get(group)) {
+				sb.append(indent).append("case ").append(type).append(":\n");
+			}
+			generateProduction(sb, label, productions.get(group), indent + "\t");
+		}
+		sb.append(indent).append("default:\n");
+		sb.append(indent).append("\tthrow noEntry(TreeNode.Label.").append(label).append(", lookahead);\n");
+		sb.append(indent).append("}\n");
+		if (loops) {
+			sb.append("\t\t}\n");
+		}
+		sb.append("\t}\n");
+	}
+
+	private static void generateProduction(StringBuilder sb, TreeNode.Label label, int[] production, String indent) {
+		// Productions are stored in push order, so the leftmost symbol is last
+		int count = production.length;
+		sb.append(indent).append("{\n");
+		for (int i = 0; i < count; i++) {
+			int symbol = production[count - 1 - i];
+			sb.append(indent).append("\tTreeNode c").append(i).append(" = child(node, ");
+			if (ParseTable.isTerminal(symbol)) {
+				sb.append("Token.TokenType.").append(ParseTable.typeOf(symbol));
+			}
+			else {
+				sb.append("TreeNode.Label.").append(ParseTable.labelOf(symbol));
+			}
+			sb.append(");\n");
+		}
+		boolean tail = production[0] == ParseTable.encode(label);
+		for (int i = 0; i < count; i++) {
+			int symbol = production[count - 1 - i];
+			sb.append(indent).append("\t");
+			if (ParseTable.isTerminal(symbol)) {
+				sb.append("match(c").append(i).append(");\n");
+			}
+			else if (tail && i == count - 1) {
+				sb.append("node = c").append(i).append(";\n");
+			}
+			else {
+				sb.append(ParseTable.labelOf(symbol)).append("(c").append(i).append(");\n");
+			}
+		}
+		sb.append(indent).append("\t").append(tail ? "continue" : "return").append(";\n");
+		sb.append(indent).append("}\n");
+	}
+}
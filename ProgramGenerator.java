@@ -0,0 +1,453 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Generates random programs of a given size by running the parse table forwards: instead of
+// reading a token and expanding the stack to match it, the generator picks a token the stack
+// can accept and expands the stack exactly as the parser would. Every token is checked against
+// the stack before it is written, so every program it generates is one the parser accepts.
+//
+// The choice of token at each step is weighted. A token's weight is the product of the
+// weights of every (non terminal, lookahead) pair the parser expands to reach it, so
+// setWeight(stat, WHILE, 4) makes while loops four times as likely as before, and
+// setWeight(los, RBRACE, 0.1) makes blocks longer. Pairs whose production repeats its own non
+// terminal (another statement in a list, another operator in an expression, another else if)
+// default to CONTINUE, so lists and expressions stay a sensible length; every other pair
+// defaults to 1.
+//
+// Once the target token count is reached, or a block is nested deeper than the maximum depth,
+// the generator only picks the tokens that close the program (or block) off soonest. Below the
+// target, the main method's body is never closed.
+//
+// Mutations turn the output into (most likely) invalid programs for testing the error paths:
+// each one drops, repeats or replaces a token, or adds a word the lexer rejects.
+//
+// Run with a seed, a token count and optionally a maximum depth and an output file.
+public class ProgramGenerator {
+
+	private static final int EPSILON = ParseTable.encode(TreeNode.Label.epsilon);
+	private static final int LOS = ParseTable.encode(TreeNode.Label.los);
+	private static final int UNKNOWN = Integer.MAX_VALUE / 2;
+	private static final int[] MIN_LENGTH = minLengths();
+	private static final boolean[] LEXABLE = lexable();
+
+	static final double CONTINUE = 0.25;
+
+	private static final String[] TYPES = {"int", "char", "boolean"};
+	private static final int IDENTIFIERS = 32;
+
+	private final Random random;
+	private final double[][] weights = new double[ParseTable.LABELS.length][ParseTable.TYPES.length];
+	private int targetTokens = 1000;
+	private int maxDepth = 8;
+	private int mutations = 0;
+
+	// The generator's state while a program is being written
+	private int[] stack = new int[64];
+	private int top;
+	private int depth;
+	private int[] overlay = new int[64];
+	private double[] candidateWeights = new double[ParseTable.TYPES.length];
+	private int quoteState;
+	private boolean afterOpeningQuote;
+	private boolean first;
+
+	public ProgramGenerator(long seed) {
+		this.random = new Random(seed);
+		for (int label = 0; label < ParseTable.LABELS.length; label++) {
+			for (int type = 0; type < ParseTable.TYPES.length; type++) {
+				int[] production = ParseTable.production(label, type);
+				// Right hand sides are stored reversed, so a repeat of the label comes first
+				weights[label][type] = production != null && production[0] == label ? CONTINUE : 1;
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: java ProgramGenerator <seed> <tokens> [max depth] [output file]");
+			System.exit(1);
+		}
+		ProgramGenerator generator = new ProgramGenerator(Long.parseLong(args[0]));
+		generator.setTargetTokens(Integer.parseInt(args[1]));
+		if (args.length > 2) {
+			generator.setMaxDepth(Integer.parseInt(args[2]));
+		}
+		if (args.length > 3) {
+			try (Writer out = Files.newBufferedWriter(Paths.get(args[3]), StandardCharsets.UTF_8)) {
+				generator.generate(out);
+			}
+		}
+		else {
+			System.out.println(generator.generate());
+		}
+	}
+
+	// Roughly how many tokens to generate. The program is closed off once it gets there, which
+	// takes a few more tokens for every block still open
+	public void setTargetTokens(int targetTokens) {
+		this.targetTokens = targetTokens;
+	}
+
+	// How deep blocks may nest inside the main method; deeper blocks are left empty
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth;
+	}
+
+	public void setWeight(TreeNode.Label label, Token.TokenType lookahead, double weight) {
+		if (weight < 0) {
+			throw new IllegalArgumentException("Weights can not be negative");
+		}
+		this.weights[label.ordinal()][lookahead.ordinal()] = weight;
+	}
+
+	// How many mutations generate() applies; 0, the default, generates valid programs
+	public void setMutations(int mutations) {
+		this.mutations = mutations;
+	}
+
+	public String generate() {
+		StringBuilder sb = new StringBuilder(targetTokens * 4);
+		try {
+			generate(sb);
+		} catch (IOException e) {
+			// A StringBuilder never throws
+			throw new IllegalStateException(e);
+		}
+		return sb.toString();
+	}
+
+	// Writes the program to out and returns the number of tokens written. The program is streamed
+	// out as it is generated, so it can be far bigger than the heap
+	public long generate(Appendable out) throws IOException {
+		long[] mutationPoints = new long[mutations];
+		for (int i = 0; i < mutations; i++) {
+			mutationPoints[i] = (long) (random.nextDouble() * targetTokens);
+		}
+		Arrays.sort(mutationPoints);
+		int nextMutation = 0;
+
+		top = 0;
+		depth = 0;
+		quoteState = 0;
+		afterOpeningQuote = false;
+		first = true;
+		push(ParseTable.encode(TreeNode.Label.prog));
+
+		long written = 0;
+		long generated = 0;
+		while (top > 0) {
+			if (stack[top - 1] == EPSILON) {
+				top--;
+				continue;
+			}
+			int type = next(generated >= targetTokens || depth - 1 > maxDepth, depth == 1 && generated < targetTokens);
+			expand(type);
+			Token.TokenType tokenType = ParseTable.TYPES[type];
+
+			if (nextMutation < mutationPoints.length && mutationPoints[nextMutation] <= generated) {
+				while (nextMutation < mutationPoints.length && mutationPoints[nextMutation] <= generated) {
+					nextMutation++;
+				}
+				written += mutate(out, tokenType);
+			}
+			else {
+				write(out, tokenType);
+				written++;
+			}
+			generated++;
+		}
+		return written;
+	}
+
+	// Generates programs with at least one mutation until one of them fails to lex or parse
+	public String generateInvalid() {
+		int requested = mutations;
+		mutations = Math.max(1, requested);
+		try {
+			while (true) {
+				String program = generate();
+				try {
+					if (SyntacticAnalyser.validate(program) != SyntacticAnalyser.VALID) {
+						return program;
+					}
+				} catch (LexicalException e) {
+					return program;
+				}
+			}
+		} finally {
+			mutations = requested;
+		}
+	}
+
+	// Picks the type of the next token among those the stack can accept. Closing picks the ones
+	// that leave the least left to generate; keepOpen rules out ending a statement list, which
+	// is only ever asked for when the main method's is the only one open
+	private int next(boolean closing, boolean keepOpen) {
+		double total = 0;
+		int best = Integer.MAX_VALUE;
+		int label = stack[top - 1];
+		for (int type = 0; type < ParseTable.TYPES.length; type++) {
+			candidateWeights[type] = 0;
+			if (!LEXABLE[type] || (!ParseTable.isTerminal(label) && ParseTable.production(label, type) == null)) {
+				continue;
+			}
+			double weight = simulate(type, keepOpen);
+			if (weight == 0) {
+				continue;
+			}
+			if (closing) {
+				// Weigh by how much longer the shortest completion gets, keeping only the best
+				int growth = growth(type);
+				if (growth > best) {
+					continue;
+				}
+				if (growth < best) {
+					best = growth;
+					Arrays.fill(candidateWeights, 0, type, 0);
+					total = 0;
+				}
+			}
+			candidateWeights[type] = weight;
+			total += weight;
+		}
+		if (total == 0) {
+			throw new IllegalStateException("Every token the parser could accept here has weight 0");
+		}
+
+		double pick = random.nextDouble() * total;
+		int chosen = -1;
+		for (int type = 0; type < ParseTable.TYPES.length; type++) {
+			if (candidateWeights[type] > 0) {
+				chosen = type;
+				pick -= candidateWeights[type];
+				if (pick < 0) {
+					break;
+				}
+			}
+		}
+		return chosen;
+	}
+
+	// Runs the parser on a copy of the stack with type as lookahead, up to the point where it
+	// would match it. Returns the product of the weights of the expansions on the way, or 0 if
+	// the parser would reject type, or if keepOpen and type would end a statement list
+	private double simulate(int type, boolean keepOpen) {
+		double weight = 1;
+		int real = top;
+		int overlayTop = 0;
+		while (true) {
+			int symbol;
+			if (overlayTop > 0) {
+				symbol = overlay[--overlayTop];
+			}
+			else if (real > 0) {
+				symbol = stack[--real];
+			}
+			else {
+				return 0;
+			}
+
+			if (ParseTable.isTerminal(symbol)) {
+				return ~symbol == type ? weight : 0;
+			}
+			if (symbol == EPSILON) {
+				continue;
+			}
+			int[] symbolsToPush = ParseTable.production(symbol, type);
+			if (symbolsToPush == null || (keepOpen && symbol == LOS && symbolsToPush[0] == EPSILON)) {
+				return 0;
+			}
+			weight *= weights[symbol][type];
+			if (overlayTop + symbolsToPush.length > overlay.length) {
+				overlay = Arrays.copyOf(overlay, overlay.length * 2 + symbolsToPush.length);
+			}
+			System.arraycopy(symbolsToPush, 0, overlay, overlayTop, symbolsToPush.length);
+			overlayTop += symbolsToPush.length;
+		}
+	}
+
+	// How much the length of the shortest completion of the stack grows if type comes next
+	private int growth(int type) {
+		int growth = 0;
+		int real = top;
+		int overlayTop = 0;
+		while (true) {
+			int symbol = overlayTop > 0 ? overlay[--overlayTop] : stack[--real];
+			if (ParseTable.isTerminal(symbol)) {
+				return growth;
+			}
+			if (symbol == EPSILON) {
+				continue;
+			}
+			int[] symbolsToPush = ParseTable.production(symbol, type);
+			growth += length(symbolsToPush) - MIN_LENGTH[symbol];
+			if (overlayTop + symbolsToPush.length > overlay.length) {
+				overlay = Arrays.copyOf(overlay, overlay.length * 2 + symbolsToPush.length);
+			}
+			System.arraycopy(symbolsToPush, 0, overlay, overlayTop, symbolsToPush.length);
+			overlayTop += symbolsToPush.length;
+		}
+	}
+
+	// Expands the stack for lookahead type, which simulate has accepted, and pops its terminal
+	private void expand(int type) {
+		while (true) {
+			int symbol = stack[--top];
+			if (symbol == LOS) {
+				depth--;
+			}
+			if (ParseTable.isTerminal(symbol)) {
+				return;
+			}
+			if (symbol == EPSILON) {
+				continue;
+			}
+			for (int symbolToPush : ParseTable.production(symbol, type)) {
+				push(symbolToPush);
+			}
+		}
+	}
+
+	private void push(int symbol) {
+		if (top == stack.length) {
+			stack = Arrays.copyOf(stack, stack.length * 2);
+		}
+		stack[top++] = symbol;
+		if (symbol == LOS) {
+			depth++;
+		}
+	}
+
+	// Writes a mutation in place of the token and returns how many tokens it wrote
+	private int mutate(Appendable out, Token.TokenType type) throws IOException {
+		switch (random.nextInt(4)) {
+		case 0:
+			return 0;
+		case 1:
+			write(out, type);
+			write(out, type);
+			return 2;
+		case 2:
+			write(out, ParseTable.TYPES[random.nextInt(ParseTable.TYPES.length)]);
+			return 1;
+		default:
+			separate(out);
+			out.append("_bad");
+			afterOpeningQuote = false;
+			write(out, type);
+			return 2;
+		}
+	}
+
+	// Quotes hug their literal, everything else is separated by a space
+	private void write(Appendable out, Token.TokenType type) throws IOException {
+		boolean closingQuote = (type == Token.TokenType.DQUOTE && quoteState == 1) || (type == Token.TokenType.SQUOTE && quoteState == 2);
+		if (!closingQuote && !afterOpeningQuote) {
+			separate(out);
+		}
+		out.append(text(type));
+		first = false;
+		afterOpeningQuote = (type == Token.TokenType.DQUOTE || type == Token.TokenType.SQUOTE) && !closingQuote;
+		if (type == Token.TokenType.DQUOTE) {
+			quoteState = quoteState == 1 ? 0 : 1;
+		}
+		else if (type == Token.TokenType.SQUOTE) {
+			quoteState = quoteState == 2 ? 0 : 2;
+		}
+	}
+
+	private void separate(Appendable out) throws IOException {
+		if (!first) {
+			out.append(' ');
+		}
+		first = false;
+	}
+
+	private String text(Token.TokenType type) {
+		String fixed = TokenBuffer.fixedText(type);
+		if (fixed != null) {
+			return fixed;
+		}
+		switch (type) {
+		case ID:
+			return "v" + random.nextInt(IDENTIFIERS);
+		case NUM:
+			return String.valueOf(random.nextInt(1000));
+		case CHARLIT:
+			return String.valueOf((char) ('a' + random.nextInt(26)));
+		case STRINGLIT:
+			return "s" + random.nextInt(1000);
+		case TYPE:
+			return TYPES[random.nextInt(TYPES.length)];
+		default:
+			throw new IllegalStateException("No text for " + type);
+		}
+	}
+
+	// The grammar has tokens the lexer has no rule for (the relational operators other than ==),
+	// so only token types whose text lexes back to them are generated
+	private static boolean[] lexable() {
+		boolean[] result = new boolean[ParseTable.TYPES.length];
+		for (int type = 0; type < ParseTable.TYPES.length; type++) {
+			String fixed = TokenBuffer.fixedText(ParseTable.TYPES[type]);
+			if (fixed == null) {
+				result[type] = true;
+				continue;
+			}
+			try {
+				List<Token> tokens = LexicalAnalyser.analyse(fixed);
+				result[type] = tokens.size() == 1 && tokens.get(0).getType() == ParseTable.TYPES[type];
+			} catch (LexicalException e) {
+				result[type] = false;
+			}
+		}
+		return result;
+	}
+
+	private static int length(int[] symbols) {
+		int length = 0;
+		for (int symbol : symbols) {
+			length += ParseTable.isTerminal(symbol) ? 1 : MIN_LENGTH[symbol];
+		}
+		return length;
+	}
+
+	// The length of the shortest token sequence each non terminal can produce, found by
+	// relaxing every production until nothing changes
+	private static int[] minLengths() {
+		int[] result = new int[ParseTable.LABELS.length];
+		Arrays.fill(result, UNKNOWN);
+		result[EPSILON] = 0;
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int label = 0; label < ParseTable.LABELS.length; label++) {
+				for (int type = 0; type < ParseTable.TYPES.length; type++) {
+					int[] production = ParseTable.production(label, type);
+					if (production == null) {
+						continue;
+					}
+					// Unknown lengths stay unknown rather than adding up to an overflow
+					int length = 0;
+					for (int symbol : production) {
+						length += ParseTable.isTerminal(symbol) ? 1 : result[symbol];
+						if (length >= UNKNOWN) {
+							break;
+						}
+					}
+					if (length < result[label]) {
+						result[label] = length;
+						changed = true;
+					}
+				}
+			}
+		}
+		return result;
+	}
+}
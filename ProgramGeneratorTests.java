@@ -0,0 +1,103 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.util.List;
+
+public class ProgramGeneratorTests {
+
+	@Test
+	public void testGeneratedProgramsAreValid() throws LexicalException {
+		for (long seed = 0; seed < 200; seed++) {
+			ProgramGenerator generator = new ProgramGenerator(seed);
+			generator.setTargetTokens(50 + (int) seed * 10);
+			String program = generator.generate();
+			assertEquals(SyntacticAnalyser.VALID, SyntacticAnalyser.validate(program), program);
+		}
+	}
+
+	@Test
+	public void testLargeProgramIsValid() throws LexicalException, IOException {
+		ProgramGenerator generator = new ProgramGenerator(7);
+		generator.setTargetTokens(100_000);
+		StringBuilder sb = new StringBuilder();
+		long written = generator.generate(sb);
+		assertTrue(written >= 100_000);
+		assertTrue(written < 100_200, "closing off took " + (written - 100_000) + " tokens");
+
+		TokenBuffer tokens = LexicalAnalyser.buffer(sb);
+		assertEquals(written, tokens.size());
+		assertTrue(SyntacticAnalyser.recognize(tokens));
+	}
+
+	@Test
+	public void testTokenCountMatchesLexer() throws LexicalException, SyntaxException, IOException {
+		ProgramGenerator generator = new ProgramGenerator(3);
+		generator.setTargetTokens(2000);
+		StringBuilder sb = new StringBuilder();
+		long written = generator.generate(sb);
+		List<Token> tokens = LexicalAnalyser.analyse(sb.toString());
+		assertEquals(written, tokens.size());
+		SyntacticAnalyser.parse(tokens);
+	}
+
+	@Test
+	public void testSameSeedSameProgram() {
+		ProgramGenerator first = new ProgramGenerator(42);
+		ProgramGenerator second = new ProgramGenerator(42);
+		assertEquals(first.generate(), second.generate());
+		assertNotEquals(new ProgramGenerator(42).generate(), new ProgramGenerator(43).generate());
+	}
+
+	@Test
+	public void testMaxDepth() throws LexicalException {
+		for (int maxDepth = 0; maxDepth < 4; maxDepth++) {
+			ProgramGenerator generator = new ProgramGenerator(maxDepth);
+			generator.setTargetTokens(5000);
+			generator.setMaxDepth(maxDepth);
+			generator.setWeight(TreeNode.Label.los, Token.TokenType.RBRACE, 0.05);
+			int deepest = 0;
+			int braces = 0;
+			for (Token token : LexicalAnalyser.analyse(generator.generate())) {
+				if (token.getType() == Token.TokenType.LBRACE) {
+					deepest = Math.max(deepest, ++braces);
+				}
+				else if (token.getType() == Token.TokenType.RBRACE) {
+					braces--;
+				}
+			}
+			// The class and main method braces, then at most one level past the maximum
+			assertTrue(deepest <= maxDepth + 3, "depth " + deepest + " for max " + maxDepth);
+		}
+	}
+
+	@Test
+	public void testWeights() throws LexicalException {
+		ProgramGenerator generator = new ProgramGenerator(5);
+		generator.setTargetTokens(3000);
+		generator.setWeight(TreeNode.Label.stat, Token.TokenType.WHILE, 0);
+		generator.setWeight(TreeNode.Label.stat, Token.TokenType.FOR, 50);
+		int whiles = 0;
+		int fors = 0;
+		for (Token token : LexicalAnalyser.analyse(generator.generate())) {
+			if (token.getType() == Token.TokenType.WHILE) {
+				whiles++;
+			}
+			else if (token.getType() == Token.TokenType.FOR) {
+				fors++;
+			}
+		}
+		assertEquals(0, whiles);
+		assertTrue(fors > 10);
+		assertThrows(IllegalArgumentException.class, () -> generator.setWeight(TreeNode.Label.stat, Token.TokenType.FOR, -1));
+	}
+
+	@Test
+	public void testGenerateInvalid() {
+		for (long seed = 0; seed < 50; seed++) {
+			ProgramGenerator generator = new ProgramGenerator(seed);
+			generator.setTargetTokens(200);
+			String program = generator.generateInvalid();
+			assertFalse(Diagnostics.of(program).isSuccess(), program);
+		}
+	}
+}
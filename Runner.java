@@ -1,17 +1,373 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+// Lexes and parses a whole corpus of files in one JVM. Inputs are files, directories (every .java
+// file under them) or glob patterns, and are handed to a fixed pool of workers through a bounded
+// queue as they are found, so a large corpus is never listed up front or queued all at once.
+// Each file's result goes to stdout as soon as it is done, and a summary of throughput, per file
+// latency and failures goes to stderr at the end.
 public class Runner {
 
-	public static void main(String[] args) {
+	// What is printed per file: one line each, only the failures, or the parse tree
+	public enum Mode {
+		VALIDATE, ERRORS, TREE
+	}
+
+	private static final String USAGE = "Usage: java Runner [--mode validate|errors|tree] [--format text|json|dot] [--threads n] [--queue n] <file|directory|glob>...";
+
+	private Mode mode = Mode.VALIDATE;
+	private ParseTreeWriter.Format format = ParseTreeWriter.Format.TEXT;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int queueSize = 4 * threads;
+	private PrintStream out = System.out;
+
+	public static void main(String[] args) throws InterruptedException {
+		Runner runner = new Runner();
+		List<String> inputs = new ArrayList<String>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (!args[i].startsWith("--")) {
+					inputs.add(args[i]);
+					continue;
+				}
+				if (i + 1 == args.length) {
+					throw new IllegalArgumentException("No value for " + args[i]);
+				}
+				String value = args[++i];
+				switch (args[i - 1]) {
+				case "--mode":
+					runner.setMode(Mode.valueOf(value.toUpperCase(Locale.ROOT)));
+					break;
+				case "--format":
+					runner.setFormat(ParseTreeWriter.Format.valueOf(value.toUpperCase(Locale.ROOT)));
+					break;
+				case "--threads":
+					runner.setThreads(Integer.parseInt(value));
+					break;
+				case "--queue":
+					runner.setQueueSize(Integer.parseInt(value));
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+				}
+			}
+			if (inputs.isEmpty()) {
+				throw new IllegalArgumentException("No inputs");
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+
+		Summary summary = runner.run(inputs);
+		System.out.flush();
+		System.err.print(summary);
+		System.exit(summary.getFailureCount() == 0 ? 0 : 1);
+	}
+
+	public void setMode(Mode mode) {
+		this.mode = mode;
+	}
+
+	// The format of the trees printed in TREE mode
+	public void setFormat(ParseTreeWriter.Format format) {
+		this.format = format;
+	}
+
+	public void setThreads(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("Threads must be positive: " + threads);
+		this.threads = threads;
+	}
+
+	// How many files may wait for a worker before the search for more files blocks
+	public void setQueueSize(int queueSize) {
+		if (queueSize < 1)
+			throw new IllegalArgumentException("Queue size must be positive: " + queueSize);
+		this.queueSize = queueSize;
+	}
+
+	public void setOutput(PrintStream out) {
+		this.out = out;
+	}
+
+	// Processes every file the inputs name, returning once all of them are done
+	public Summary run(List<String> inputs) throws InterruptedException {
+		Summary summary = new Summary();
+		// A full queue makes the submitting thread wait for room instead of rejecting the file
+		ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<Runnable>(queueSize), (task, pool) -> {
+				try {
+					pool.getQueue().put(task);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while queueing " + task, e);
+				}
+			});
+
+		long start = System.nanoTime();
+		try {
+			for (String input : inputs) {
+				try (Stream<Path> files = files(input)) {
+					files.forEach(file -> workers.execute(() -> process(file, summary)));
+				} catch (UncheckedIOException e) {
+					// A directory that could not be walked to the end
+					summary.failed(e.getCause(), 0);
+					report(Paths.get(input), "IOException: " + e.getCause().getMessage());
+				}
+			}
+		} finally {
+			workers.shutdown();
+			workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		}
+		summary.elapsedNanos = System.nanoTime() - start;
+		return summary;
+	}
+
+	// The files an input names. A missing file is passed on as it is, to fail when it is read
+	static Stream<Path> files(String input) {
+		int glob = firstGlobCharacter(input);
+		if (glob >= 0) {
+			int separator = Math.max(input.lastIndexOf('/', glob), input.lastIndexOf(java.io.File.separatorChar, glob));
+			Path base = Paths.get(separator < 0 ? "." : input.substring(0, separator + 1));
+			String pattern = separator < 0 ? "./" + input : input;
+			PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+			if (!Files.isDirectory(base)) {
+				return Stream.empty();
+			}
+			return walk(base).filter(matcher::matches);
+		}
+		Path path = Paths.get(input);
+		if (Files.isDirectory(path)) {
+			return walk(path).filter(file -> file.toString().endsWith(".java"));
+		}
+		return Stream.of(path);
+	}
+
+	// The regular files under directory, depth first and in name order within each directory.
+	// A directory is only listed and sorted when the walk reaches it, so the files come out as
+	// the tree is walked, and only the listings of the directories on the current path are held
+	// at a time. Symbolic links to directories are not followed. A directory that can not be
+	// listed throws an UncheckedIOException
+	static Stream<Path> walk(Path directory) {
+		Iterator<Path> files = new Iterator<Path>() {
+			// The entries still to visit in each directory we are inside
+			private final ArrayDeque<Iterator<Path>> open = new ArrayDeque<Iterator<Path>>();
+			private Path next;
+
+			{
+				open.push(list(directory));
+			}
+
+			@Override
+			public boolean hasNext() {
+				while (next == null && !open.isEmpty()) {
+					Iterator<Path> entries = open.peek();
+					if (!entries.hasNext()) {
+						open.pop();
+						continue;
+					}
+					Path entry = entries.next();
+					if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+						open.push(list(entry));
+					}
+					else if (Files.isRegularFile(entry)) {
+						next = entry;
+					}
+				}
+				return next != null;
+			}
+
+			@Override
+			public Path next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Path result = next;
+				next = null;
+				return result;
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(files, Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	private static Iterator<Path> list(Path directory) {
+		List<Path> entries = new ArrayList<Path>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			stream.forEach(entries::add);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		entries.sort(null);
+		return entries.iterator();
+	}
+
+	private static int firstGlobCharacter(String input) {
+		for (int i = 0; i < input.length(); i++) {
+			if ("*?[{".indexOf(input.charAt(i)) >= 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// Runs on a worker. The latency covers reading, lexing and parsing, but not printing
+	private void process(Path file, Summary summary) {
+		long start = System.nanoTime();
+		TokenBuffer tokens;
+		ParseTree tree = null;
 		try {
-			List<Token> results = LexicalAnalyser.analyse("public class Test { public static void main(String[] args){ }}");
-			System.out.println(results);
-			ParseTree tree = SyntacticAnalyser.parse(results);
-			System.out.println(tree);
-		} catch (LexicalException e) {
-			e.printStackTrace();
-		} catch (SyntaxException e) {
-			e.printStackTrace();
+			tokens = LexicalAnalyser.buffer(Files.readString(file));
+			if (mode == Mode.TREE) {
+				tree = SyntacticAnalyser.parse(tokens);
+			}
+			else if (SyntacticAnalyser.validate(tokens) != SyntacticAnalyser.VALID) {
+				// Only parsed again to find out what the error was
+				SyntacticAnalyser.parse(tokens);
+			}
+		} catch (IOException | LexicalException | SyntaxException e) {
+			summary.failed(e, System.nanoTime() - start);
+			report(file, e.getClass().getSimpleName() + ": " + e.getMessage());
+			return;
+		}
+		summary.succeeded(tokens.size(), System.nanoTime() - start);
+
+		if (mode == Mode.VALIDATE) {
+			report(file, "OK, " + tokens.size() + " tokens");
+		}
+		else if (mode == Mode.TREE) {
+			synchronized (out) {
+				out.println("== " + file);
+				try {
+					ParseTreeWriter.write(tree, out, format);
+				} catch (IOException e) {
+					// A PrintStream does not throw
+					throw new UncheckedIOException(e);
+				}
+				out.println();
+			}
+		}
+	}
+
+	private void report(Path file, String message) {
+		synchronized (out) {
+			out.println(file + ": " + message);
+		}
+	}
+
+	// The counts and per file latencies of a run
+	public static class Summary {
+
+		private long files;
+		private long tokens;
+		private long lexicalFailures;
+		private long syntaxFailures;
+		private long ioFailures;
+		private final Latencies latencies = new Latencies();
+		private long elapsedNanos;
+
+		synchronized void succeeded(int tokenCount, long latency) {
+			tokens += tokenCount;
+			record(latency);
+		}
+
+		synchronized void failed(Exception error, long latency) {
+			if (error instanceof LexicalException)
+				lexicalFailures++;
+			else if (error instanceof SyntaxException)
+				syntaxFailures++;
+			else
+				ioFailures++;
+			record(latency);
+		}
+
+		private void record(long latency) {
+			files++;
+			latencies.record(latency);
+		}
+
+		public synchronized long getFileCount() {
+			return files;
+		}
+
+		public synchronized long getTokenCount() {
+			return tokens;
+		}
+
+		public synchronized long getFailureCount() {
+			return lexicalFailures + syntaxFailures + ioFailures;
+		}
+
+		public synchronized long getLexicalFailures() {
+			return lexicalFailures;
+		}
+
+		public synchronized long getSyntaxFailures() {
+			return syntaxFailures;
+		}
+
+		public synchronized long getIoFailures() {
+			return ioFailures;
+		}
+
+		public synchronized long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		// The per file latency in nanoseconds that the given fraction of files took at most,
+		// e.g. 0.99 for the 99th percentile, by nearest rank
+		public long getLatencyPercentile(double fraction) {
+			return latencies.percentile(fraction);
+		}
+
+		public double getFilesPerSecond() {
+			return perSecond(getFileCount());
+		}
+
+		public double getTokensPerSecond() {
+			return perSecond(getTokenCount());
+		}
+
+		private double perSecond(long count) {
+			long elapsed = getElapsedNanos();
+			if (elapsed <= 0)
+				return 0;
+			return count * 1_000_000_000.0 / elapsed;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT,
+				"%d files, %d tokens in %.3f s%n"
+				+ "%.1f files/s, %.0f tokens/s%n"
+				+ "latency per file: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n"
+				+ "failures: %d (%d lexical, %d syntax, %d I/O)%n",
+				getFileCount(), getTokenCount(), getElapsedNanos() / 1e9,
+				getFilesPerSecond(), getTokensPerSecond(),
+				getLatencyPercentile(0.5) / 1e6, getLatencyPercentile(0.99) / 1e6, getLatencyPercentile(1) / 1e6,
+				getFailureCount(), getLexicalFailures(), getSyntaxFailures(), getIoFailures());
 		}
 	}
 }
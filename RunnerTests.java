@@ -0,0 +1,135 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class RunnerTests {
+
+	private static final String PROGRAM = "public class Test { public static void main(String[] args){ int x = 1; while (x == 1) { x = x + 1; } }}";
+
+	@TempDir
+	Path directory;
+
+	private ByteArrayOutputStream output;
+
+	// Two valid files, one with a syntax error, one with a lexical error, and a file that is
+	// not .java, spread over a nested directory
+	@BeforeEach
+	public void writeCorpus() throws IOException {
+		Files.createDirectories(directory.resolve("a/b"));
+		Files.writeString(directory.resolve("One.java"), PROGRAM);
+		Files.writeString(directory.resolve("a/Two.java"), PROGRAM.replace("x + 1", "x * 2"));
+		Files.writeString(directory.resolve("a/b/Syntax.java"), PROGRAM.replace("x = x + 1;", "x = ;"));
+		Files.writeString(directory.resolve("a/b/Lexical.java"), PROGRAM.replace("x = x + 1;", "x = #;"));
+		Files.writeString(directory.resolve("a/notes.txt"), "not a program");
+		output = new ByteArrayOutputStream();
+	}
+
+	private Runner runner(Runner.Mode mode, int threads) {
+		Runner runner = new Runner();
+		runner.setMode(mode);
+		runner.setThreads(threads);
+		runner.setQueueSize(1);
+		runner.setOutput(new PrintStream(output, true));
+		return runner;
+	}
+
+	private List<String> lines() {
+		return output.toString().lines().sorted().collect(Collectors.toList());
+	}
+
+	@Test
+	public void testValidateDirectory() throws InterruptedException, LexicalException {
+		Runner.Summary summary = runner(Runner.Mode.VALIDATE, 3).run(List.of(directory.toString()));
+		assertEquals(4, summary.getFileCount());
+		assertEquals(2, summary.getFailureCount());
+		assertEquals(1, summary.getLexicalFailures());
+		assertEquals(1, summary.getSyntaxFailures());
+		assertEquals(0, summary.getIoFailures());
+		assertEquals(2 * LexicalAnalyser.buffer(PROGRAM).size(), summary.getTokenCount());
+
+		List<String> lines = lines();
+		assertEquals(4, lines.size());
+		assertTrue(lines.contains(directory.resolve("One.java") + ": OK, " + LexicalAnalyser.buffer(PROGRAM).size() + " tokens"));
+		assertTrue(lines.stream().anyMatch(line -> line.startsWith(directory.resolve("a/b/Syntax.java") + ": SyntaxException: ")));
+		assertTrue(lines.stream().anyMatch(line -> line.startsWith(directory.resolve("a/b/Lexical.java") + ": LexicalException: ")));
+	}
+
+	@Test
+	public void testErrorsOnly() throws InterruptedException, LexicalException {
+		String syntax = directory.resolve("a/b/Syntax.java").toString();
+		Runner.Summary summary = runner(Runner.Mode.ERRORS, 2).run(List.of(directory.toString(), syntax, directory.resolve("Missing.java").toString()));
+		assertEquals(6, summary.getFileCount());
+		assertEquals(4, summary.getFailureCount());
+		assertEquals(1, summary.getIoFailures());
+
+		SyntaxException expected = assertThrows(SyntaxException.class, () -> SyntacticAnalyser.parse(LexicalAnalyser.buffer(PROGRAM.replace("x = x + 1;", "x = ;"))));
+		List<String> lines = lines();
+		assertEquals(4, lines.size());
+		assertEquals(2, lines.stream().filter(line -> line.equals(syntax + ": SyntaxException: " + expected.getMessage())).count());
+		assertTrue(lines.stream().noneMatch(line -> line.contains("OK")));
+	}
+
+	@Test
+	public void testTreeDump() throws InterruptedException, IOException, LexicalException, SyntaxException {
+		Runner runner = runner(Runner.Mode.TREE, 1);
+		Runner.Summary summary = runner.run(List.of(directory.resolve("One.java").toString()));
+		assertEquals(0, summary.getFailureCount());
+
+		StringWriter tree = new StringWriter();
+		ParseTreeWriter.write(SyntacticAnalyser.parse(LexicalAnalyser.buffer(PROGRAM)), tree, ParseTreeWriter.Format.TEXT);
+		String expected = "== " + directory.resolve("One.java") + System.lineSeparator() + tree + System.lineSeparator();
+		assertEquals(expected, output.toString());
+	}
+
+	@Test
+	public void testGlobs() throws IOException {
+		String base = directory.toString() + "/";
+		assertEquals(Arrays.asList(directory.resolve("a/Two.java"), directory.resolve("a/b/Lexical.java"), directory.resolve("a/b/Syntax.java")),
+			Runner.files(base + "a/**.java").collect(Collectors.toList()));
+		assertEquals(Arrays.asList(directory.resolve("a/b/Lexical.java"), directory.resolve("a/b/Syntax.java")),
+			Runner.files(base + "*/*/*.java").collect(Collectors.toList()));
+		assertEquals(Arrays.asList(directory.resolve("a/notes.txt")), Runner.files(base + "a/*.{txt,md}").collect(Collectors.toList()));
+		assertEquals(0, Runner.files(base + "missing/*.java").count());
+		// A plain file is taken as it is, even without the extension
+		assertEquals(Arrays.asList(directory.resolve("a/notes.txt")), Runner.files(base + "a/notes.txt").collect(Collectors.toList()));
+	}
+
+	// Nothing is listed up front: a file written after the first one came out, in a directory
+	// the walk has not reached yet, is still found
+	@Test
+	public void testDirectoriesAreWalkedLazily() throws IOException {
+		Files.createDirectories(directory.resolve("z"));
+		Iterator<Path> files = Runner.files(directory.toString()).iterator();
+		assertEquals(directory.resolve("One.java"), files.next());
+		Files.writeString(directory.resolve("z/Late.java"), PROGRAM);
+
+		List<Path> rest = new ArrayList<Path>();
+		files.forEachRemaining(rest::add);
+		assertEquals(Arrays.asList(directory.resolve("a/Two.java"), directory.resolve("a/b/Lexical.java"), directory.resolve("a/b/Syntax.java"), directory.resolve("z/Late.java")), rest);
+	}
+
+	@Test
+	public void testSummary() throws InterruptedException {
+		Runner.Summary summary = runner(Runner.Mode.ERRORS, 4).run(List.of(directory + "/**/*.java"));
+		assertEquals(3, summary.getFileCount());
+		assertTrue(summary.getElapsedNanos() > 0);
+		assertTrue(summary.getFilesPerSecond() > 0);
+		assertTrue(summary.getTokensPerSecond() > 0);
+		assertTrue(summary.getLatencyPercentile(0.5) <= summary.getLatencyPercentile(0.99));
+		assertTrue(summary.getLatencyPercentile(0.99) <= summary.getLatencyPercentile(1));
+		assertTrue(summary.toString().contains("failures: 2 (1 lexical, 1 syntax, 0 I/O)"));
+		assertThrows(IllegalArgumentException.class, () -> new Runner().setThreads(0));
+		assertThrows(IllegalArgumentException.class, () -> new Runner().setQueueSize(0));
+	}
+}
@@ -0,0 +1,108 @@
+import java.util.Arrays;
+
+// Interns the lexemes of ID, NUM and CHARLIT tokens for one lex session. Every distinct lexeme
+// is stored once and numbered in the order it was first seen, so repeated identifiers share a
+// single String and can be compared by symbol id instead of by equals().
+//
+// Lookups hash the characters in place, so a lexeme that has been seen before is found without
+// cutting a String out of the source. A SymbolTable is not thread safe.
+public class SymbolTable {
+
+	private String[] names = new String[64];
+	private int[] hashes = new int[64];
+	private int size = 0;
+
+	// Open addressing over symbol ids, -1 marking a free slot
+	private int[] slots = new int[128];
+
+	public SymbolTable() {
+		Arrays.fill(slots, -1);
+	}
+
+	public int intern(String name) {
+		return intern(name, 0, name.length());
+	}
+
+	// The id of the characters in [start, end) of chars, adding them if they are new
+	public int intern(CharSequence chars, int start, int end) {
+		int hash = hash(chars, start, end);
+		int mask = slots.length - 1;
+		int slot = hash & mask;
+		for (int id = slots[slot]; id != -1; id = slots[slot]) {
+			if (hashes[id] == hash && matches(names[id], chars, start, end)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		if (size == names.length) {
+			names = Arrays.copyOf(names, size * 2);
+			hashes = Arrays.copyOf(hashes, size * 2);
+		}
+		int id = size++;
+		names[id] = chars.subSequence(start, end).toString();
+		hashes[id] = hash;
+		slots[slot] = id;
+		if (size * 2 > slots.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	// The id of name, or Token.NO_SYMBOL if it has never been interned
+	public int lookup(String name) {
+		int hash = hash(name, 0, name.length());
+		int mask = slots.length - 1;
+		for (int slot = hash & mask; slots[slot] != -1; slot = (slot + 1) & mask) {
+			int id = slots[slot];
+			if (hashes[id] == hash && names[id].equals(name)) {
+				return id;
+			}
+		}
+		return Token.NO_SYMBOL;
+	}
+
+	public String getName(int id) {
+		if (id < 0 || id >= size)
+			throw new IndexOutOfBoundsException("Symbol " + id + " of " + size);
+		return names[id];
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		Arrays.fill(slots, -1);
+		int mask = slots.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = hashes[id] & mask;
+			while (slots[slot] != -1) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = id;
+		}
+	}
+
+	// The same hash as String.hashCode, spread so that short lexemes use the low bits well
+	private static int hash(CharSequence chars, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + chars.charAt(i);
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean matches(String name, CharSequence chars, int start, int end) {
+		if (name.length() != end - start) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (name.charAt(i) != chars.charAt(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,104 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SymbolTableTests {
+
+	private static final String SOURCE = "public class Test { public static void main(String[] args){ int count = 3; char c = 'a'; count = count + 3; System.out.println(\"count\"); }}";
+
+	@Test
+	public void testInterningKeepsIdsStable() {
+		SymbolTable symbols = new SymbolTable();
+		List<Integer> ids = new ArrayList<Integer>();
+		for (int i = 0; i < 1000; i++) {
+			ids.add(symbols.intern("x" + i));
+		}
+		for (int i = 0; i < 1000; i++) {
+			String name = "x" + i;
+			assertEquals(ids.get(i), symbols.intern("(" + name + ")", 1, name.length() + 1));
+			assertEquals(ids.get(i), symbols.lookup(name));
+			assertEquals(name, symbols.getName(ids.get(i)));
+		}
+		assertEquals(1000, symbols.size());
+		assertEquals(Token.NO_SYMBOL, symbols.lookup("y"));
+	}
+
+	@Test
+	public void testRepeatedLexemesShareOneString() throws LexicalException {
+		SymbolTable symbols = new SymbolTable();
+		List<Token> tokens = LexicalAnalyser.analyse(SOURCE, symbols);
+		assertEquals(LexicalAnalyser.analyse(SOURCE), tokens);
+
+		Token first = null;
+		for (Token token : tokens) {
+			if (token.getType() == Token.TokenType.ID && token.getValue().get().equals("count")) {
+				if (first == null) {
+					first = token;
+				}
+				assertEquals(first.getSymbol(), token.getSymbol());
+				assertSame(first.getValue().get(), token.getValue().get());
+			}
+			else if (token.getType() == Token.TokenType.STRINGLIT || token.getType() == Token.TokenType.TYPE) {
+				assertEquals(Token.NO_SYMBOL, token.getSymbol());
+			}
+		}
+		assertEquals(symbols.lookup("count"), first.getSymbol());
+		assertNotEquals(Token.NO_SYMBOL, symbols.lookup("a"));
+		assertNotEquals(Token.NO_SYMBOL, symbols.lookup("3"));
+	}
+
+	// A char literal whose character is a delimiter is lexed apart from words, but is interned
+	// just the same
+	@Test
+	public void testDelimiterCharLiteralsAreInterned() throws LexicalException {
+		String source = "public class Test { public static void main(String[] args){ char c = '{'; char d = ';'; c = 'x'; d = '{'; }}";
+		SymbolTable symbols = new SymbolTable();
+		List<Token> tokens = LexicalAnalyser.analyse(source, symbols);
+		SymbolTable bufferSymbols = new SymbolTable();
+		TokenBuffer buffer = LexicalAnalyser.buffer(source, bufferSymbols);
+
+		List<Integer> ids = new ArrayList<Integer>();
+		for (int i = 0; i < tokens.size(); i++) {
+			Token token = tokens.get(i);
+			if (token.getType() == Token.TokenType.CHARLIT) {
+				assertNotEquals(Token.NO_SYMBOL, token.getSymbol());
+				assertEquals(symbols.lookup(token.getValue().get()), token.getSymbol());
+				assertEquals(bufferSymbols.lookup(token.getValue().get()), buffer.getSymbol(i));
+				ids.add(token.getSymbol());
+			}
+		}
+		assertEquals(4, ids.size());
+		assertEquals(ids.get(0), ids.get(3));
+		assertNotEquals(ids.get(0), ids.get(1));
+		assertEquals("{", symbols.getName(ids.get(0)));
+	}
+
+	@Test
+	public void testParseTreesCarrySymbolIds() throws LexicalException, SyntaxException {
+		SymbolTable symbols = new SymbolTable();
+		TokenBuffer buffer = LexicalAnalyser.buffer(SOURCE, symbols);
+		List<ParseTree> trees = new ArrayList<ParseTree>();
+		trees.add(SyntacticAnalyser.parse(LexicalAnalyser.analyse(SOURCE, symbols)));
+		trees.add(SyntacticAnalyser.parse(buffer));
+		trees.add(SyntacticAnalyser.parse(buffer, SyntacticAnalyser.Engine.GENERATED));
+		trees.add(SyntacticAnalyser.parseFlat(buffer).toParseTree());
+
+		int count = symbols.lookup("count");
+		for (ParseTree tree : trees) {
+			int matches = 0;
+			ArrayDeque<TreeNode> stack = new ArrayDeque<TreeNode>();
+			stack.push(tree.getRoot());
+			while (!stack.isEmpty()) {
+				TreeNode node = stack.pop();
+				stack.addAll(node.getChildren());
+				if (node.getToken().isPresent() && node.getToken().get().getSymbol() == count) {
+					assertEquals("count", node.getToken().get().getValue().get());
+					matches++;
+				}
+			}
+			assertEquals(3, matches);
+		}
+	}
+}
@@ -1,306 +1,561 @@
-import java.util.ArrayDeque;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 public class SyntacticAnalyser {
 
-	private static Map<TreeNode.Label, Map<Token.TokenType, ArrayList<Symbol>>> parseTable;
+	// The interchangeable parsing engines: the table driven PDA below, and the recursive descent
+	// parser ParserGenerator generates from the same table. Both build the same trees and throw
+	// the same errors
+	public enum Engine {
+		TABLE, GENERATED
+	}
 
 	public static ParseTree parse(List<Token> tokens) throws SyntaxException {
-		// Create output tree and stack
+		return parse(tokens, Engine.TABLE);
+	}
+
+	public static ParseTree parse(List<Token> tokens, Engine engine) throws SyntaxException {
+		try {
+			return parse(TokenCursor.of(TokenStream.of(tokens)), engine, tokens.size());
+		} catch (LexicalException e) {
+			// A stream over an already lexed list never fails to produce a token
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static ParseTree parse(TokenBuffer tokens, Engine engine) throws SyntaxException {
+		try {
+			return parse(tokens.cursor(), engine, tokens.size());
+		} catch (LexicalException e) {
+			// A buffer has already been fully lexed
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static ParseTree parse(TokenCursor tokens, Engine engine, int size) throws SyntaxException, LexicalException {
+		if (engine == Engine.TABLE) {
+			return parse(tokens);
+		}
+
+		ParseMetrics metrics = ParseMetrics.active();
+		long start = metrics == null ? 0 : System.nanoTime();
+		try {
+			ParseTree tree = GeneratedParser.parse(tokens);
+			if (metrics != null)
+				metrics.parsed(System.nanoTime() - start, size);
+			return tree;
+		} catch (SyntaxException e) {
+			if (metrics != null)
+				metrics.failed(e);
+			throw e;
+		}
+	}
+
+	// Parses tokens as they are pulled from the stream, holding only one token of lookahead.
+	// A syntax error stops the parse straight away, so nothing after it is ever lexed
+	public static ParseTree parse(TokenStream tokens) throws SyntaxException, LexicalException {
+		return parse(TokenCursor.of(tokens));
+	}
+
+	// Parses straight from the buffer, without materialising a Token per input token
+	public static ParseTree parse(TokenBuffer tokens) throws SyntaxException {
+		return parse(tokens, Engine.TABLE);
+	}
+
+	private static ParseTree parse(TokenCursor tokens) throws SyntaxException, LexicalException {
+		ParseTreeBuilder builder = new ParseTreeBuilder();
+		parse(tokens, builder);
+		return builder.getTree();
+	}
+
+	// As parse, but for large programs: the statements of main are parsed in ranges concurrently
+	// on the common ForkJoinPool (see ParallelParser). The tree is exactly the one parse builds,
+	// and so is the error if there is one
+	public static ParseTree parseParallel(TokenBuffer tokens) throws SyntaxException {
+		if (tokens.size() < 2 * ParallelParser.MIN_RANGE) {
+			return parse(tokens);
+		}
+		return ParallelParser.parse(tokens, ForkJoinPool.commonPool(), ParallelParser.MIN_RANGE);
+	}
+
+	// Parses straight into the compact AST, see AstBuilder, without building the ParseTree
+	public static AstNode.Program parseAst(TokenBuffer tokens) throws SyntaxException {
+		AstBuilder builder = new AstBuilder();
+		parse(tokens, builder);
+		return builder.getProgram();
+	}
+
+	public static AstNode.Program parseAst(List<Token> tokens) throws SyntaxException {
+		AstBuilder builder = new AstBuilder();
+		parse(tokens, builder);
+		return builder.getProgram();
+	}
+
+	// Parses without building a tree, reporting its structure to the listener as it goes
+	public static void parse(TokenBuffer tokens, ParseListener listener) throws SyntaxException {
+		try {
+			parse(tokens.cursor(), listener);
+		} catch (LexicalException e) {
+			// A buffer has already been fully lexed
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static void parse(List<Token> tokens, ParseListener listener) throws SyntaxException {
+		try {
+			parse(TokenCursor.of(TokenStream.of(tokens)), listener);
+		} catch (LexicalException e) {
+			// A stream over an already lexed list never fails to produce a token
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static void parse(TokenStream tokens, ParseListener listener) throws SyntaxException, LexicalException {
+		parse(TokenCursor.of(tokens), listener);
+	}
+
+	// Lexes a file from a memory mapping as it is parsed, with no Token allocated per token. Only
+	// the words handed to the listener are decoded, so heap use does not grow with the file
+	public static void parse(Path sourceFile, ParseListener listener) throws SyntaxException, LexicalException, IOException {
+		parse(new MappedTokenStream(sourceFile).cursor(), listener);
+	}
+
+	private static void parse(TokenCursor tokens, ParseListener listener) throws SyntaxException, LexicalException {
+		ParseMetrics metrics = ParseMetrics.active();
+		long start = metrics == null ? 0 : System.nanoTime();
+		try {
+			tokens.next();
+			int index = expand(TreeNode.Label.prog, tokens, listener);
+
+			// If we have not reached the end of the token list, we have unexpected tokens
+			if (tokens.current() != null) {
+				throw leftoverTokens(index, tokens);
+			}
+			if (metrics != null)
+				metrics.parsed(System.nanoTime() - start, index);
+		} catch (SyntaxException e) {
+			if (metrics != null)
+				metrics.failed(e);
+			throw e;
+		} catch (LexicalException e) {
+			// The tokens are being lexed as they are parsed
+			if (metrics != null)
+				metrics.failed(e);
+			throw e;
+		}
+	}
+
+	// Builds root's subtree from the cursor's current token onwards, see below
+	static int expand(TreeNode root, TokenCursor tokens) throws SyntaxException, LexicalException {
+		return expand(root.getLabel(), tokens, new ParseTreeBuilder(root));
+	}
+
+	// Runs the PDA from the start symbol, starting at the cursor's current token, until its
+	// subtree is complete. Returns the number of tokens consumed, leaving the cursor on the token
+	// after them.
+	//
+	// The stack holds encoded symbols (see ParseTable.encode), plus a marker under the right hand
+	// side of each expanded non terminal, so that its exit can be reported once its children are
+	// done. A marker is the label's ordinal offset by EXIT
+	static int expand(TreeNode.Label start, TokenCursor tokens, ParseListener listener) throws SyntaxException, LexicalException {
+		return expand(start, tokens, listener, ParseMetrics.active());
+	}
+
+	// As above, adding the nodes and peak stack depth to metrics, unless it is null. Speculative
+	// parses pass null, so that work thrown away is not counted
+	static int expand(TreeNode.Label start, TokenCursor tokens, ParseListener listener, ParseMetrics metrics) throws SyntaxException, LexicalException {
 		int index = 0;
-		ParseTree result = new ParseTree();
-		ArrayDeque<TreeNode> varStack = new ArrayDeque<TreeNode>();
-		TreeNode currentNode;
-		parseTable = new HashMap<>();
-		PopulateParseTable();
+		Token.TokenType lookahead = tokens.current();
+
+		int[] stack = new int[64];
+		int top = 0;
+		int peak = 1;
+		long nonTerminals = 0;
 
-		// Push starting symbol S = prog to stack
-		TreeNode root = new TreeNode(TreeNode.Label.prog, null);
-		result.setRoot(root);
-		varStack.push(root);
+		// Push the starting symbol to the stack
+		stack[top++] = ParseTable.encode(start);
 
 		// Perform PDA process
-		while (!varStack.isEmpty() && index < tokens.size()) {
-			currentNode = varStack.pop();
-			Symbol currentStackSymbol = currentNode.getLabel();
+		while (top > 0 && lookahead != null) {
+			int symbol = stack[--top];
 
 			// Top of the stack is a terminal -> we have to match this with the current token
 			// if it doesn't match, throw an exception
-			if (currentNode.getLabel() == TreeNode.Label.terminal) {
-				Token.TokenType currentVarAsTokentype = currentNode.getToken().get().getType();
-				currentNode.getToken().get().setValue(tokens.get(index).getValue().get());
-				if (currentVarAsTokentype == tokens.get(index).getType()) {
-					index++;
-				}
-				else {
-					Token.TokenType actualType = tokens.get(index).getType();
-					throw new SyntaxException("Mismatch between expected terminal " + currentVarAsTokentype.toString() + " and actual: " + actualType);
+			if (ParseTable.isTerminal(symbol)) {
+				Token.TokenType expected = ParseTable.typeOf(symbol);
+				if (expected != lookahead) {
+					throw new SyntaxException(SyntaxException.Reason.MISMATCH, "Mismatch between expected terminal " + expected + " and actual: " + lookahead);
 				}
+				listener.terminal(lookahead, tokens.value(), tokens.symbol(), index);
+				index++;
+				lookahead = tokens.next();
+			}
+
+			// A non terminal's children are all done
+			else if (symbol >= EXIT) {
+				listener.exitNonTerminal(ParseTable.labelOf(symbol - EXIT));
 			}
 
 			// Top of the stack is a non terminal -> lookup in the table what needs to be 
 			// pushed to the stack
 			else {
-				TreeNode.Label currentStackSymbolAsLabel = (TreeNode.Label)currentStackSymbol;
-				if (currentStackSymbolAsLabel == TreeNode.Label.epsilon) {
+				TreeNode.Label label = ParseTable.labelOf(symbol);
+				listener.enterNonTerminal(label);
+				nonTerminals++;
+				if (label == TreeNode.Label.epsilon) {
+					listener.exitNonTerminal(label);
 					continue;
 				}
-				Token.TokenType currentTerminal = tokens.get(index).getType();
 
-				// Try to lookup what symbols need to be pushed- if there is no rule, we have
+				// Lookup what symbols need to be pushed- if there is no rule, we have
 				// entered an error state!
-				try {
-					List<Symbol> symbolsToPush = parseTable.get(currentStackSymbolAsLabel).get(currentTerminal);
-					for (Symbol symbolToPush : symbolsToPush) {
-						if (symbolToPush.isVariable()) {
-							TreeNode newNode = new TreeNode((TreeNode.Label)symbolToPush, currentNode);
-							currentNode.addChildToStart(newNode);
-							varStack.push(newNode);
-						}
-						else {
-							String tokenValue = tokens.get(index).getValue().get();
-							TreeNode newNode = new TreeNode(TreeNode.Label.terminal, new Token((Token.TokenType)symbolToPush, tokenValue), currentNode);
-							currentNode.addChildToStart(newNode);
-							varStack.push(newNode);
-						}
-					}
+				int[] symbolsToPush = ParseTable.production(symbol, lookahead.ordinal());
+				if (symbolsToPush == null) {
+					throw new SyntaxException(SyntaxException.Reason.NO_PRODUCTION, "Entry not in table, cant have this production rule " + label + " with this terminal " + lookahead + " ");
 				}
-				catch (Exception e) {
-					throw new SyntaxException("Entry not in table, cant have this production rule " + currentStackSymbolAsLabel + " with this terminal " + currentTerminal + " ");
+				if (top + 1 + symbolsToPush.length > stack.length) {
+					stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + 1 + symbolsToPush.length));
+				}
+				stack[top++] = EXIT + symbol;
+				System.arraycopy(symbolsToPush, 0, stack, top, symbolsToPush.length);
+				top += symbolsToPush.length;
+				if (top > peak) {
+					peak = top;
 				}
 			}
 		}
 
-		// If we have not reached the end of the token list, we have unexpected tokens
-		if (index != tokens.size()) {
-			throw new SyntaxException("There's still stuff left in the token list!: " + index + " | " + (tokens.size() - 1));
+		// Only exit markers may be left once the tokens run out; anything else means we are
+		// lacking tokens
+		while (top > 0) {
+			int symbol = stack[--top];
+			if (symbol < EXIT) {
+				throw new SyntaxException(SyntaxException.Reason.OUT_OF_TOKENS, "Run out of tokens but there's still symbols in the stack, substitution to be done!");
+			}
+			listener.exitNonTerminal(ParseTable.labelOf(symbol - EXIT));
 		}
 
-		// If we have consumed all characters and emptied the stack we are lacking tokens
-		if (!varStack.isEmpty()) {
-			throw new SyntaxException("Run out of tokens but there's still symbols in the stack, substitution to be done!");
+		if (metrics != null)
+			metrics.expanded(peak, nonTerminals + index);
+		return index;
+	}
+
+	// Parses into a FlatParseTree: the same PDA, but over a primitive stack, with nodes only
+	// created as they are popped, which numbers them in depth first order
+	public static FlatParseTree parseFlat(TokenBuffer tokens) throws SyntaxException {
+		FlatParseTree result = new FlatParseTree(tokens, tokens.size() * 3);
+		try {
+			parseFlat(tokens.cursor(), result);
+		} catch (LexicalException e) {
+			// A buffer has already been fully lexed
+			throw new IllegalStateException(e);
 		}
+		return result;
+	}
 
+	public static FlatParseTree parseFlat(List<Token> tokens) throws SyntaxException {
+		FlatParseTree result = new FlatParseTree(tokens, tokens.size() * 3);
+		try {
+			parseFlat(TokenCursor.of(TokenStream.of(tokens)), result);
+		} catch (LexicalException e) {
+			// A stream over an already lexed list never fails to produce a token
+			throw new IllegalStateException(e);
+		}
 		return result;
 	}
 
-	private static void PopulateParseTable() {
-		for (TreeNode.Label label : TreeNode.Label.values()) {
-            parseTable.put(label, new HashMap<>());
-        }
-
-		// prog
-		parseTable.get(TreeNode.Label.prog).put(Token.TokenType.PUBLIC, new ArrayList<Symbol>(Arrays.asList(
-			Token.TokenType.RBRACE,
-			Token.TokenType.RBRACE,
-			TreeNode.Label.los,
-			Token.TokenType.LBRACE,
-			Token.TokenType.RPAREN,
-			Token.TokenType.ARGS,
-			Token.TokenType.STRINGARR,
-			Token.TokenType.LPAREN,
-			Token.TokenType.MAIN,
-			Token.TokenType.VOID,
-			Token.TokenType.STATIC,
-			Token.TokenType.PUBLIC,
-			Token.TokenType.LBRACE,
-			Token.TokenType.ID,
-			Token.TokenType.CLASS,
-			Token.TokenType.PUBLIC
-		)));
-
-		// los
-		parseTable.get(TreeNode.Label.los).put(Token.TokenType.WHILE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.los, TreeNode.Label.stat)));
-		parseTable.get(TreeNode.Label.los).put(Token.TokenType.FOR, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.los, TreeNode.Label.stat)));
-		parseTable.get(TreeNode.Label.los).put(Token.TokenType.IF, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.los, TreeNode.Label.stat)));
-		parseTable.get(TreeNode.Label.los).put(Token.TokenType.ID, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.los, TreeNode.Label.stat)));
-		parseTable.get(TreeNode.Label.los).put(Token.TokenType.TYPE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.los, TreeNode.Label.stat)));
-		parseTable.get(TreeNode.Label.los).put(Token.TokenType.PRINT, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.los, TreeNode.Label.stat)));
-		parseTable.get(TreeNode.Label.los).put(Token.TokenType.SEMICOLON, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.los, TreeNode.Label.stat)));
-		parseTable.get(TreeNode.Label.los).put(Token.TokenType.RBRACE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-
-		// stat
-		parseTable.get(TreeNode.Label.stat).put(Token.TokenType.ID, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.SEMICOLON, TreeNode.Label.assign)));
-		parseTable.get(TreeNode.Label.stat).put(Token.TokenType.PRINT, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.SEMICOLON, TreeNode.Label.print)));
-		parseTable.get(TreeNode.Label.stat).put(Token.TokenType.TYPE, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.SEMICOLON, TreeNode.Label.decl)));
-		parseTable.get(TreeNode.Label.stat).put(Token.TokenType.IF, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.ifstat)));
-		parseTable.get(TreeNode.Label.stat).put(Token.TokenType.FOR, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.forstat)));
-		parseTable.get(TreeNode.Label.stat).put(Token.TokenType.WHILE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.whilestat)));
-		parseTable.get(TreeNode.Label.stat).put(Token.TokenType.SEMICOLON, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.SEMICOLON)));
-
-		// while
-		parseTable.get(TreeNode.Label.whilestat).put(Token.TokenType.WHILE, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.RBRACE, TreeNode.Label.los, Token.TokenType.LBRACE, Token.TokenType.RPAREN, TreeNode.Label.boolexpr, TreeNode.Label.relexpr, Token.TokenType.LPAREN, Token.TokenType.WHILE)));
-
-		// for
-		parseTable.get(TreeNode.Label.forstat).put(Token.TokenType.FOR, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.RBRACE, TreeNode.Label.los, Token.TokenType.LBRACE, Token.TokenType.RPAREN, TreeNode.Label.forarith, Token.TokenType.SEMICOLON, TreeNode.Label.boolexpr, TreeNode.Label.relexpr, Token.TokenType.SEMICOLON, TreeNode.Label.forstart, Token.TokenType.LPAREN, Token.TokenType.FOR)));
-
-		// for start
-		parseTable.get(TreeNode.Label.forstart).put(Token.TokenType.ID, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.assign)));
-		parseTable.get(TreeNode.Label.forstart).put(Token.TokenType.TYPE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.decl)));
-		parseTable.get(TreeNode.Label.forstart).put(Token.TokenType.SEMICOLON, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-
-		// for arith
-		parseTable.get(TreeNode.Label.forarith).put(Token.TokenType.LBRACE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.arithexpr)));
-		parseTable.get(TreeNode.Label.forarith).put(Token.TokenType.ID, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.arithexpr)));
-		parseTable.get(TreeNode.Label.forarith).put(Token.TokenType.NUM, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.arithexpr)));
-		parseTable.get(TreeNode.Label.forarith).put(Token.TokenType.RPAREN, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-
-		// if
-		parseTable.get(TreeNode.Label.ifstat).put(Token.TokenType.IF, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.elseifstat, Token.TokenType.RBRACE, TreeNode.Label.los, Token.TokenType.LBRACE, Token.TokenType.RPAREN, TreeNode.Label.boolexpr, TreeNode.Label.relexpr, Token.TokenType.LPAREN, Token.TokenType.IF)));
-
-		// else if
-		parseTable.get(TreeNode.Label.elseifstat).put(Token.TokenType.ID, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.elseifstat).put(Token.TokenType.TYPE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.elseifstat).put(Token.TokenType.PRINT, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.elseifstat).put(Token.TokenType.FOR, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.elseifstat).put(Token.TokenType.WHILE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.elseifstat).put(Token.TokenType.SEMICOLON, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.elseifstat).put(Token.TokenType.RBRACE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.elseifstat).put(Token.TokenType.ELSE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.elseifstat, Token.TokenType.RBRACE, TreeNode.Label.los, Token.TokenType.LBRACE, TreeNode.Label.elseorelseif)));
-
-		// else or else if
-		parseTable.get(TreeNode.Label.elseorelseif).put(Token.TokenType.ELSE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.possif, Token.TokenType.ELSE)));
-
-		// poss if
-		parseTable.get(TreeNode.Label.possif).put(Token.TokenType.IF, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.RPAREN, TreeNode.Label.boolexpr, TreeNode.Label.relexpr, Token.TokenType.LPAREN, Token.TokenType.IF)));
-		parseTable.get(TreeNode.Label.possif).put(Token.TokenType.LBRACE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-
-		// assign
-		parseTable.get(TreeNode.Label.assign).put(Token.TokenType.ID, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.expr, Token.TokenType.ASSIGN, Token.TokenType.ID)));
-
-		// decl
-		parseTable.get(TreeNode.Label.decl).put(Token.TokenType.TYPE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.possassign, Token.TokenType.ID, TreeNode.Label.type)));
-
-		// pos assign
-		parseTable.get(TreeNode.Label.possassign).put(Token.TokenType.ASSIGN, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.expr, Token.TokenType.ASSIGN)));
-		parseTable.get(TreeNode.Label.possassign).put(Token.TokenType.SEMICOLON, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-
-		// print
-		parseTable.get(TreeNode.Label.print).put(Token.TokenType.PRINT, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.RPAREN, TreeNode.Label.printexpr, Token.TokenType.LPAREN, Token.TokenType.PRINT)));
-
-		// type
-		parseTable.get(TreeNode.Label.type).put(Token.TokenType.TYPE, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.TYPE)));
-
-		// expr
-		parseTable.get(TreeNode.Label.expr).put(Token.TokenType.TRUE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.boolexpr, TreeNode.Label.relexpr)));
-		parseTable.get(TreeNode.Label.expr).put(Token.TokenType.FALSE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.boolexpr, TreeNode.Label.relexpr)));
-		parseTable.get(TreeNode.Label.expr).put(Token.TokenType.LBRACE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.boolexpr, TreeNode.Label.relexpr)));
-		parseTable.get(TreeNode.Label.expr).put(Token.TokenType.ID, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.boolexpr, TreeNode.Label.relexpr)));
-		parseTable.get(TreeNode.Label.expr).put(Token.TokenType.NUM, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.boolexpr, TreeNode.Label.relexpr)));
-		parseTable.get(TreeNode.Label.expr).put(Token.TokenType.SQUOTE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.charexpr)));
-
-		// char expr
-		parseTable.get(TreeNode.Label.charexpr).put(Token.TokenType.SQUOTE, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.SQUOTE, Token.TokenType.CHARLIT, Token.TokenType.SQUOTE)));
-
-		// bool expr
-		parseTable.get(TreeNode.Label.boolexpr).put(Token.TokenType.AND, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.boolexpr, TreeNode.Label.relexpr, TreeNode.Label.boolop)));
-		parseTable.get(TreeNode.Label.boolexpr).put(Token.TokenType.OR, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.boolexpr, TreeNode.Label.relexpr, TreeNode.Label.boolop)));
-		parseTable.get(TreeNode.Label.boolexpr).put(Token.TokenType.EQUAL, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.boolexpr, TreeNode.Label.relexpr, TreeNode.Label.boolop)));
-		parseTable.get(TreeNode.Label.boolexpr).put(Token.TokenType.NEQUAL, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.boolexpr, TreeNode.Label.relexpr, TreeNode.Label.boolop)));
-		parseTable.get(TreeNode.Label.boolexpr).put(Token.TokenType.SEMICOLON, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.boolexpr).put(Token.TokenType.RPAREN, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-
-		// bool op
-		parseTable.get(TreeNode.Label.boolop).put(Token.TokenType.EQUAL, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.booleq)));
-		parseTable.get(TreeNode.Label.boolop).put(Token.TokenType.NEQUAL, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.booleq)));
-		parseTable.get(TreeNode.Label.boolop).put(Token.TokenType.AND, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.boollog)));
-		parseTable.get(TreeNode.Label.boolop).put(Token.TokenType.OR, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.boollog)));
-
-		// bool eq
-		parseTable.get(TreeNode.Label.booleq).put(Token.TokenType.EQUAL, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.EQUAL)));
-		parseTable.get(TreeNode.Label.booleq).put(Token.TokenType.NEQUAL, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.NEQUAL)));
-
-		// bool log
-		parseTable.get(TreeNode.Label.booleq).put(Token.TokenType.AND, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.AND)));
-		parseTable.get(TreeNode.Label.booleq).put(Token.TokenType.OR, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.OR)));
-
-		// rel expr
-		parseTable.get(TreeNode.Label.relexpr).put(Token.TokenType.TRUE, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.TRUE)));
-		parseTable.get(TreeNode.Label.relexpr).put(Token.TokenType.FALSE, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.FALSE)));
-		parseTable.get(TreeNode.Label.relexpr).put(Token.TokenType.ID, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.relexprprime, TreeNode.Label.arithexpr)));
-		parseTable.get(TreeNode.Label.relexpr).put(Token.TokenType.LPAREN, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.relexprprime, TreeNode.Label.arithexpr)));
-		parseTable.get(TreeNode.Label.relexpr).put(Token.TokenType.NUM, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.relexprprime, TreeNode.Label.arithexpr)));
-
-		// rel expr'
-		parseTable.get(TreeNode.Label.relexprprime).put(Token.TokenType.GE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.arithexpr, TreeNode.Label.relop)));
-		parseTable.get(TreeNode.Label.relexprprime).put(Token.TokenType.GT, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.arithexpr, TreeNode.Label.relop)));
-		parseTable.get(TreeNode.Label.relexprprime).put(Token.TokenType.LE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.arithexpr, TreeNode.Label.relop)));
-		parseTable.get(TreeNode.Label.relexprprime).put(Token.TokenType.LT, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.arithexpr, TreeNode.Label.relop)));
-		parseTable.get(TreeNode.Label.relexprprime).put(Token.TokenType.AND, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.relexprprime).put(Token.TokenType.OR, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.relexprprime).put(Token.TokenType.EQUAL, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.relexprprime).put(Token.TokenType.NEQUAL, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.relexprprime).put(Token.TokenType.SEMICOLON, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.relexprprime).put(Token.TokenType.RPAREN, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-
-		// rel op
-		parseTable.get(TreeNode.Label.relop).put(Token.TokenType.GE, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.GE)));
-		parseTable.get(TreeNode.Label.relop).put(Token.TokenType.GT, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.GT)));
-		parseTable.get(TreeNode.Label.relop).put(Token.TokenType.LE, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.LE)));
-		parseTable.get(TreeNode.Label.relop).put(Token.TokenType.LT, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.LT)));
-
-		// arith expr
-		parseTable.get(TreeNode.Label.arithexpr).put(Token.TokenType.LPAREN, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.arithexprprime, TreeNode.Label.term)));
-		parseTable.get(TreeNode.Label.arithexpr).put(Token.TokenType.ID, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.arithexprprime, TreeNode.Label.term)));
-		parseTable.get(TreeNode.Label.arithexpr).put(Token.TokenType.NUM, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.arithexprprime, TreeNode.Label.term)));
-
-		// arith expr'
-		parseTable.get(TreeNode.Label.arithexprprime).put(Token.TokenType.PLUS, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.arithexprprime, TreeNode.Label.term, Token.TokenType.PLUS)));
-		parseTable.get(TreeNode.Label.arithexprprime).put(Token.TokenType.MINUS, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.arithexprprime, TreeNode.Label.term, Token.TokenType.MINUS)));
-		parseTable.get(TreeNode.Label.arithexprprime).put(Token.TokenType.LPAREN, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.arithexprprime).put(Token.TokenType.ID, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.arithexprprime).put(Token.TokenType.GE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.arithexprprime).put(Token.TokenType.GT, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.arithexprprime).put(Token.TokenType.LE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.arithexprprime).put(Token.TokenType.LT, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.arithexprprime).put(Token.TokenType.AND, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.arithexprprime).put(Token.TokenType.OR, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.arithexprprime).put(Token.TokenType.EQUAL, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.arithexprprime).put(Token.TokenType.NEQUAL, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.arithexprprime).put(Token.TokenType.SEMICOLON, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.arithexprprime).put(Token.TokenType.RPAREN, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-
-		// term
-		parseTable.get(TreeNode.Label.term).put(Token.TokenType.ID, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.termprime, TreeNode.Label.factor)));
-		parseTable.get(TreeNode.Label.term).put(Token.TokenType.LPAREN, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.termprime, TreeNode.Label.factor)));
-		parseTable.get(TreeNode.Label.term).put(Token.TokenType.NUM, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.termprime, TreeNode.Label.factor)));
-
-		// term'
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.TIMES, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.termprime, TreeNode.Label.factor, Token.TokenType.TIMES)));
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.DIVIDE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.termprime, TreeNode.Label.factor, Token.TokenType.DIVIDE)));
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.MOD, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.termprime, TreeNode.Label.factor, Token.TokenType.MOD)));
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.LPAREN, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.ID, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.NUM, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.PLUS, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.MINUS, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.GE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.GT, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.LE, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.LT, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.OR, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.AND, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.EQUAL, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.NEQUAL, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.RPAREN, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-		parseTable.get(TreeNode.Label.termprime).put(Token.TokenType.SEMICOLON, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.epsilon)));
-
-		// factor
-		parseTable.get(TreeNode.Label.factor).put(Token.TokenType.LPAREN, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.RPAREN, TreeNode.Label.arithexpr, Token.TokenType.LPAREN)));
-		parseTable.get(TreeNode.Label.factor).put(Token.TokenType.ID, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.ID)));
-		parseTable.get(TreeNode.Label.factor).put(Token.TokenType.NUM, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.NUM)));
-
-		// print expr
-		parseTable.get(TreeNode.Label.printexpr).put(Token.TokenType.LPAREN, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.boolexpr, TreeNode.Label.relexpr)));
-		parseTable.get(TreeNode.Label.printexpr).put(Token.TokenType.ID, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.boolexpr, TreeNode.Label.relexpr)));
-		parseTable.get(TreeNode.Label.printexpr).put(Token.TokenType.NUM, new ArrayList<Symbol>(Arrays.asList(TreeNode.Label.boolexpr, TreeNode.Label.relexpr)));
-		parseTable.get(TreeNode.Label.printexpr).put(Token.TokenType.DQUOTE, new ArrayList<Symbol>(Arrays.asList(Token.TokenType.DQUOTE, Token.TokenType.STRINGLIT, Token.TokenType.DQUOTE)));
+	private static void parseFlat(TokenCursor tokens, FlatParseTree result) throws SyntaxException, LexicalException {
+		ParseMetrics metrics = ParseMetrics.active();
+		long start = metrics == null ? 0 : System.nanoTime();
+		try {
+			int index = parseFlat(tokens, result, metrics);
+			if (metrics != null)
+				metrics.parsed(System.nanoTime() - start, index);
+		} catch (SyntaxException e) {
+			if (metrics != null)
+				metrics.failed(e);
+			throw e;
+		}
 	}
-}
 
+	// Returns the number of tokens parsed
+	private static int parseFlat(TokenCursor tokens, FlatParseTree result, ParseMetrics metrics) throws SyntaxException, LexicalException {
+		int index = 0;
+		Token.TokenType lookahead = tokens.next();
+
+		// The stack holds pairs of an encoded symbol and the node it will be a child of
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = ParseTable.encode(TreeNode.Label.prog);
+		stack[top++] = -1;
+		int peak = top;
+
+		while (top > 0 && lookahead != null) {
+			int parent = stack[--top];
+			int symbol = stack[--top];
+
+			if (ParseTable.isTerminal(symbol)) {
+				Token.TokenType expected = ParseTable.typeOf(symbol);
+				if (expected != lookahead) {
+					throw new SyntaxException(SyntaxException.Reason.MISMATCH, "Mismatch between expected terminal " + expected + " and actual: " + lookahead);
+				}
+				result.addNode(TreeNode.Label.terminal, parent, index);
+				index++;
+				lookahead = tokens.next();
+			}
+			else {
+				TreeNode.Label label = ParseTable.labelOf(symbol);
+				int node = result.addNode(label, parent, -1);
+				if (label == TreeNode.Label.epsilon) {
+					continue;
+				}
+				int[] symbolsToPush = ParseTable.production(symbol, lookahead.ordinal());
+				if (symbolsToPush == null) {
+					throw new SyntaxException(SyntaxException.Reason.NO_PRODUCTION, "Entry not in table, cant have this production rule " + label + " with this terminal " + lookahead + " ");
+				}
+				if (top + 2 * symbolsToPush.length > stack.length) {
+					stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + 2 * symbolsToPush.length));
+				}
+				for (int symbolToPush : symbolsToPush) {
+					stack[top++] = symbolToPush;
+					stack[top++] = node;
+				}
+				if (top > peak) {
+					peak = top;
+				}
+			}
+		}
+
+		if (lookahead != null) {
+			throw leftoverTokens(index, tokens);
+		}
+		if (top > 0) {
+			throw new SyntaxException(SyntaxException.Reason.OUT_OF_TOKENS, "Run out of tokens but there's still symbols in the stack, substitution to be done!");
+		}
+		result.trim();
+		if (metrics != null) {
+			// Two ints per symbol on this stack
+			metrics.expanded(peak / 2, result.size());
+		}
+		return index;
+	}
+
+	// Added to a label's ordinal to mark the end of its children on expand's stack
+	private static final int EXIT = ParseTable.LABELS.length;
+
+	// What validate returns for a valid program
+	public static final int VALID = -1;
+
+	// Checks that the tokens form a valid program without building a tree: the PDA runs over a
+	// primitive stack of encoded symbols and nothing is allocated per token. Returns VALID, or
+	// the index of the token the first error is at (the number of tokens if the input ran out)
+	public static int validate(TokenBuffer tokens) {
+		try {
+			return validate(tokens.cursor());
+		} catch (LexicalException e) {
+			// A buffer has already been fully lexed
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static int validate(List<Token> tokens) {
+		try {
+			return validate(TokenCursor.of(TokenStream.of(tokens)));
+		} catch (LexicalException e) {
+			// A stream over an already lexed list never fails to produce a token
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Lexes and validates in one pass, without creating any Tokens
+	public static int validate(CharSequence sourceCode) throws LexicalException {
+		return validate(new LexingTokenStream(sourceCode).cursor());
+	}
+
+	// As above, from a memory mapping of the file. No word is ever decoded
+	public static int validate(Path sourceFile) throws LexicalException, IOException {
+		return validate(new MappedTokenStream(sourceFile).cursor());
+	}
+
+	public static boolean recognize(TokenBuffer tokens) {
+		return validate(tokens) == VALID;
+	}
+
+	public static boolean recognize(CharSequence sourceCode) throws LexicalException {
+		return validate(sourceCode) == VALID;
+	}
+
+	private static int validate(TokenCursor tokens) throws LexicalException {
+		int index = 0;
+		Token.TokenType lookahead = tokens.next();
+
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = ParseTable.encode(TreeNode.Label.prog);
+		int epsilon = ParseTable.encode(TreeNode.Label.epsilon);
+
+		while (top > 0 && lookahead != null) {
+			int symbol = stack[--top];
+			if (ParseTable.isTerminal(symbol)) {
+				if (ParseTable.typeOf(symbol) != lookahead) {
+					return index;
+				}
+				index++;
+				lookahead = tokens.next();
+			}
+			else if (symbol != epsilon) {
+				int[] symbolsToPush = ParseTable.production(symbol, lookahead.ordinal());
+				if (symbolsToPush == null) {
+					return index;
+				}
+				if (top + symbolsToPush.length > stack.length) {
+					stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + symbolsToPush.length));
+				}
+				System.arraycopy(symbolsToPush, 0, stack, top, symbolsToPush.length);
+				top += symbolsToPush.length;
+			}
+		}
+
+		// Either tokens are left over or the stack is, and either way the error is at index
+		return lookahead == null && top == 0 ? VALID : index;
+	}
+
+	// Checks the tokens in diagnostics mode, see Diagnostics
+	public static Diagnostics diagnose(TokenBuffer tokens) {
+		List<Diagnostic> errors = new ArrayList<Diagnostic>();
+		try {
+			return new Diagnostics(errors, diagnose(tokens.cursor(), errors));
+		} catch (LexicalException e) {
+			// A buffer has already been fully lexed
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static Diagnostics diagnose(List<Token> tokens) {
+		List<Diagnostic> errors = new ArrayList<Diagnostic>();
+		try {
+			return new Diagnostics(errors, diagnose(TokenCursor.of(TokenStream.of(tokens)), errors));
+		} catch (LexicalException e) {
+			// A stream over an already lexed list never fails to produce a token
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// The PDA over a primitive stack again, but recording each error in errors and recovering
+	// from it rather than throwing. Returns the number of tokens read
+	static int diagnose(TokenCursor tokens, List<Diagnostic> errors) throws LexicalException {
+		int index = 0;
+		Token.TokenType lookahead = tokens.next();
+
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = ParseTable.encode(TreeNode.Label.prog);
 
+		// Where parsing last resumed after an error, and whether recovery ran off the end
+		int resumedAt = -1;
+		boolean skippedToEnd = false;
+
+		while (top > 0 && lookahead != null) {
+			int symbol = stack[--top];
+
+			if (ParseTable.isTerminal(symbol)) {
+				Token.TokenType expected = ParseTable.typeOf(symbol);
+				if (expected == lookahead) {
+					index++;
+					lookahead = tokens.next();
+					continue;
+				}
+				errors.add(syntaxError(index, lookahead, symbol, "Mismatch between expected terminal " + expected + " and actual: " + lookahead));
+			}
+			else {
+				TreeNode.Label label = ParseTable.labelOf(symbol);
+				if (label == TreeNode.Label.epsilon) {
+					continue;
+				}
+				int[] symbolsToPush = ParseTable.production(symbol, lookahead.ordinal());
+				if (symbolsToPush != null) {
+					if (top + symbolsToPush.length > stack.length) {
+						stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + symbolsToPush.length));
+					}
+					for (int symbolToPush : symbolsToPush) {
+						stack[top++] = symbolToPush;
+					}
+					continue;
+				}
+				errors.add(syntaxError(index, lookahead, symbol, "Entry not in table, cant have this production rule " + label + " with this terminal " + lookahead + " "));
+			}
+
+			// Panic mode. The failed symbol goes back on the stack, as it may still be the one to
+			// accept the synchronising token. A second error without progress skips a token, so
+			// recovery always moves forward
+			stack[top++] = symbol;
+			if (index == resumedAt) {
+				index++;
+				lookahead = tokens.next();
+			}
+			while (lookahead != null) {
+				if (lookahead == Token.TokenType.SEMICOLON || lookahead == Token.TokenType.RBRACE) {
+					int acceptor = acceptor(stack, top, lookahead);
+					if (acceptor != -1) {
+						top = acceptor + 1;
+						break;
+					}
+				}
+				index++;
+				lookahead = tokens.next();
+			}
+			resumedAt = index;
+			skippedToEnd = lookahead == null;
+		}
+
+		if (lookahead != null) {
+			int at = errors.size();
+			int size = index;
+			while (tokens.next() != null) {
+				size++;
+			}
+			errors.add(at, new Diagnostic(Diagnostic.Kind.SYNTAX, index, lookahead, EnumSet.noneOf(Token.TokenType.class), leftoverMessage(index, size)));
+			return size + 1;
+		}
+		// Running out of input while skipping only repeats the error that started the skip
+		if (top > 0 && !skippedToEnd) {
+			errors.add(syntaxError(index, null, stack[top - 1], "Run out of tokens but there's still symbols in the stack, substitution to be done!"));
+		}
+		return index;
+	}
+
+	// The depth of the stack symbol nearest the top that can accept type next, or -1
+	private static int acceptor(int[] stack, int top, Token.TokenType type) {
+		for (int i = top - 1; i >= 0; i--) {
+			int symbol = stack[i];
+			if (ParseTable.isTerminal(symbol) ? ParseTable.typeOf(symbol) == type
+					: ParseTable.labelOf(symbol) != TreeNode.Label.epsilon && ParseTable.production(symbol, type.ordinal()) != null) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static Diagnostic syntaxError(int index, Token.TokenType found, int symbol, String message) {
+		return new Diagnostic(Diagnostic.Kind.SYNTAX, index, found, ParseTable.lookaheads(symbol), message);
+	}
+
+	// The parse finished with tokens to spare: count them for the error message
+	static SyntaxException leftoverTokens(int index, TokenCursor tokens) throws LexicalException {
+		int size = index;
+		while (tokens.next() != null) {
+			size++;
+		}
+		return new SyntaxException(SyntaxException.Reason.LEFTOVER_TOKENS, leftoverMessage(index, size));
+	}
+
+	// index is the first token left over, size - 1 the last
+	private static String leftoverMessage(int index, int size) {
+		return "There's still stuff left in the token list!: " + index + " | " + size;
+	}
+}
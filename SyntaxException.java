@@ -1,8 +1,32 @@
 
+import java.util.Optional;
+
 public class SyntaxException extends Exception {
 
+	// Filling in the stack trace is most of the cost of throwing. Running with
+	// -Dsyntaxanalyser.stacklessExceptions=true leaves it out of both SyntaxException and
+	// LexicalException, for callers that only ever look at the message
+	static final boolean WRITABLE_STACK_TRACE = !Boolean.getBoolean("syntaxanalyser.stacklessExceptions");
+
+	// What went wrong: a terminal on the stack that does not match the token, a non terminal
+	// with no production for the token, input that ends too early, or input left after the program
+	public enum Reason {
+		MISMATCH, NO_PRODUCTION, OUT_OF_TOKENS, LEFTOVER_TOKENS
+	}
+
+	private final Reason reason;
+
 	public SyntaxException(String message) {
-		super(message);
+		this(null, message);
+	}
+
+	public SyntaxException(Reason reason, String message) {
+		super(message, null, true, WRITABLE_STACK_TRACE);
+		this.reason = reason;
+	}
+
+	public Optional<Reason> getReason() {
+		return Optional.ofNullable(this.reason);
 	}
 
 }
@@ -1,3 +1,4 @@
+import java.util.Objects;
 import java.util.Optional;
 
 public class Token {
@@ -14,25 +15,46 @@ public class Token {
 
 	};
 
+	// The symbol id of a token that was not interned
+	public static final int NO_SYMBOL = -1;
+
 	private TokenType type;
-	private Optional<String> value;
+	// Held as a plain String (null when unset) rather than an Optional, which would cost
+	// another object per token
+	private String value;
+	private int symbol = NO_SYMBOL;
 
 	public Token(TokenType type) {
 		this.type = type;
-		this.value = Optional.empty();
 	}
 
 	public Token(TokenType type, String value) {
 		this.type = type;
-		this.value = Optional.of(value);
+		this.value = Objects.requireNonNull(value);
+	}
+
+	// A token whose value was interned in a SymbolTable under the given id
+	public Token(TokenType type, String value, int symbol) {
+		this(type, value);
+		this.symbol = symbol;
 	}
 
 	public Optional<String> getValue() {
-		return this.value;
+		return Optional.ofNullable(this.value);
 	}
 
 	public void setValue(String newValue) {
-		this.value = Optional.of(newValue);
+		this.value = Objects.requireNonNull(newValue);
+	}
+
+	// The id of the value in the SymbolTable the token was lexed with, or NO_SYMBOL. Two tokens
+	// from the same table have the same value exactly when they have the same id
+	public int getSymbol() {
+		return this.symbol;
+	}
+
+	public void setSymbol(int symbol) {
+		this.symbol = symbol;
 	}
 
 	public TokenType getType() {
@@ -46,7 +68,7 @@ public class Token {
 		case NUM :
 		case CHARLIT :
 		case TYPE :
-		case STRINGLIT : return "[" + type + ": " + value + "]";
+		case STRINGLIT : return "[" + type + ": " + getValue() + "]";
 		default : return "[" + type + "]";
 		}
 	}
@@ -60,9 +82,7 @@ public class Token {
 		
 		if (t.type != this.type) return false;
 		
-		if (t.value == null || this.value == null) return t.value == this.value;
-		
-		return t.value.equals(this.value);
+		return Objects.equals(t.value, this.value);
 	}	
 
 }
@@ -0,0 +1,325 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+// A compact alternative to List<Token>: the type, start and end offset of every token are
+// kept in parallel primitive arrays over the original source, about 9 bytes per token instead
+// of a Token, an Optional and a String each. Lexemes are only cut out of the source when they
+// are asked for; tokens whose text is always the same share a constant.
+public class TokenBuffer {
+
+	private static final String[] FIXED_TEXT = new String[Token.TokenType.values().length];
+
+	static {
+		for (Token.TokenType type : Token.TokenType.values()) {
+			FIXED_TEXT[type.ordinal()] = fixedText(type);
+		}
+	}
+
+	private static final byte DQUOTE = (byte) Token.TokenType.DQUOTE.ordinal();
+	private static final byte SQUOTE = (byte) Token.TokenType.SQUOTE.ordinal();
+	private static final byte STRINGLIT = (byte) Token.TokenType.STRINGLIT.ordinal();
+	private static final byte CHARLIT = (byte) Token.TokenType.CHARLIT.ordinal();
+
+	private final CharSequence source;
+	private byte[] types;
+	private int[] starts;
+	private int[] ends;
+	// Only kept when the buffer was lexed with a SymbolTable
+	private final SymbolTable symbols;
+	private int[] symbolIds;
+	private int size = 0;
+
+	TokenBuffer(CharSequence source, int expectedTokens) {
+		this(source, expectedTokens, null);
+	}
+
+	TokenBuffer(CharSequence source, int expectedTokens, SymbolTable symbols) {
+		this.source = source;
+		this.symbols = symbols;
+		int capacity = Math.max(expectedTokens, 16);
+		this.types = new byte[capacity];
+		this.starts = new int[capacity];
+		this.ends = new int[capacity];
+		if (symbols != null) {
+			this.symbolIds = new int[capacity];
+		}
+	}
+
+	void add(Token.TokenType type, int start, int end) {
+		add(type, start, end, Token.NO_SYMBOL);
+	}
+
+	void add(Token.TokenType type, int start, int end, int symbol) {
+		if (size == types.length) {
+			int capacity = size + (size >> 1);
+			types = Arrays.copyOf(types, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			if (symbolIds != null) {
+				symbolIds = Arrays.copyOf(symbolIds, capacity);
+			}
+		}
+		types[size] = (byte) type.ordinal();
+		starts[size] = start;
+		ends[size] = end;
+		if (symbolIds != null) {
+			symbolIds[size] = symbol;
+		}
+		size++;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public CharSequence getSource() {
+		return this.source;
+	}
+
+	public Token.TokenType getType(int index) {
+		return ParseTable.TYPES[types[checkIndex(index)]];
+	}
+
+	public int getStart(int index) {
+		return starts[checkIndex(index)];
+	}
+
+	public int getEnd(int index) {
+		return ends[checkIndex(index)];
+	}
+
+	// The text of the token. Only ID, NUM, CHARLIT, STRINGLIT and TYPE tokens (and delimiters
+	// inside literals) allocate a new String; everything else returns a shared constant, and
+	// interned tokens return their symbol's name
+	public String getLexeme(int index) {
+		checkIndex(index);
+		String fixed = FIXED_TEXT[types[index]];
+		if (fixed != null) {
+			return fixed;
+		}
+		if (symbolIds != null && symbolIds[index] != Token.NO_SYMBOL) {
+			return symbols.getName(symbolIds[index]);
+		}
+		return source.subSequence(starts[index], ends[index]).toString();
+	}
+
+	// The symbol id of the token, or Token.NO_SYMBOL if it was not interned
+	public int getSymbol(int index) {
+		checkIndex(index);
+		return symbolIds == null ? Token.NO_SYMBOL : symbolIds[index];
+	}
+
+	public Optional<SymbolTable> getSymbols() {
+		return Optional.ofNullable(this.symbols);
+	}
+
+	public Token getToken(int index) {
+		return new Token(getType(index), getLexeme(index), getSymbol(index));
+	}
+
+	public List<Token> toList() {
+		List<Token> result = new ArrayList<Token>(size);
+		for (int i = 0; i < size; i++) {
+			result.add(getToken(i));
+		}
+		return result;
+	}
+
+	// The index of the first token ending at or after offset, or size() if there is none
+	int firstEndingAtOrAfter(int offset) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (ends[mid] < offset)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	// The lexer's quote state just before the token at index (0 outside literals, 1 in a string,
+	// 2 in a char literal). Only tokens lexed inside a literal are STRINGLIT or CHARLIT, so the
+	// state is known after the nearest token that is not a quote, and only the quotes between
+	// that token and index need replaying
+	int quoteStateBefore(int index) {
+		int from = index - 1;
+		while (from >= 0 && (types[from] == DQUOTE || types[from] == SQUOTE)) {
+			from--;
+		}
+		int state = 0;
+		if (from >= 0 && types[from] == STRINGLIT) {
+			state = 1;
+		}
+		else if (from >= 0 && types[from] == CHARLIT) {
+			state = 2;
+		}
+		for (int i = from + 1; i < index; i++) {
+			if (types[i] == DQUOTE) {
+				state = state == 1 ? 0 : 1;
+			}
+			else {
+				state = state == 2 ? 0 : 2;
+			}
+		}
+		return state;
+	}
+
+	// A copy of this buffer over newSource, with the tokens in [from, to) replaced by those in
+	// replacement and the offsets of the tokens after them moved by delta. Symbol ids are not
+	// carried over: only IncrementalParser splices, and it lexes without a SymbolTable
+	TokenBuffer splice(CharSequence newSource, int from, int to, TokenBuffer replacement, int delta) {
+		int newSize = size - (to - from) + replacement.size;
+		TokenBuffer result = new TokenBuffer(newSource, newSize);
+		System.arraycopy(types, 0, result.types, 0, from);
+		System.arraycopy(starts, 0, result.starts, 0, from);
+		System.arraycopy(ends, 0, result.ends, 0, from);
+		System.arraycopy(replacement.types, 0, result.types, from, replacement.size);
+		System.arraycopy(replacement.starts, 0, result.starts, from, replacement.size);
+		System.arraycopy(replacement.ends, 0, result.ends, from, replacement.size);
+		int shift = replacement.size - (to - from);
+		System.arraycopy(types, to, result.types, to + shift, size - to);
+		for (int i = to; i < size; i++) {
+			result.starts[i + shift] = starts[i] + delta;
+			result.ends[i + shift] = ends[i] + delta;
+		}
+		result.size = newSize;
+		return result;
+	}
+
+	// Copies this buffer's tokens into target from index at on, which must have room for them.
+	// Symbol ids are translated through symbolMap when there is one. Separate ranges of target
+	// can be filled in concurrently
+	void copyTo(TokenBuffer target, int at, int[] symbolMap) {
+		System.arraycopy(types, 0, target.types, at, size);
+		System.arraycopy(starts, 0, target.starts, at, size);
+		System.arraycopy(ends, 0, target.ends, at, size);
+		if (target.symbolIds == null) {
+			return;
+		}
+		for (int i = 0; i < size; i++) {
+			int symbol = symbolIds == null ? Token.NO_SYMBOL : symbolIds[i];
+			target.symbolIds[at + i] = symbol == Token.NO_SYMBOL || symbolMap == null ? symbol : symbolMap[symbol];
+		}
+	}
+
+	// Takes the first size tokens as filled in, by copyTo
+	void setSize(int size) {
+		this.size = size;
+	}
+
+	TokenCursor cursor() {
+		return cursor(0);
+	}
+
+	// A cursor whose first call to next() returns the token at start
+	TokenCursor cursor(int start) {
+		return new TokenCursor() {
+			private int index = start - 1;
+
+			@Override
+			public Token.TokenType next() {
+				index++;
+				return current();
+			}
+
+			@Override
+			public Token.TokenType current() {
+				return index < size ? ParseTable.TYPES[types[index]] : null;
+			}
+
+			@Override
+			public String value() {
+				return getLexeme(index);
+			}
+
+			@Override
+			public int symbol() {
+				return symbolIds == null ? Token.NO_SYMBOL : symbolIds[index];
+			}
+		};
+	}
+
+	// A cursor over the tokens in [start, end) only, as if the buffer ended at end, which jumps
+	// straight from skipFrom to skipTo as if the tokens between them were not there
+	TokenCursor cursor(int start, int end, int skipFrom, int skipTo) {
+		return new TokenCursor() {
+			private int index = start - 1;
+
+			@Override
+			public Token.TokenType next() {
+				index++;
+				if (index == skipFrom) {
+					index = skipTo;
+				}
+				return current();
+			}
+
+			@Override
+			public Token.TokenType current() {
+				return index < end ? ParseTable.TYPES[types[index]] : null;
+			}
+
+			@Override
+			public String value() {
+				return getLexeme(index);
+			}
+
+			@Override
+			public int symbol() {
+				return symbolIds == null ? Token.NO_SYMBOL : symbolIds[index];
+			}
+		};
+	}
+
+	private int checkIndex(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Token " + index + " of " + size);
+		return index;
+	}
+
+	// The text every token of this type has, or null for ID, NUM, CHARLIT, STRINGLIT and TYPE
+	static String fixedText(Token.TokenType type) {
+		switch (type) {
+		case PLUS: return "+";
+		case MINUS: return "-";
+		case TIMES: return "*";
+		case DIVIDE: return "/";
+		case MOD: return "%";
+		case ASSIGN: return "=";
+		case EQUAL: return "==";
+		case NEQUAL: return "!=";
+		case LT: return "<";
+		case LE: return "<=";
+		case GT: return ">";
+		case GE: return ">=";
+		case LPAREN: return "(";
+		case RPAREN: return ")";
+		case LBRACE: return "{";
+		case RBRACE: return "}";
+		case AND: return "&&";
+		case OR: return "||";
+		case SEMICOLON: return ";";
+		case PUBLIC: return "public";
+		case CLASS: return "class";
+		case STATIC: return "static";
+		case VOID: return "void";
+		case MAIN: return "main";
+		case STRINGARR: return "String[]";
+		case ARGS: return "args";
+		case PRINT: return "System.out.println";
+		case WHILE: return "while";
+		case FOR: return "for";
+		case IF: return "if";
+		case ELSE: return "else";
+		case DQUOTE: return "\"";
+		case SQUOTE: return "'";
+		case TRUE: return "true";
+		case FALSE: return "false";
+		default: return null;
+		}
+	}
+}
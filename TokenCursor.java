@@ -0,0 +1,47 @@
+
+// What the parser sees of its input: one token of lookahead at a time, as a type, with the
+// value only fetched when a terminal is actually matched. This lets the same PDA run over a
+// TokenStream of Token objects or straight over a TokenBuffer.
+interface TokenCursor {
+
+	// Moves to the next token and returns its type, or null at the end of the input
+	Token.TokenType next() throws LexicalException;
+
+	// The type of the token last returned by next(), or null at the end of the input
+	Token.TokenType current();
+
+	// The value of the token last returned by next()
+	String value();
+
+	// The symbol id of the token last returned by next(), or Token.NO_SYMBOL
+	default int symbol() {
+		return Token.NO_SYMBOL;
+	}
+
+	static TokenCursor of(TokenStream tokens) {
+		return new TokenCursor() {
+			private Token current;
+
+			@Override
+			public Token.TokenType next() throws LexicalException {
+				current = tokens.next();
+				return current == null ? null : current.getType();
+			}
+
+			@Override
+			public Token.TokenType current() {
+				return current == null ? null : current.getType();
+			}
+
+			@Override
+			public String value() {
+				return current.getValue().get();
+			}
+
+			@Override
+			public int symbol() {
+				return current.getSymbol();
+			}
+		};
+	}
+}
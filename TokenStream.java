@@ -0,0 +1,20 @@
+import java.util.List;
+
+// A pull based source of tokens. The parser only ever needs one token of lookahead, so it
+// can consume tokens as they are produced instead of waiting for the whole list.
+public interface TokenStream {
+
+	// Returns the next token, or null once the input is exhausted
+	Token next() throws LexicalException;
+
+	static TokenStream of(List<Token> tokens) {
+		return new TokenStream() {
+			private int index = 0;
+
+			@Override
+			public Token next() {
+				return index < tokens.size() ? tokens.get(index++) : null;
+			}
+		};
+	}
+}
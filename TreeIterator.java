@@ -0,0 +1,14 @@
+import java.util.Iterator;
+
+// An iterator over the nodes of a tree, from TreeWalker. The tree must not change while it is
+// being iterated over.
+public interface TreeIterator extends Iterator<TreeNode> {
+
+	// The depth of the node next() last returned, 0 for the node the iteration started at
+	int depth();
+
+	// Leaves out the descendants of the node next() last returned; it must come before the next
+	// call to hasNext() or next(). Post-order has returned them already, so it throws
+	// UnsupportedOperationException
+	void skipChildren();
+}
@@ -51,6 +51,10 @@ class TreeNode {
 		return this.parent;
 	}
 
+	void setParent(TreeNode parent) {
+		this.parent = parent;
+	}
+
 	public List<TreeNode> getChildren() {
 		return this.children;
 	}
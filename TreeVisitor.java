@@ -0,0 +1,19 @@
+
+// Called by TreeWalker.walk on the way into and out of every node of a tree, in depth first
+// order. depth is 0 for the node the walk started at. Each call says how the walk carries on:
+// SKIP_CHILDREN from enter goes straight to the node's exit without visiting its children (from
+// exit it is the same as CONTINUE), and STOP ends the walk there and then.
+public interface TreeVisitor {
+
+	enum Action {
+		CONTINUE, SKIP_CHILDREN, STOP
+	}
+
+	default Action enter(TreeNode node, int depth) {
+		return Action.CONTINUE;
+	}
+
+	default Action exit(TreeNode node, int depth) {
+		return Action.CONTINUE;
+	}
+}
@@ -0,0 +1,256 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Walks and iterates over trees without recursion. The grammar is right recursive, so a tree is
+// as deep as its longest statement list or operator chain, far deeper than the call stack can
+// recurse; these keep the nodes they are inside on a stack of their own instead. Depth first
+// orders hold one frame per level of depth, level-order holds the level it is on.
+public class TreeWalker {
+
+	// Calls visitor on the way into and out of every node under root. Returns false if the
+	// visitor stopped the walk, true if it ran to the end
+	public static boolean walk(TreeNode root, TreeVisitor visitor) {
+		if (root == null) {
+			return true;
+		}
+		Frames frames = new Frames();
+		TreeVisitor.Action action = visitor.enter(root, 0);
+		if (action == TreeVisitor.Action.STOP) {
+			return false;
+		}
+		frames.push(root, action == TreeVisitor.Action.SKIP_CHILDREN);
+
+		while (frames.top > 0) {
+			int depth = frames.top - 1;
+			TreeNode child = frames.nextChild();
+			if (child == null) {
+				if (visitor.exit(frames.pop(), depth) == TreeVisitor.Action.STOP) {
+					return false;
+				}
+				continue;
+			}
+			action = visitor.enter(child, depth + 1);
+			if (action == TreeVisitor.Action.STOP) {
+				return false;
+			}
+			frames.push(child, action == TreeVisitor.Action.SKIP_CHILDREN);
+		}
+		return true;
+	}
+
+	// Every node before its children, children in order
+	public static TreeIterator preOrder(TreeNode root) {
+		return new PreOrder(root);
+	}
+
+	// Every node after its children, children in order
+	public static TreeIterator postOrder(TreeNode root) {
+		return new PostOrder(root);
+	}
+
+	// Level by level from the root, each level in order
+	public static TreeIterator levelOrder(TreeNode root) {
+		return new LevelOrder(root);
+	}
+
+	// The nodes a depth first walk is inside, each with the index of its next child to visit
+	private static class Frames {
+
+		TreeNode[] nodes = new TreeNode[64];
+		int[] nextChildren = new int[64];
+		int top = 0;
+
+		// skip marks the frame as having no children left
+		void push(TreeNode node, boolean skip) {
+			if (top == nodes.length) {
+				nodes = Arrays.copyOf(nodes, top * 2);
+				nextChildren = Arrays.copyOf(nextChildren, top * 2);
+			}
+			nodes[top] = node;
+			nextChildren[top++] = skip ? Integer.MAX_VALUE : 0;
+		}
+
+		TreeNode pop() {
+			TreeNode node = nodes[--top];
+			nodes[top] = null;
+			return node;
+		}
+
+		// The next child of the top frame, or null once it has none left
+		TreeNode nextChild() {
+			int frame = top - 1;
+			List<TreeNode> children = nodes[frame].getChildren();
+			if (nextChildren[frame] >= children.size()) {
+				return null;
+			}
+			return children.get(nextChildren[frame]++);
+		}
+	}
+
+	private static class PreOrder implements TreeIterator {
+
+		private final Frames frames = new Frames();
+		private TreeNode root;
+		// The node last returned, whose children are only stacked once next() moves past it
+		private TreeNode last;
+		private boolean skip;
+		private int depth = -1;
+
+		PreOrder(TreeNode root) {
+			this.root = root;
+		}
+
+		@Override
+		public boolean hasNext() {
+			advance();
+			return root != null || frames.top > 0;
+		}
+
+		@Override
+		public TreeNode next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			if (root != null) {
+				last = root;
+				root = null;
+				depth = 0;
+				return last;
+			}
+			last = frames.nextChild();
+			depth = frames.top;
+			return last;
+		}
+
+		// Stacks the last node's children, then drops the frames with no children left, so the
+		// top frame, if any, has the next node
+		private void advance() {
+			if (last != null) {
+				frames.push(last, skip);
+				last = null;
+				skip = false;
+			}
+			while (frames.top > 0 && frames.nodes[frames.top - 1].getChildren().size() <= frames.nextChildren[frames.top - 1]) {
+				frames.pop();
+			}
+		}
+
+		@Override
+		public int depth() {
+			return this.depth;
+		}
+
+		@Override
+		public void skipChildren() {
+			if (last == null) {
+				throw new IllegalStateException("skipChildren must directly follow next()");
+			}
+			skip = true;
+		}
+	}
+
+	private static class PostOrder implements TreeIterator {
+
+		private final Frames frames = new Frames();
+		private int depth = -1;
+
+		PostOrder(TreeNode root) {
+			if (root != null) {
+				frames.push(root, false);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return frames.top > 0;
+		}
+
+		// Descends to the first node whose children have all been returned
+		@Override
+		public TreeNode next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			for (TreeNode child = frames.nextChild(); child != null; child = frames.nextChild()) {
+				frames.push(child, false);
+			}
+			depth = frames.top - 1;
+			return frames.pop();
+		}
+
+		@Override
+		public int depth() {
+			return this.depth;
+		}
+
+		@Override
+		public void skipChildren() {
+			throw new UnsupportedOperationException("Post-order returns children before their parent");
+		}
+	}
+
+	private static class LevelOrder implements TreeIterator {
+
+		private final ArrayDeque<TreeNode> queue = new ArrayDeque<TreeNode>();
+		private TreeNode last;
+		private boolean skip;
+		private int depth = -1;
+		// How many queued nodes are left on the current level, and how many are on the next
+		private int thisLevel;
+		private int nextLevel;
+
+		LevelOrder(TreeNode root) {
+			if (root != null) {
+				queue.add(root);
+				nextLevel = 1;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			advance();
+			return !queue.isEmpty();
+		}
+
+		@Override
+		public TreeNode next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			if (thisLevel == 0) {
+				depth++;
+				thisLevel = nextLevel;
+				nextLevel = 0;
+			}
+			thisLevel--;
+			last = queue.poll();
+			return last;
+		}
+
+		private void advance() {
+			if (last != null) {
+				if (!skip) {
+					queue.addAll(last.getChildren());
+					nextLevel += last.getChildren().size();
+				}
+				last = null;
+				skip = false;
+			}
+		}
+
+		@Override
+		public int depth() {
+			return this.depth;
+		}
+
+		@Override
+		public void skipChildren() {
+			if (last == null) {
+				throw new IllegalStateException("skipChildren must directly follow next()");
+			}
+			skip = true;
+		}
+	}
+}
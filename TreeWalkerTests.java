@@ -0,0 +1,215 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class TreeWalkerTests {
+
+	private static final int DEEP = 2_000_000;
+
+	//        prog
+	//      /      \
+	//    los      stat
+	//   /   \       |
+	// expr  term  factor
+	private static TreeNode small() {
+		TreeNode root = new TreeNode(TreeNode.Label.prog, null);
+		TreeNode los = child(root, TreeNode.Label.los);
+		TreeNode stat = child(root, TreeNode.Label.stat);
+		child(los, TreeNode.Label.expr);
+		child(los, TreeNode.Label.term);
+		child(stat, TreeNode.Label.factor);
+		return root;
+	}
+
+	private static TreeNode child(TreeNode parent, TreeNode.Label label) {
+		TreeNode child = new TreeNode(label, parent);
+		parent.addChild(child);
+		return child;
+	}
+
+	// A right leaning spine of los nodes, each with an epsilon on its left, like a long statement list
+	private static TreeNode deep() {
+		TreeNode root = new TreeNode(TreeNode.Label.los, null);
+		TreeNode node = root;
+		for (int i = 1; i < DEEP; i++) {
+			child(node, TreeNode.Label.epsilon);
+			node = child(node, TreeNode.Label.los);
+		}
+		return root;
+	}
+
+	private static String labels(TreeIterator nodes) {
+		StringBuilder sb = new StringBuilder();
+		while (nodes.hasNext()) {
+			TreeNode node = nodes.next();
+			sb.append(node.getLabel()).append(nodes.depth()).append(' ');
+		}
+		return sb.toString().trim();
+	}
+
+	@Test
+	public void testOrders() {
+		TreeNode root = small();
+		assertEquals("prog0 los1 expr2 term2 stat1 factor2", labels(TreeWalker.preOrder(root)));
+		assertEquals("expr2 term2 los1 factor2 stat1 prog0", labels(TreeWalker.postOrder(root)));
+		assertEquals("prog0 los1 stat1 expr2 term2 factor2", labels(TreeWalker.levelOrder(root)));
+
+		ParseTree empty = new ParseTree();
+		assertFalse(empty.preOrder().hasNext());
+		assertFalse(empty.postOrder().hasNext());
+		assertFalse(empty.levelOrder().hasNext());
+		assertTrue(empty.walk(new TreeVisitor() {}));
+		assertThrows(NoSuchElementException.class, () -> empty.preOrder().next());
+	}
+
+	@Test
+	public void testSkipChildren() {
+		TreeNode root = small();
+		TreeIterator preOrder = TreeWalker.preOrder(root);
+		List<TreeNode.Label> visited = new ArrayList<TreeNode.Label>();
+		while (preOrder.hasNext()) {
+			TreeNode node = preOrder.next();
+			visited.add(node.getLabel());
+			if (node.getLabel() == TreeNode.Label.los) {
+				preOrder.skipChildren();
+			}
+		}
+		assertEquals(List.of(TreeNode.Label.prog, TreeNode.Label.los, TreeNode.Label.stat, TreeNode.Label.factor), visited);
+
+		TreeIterator levelOrder = TreeWalker.levelOrder(root);
+		visited.clear();
+		while (levelOrder.hasNext()) {
+			TreeNode node = levelOrder.next();
+			visited.add(node.getLabel());
+			if (node.getLabel() == TreeNode.Label.stat) {
+				levelOrder.skipChildren();
+			}
+		}
+		assertEquals(List.of(TreeNode.Label.prog, TreeNode.Label.los, TreeNode.Label.stat, TreeNode.Label.expr, TreeNode.Label.term), visited);
+
+		TreeIterator postOrder = TreeWalker.postOrder(root);
+		postOrder.next();
+		assertThrows(UnsupportedOperationException.class, postOrder::skipChildren);
+		TreeIterator unstarted = TreeWalker.preOrder(root);
+		assertThrows(IllegalStateException.class, unstarted::skipChildren);
+	}
+
+	@Test
+	public void testVisitor() {
+		TreeNode root = small();
+		StringBuilder calls = new StringBuilder();
+		boolean finished = TreeWalker.walk(root, new TreeVisitor() {
+			@Override
+			public Action enter(TreeNode node, int depth) {
+				calls.append('+').append(node.getLabel()).append(depth).append(' ');
+				return node.getLabel() == TreeNode.Label.los ? Action.SKIP_CHILDREN : Action.CONTINUE;
+			}
+
+			@Override
+			public Action exit(TreeNode node, int depth) {
+				calls.append('-').append(node.getLabel()).append(depth).append(' ');
+				return Action.CONTINUE;
+			}
+		});
+		assertTrue(finished);
+		assertEquals("+prog0 +los1 -los1 +stat1 +factor2 -factor2 -stat1 -prog0", calls.toString().trim());
+
+		calls.setLength(0);
+		finished = TreeWalker.walk(root, new TreeVisitor() {
+			@Override
+			public Action enter(TreeNode node, int depth) {
+				calls.append('+').append(node.getLabel()).append(' ');
+				return Action.CONTINUE;
+			}
+
+			@Override
+			public Action exit(TreeNode node, int depth) {
+				calls.append('-').append(node.getLabel()).append(' ');
+				return node.getLabel() == TreeNode.Label.term ? Action.STOP : Action.CONTINUE;
+			}
+		});
+		assertFalse(finished);
+		assertEquals("+prog +los +expr -expr +term -term", calls.toString().trim());
+	}
+
+	// Every order visits every node of a parsed program once, pre-order in FlatParseTree's order
+	@Test
+	public void testParsedProgram() throws LexicalException, SyntaxException {
+		ProgramGenerator generator = new ProgramGenerator(20);
+		generator.setTargetTokens(5000);
+		TokenBuffer tokens = LexicalAnalyser.buffer(generator.generate());
+		ParseTree tree = SyntacticAnalyser.parse(tokens);
+		FlatParseTree flat = SyntacticAnalyser.parseFlat(tokens);
+
+		int index = 0;
+		for (TreeIterator nodes = tree.preOrder(); nodes.hasNext(); index++) {
+			assertEquals(flat.getLabel(index), nodes.next().getLabel());
+		}
+		assertEquals(flat.size(), index);
+		assertEquals(flat.size(), count(tree.postOrder()));
+		assertEquals(flat.size(), count(tree.levelOrder()));
+	}
+
+	@Test
+	public void testDeepTree() {
+		TreeNode root = deep();
+		int nodes = 2 * DEEP - 1;
+
+		TreeIterator preOrder = TreeWalker.preOrder(root);
+		int deepest = 0;
+		int count = 0;
+		while (preOrder.hasNext()) {
+			preOrder.next();
+			deepest = Math.max(deepest, preOrder.depth());
+			count++;
+		}
+		assertEquals(nodes, count);
+		assertEquals(DEEP - 1, deepest);
+
+		TreeIterator postOrder = TreeWalker.postOrder(root);
+		TreeNode first = postOrder.next();
+		assertEquals(TreeNode.Label.epsilon, first.getLabel());
+		assertEquals(1, postOrder.depth());
+		assertEquals(nodes, 1 + count(postOrder));
+
+		TreeIterator levelOrder = TreeWalker.levelOrder(root);
+		assertEquals(nodes, count(levelOrder));
+		assertEquals(DEEP - 1, levelOrder.depth());
+
+		int[] visits = new int[2];
+		assertTrue(TreeWalker.walk(root, new TreeVisitor() {
+			@Override
+			public Action enter(TreeNode node, int depth) {
+				visits[0]++;
+				return Action.CONTINUE;
+			}
+
+			@Override
+			public Action exit(TreeNode node, int depth) {
+				visits[1]++;
+				return Action.CONTINUE;
+			}
+		}));
+		assertEquals(nodes, visits[0]);
+		assertEquals(nodes, visits[1]);
+
+		// Stop at the bottom of the spine
+		assertFalse(TreeWalker.walk(root, new TreeVisitor() {
+			@Override
+			public Action enter(TreeNode node, int depth) {
+				return depth == DEEP - 1 ? Action.STOP : Action.CONTINUE;
+			}
+		}));
+	}
+
+	private static int count(TreeIterator nodes) {
+		int count = 0;
+		while (nodes.hasNext()) {
+			nodes.next();
+			count++;
+		}
+		return count;
+	}
+}
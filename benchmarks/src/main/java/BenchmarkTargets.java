@@ -0,0 +1,101 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import syntaxanalyzer.benchmarks.Targets;
+
+// The analyser side of syntaxanalyzer.benchmarks.Targets, see there
+public class BenchmarkTargets implements Targets {
+
+	@Override
+	public Object analyse(String source) throws LexicalException {
+		return LexicalAnalyser.analyse(source);
+	}
+
+	@Override
+	public Object buffer(String source) throws LexicalException {
+		return LexicalAnalyser.buffer(source);
+	}
+
+	@Override
+	public Object analyseParallel(String source) throws LexicalException {
+		return LexicalAnalyser.analyseParallel(source);
+	}
+
+	@Override
+	public Object bufferParallel(String source) throws LexicalException {
+		return LexicalAnalyser.bufferParallel(source);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Object parse(Object tokens) throws SyntaxException {
+		return SyntacticAnalyser.parse((List<Token>) tokens, SyntacticAnalyser.Engine.TABLE);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Object parseGenerated(Object tokens) throws SyntaxException {
+		return SyntacticAnalyser.parse((List<Token>) tokens, SyntacticAnalyser.Engine.GENERATED);
+	}
+
+	@Override
+	public Object parseBuffer(Object buffer) throws SyntaxException {
+		return SyntacticAnalyser.parse((TokenBuffer) buffer);
+	}
+
+	@Override
+	public Object parseParallel(Object buffer) throws SyntaxException {
+		return SyntacticAnalyser.parseParallel((TokenBuffer) buffer);
+	}
+
+	@Override
+	public Object parseFlat(Object buffer) throws SyntaxException {
+		return SyntacticAnalyser.parseFlat((TokenBuffer) buffer);
+	}
+
+	@Override
+	public Object parseAst(Object buffer) throws SyntaxException {
+		return SyntacticAnalyser.parseAst((TokenBuffer) buffer);
+	}
+
+	@Override
+	public int validate(Object buffer) {
+		return SyntacticAnalyser.validate((TokenBuffer) buffer);
+	}
+
+	@Override
+	public Object parseAll(List<String> sources, ForkJoinPool pool) {
+		return BatchParser.parseAll(sources, pool);
+	}
+
+	@Override
+	public String print(Object tree) {
+		return ((ParseTree) tree).toString();
+	}
+
+	@Override
+	public void write(Object tree, String format, Appendable out) throws IOException {
+		ParseTreeWriter.write((ParseTree) tree, out, ParseTreeWriter.Format.valueOf(format));
+	}
+
+	@Override
+	public byte[] writeBinary(Object tree) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryFormat.writeTree((ParseTree) tree, out);
+		return out.toByteArray();
+	}
+
+	@Override
+	public Object readBinary(byte[] bytes) throws IOException {
+		return BinaryFormat.readTree(new ByteArrayInputStream(bytes));
+	}
+
+	@Override
+	public Object mapBinary(Path file) throws IOException {
+		return BinaryFormat.mapTree(file);
+	}
+}
@@ -0,0 +1,65 @@
+package syntaxanalyzer.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Lexing and parsing a batch of independent programs on a pool of each size. The speedup is the
+// score on n threads over the score on one; near linear while n is within the physical cores
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class BatchBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Batch {
+
+		@Param({"1", "2", "4", "8"})
+		public int threads;
+
+		@Param({"MIXED", "LOOPS"})
+		public Inputs.Shape shape;
+
+		final Targets targets = Targets.load();
+
+		List<String> sources;
+		ForkJoinPool pool;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			sources = new ArrayList<String>();
+			String source = Inputs.program(shape, Inputs.Size.SMALL);
+			for (int i = 0; i < 1024; i++) {
+				sources.add(source);
+			}
+			pool = new ForkJoinPool(threads);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			pool.shutdown();
+		}
+	}
+
+	@Benchmark
+	public Object parseAll(Batch batch) {
+		return batch.targets.parseAll(batch.sources, batch.pool);
+	}
+}
@@ -0,0 +1,75 @@
+package syntaxanalyzer.benchmarks;
+
+// Deterministic benchmark programs. Each shape stresses one part of the grammar, and each size
+// is a target length in characters; statements are added until the program reaches it.
+public final class Inputs {
+
+	public enum Size {
+		SMALL(1 << 10), MEDIUM(1 << 16), LARGE(1 << 22);
+
+		final int chars;
+
+		Size(int chars) {
+			this.chars = chars;
+		}
+	}
+
+	public enum Shape {
+		// if / else if chains 50 branches deep
+		IF_CHAINS,
+		// assignments with long arithmetic expressions
+		ARITHMETIC,
+		// nested for and while loops
+		LOOPS,
+		// print statements and char literals
+		STRINGS,
+		// all of the above, interleaved
+		MIXED
+	}
+
+	private static final String HEADER = "public class Test { public static void main(String[] args){ ";
+	private static final String FOOTER = "}}";
+
+	private Inputs() {
+	}
+
+	public static String program(Shape shape, Size size) {
+		StringBuilder sb = new StringBuilder(size.chars + 1024);
+		sb.append(HEADER);
+		for (int i = 0; sb.length() < size.chars; i++) {
+			Shape next = shape == Shape.MIXED ? Shape.values()[i % (Shape.values().length - 1)] : shape;
+			statement(sb, next, i);
+		}
+		sb.append(FOOTER);
+		return sb.toString();
+	}
+
+	private static void statement(StringBuilder sb, Shape shape, int i) {
+		switch (shape) {
+		case IF_CHAINS:
+			sb.append("if (x == 0) { x = 1; }");
+			for (int branch = 1; branch < 50; branch++) {
+				sb.append(" else if (x == ").append(branch).append(") { x = ").append(branch + 1).append("; }");
+			}
+			// A statement can not start with if straight after an if statement
+			sb.append(" else { x = 0; } x = x + 1; ");
+			break;
+		case ARITHMETIC:
+			sb.append("x").append(i % 10).append(" = ");
+			for (int term = 0; term < 40; term++) {
+				sb.append(term == 0 ? "" : " " + "+-*/%".charAt(term % 5) + " ").append(term % 3 == 0 ? "y" + term : String.valueOf(term + i));
+			}
+			sb.append("; ");
+			break;
+		case LOOPS:
+			sb.append("for (int i = 0; i == 10; i + 1) { while (x == ").append(i).append(") { for ( ; true ; ) { x = x + 1; } } } ");
+			sb.append("while (true) { while (false) { y = y * 2; } } ");
+			break;
+		case STRINGS:
+			sb.append("System.out.println(\"message").append(i).append("\"); char c").append(i % 10).append(" = 'q'; ");
+			break;
+		default:
+			throw new IllegalArgumentException(shape.toString());
+		}
+	}
+}
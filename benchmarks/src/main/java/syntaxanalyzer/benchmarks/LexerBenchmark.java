@@ -0,0 +1,41 @@
+package syntaxanalyzer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class LexerBenchmark {
+
+	@Benchmark
+	public Object analyse(Workload workload) throws Exception {
+		return workload.targets.analyse(workload.source);
+	}
+
+	@Benchmark
+	public Object buffer(Workload workload) throws Exception {
+		return workload.targets.buffer(workload.source);
+	}
+
+	// Sources under two chunks (128K characters) are lexed sequentially, so these only differ
+	// from the above on LARGE
+	@Benchmark
+	public Object analyseParallel(Workload workload) throws Exception {
+		return workload.targets.analyseParallel(workload.source);
+	}
+
+	@Benchmark
+	public Object bufferParallel(Workload workload) throws Exception {
+		return workload.targets.bufferParallel(workload.source);
+	}
+}
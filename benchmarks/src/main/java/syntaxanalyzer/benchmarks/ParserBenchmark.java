@@ -0,0 +1,57 @@
+package syntaxanalyzer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Parsing only: the tokens are lexed once in the Workload setup
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ParserBenchmark {
+
+	@Benchmark
+	public Object parse(Workload workload) throws Exception {
+		return workload.targets.parse(workload.tokens);
+	}
+
+	@Benchmark
+	public Object parseGenerated(Workload workload) throws Exception {
+		return workload.targets.parseGenerated(workload.tokens);
+	}
+
+	@Benchmark
+	public Object parseBuffer(Workload workload) throws Exception {
+		return workload.targets.parseBuffer(workload.buffer);
+	}
+
+	// Programs under 32K tokens are parsed sequentially, so this only differs from parseBuffer
+	// on LARGE
+	@Benchmark
+	public Object parseParallel(Workload workload) throws Exception {
+		return workload.targets.parseParallel(workload.buffer);
+	}
+
+	@Benchmark
+	public Object parseFlat(Workload workload) throws Exception {
+		return workload.targets.parseFlat(workload.buffer);
+	}
+
+	@Benchmark
+	public Object parseAst(Workload workload) throws Exception {
+		return workload.targets.parseAst(workload.buffer);
+	}
+
+	@Benchmark
+	public int validate(Workload workload) {
+		return workload.targets.validate(workload.buffer);
+	}
+}
@@ -0,0 +1,104 @@
+package syntaxanalyzer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class PrinterBenchmark {
+
+	// The text format indents every node by its depth, and statement lists nest a level per
+	// statement, so the text of a LARGE tree runs to tens or hundreds of gigabytes: far more
+	// than a String can hold, but it can still be streamed
+	@State(Scope.Benchmark)
+	public static class Trees {
+
+		@Param({"MIXED", "IF_CHAINS", "ARITHMETIC", "LOOPS", "STRINGS"})
+		public Inputs.Shape shape;
+
+		@Param({"SMALL", "MEDIUM"})
+		public Inputs.Size size;
+
+		final Targets targets = Targets.load();
+
+		Object tree;
+
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			tree = targets.parse(targets.analyse(Inputs.program(shape, size)));
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Exports {
+
+		@Param({"MIXED", "IF_CHAINS", "ARITHMETIC", "LOOPS", "STRINGS"})
+		public Inputs.Shape shape;
+
+		@Param({"SMALL", "MEDIUM", "LARGE"})
+		public Inputs.Size size;
+
+		@Param({"TEXT", "JSON", "DOT"})
+		public String format;
+
+		final Targets targets = Targets.load();
+
+		Object tree;
+
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			tree = targets.parse(targets.analyse(Inputs.program(shape, size)));
+		}
+	}
+
+	// Counts the characters written instead of keeping them, so only the writer is measured
+	static final class Sink implements Appendable {
+
+		long chars;
+
+		@Override
+		public Appendable append(CharSequence csq) {
+			chars += csq.length();
+			return this;
+		}
+
+		@Override
+		public Appendable append(CharSequence csq, int start, int end) {
+			chars += end - start;
+			return this;
+		}
+
+		@Override
+		public Appendable append(char c) {
+			chars++;
+			return this;
+		}
+	}
+
+	@Benchmark
+	public String print(Trees trees) {
+		return trees.targets.print(trees.tree);
+	}
+
+	@Benchmark
+	public long export(Exports exports) throws Exception {
+		Sink sink = new Sink();
+		exports.targets.write(exports.tree, exports.format, sink);
+		return sink.chars;
+	}
+}
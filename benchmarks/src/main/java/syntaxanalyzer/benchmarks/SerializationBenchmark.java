@@ -0,0 +1,105 @@
+package syntaxanalyzer.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Handing a parse result to another stage: as a text dump, by reparsing the source, or in the
+// binary format, read whole or mapped lazily from a file
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SerializationBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Programs {
+
+		@Param({"MIXED", "IF_CHAINS", "ARITHMETIC", "LOOPS", "STRINGS"})
+		public Inputs.Shape shape;
+
+		@Param({"SMALL", "MEDIUM", "LARGE"})
+		public Inputs.Size size;
+
+		final Targets targets = Targets.load();
+
+		String source;
+		Object tree;
+		byte[] binary;
+		Path file;
+
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			source = Inputs.program(shape, size);
+			tree = targets.parse(targets.analyse(source));
+			binary = targets.writeBinary(tree);
+			file = Files.createTempFile("tree", ".bin");
+			Files.write(file, binary);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws Exception {
+			Files.delete(file);
+		}
+	}
+
+	// A LARGE text dump is far bigger than a String can hold, see PrinterBenchmark
+	@State(Scope.Benchmark)
+	public static class Dumps {
+
+		@Param({"MIXED", "IF_CHAINS", "ARITHMETIC", "LOOPS", "STRINGS"})
+		public Inputs.Shape shape;
+
+		@Param({"SMALL", "MEDIUM"})
+		public Inputs.Size size;
+
+		final Targets targets = Targets.load();
+
+		Object tree;
+
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			tree = targets.parse(targets.analyse(Inputs.program(shape, size)));
+		}
+	}
+
+	@Benchmark
+	public String writeText(Dumps dumps) {
+		return dumps.targets.print(dumps.tree);
+	}
+
+	@Benchmark
+	public Object reparse(Programs programs) throws Exception {
+		return programs.targets.parse(programs.targets.analyse(programs.source));
+	}
+
+	@Benchmark
+	public byte[] writeBinary(Programs programs) throws Exception {
+		return programs.targets.writeBinary(programs.tree);
+	}
+
+	@Benchmark
+	public Object readBinary(Programs programs) throws Exception {
+		return programs.targets.readBinary(programs.binary);
+	}
+
+	@Benchmark
+	public Object mapBinary(Programs programs) throws Exception {
+		return programs.targets.mapBinary(programs.file);
+	}
+}
@@ -0,0 +1,72 @@
+package syntaxanalyzer.benchmarks;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// The operations being measured. The analyser lives in the default package, which code in a
+// named package cannot refer to, and JMH will not generate benchmarks in the default package. So
+// the operations are implemented by the default package class BenchmarkTargets, and reached
+// through this interface, with the analyser's types passed around as plain Objects. The calls
+// are monomorphic and inline like direct calls.
+public interface Targets {
+
+	// LexicalAnalyser.analyse, giving a List<Token>
+	Object analyse(String source) throws Exception;
+
+	// LexicalAnalyser.buffer, giving a TokenBuffer
+	Object buffer(String source) throws Exception;
+
+	// LexicalAnalyser.analyseParallel, giving a List<Token>
+	Object analyseParallel(String source) throws Exception;
+
+	// LexicalAnalyser.bufferParallel, giving a TokenBuffer
+	Object bufferParallel(String source) throws Exception;
+
+	// SyntacticAnalyser.parse on a List<Token> with the table driven engine
+	Object parse(Object tokens) throws Exception;
+
+	// SyntacticAnalyser.parse on a List<Token> with the generated recursive descent engine
+	Object parseGenerated(Object tokens) throws Exception;
+
+	// SyntacticAnalyser.parse on a TokenBuffer
+	Object parseBuffer(Object buffer) throws Exception;
+
+	// SyntacticAnalyser.parseParallel on a TokenBuffer
+	Object parseParallel(Object buffer) throws Exception;
+
+	// SyntacticAnalyser.parseFlat on a TokenBuffer
+	Object parseFlat(Object buffer) throws Exception;
+
+	// SyntacticAnalyser.parseAst on a TokenBuffer, giving the compact AST
+	Object parseAst(Object buffer) throws Exception;
+
+	// SyntacticAnalyser.validate on a TokenBuffer
+	int validate(Object buffer);
+
+	// BatchParser.parseAll on pool, a ForkJoinPool, giving a BatchResult
+	Object parseAll(List<String> sources, ForkJoinPool pool);
+
+	// ParseTree.toString
+	String print(Object tree);
+
+	// ParseTreeWriter.write in the named format (TEXT, JSON or DOT)
+	void write(Object tree, String format, Appendable out) throws Exception;
+
+	// BinaryFormat.writeTree into a byte array
+	byte[] writeBinary(Object tree) throws Exception;
+
+	// BinaryFormat.readTree from a byte array, giving a ParseTree
+	Object readBinary(byte[] bytes) throws Exception;
+
+	// BinaryFormat.mapTree, giving a MappedParseTree
+	Object mapBinary(Path file) throws Exception;
+
+	static Targets load() {
+		try {
+			return (Targets) Class.forName("BenchmarkTargets").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("BenchmarkTargets is missing from the class path", e);
+		}
+	}
+}
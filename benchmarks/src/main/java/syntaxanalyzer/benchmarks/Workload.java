@@ -0,0 +1,32 @@
+package syntaxanalyzer.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// One benchmark program per shape and size, with its tokens prepared up front so each phase can
+// be measured on its own
+@State(Scope.Benchmark)
+public class Workload {
+
+	@Param({"MIXED", "IF_CHAINS", "ARITHMETIC", "LOOPS", "STRINGS"})
+	public Inputs.Shape shape;
+
+	@Param({"SMALL", "MEDIUM", "LARGE"})
+	public Inputs.Size size;
+
+	final Targets targets = Targets.load();
+
+	String source;
+	Object tokens;
+	Object buffer;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		source = Inputs.program(shape, size);
+		tokens = targets.analyse(source);
+		buffer = targets.buffer(source);
+	}
+}